@@ -255,6 +255,11 @@ public class OClusterRemote implements OCluster {
     throw new UnsupportedOperationException("remote cluster doesn't support atomic locking");
   }
 
+  @Override
+  public boolean isAtomicExclusiveLocked() {
+    throw new UnsupportedOperationException("remote cluster doesn't support atomic locking");
+  }
+
   @Override
   public OClusterBrowsePage nextPage(long lastPosition) {
     throw new UnsupportedOperationException();
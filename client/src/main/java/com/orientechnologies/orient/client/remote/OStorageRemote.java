@@ -26,6 +26,7 @@ import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.io.OIOException;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.thread.OScheduledThreadPoolExecutorWithLogging;
+import com.orientechnologies.common.thread.OThreadPoolExecutorWithLogging;
 import com.orientechnologies.common.util.OCallable;
 import com.orientechnologies.common.util.OCommonConst;
 import com.orientechnologies.orient.client.ONotSendRequestException;
@@ -81,10 +82,17 @@ import java.io.OutputStream;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import static com.orientechnologies.orient.core.config.OGlobalConfiguration.CLIENT_CONNECTION_FETCH_HOST_LIST;
 
@@ -114,6 +122,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
   private final List<String>                   serverURLs              = new ArrayList<String>();
   private final Map<String, OCluster>          clusterMap              = new ConcurrentHashMap<String, OCluster>();
   private final ExecutorService                asynchExecutor;
+  private final ExecutorService                prefetchExecutor;
   private final ODocument                      clusterConfiguration    = new ODocument();
   private final AtomicInteger                  users                   = new AtomicInteger(0);
   private       OContextConfiguration          clientConfiguration;
@@ -148,6 +157,15 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
     parseServerURLs();
 
     asynchExecutor = new OScheduledThreadPoolExecutorWithLogging(1);
+    // A PREFETCH USES A CONNECTION, SO THERE ARE NEVER MORE PREFETCHES THAN CONNECTIONS. THE OTHERS ARE FETCHED ON DEMAND
+    prefetchExecutor = new OThreadPoolExecutorWithLogging(0,
+        Math.max(1, clientConfiguration.getValueAsInteger(OGlobalConfiguration.CLIENT_CHANNEL_MAX_POOL)), 60L, TimeUnit.SECONDS,
+        new SynchronousQueue<>(),
+        r -> {
+          final Thread thread = new Thread(r, "OrientDB Remote Query Prefetch " + iURL);
+          thread.setDaemon(true);
+          return thread;
+        });
 
     this.connectionManager = connectionManager;
     this.context = context;
@@ -222,7 +240,16 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
 
   public <T extends OBinaryResponse> T networkOperationRetryTimeout(final OBinaryRequest<T> request, final String errorMessage,
       int retry, int timeout) {
-    return baseNetworkOperation((network, session) -> {
+    return baseNetworkOperation(requestOperation(request, timeout), errorMessage, retry);
+  }
+
+  private <T extends OBinaryResponse> OStorageRemoteOperation<T> requestOperation(final OBinaryRequest<T> request, int timeout) {
+    return requestOperation(request, request::createResponse, timeout);
+  }
+
+  private <T extends OBinaryResponse> OStorageRemoteOperation<T> requestOperation(final OBinaryRequest<?> request,
+      final Supplier<T> responseFactory, int timeout) {
+    return (network, session) -> {
       try {
         try {
           network.beginRequest(request.getCommand(), session);
@@ -235,7 +262,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
       }
 
       int prev = network.getSocketTimeout();
-      T response = request.createResponse();
+      T response = responseFactory.get();
       try {
         if (timeout > 0)
           network.setSocketTimeout(timeout);
@@ -248,7 +275,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
       }
       connectionManager.release(network);
       return response;
-    }, errorMessage, retry);
+    };
   }
 
   public <T extends OBinaryResponse> T networkOperationNoRetry(final OBinaryRequest<T> request, final String errorMessage) {
@@ -261,6 +288,13 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
 
   public <T> T baseNetworkOperation(final OStorageRemoteOperation<T> operation, final String errorMessage, int retry) {
     OStorageRemoteSession session = getCurrentSession();
+    // THE NEXT PAGE OF A QUERY CAN BE IN FLIGHT FOR THIS SESSION
+    session.waitPrefetch();
+    return baseNetworkOperation(session, operation, errorMessage, retry);
+  }
+
+  private <T> T baseNetworkOperation(final OStorageRemoteSession session, final OStorageRemoteOperation<T> operation,
+      final String errorMessage, int retry) {
     if (session.commandExecuting)
       throw new ODatabaseException(
           "Cannot execute the request because an asynchronous operation is in progress. Please use a different connection");
@@ -293,7 +327,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
         // In case i do not have a token or i'm switching between server i've to execute a open operation.
         OStorageRemoteNodeSession nodeSession = session.getServerSession(network.getServerURL());
         if (nodeSession == null || !nodeSession.isValid()) {
-          openRemoteDatabase(network);
+          openRemoteDatabase(session, network);
           if (!network.tryLock())
             continue;
         }
@@ -527,6 +561,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
     } finally {
       stateLock.releaseWriteLock();
     }
+    prefetchExecutor.shutdown();
     if (pushThread != null) {
       pushThread.shutdown();
       try {
@@ -883,14 +918,11 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
   }
 
   public ORemoteQueryResult query(ODatabaseDocumentRemote db, String query, Object[] args) {
-    int recordsPerPage = OGlobalConfiguration.QUERY_REMOTE_RESULTSET_PAGE_SIZE.getValueAsInteger();
-    if (recordsPerPage <= 0) {
-      recordsPerPage = 100;
-    }
+    int recordsPerPage = db.getQueryPageSize();
     OQueryRequest request = new OQueryRequest("sql", query, args, OQueryRequest.QUERY, db.getSerializer(), recordsPerPage);
     OQueryResponse response = networkOperation(request, "Error on executing command: " + query);
     ORemoteResultSet rs = new ORemoteResultSet(db, response.getQueryId(), response.getResult(), response.getExecutionPlan(),
-        response.getQueryStats(), response.isHasNextPage());
+        response.getQueryStats(), response.isHasNextPage(), recordsPerPage);
     if (response.isHasNextPage()) {
       stickToSession();
     } else {
@@ -900,15 +932,12 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
   }
 
   public ORemoteQueryResult query(ODatabaseDocumentRemote db, String query, Map args) {
-    int recordsPerPage = OGlobalConfiguration.QUERY_REMOTE_RESULTSET_PAGE_SIZE.getValueAsInteger();
-    if (recordsPerPage <= 0) {
-      recordsPerPage = 100;
-    }
+    int recordsPerPage = db.getQueryPageSize();
     OQueryRequest request = new OQueryRequest("sql", query, args, OQueryRequest.QUERY, db.getSerializer(), recordsPerPage);
     OQueryResponse response = networkOperation(request, "Error on executing command: " + query);
 
     ORemoteResultSet rs = new ORemoteResultSet(db, response.getQueryId(), response.getResult(), response.getExecutionPlan(),
-        response.getQueryStats(), response.isHasNextPage());
+        response.getQueryStats(), response.isHasNextPage(), recordsPerPage);
     if (response.isHasNextPage()) {
       stickToSession();
     } else {
@@ -918,14 +947,11 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
   }
 
   public ORemoteQueryResult command(ODatabaseDocumentRemote db, String query, Object[] args) {
-    int recordsPerPage = OGlobalConfiguration.QUERY_REMOTE_RESULTSET_PAGE_SIZE.getValueAsInteger();
-    if (recordsPerPage <= 0) {
-      recordsPerPage = 100;
-    }
+    int recordsPerPage = db.getQueryPageSize();
     OQueryRequest request = new OQueryRequest("sql", query, args, OQueryRequest.COMMAND, db.getSerializer(), recordsPerPage);
     OQueryResponse response = networkOperationNoRetry(request, "Error on executing command: " + query);
     ORemoteResultSet rs = new ORemoteResultSet(db, response.getQueryId(), response.getResult(), response.getExecutionPlan(),
-        response.getQueryStats(), response.isHasNextPage());
+        response.getQueryStats(), response.isHasNextPage(), recordsPerPage);
     if (response.isHasNextPage()) {
       stickToSession();
     } else {
@@ -935,14 +961,11 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
   }
 
   public ORemoteQueryResult command(ODatabaseDocumentRemote db, String query, Map args) {
-    int recordsPerPage = OGlobalConfiguration.QUERY_REMOTE_RESULTSET_PAGE_SIZE.getValueAsInteger();
-    if (recordsPerPage <= 0) {
-      recordsPerPage = 100;
-    }
+    int recordsPerPage = db.getQueryPageSize();
     OQueryRequest request = new OQueryRequest("sql", query, args, OQueryRequest.COMMAND, db.getSerializer(), recordsPerPage);
     OQueryResponse response = networkOperationNoRetry(request, "Error on executing command: " + query);
     ORemoteResultSet rs = new ORemoteResultSet(db, response.getQueryId(), response.getResult(), response.getExecutionPlan(),
-        response.getQueryStats(), response.isHasNextPage());
+        response.getQueryStats(), response.isHasNextPage(), recordsPerPage);
     if (response.isHasNextPage()) {
       stickToSession();
     } else {
@@ -952,14 +975,11 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
   }
 
   public ORemoteQueryResult execute(ODatabaseDocumentRemote db, String language, String query, Object[] args) {
-    int recordsPerPage = OGlobalConfiguration.QUERY_REMOTE_RESULTSET_PAGE_SIZE.getValueAsInteger();
-    if (recordsPerPage <= 0) {
-      recordsPerPage = 100;
-    }
+    int recordsPerPage = db.getQueryPageSize();
     OQueryRequest request = new OQueryRequest(language, query, args, OQueryRequest.EXECUTE, db.getSerializer(), recordsPerPage);
     OQueryResponse response = networkOperationNoRetry(request, "Error on executing command: " + query);
     ORemoteResultSet rs = new ORemoteResultSet(db, response.getQueryId(), response.getResult(), response.getExecutionPlan(),
-        response.getQueryStats(), response.isHasNextPage());
+        response.getQueryStats(), response.isHasNextPage(), recordsPerPage);
 
     if (response.isHasNextPage()) {
       stickToSession();
@@ -971,14 +991,11 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
   }
 
   public ORemoteQueryResult execute(ODatabaseDocumentRemote db, String language, String query, Map args) {
-    int recordsPerPage = OGlobalConfiguration.QUERY_REMOTE_RESULTSET_PAGE_SIZE.getValueAsInteger();
-    if (recordsPerPage <= 0) {
-      recordsPerPage = 100;
-    }
+    int recordsPerPage = db.getQueryPageSize();
     OQueryRequest request = new OQueryRequest(language, query, args, OQueryRequest.EXECUTE, db.getSerializer(), recordsPerPage);
     OQueryResponse response = networkOperationNoRetry(request, "Error on executing command: " + query);
     ORemoteResultSet rs = new ORemoteResultSet(db, response.getQueryId(), response.getResult(), response.getExecutionPlan(),
-        response.getQueryStats(), response.isHasNextPage());
+        response.getQueryStats(), response.isHasNextPage(), recordsPerPage);
     if (response.isHasNextPage()) {
       stickToSession();
     } else {
@@ -994,12 +1011,19 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
   }
 
   public void fetchNextPage(ODatabaseDocumentRemote database, ORemoteResultSet rs) {
-    int recordsPerPage = OGlobalConfiguration.QUERY_REMOTE_RESULTSET_PAGE_SIZE.getValueAsInteger();
-    if (recordsPerPage <= 0) {
-      recordsPerPage = 100;
+    OQueryResponse response;
+    Future<ORawQueryResponse> prefetched = rs.takePrefetchedPage();
+    if (prefetched != null) {
+      // THE CONSUMER IS FASTER THAN THE NETWORK IF IT HAS TO WAIT FOR THE PAGE
+      boolean waited = !prefetched.isDone();
+      response = waitPage(prefetched, rs);
+      if (waited)
+        rs.growRecordsPerPage(OGlobalConfiguration.QUERY_REMOTE_RESULTSET_MAX_PAGE_SIZE.getValueAsInteger());
+    } else {
+      int recordsPerPage = rs.getRecordsPerPage();
+      OQueryNextPageRequest request = new OQueryNextPageRequest(rs.getQueryId(), recordsPerPage);
+      response = networkOperation(request, "Error on fetching next page for statment: " + rs.getQueryId());
     }
-    OQueryNextPageRequest request = new OQueryNextPageRequest(rs.getQueryId(), recordsPerPage);
-    OQueryResponse response = networkOperation(request, "Error on fetching next page for statment: " + rs.getQueryId());
 
     rs.fetched(response.getResult(), response.isHasNextPage(), response.getExecutionPlan(), response.getQueryStats());
     if (!response.isHasNextPage()) {
@@ -1008,12 +1032,61 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
     }
   }
 
+  /**
+   * Requests the next page of the query in background, the page is deserialized and applied to the result set by {@link
+   * #fetchNextPage(ODatabaseDocumentRemote, ORemoteResultSet)} on the thread of the session: the background thread only reads its
+   * bytes. Only one page at a time is fetched in background for a session.
+   *
+   * @return false if the page cannot be requested now
+   */
+  public boolean prefetchNextPage(ODatabaseDocumentRemote database, ORemoteResultSet rs) {
+    OStorageRemoteSession session = getCurrentSession();
+    if (session == null || session.isPrefetching() || session.commandExecuting)
+      return false;
+
+    OQueryNextPageRequest request = new OQueryNextPageRequest(rs.getQueryId(), rs.getRecordsPerPage());
+    String errorMessage = "Error on fetching next page for statment: " + rs.getQueryId();
+    CompletableFuture<ORawQueryResponse> page;
+    try {
+      page = CompletableFuture
+          .supplyAsync(() -> baseNetworkOperation(session, requestOperation(request, ORawQueryResponse::new, 0), errorMessage,
+              connectionRetry), prefetchExecutor);
+    } catch (RejectedExecutionException e) {
+      return false;
+    }
+    session.setPrefetch(page);
+    rs.setPrefetchedPage(page);
+    return true;
+  }
+
+  private OQueryResponse waitPage(Future<ORawQueryResponse> page, ORemoteResultSet rs) {
+    try {
+      return page.get().toResponse(getCurrentSession());
+    } catch (IOException e) {
+      throw OException
+          .wrapException(new OStorageException("Error on reading next page for statment: " + rs.getQueryId()), e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw OException
+          .wrapException(new OStorageException("Error on fetching next page for statment: " + rs.getQueryId()), e.getCause());
+    } catch (CancellationException e) {
+      throw OException
+          .wrapException(new OStorageException("Error on fetching next page for statment: " + rs.getQueryId()), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw OException.wrapException(new OInterruptedException("Interrupted while fetching the next page"), e);
+    }
+  }
+
   public List<ORecordOperation> commit(final OTransactionInternal iTx) {
     unstickToSession();
     OCommit37Request request = new OCommit37Request(iTx.getId(), true, iTx.isUsingLog(), iTx.getRecordOperations(),
         iTx.getIndexOperations());
 
     OCommit37Response response = networkOperationNoRetry(request, "Error on commit");
+    if (response.getConsistencyToken() != null)
+      getCurrentSession().setConsistencyToken(response.getConsistencyToken());
     for (OCommit37Response.OCreatedRecordResponse created : response.getCreated()) {
       iTx.updateIdentityAfterCommit(created.getCurrentRid(), created.getCreatedRid());
       ORecordOperation rop = iTx.getRecordEntry(created.getCurrentRid());
@@ -1433,8 +1506,10 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
   }
 
   public void openRemoteDatabase(OChannelBinaryAsynchClient network) throws IOException {
+    openRemoteDatabase(getCurrentSession(), network);
+  }
 
-    OStorageRemoteSession session = getCurrentSession();
+  private void openRemoteDatabase(OStorageRemoteSession session, OChannelBinaryAsynchClient network) throws IOException {
     OStorageRemoteNodeSession nodeSession = session.getOrCreateServerSession(network.getServerURL());
     OOpen37Request request = new OOpen37Request(name, session.connectionUserName, session.connectionUserPassword);
     try {
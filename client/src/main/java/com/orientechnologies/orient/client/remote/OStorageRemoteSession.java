@@ -22,6 +22,9 @@ package com.orientechnologies.orient.client.remote;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinary;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Created by tglman on 31/03/16.
@@ -42,6 +45,14 @@ public class OStorageRemoteSession {
    * this is for avoid to send to the server wrong request expecting a specific state that is not there anymore.
    */
   private int     stickToSession = 0;
+  /**
+   * The request of the next page of a query sent in background, the requests of a session are sent one at a time.
+   */
+  private volatile Future<?> prefetch;
+  /**
+   * Consistency token of the last transaction committed by the session on a distributed server, sent with its queries and commands.
+   */
+  private volatile String    consistencyToken;
 
   public OStorageRemoteSession(final int sessionId) {
     this.uniqueClientSessionId = sessionId;
@@ -77,6 +88,30 @@ public class OStorageRemoteSession {
     closed = true;
   }
 
+  public boolean isPrefetching() {
+    Future<?> current = prefetch;
+    return current != null && !current.isDone();
+  }
+
+  public void setPrefetch(Future<?> prefetch) {
+    this.prefetch = prefetch;
+  }
+
+  /**
+   * Waits the end of the request sent in background, its outcome is reported by the result set that requested the page.
+   */
+  public void waitPrefetch() {
+    Future<?> current = prefetch;
+    if (current == null)
+      return;
+    try {
+      current.get();
+    } catch (ExecutionException | CancellationException ignore) {
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   public boolean isClosed() {
     return closed;
   }
@@ -114,4 +149,12 @@ public class OStorageRemoteSession {
   public boolean isStickToSession() {
     return stickToSession > 0;
   }
+
+  public String getConsistencyToken() {
+    return consistencyToken;
+  }
+
+  public void setConsistencyToken(final String consistencyToken) {
+    this.consistencyToken = consistencyToken;
+  }
 }
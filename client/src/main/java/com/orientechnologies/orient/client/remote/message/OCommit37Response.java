@@ -25,6 +25,7 @@ import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
 import com.orientechnologies.orient.core.storage.ridbag.sbtree.OBonsaiCollectionPointer;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelDataInput;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelDataOutput;
 
@@ -94,14 +95,21 @@ public final class OCommit37Response implements OBinaryResponse {
   private List<OUpdatedRecordResponse>        updated;
   private List<ODeletedRecordResponse>        deleted;
   private Map<UUID, OBonsaiCollectionPointer> collectionChanges;
+  private String                              consistencyToken;
 
   public OCommit37Response(List<OCreatedRecordResponse> created, List<OUpdatedRecordResponse> updated,
       List<ODeletedRecordResponse> deleted, Map<UUID, OBonsaiCollectionPointer> collectionChanges) {
+    this(created, updated, deleted, collectionChanges, null);
+  }
+
+  public OCommit37Response(List<OCreatedRecordResponse> created, List<OUpdatedRecordResponse> updated,
+      List<ODeletedRecordResponse> deleted, Map<UUID, OBonsaiCollectionPointer> collectionChanges, String consistencyToken) {
     super();
     this.created = created;
     this.updated = updated;
     this.deleted = deleted;
     this.collectionChanges = collectionChanges;
+    this.consistencyToken = consistencyToken;
   }
 
   public OCommit37Response() {
@@ -139,6 +147,8 @@ public final class OCommit37Response implements OBinaryResponse {
 
     collectionChanges = OMessageHelper.readCollectionChanges(network);
 
+    if (OMessageHelper.getServerProtocolVersion(network) >= OChannelBinaryProtocol.PROTOCOL_VERSION_38)
+      consistencyToken = network.readString();
   }
 
   @Override
@@ -163,6 +173,9 @@ public final class OCommit37Response implements OBinaryResponse {
     }
 
     OMessageHelper.writeCollectionChanges(channel, collectionChanges);
+
+    if (protocolVersion >= OChannelBinaryProtocol.PROTOCOL_VERSION_38)
+      channel.writeString(consistencyToken);
   }
 
   public List<OCreatedRecordResponse> getCreated() {
@@ -180,4 +193,11 @@ public final class OCommit37Response implements OBinaryResponse {
   public List<ODeletedRecordResponse> getDeleted() {
     return deleted;
   }
+
+  /**
+   * Returns the consistency token of the committed transaction, null if the server does not replicate the database.
+   */
+  public String getConsistencyToken() {
+    return consistencyToken;
+  }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.orientechnologies.orient.client.remote.message;
 
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.util.OCommonConst;
+import com.orientechnologies.orient.client.binary.OChannelBinaryAsynchClient;
 import com.orientechnologies.orient.client.remote.OClusterRemote;
 import com.orientechnologies.orient.client.remote.OCollectionNetworkSerializer;
 import com.orientechnologies.orient.client.remote.message.tx.IndexChange;
@@ -502,4 +503,13 @@ public class OMessageHelper {
     OResultSerializerNetwork ser = new OResultSerializerNetwork();
     return ser.fromStream(channel);
   }
+
+  /**
+   * Returns the protocol version of the server on the other side of a client channel, the current version for the other channels.
+   */
+  public static int getServerProtocolVersion(Object channel) {
+    if (channel instanceof OChannelBinaryAsynchClient)
+      return ((OChannelBinaryAsynchClient) channel).getSrvProtocolVersion();
+    return OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION;
+  }
 }
@@ -0,0 +1,183 @@
+package com.orientechnologies.orient.client.remote.message;
+
+import com.orientechnologies.orient.client.remote.OBinaryResponse;
+import com.orientechnologies.orient.client.remote.OStorageRemoteSession;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelDataInput;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelDataOutput;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Page of a query read from the network without deserializing its records, so it can be read by a thread that does not own the
+ * database session. The page is deserialized by {@link #toResponse(OStorageRemoteSession)} on the thread of the session.
+ */
+public class ORawQueryResponse implements OBinaryResponse {
+  private byte[] content;
+
+  @Override
+  public void write(OChannelDataOutput channel, int protocolVersion, ORecordSerializer serializer) throws IOException {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Copies the page, following the format read by {@link OQueryResponse#read(OChannelDataInput, OStorageRemoteSession)}.
+   */
+  @Override
+  public void read(OChannelDataInput network, OStorageRemoteSession session) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(buffer);
+    copyBytes(network, out);
+    out.writeBoolean(network.readBoolean());
+    boolean executionPlan = network.readBoolean();
+    out.writeBoolean(executionPlan);
+    if (executionPlan) {
+      copyResult(network, out);
+    }
+    out.writeInt(network.readInt());
+    int size = network.readInt();
+    out.writeInt(size);
+    while (size-- > 0) {
+      copyResult(network, out);
+    }
+    out.writeBoolean(network.readBoolean());
+    int stats = network.readInt();
+    out.writeInt(stats);
+    while (stats-- > 0) {
+      copyBytes(network, out);
+      out.writeLong(network.readLong());
+    }
+    out.writeBoolean(network.readBoolean());
+    out.flush();
+    content = buffer.toByteArray();
+  }
+
+  /**
+   * Deserializes the page against the database bound to the current thread.
+   */
+  public OQueryResponse toResponse(OStorageRemoteSession session) throws IOException {
+    OQueryResponse response = new OQueryResponse();
+    response.read(new OBytesDataInput(content), session);
+    return response;
+  }
+
+  private static void copyResult(OChannelDataInput network, DataOutputStream out) throws IOException {
+    byte type = network.readByte();
+    out.writeByte(type);
+    switch (type) {
+    case OQueryResponse.RECORD_TYPE_BLOB:
+    case OQueryResponse.RECORD_TYPE_VERTEX:
+    case OQueryResponse.RECORD_TYPE_EDGE:
+    case OQueryResponse.RECORD_TYPE_ELEMENT:
+      copyIdentifiable(network, out);
+      break;
+    case OQueryResponse.RECORD_TYPE_PROJECTION:
+      copyBytes(network, out);
+      break;
+    }
+  }
+
+  private static void copyIdentifiable(OChannelDataInput network, DataOutputStream out) throws IOException {
+    short classId = network.readShort();
+    out.writeShort(classId);
+    if (classId == OChannelBinaryProtocol.RECORD_NULL) {
+      return;
+    }
+    if (classId != OChannelBinaryProtocol.RECORD_RID) {
+      out.writeByte(network.readByte());
+    }
+    ORecordId rid = network.readRID();
+    out.writeShort(rid.getClusterId());
+    out.writeLong(rid.getClusterPosition());
+    if (classId != OChannelBinaryProtocol.RECORD_RID) {
+      out.writeInt(network.readVersion());
+      copyBytes(network, out);
+    }
+  }
+
+  // STRINGS AND BYTE ARRAYS SHARE THE SAME FORMAT: LENGTH (-1 FOR NULL) FOLLOWED BY THE BYTES
+  private static void copyBytes(OChannelDataInput network, DataOutputStream out) throws IOException {
+    byte[] bytes = network.readBytes();
+    if (bytes == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static final class OBytesDataInput implements OChannelDataInput {
+    private final DataInputStream in;
+
+    private OBytesDataInput(byte[] content) {
+      in = new DataInputStream(new ByteArrayInputStream(content));
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+      return in.readByte();
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+      return in.readBoolean();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+      return in.readInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+      return in.readLong();
+    }
+
+    @Override
+    public short readShort() throws IOException {
+      return in.readShort();
+    }
+
+    @Override
+    public String readString() throws IOException {
+      byte[] bytes = readBytes();
+      return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] readBytes() throws IOException {
+      int length = in.readInt();
+      if (length < 0) {
+        return null;
+      }
+      byte[] bytes = new byte[length];
+      in.readFully(bytes);
+      return bytes;
+    }
+
+    @Override
+    public ORecordId readRID() throws IOException {
+      int clusterId = readShort();
+      long clusterPosition = readLong();
+      return new ORecordId(clusterId, clusterPosition);
+    }
+
+    @Override
+    public int readVersion() throws IOException {
+      return readInt();
+    }
+
+    @Override
+    public InputStream getDataInput() {
+      return in;
+    }
+  }
+}
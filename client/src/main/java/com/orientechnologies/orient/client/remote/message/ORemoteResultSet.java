@@ -1,5 +1,6 @@
 package com.orientechnologies.orient.client.remote.message;
 
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentRemote;
 import com.orientechnologies.orient.core.sql.executor.OExecutionPlan;
 import com.orientechnologies.orient.core.sql.executor.OResult;
@@ -9,6 +10,7 @@ import com.orientechnologies.orient.core.sql.executor.OResultSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Future;
 
 /**
  * Created by luigidellaquila on 05/12/16.
@@ -21,15 +23,18 @@ public class ORemoteResultSet implements OResultSet {
   private       Optional<OExecutionPlan> executionPlan;
   private       Map<String, Long>        queryStats;
   private       boolean                  hasNextPage;
+  private       int                      recordsPerPage;
+  private       Future<ORawQueryResponse>   prefetchedPage;
 
   public ORemoteResultSet(ODatabaseDocumentRemote db, String queryId, List<OResultInternal> currentPage,
-      Optional<OExecutionPlan> executionPlan, Map<String, Long> queryStats, boolean hasNextPage) {
+      Optional<OExecutionPlan> executionPlan, Map<String, Long> queryStats, boolean hasNextPage, int recordsPerPage) {
     this.db = db;
     this.queryId = queryId;
     this.currentPage = currentPage;
     this.executionPlan = executionPlan;
     this.queryStats = queryStats;
     this.hasNextPage = hasNextPage;
+    this.recordsPerPage = recordsPerPage;
     db.queryStarted(queryId, this);
     for (OResultInternal result : currentPage) {
       result.bindToCache(db);
@@ -63,11 +68,19 @@ public class ORemoteResultSet implements OResultSet {
     if (currentPage.isEmpty()) {
       throw new IllegalStateException();
     }
-    return currentPage.remove(0);
+    OResult result = currentPage.remove(0);
+    if (hasNextPage && prefetchedPage == null && OGlobalConfiguration.QUERY_REMOTE_RESULTSET_PREFETCH.getValueAsBoolean()) {
+      db.prefetchNextPage(this);
+    }
+    return result;
   }
 
   @Override
   public void close() {
+    if (prefetchedPage != null) {
+      // THE PAGE IN FLIGHT TELLS IF THE SERVER HAS ALREADY CLOSED THE QUERY
+      fetchNextPage();
+    }
     if (hasNextPage) {
       // CLOSES THE QUERY SERVER SIDE ONLY IF THERE IS ANOTHER PAGE. THE SERVER ALREADY AUTOMATICALLY CLOSES THE QUERY AFTER SENDING THE LAST PAGE
       db.closeQuery(queryId);
@@ -96,6 +109,35 @@ public class ORemoteResultSet implements OResultSet {
     return queryId;
   }
 
+  /**
+   * @return the number of results requested with each page of this query
+   */
+  public int getRecordsPerPage() {
+    return recordsPerPage;
+  }
+
+  /**
+   * Doubles the number of results requested with each page, up to the given maximum.
+   */
+  public void growRecordsPerPage(int maxRecordsPerPage) {
+    if (recordsPerPage < maxRecordsPerPage) {
+      recordsPerPage = (int) Math.min(maxRecordsPerPage, recordsPerPage * 2L);
+    }
+  }
+
+  /**
+   * @return the request of the next page sent in background, or null if the next page was not requested yet
+   */
+  public Future<ORawQueryResponse> takePrefetchedPage() {
+    Future<ORawQueryResponse> page = prefetchedPage;
+    prefetchedPage = null;
+    return page;
+  }
+
+  public void setPrefetchedPage(Future<ORawQueryResponse> prefetchedPage) {
+    this.prefetchedPage = prefetchedPage;
+  }
+
   public void fetched(List<OResultInternal> result, boolean hasNextPage, Optional<OExecutionPlan> executionPlan,
       Map<String, Long> queryStats) {
     this.currentPage = result;
@@ -86,6 +86,7 @@ public class ODatabaseDocumentRemote extends ODatabaseDocumentAbstract {
   protected OStorageRemoteSession sessionMetadata;
   private   OrientDBConfig        config;
   private   OStorageRemote        storage;
+  private   int                   queryPageSize;
 
   public ODatabaseDocumentRemote(final OStorageRemote storage) {
     activateOnCurrentThread();
@@ -324,6 +325,19 @@ public class ODatabaseDocumentRemote extends ODatabaseDocumentAbstract {
     this.sessionMetadata = sessionMetadata;
   }
 
+  /**
+   * Returns the consistency token of the last transaction committed by this session on a distributed server, null if none. The
+   * queries and commands of the session are executed by a server only after it has applied that transaction. Another session that
+   * sets the token with {@link #setConsistencyToken(String)} sees the transaction too.
+   */
+  public String getConsistencyToken() {
+    return sessionMetadata != null ? sessionMetadata.getConsistencyToken() : null;
+  }
+
+  public void setConsistencyToken(String consistencyToken) {
+    sessionMetadata.setConsistencyToken(consistencyToken);
+  }
+
   @Override
   public OStorageRemote getStorage() {
     return storage;
@@ -444,12 +458,38 @@ public class ODatabaseDocumentRemote extends ODatabaseDocumentAbstract {
     queryClosed(queryId);
   }
 
+  /**
+   * @return the number of results fetched with each request by the queries of this session
+   */
+  public int getQueryPageSize() {
+    int pageSize = queryPageSize > 0 ? queryPageSize : OGlobalConfiguration.QUERY_REMOTE_RESULTSET_PAGE_SIZE.getValueAsInteger();
+    return pageSize > 0 ? pageSize : 100;
+  }
+
+  /**
+   * Sets the number of results fetched with each request by the next queries of this session, a value lower than 1 restores the
+   * {@link OGlobalConfiguration#QUERY_REMOTE_RESULTSET_PAGE_SIZE} default.
+   */
+  public void setQueryPageSize(int queryPageSize) {
+    this.queryPageSize = queryPageSize;
+  }
+
   public void fetchNextPage(ORemoteResultSet rs) {
     checkOpenness();
     checkAndSendTransaction();
     storage.fetchNextPage(this, rs);
   }
 
+  /**
+   * Requests the next page of the result set in background. Nothing is requested in a transaction, where the changes can affect
+   * the next page.
+   */
+  public void prefetchNextPage(ORemoteResultSet rs) {
+    if (!isClosed() && !getTransaction().isActive()) {
+      storage.prefetchNextPage(this, rs);
+    }
+  }
+
   @Override
   public OLiveQueryMonitor live(String query, OLiveQueryResultListener listener, Object... args) {
     return storage.liveQuery(this, query, new OLiveQueryClientListener(this.copy(), listener), args);
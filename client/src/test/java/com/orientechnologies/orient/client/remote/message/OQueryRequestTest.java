@@ -1,7 +1,9 @@
 package com.orientechnologies.orient.client.remote.message;
 
+import com.orientechnologies.orient.client.remote.OStorageRemoteSession;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerNetworkFactory;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -86,4 +88,20 @@ public class OQueryRequestTest {
     Assert.assertEquals(request.getOperationType(), other.getOperationType());
     Assert.assertEquals(request.getRecordsPerPage(), other.getRecordsPerPage());
   }
+
+  @Test
+  public void testConsistencyToken() throws IOException {
+    OQueryRequest request = new OQueryRequest("sql", "select from Foo", (Object[]) null, OQueryRequest.COMMAND,
+        ORecordSerializerNetworkFactory.INSTANCE.current(), 123);
+    OStorageRemoteSession session = new OStorageRemoteSession(1);
+    session.setConsistencyToken("europe-0@3:1024");
+
+    MockChannel channel = new MockChannel();
+    request.write(channel, session);
+    channel.close();
+
+    OQueryRequest other = new OQueryRequest();
+    other.read(channel, OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION, ORecordSerializerNetworkFactory.INSTANCE.current());
+    Assert.assertEquals("europe-0@3:1024", other.getConsistencyToken());
+  }
 }
@@ -1,5 +1,8 @@
 package com.orientechnologies.orient.client.remote.message;
 
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerNetworkFactory;
 import com.orientechnologies.orient.core.sql.executor.OInternalResultSet;
 import com.orientechnologies.orient.core.sql.executor.OResult;
@@ -50,4 +53,39 @@ public class OQueryResponseTest {
     Assert.assertTrue(newResponse.isTxChanges());
   }
 
+  @Test
+  public void testRawResponse() throws IOException {
+    List<OResultInternal> resuls = new ArrayList<>();
+    OResultInternal projection = new OResultInternal();
+    projection.setProperty("name", "foo");
+    projection.setProperty("empty", null);
+    resuls.add(projection);
+    ODocument document = new ODocument();
+    ORecordInternal.setIdentity(document, new ORecordId(10, 1));
+    document.field("name", "bar");
+    resuls.add(new OResultInternal(document));
+    Map<String, Long> stats = new HashMap<>();
+    stats.put("rows", 2L);
+    OQueryResponse response = new OQueryResponse("query", false, resuls, Optional.empty(), true, stats, false);
+
+    MockChannel channel = new MockChannel();
+    response.write(channel, OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION, ORecordSerializerNetworkFactory.INSTANCE.current());
+    channel.close();
+
+    // THE PAGE IS READ AS BYTES AND DESERIALIZED LATER
+    ORawQueryResponse raw = new ORawQueryResponse();
+    raw.read(channel, null);
+    OQueryResponse newResponse = raw.toResponse(null);
+
+    Assert.assertEquals("query", newResponse.getQueryId());
+    Assert.assertEquals(2, newResponse.getResult().size());
+    Assert.assertEquals("foo", newResponse.getResult().get(0).getProperty("name"));
+    Assert.assertNull(newResponse.getResult().get(0).getProperty("empty"));
+    Assert.assertEquals(new ORecordId(10, 1), newResponse.getResult().get(1).getIdentity().get());
+    Assert.assertEquals("bar", newResponse.getResult().get(1).getProperty("name"));
+    Assert.assertTrue(newResponse.isHasNextPage());
+    Assert.assertEquals((Long) 2L, newResponse.getQueryStats().get("rows"));
+    Assert.assertFalse(newResponse.isReloadMetadata());
+  }
+
 }
@@ -11,6 +11,7 @@ import com.orientechnologies.orient.core.storage.ridbag.sbtree.OBonsaiCollection
 import com.orientechnologies.orient.core.tx.OTransactionIndexChanges;
 import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
 import com.orientechnologies.orient.core.tx.OTransactionIndexChangesPerKey;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -130,7 +131,7 @@ public class ORemoteTransactionMessagesTest {
     UUID val = UUID.randomUUID();
     changes.put(val, new OBonsaiCollectionPointer(10, new OBonsaiBucketPointer(30, 40)));
     OCommit37Response response = new OCommit37Response(creates, updates, deletes, changes);
-    response.write(channel, 0, null);
+    response.write(channel, OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION, null);
     channel.close();
 
     OCommit37Response readResponse = new OCommit37Response();
@@ -163,6 +164,19 @@ public class ORemoteTransactionMessagesTest {
     assertEquals(readResponse.getCollectionChanges().get(val).getRootPointer().getPageOffset(), 40);
   }
 
+  @Test
+  public void testCommitResponseConsistencyToken() throws IOException {
+    MockChannel channel = new MockChannel();
+    OCommit37Response response = new OCommit37Response(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(),
+        new HashMap<>(), "europe-0@3:1024");
+    response.write(channel, OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION, null);
+    channel.close();
+
+    OCommit37Response readResponse = new OCommit37Response();
+    readResponse.read(channel, null);
+    assertEquals("europe-0@3:1024", readResponse.getConsistencyToken());
+  }
+
   @Test
   public void testEmptyCommitTransactionWriteRead() throws IOException {
 
@@ -28,7 +28,6 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -55,7 +54,7 @@ public class OOneEntryPerKeyLockManager<T> implements OLockManager<T> {
   @SuppressWarnings("serial")
   private static class CountableLock {
     private final AtomicInteger countLocks    = new AtomicInteger(1);
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
   }
 
   public OOneEntryPerKeyLockManager(final boolean iEnabled, final int iAcquireTimeout, final int amountOfCachedInstances) {
@@ -196,6 +195,22 @@ public class OOneEntryPerKeyLockManager<T> implements OLockManager<T> {
     }
   }
 
+  /**
+   * Returns true if the exclusive lock on the resource is currently held. The result is only a hint, the lock can be acquired or
+   * released right after.
+   */
+  public boolean isExclusivelyLocked(final T iResourceId) {
+    if (!enabled)
+      return false;
+
+    T immutableResource = getImmutableResourceId(iResourceId);
+    if (immutableResource == null)
+      immutableResource = (T) NULL_KEY;
+
+    final CountableLock lock = map.get(immutableResource);
+    return lock != null && lock.readWriteLock.isWriteLocked();
+  }
+
   public void releaseLock(final Object iRequester, T iResourceId, final LOCK iLockType) throws OLockException {
     if (!enabled)
       return;
@@ -0,0 +1,137 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.common.profiler;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of latencies with log-linear buckets: every power of two between 1 microsecond and 64 seconds is split in 4
+ * linear buckets, so the error on the percentiles is below 25% whatever the latency. Recording a value costs an increment of two
+ * {@link LongAdder}s.
+ *
+ * @see OLatencyMetrics
+ */
+public class OLatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 2;
+  private static final int SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+  private static final int MIN_EXPONENT    = 10;
+  private static final int MAX_EXPONENT    = 36;
+  private static final int BUCKETS         = 2 + (MAX_EXPONENT - MIN_EXPONENT) * SUB_BUCKETS;
+
+  private final String      name;
+  private final String      description;
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAdder   sum     = new LongAdder();
+
+  public OLatencyHistogram(final String name, final String description) {
+    this.name = name;
+    this.description = description;
+    for (int i = 0; i < BUCKETS; i++)
+      buckets[i] = new LongAdder();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  /**
+   * @return the start time to pass to {@link #stop(long)}, 0 if the latency histograms are disabled
+   */
+  public long start() {
+    return OLatencyMetrics.isEnabled() ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Records the time elapsed from the start time returned by {@link #start()}.
+   */
+  public void stop(final long startTime) {
+    if (startTime != 0)
+      record(System.nanoTime() - startTime);
+  }
+
+  public void record(final long nanos) {
+    buckets[bucketOf(nanos)].increment();
+    sum.add(nanos);
+  }
+
+  public long getCount() {
+    long count = 0;
+    for (LongAdder bucket : buckets)
+      count += bucket.sum();
+    return count;
+  }
+
+  public long getSum() {
+    return sum.sum();
+  }
+
+  /**
+   * @return the upper bound of the bucket in nanoseconds, {@link Long#MAX_VALUE} for the last bucket
+   */
+  public static long getUpperBound(final int bucket) {
+    if (bucket == 0)
+      return 1L << MIN_EXPONENT;
+    if (bucket == BUCKETS - 1)
+      return Long.MAX_VALUE;
+    final int exponent = MIN_EXPONENT + (bucket - 1) / SUB_BUCKETS;
+    final int subBucket = (bucket - 1) % SUB_BUCKETS;
+    return (long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS);
+  }
+
+  /**
+   * @return the bucket of the latency, the one with the lowest upper bound greater than or equal to the value
+   */
+  public static int bucketOf(final long nanos) {
+    if (nanos <= 1L << MIN_EXPONENT)
+      return 0;
+    final long value = nanos - 1;
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    if (exponent >= MAX_EXPONENT)
+      return BUCKETS - 1;
+    final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Writes the histogram in the Prometheus text format, with cumulative buckets and the latencies in seconds.
+   */
+  public void toPrometheus(final StringBuilder buffer) {
+    buffer.append("# HELP ").append(name).append(' ').append(description).append('\n');
+    buffer.append("# TYPE ").append(name).append(" histogram\n");
+
+    // THE COUNT IS THE SUM OF THE BUCKETS READ HERE, SO IT IS CONSISTENT WITH THEM ALSO WHILE THE VALUES ARE RECORDED
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      count += buckets[i].sum();
+      buffer.append(name).append("_bucket{le=\"");
+      if (i == BUCKETS - 1)
+        buffer.append("+Inf");
+      else
+        buffer.append(getUpperBound(i) / 1e9);
+      buffer.append("\"} ").append(count).append('\n');
+    }
+    buffer.append(name).append("_sum ").append(sum.sum() / 1e9).append('\n');
+    buffer.append(name).append("_count ").append(count).append('\n');
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.common.profiler;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Latency histograms of the storage operations, recorded by all the storages of the JVM. Unlike the chronos of {@link OProfiler}
+ * they keep the distribution of the latencies, so they give the percentiles and not only the averages. They are recorded also
+ * when the profiler is disabled, unless {@link OGlobalConfiguration#PROFILER_LATENCY_HISTOGRAMS} is false.
+ */
+public class OLatencyMetrics {
+  public static final OLatencyHistogram PAGE_LOAD = new OLatencyHistogram("orientdb_disk_cache_page_load_seconds",
+      "Time to load a page from the disk cache, including the read from the disk of the missing pages");
+
+  public static final OLatencyHistogram WRITE_CACHE_FLUSH = new OLatencyHistogram("orientdb_write_cache_flush_seconds",
+      "Time to flush a chunk of contiguous dirty pages of the write cache to the disk");
+
+  public static final OLatencyHistogram WAL_LOG = new OLatencyHistogram("orientdb_wal_log_seconds",
+      "Time to append a record to the write ahead log");
+
+  public static final OLatencyHistogram WAL_FLUSH = new OLatencyHistogram("orientdb_wal_flush_seconds",
+      "Time to flush the write ahead log to the disk");
+
+  public static final OLatencyHistogram WAL_FSYNC = new OLatencyHistogram("orientdb_wal_fsync_seconds",
+      "Time to force the written pages of the write ahead log to the disk");
+
+  public static final OLatencyHistogram COMMIT = new OLatencyHistogram("orientdb_storage_commit_seconds",
+      "Time to commit a transaction in the storage");
+
+  public static final OLatencyHistogram QUERY = new OLatencyHistogram("orientdb_query_execution_seconds",
+      "Time spent executing a query or a command, excluding the time the client spends between the fetches of the results");
+
+  private static final List<OLatencyHistogram> HISTOGRAMS = Collections
+      .unmodifiableList(Arrays.asList(PAGE_LOAD, WRITE_CACHE_FLUSH, WAL_LOG, WAL_FLUSH, WAL_FSYNC, COMMIT, QUERY));
+
+  private static volatile boolean enabled = OGlobalConfiguration.PROFILER_LATENCY_HISTOGRAMS.getValueAsBoolean();
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  public static void setEnabled(final boolean iEnabled) {
+    enabled = iEnabled;
+  }
+
+  public static List<OLatencyHistogram> getHistograms() {
+    return HISTOGRAMS;
+  }
+
+  /**
+   * @return all the histograms in the Prometheus text exposition format
+   */
+  public static String toPrometheus() {
+    final StringBuilder buffer = new StringBuilder(16 * 1024);
+    for (OLatencyHistogram histogram : HISTOGRAMS)
+      histogram.toPrometheus(buffer);
+    return buffer.toString();
+  }
+}
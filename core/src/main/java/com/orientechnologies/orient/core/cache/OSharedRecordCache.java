@@ -0,0 +1,251 @@
+/*
+  *
+  *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+  *  *
+  *  *  Licensed under the Apache License, Version 2.0 (the "License");
+  *  *  you may not use this file except in compliance with the License.
+  *  *  You may obtain a copy of the License at
+  *  *
+  *  *       http://www.apache.org/licenses/LICENSE-2.0
+  *  *
+  *  *  Unless required by applicable law or agreed to in writing, software
+  *  *  distributed under the License is distributed on an "AS IS" BASIS,
+  *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  *  *  See the License for the specific language governing permissions and
+  *  *  limitations under the License.
+  *  *
+  *  * For more information: http://orientdb.com
+  *
+  */
+package com.orientechnologies.orient.core.cache;
+
+import com.orientechnologies.orient.core.config.OStorageConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.OMetadataUpdateListener;
+import com.orientechnologies.orient.core.exception.OSecurityException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.OIndexManagerAbstract;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchemaShared;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Database-wide record cache shared by all the sessions, used for hot read-mostly documents like configuration and reference data.
+ * Only the documents of the classes with the custom attribute {@value #CLASS_CUSTOM_ATTRIBUTE}<code>=true</code> (and of their
+ * subclasses) are cached, eg. <code>ALTER CLASS Country CUSTOM sharedCache=true</code>.
+ * <p>
+ * The cache keeps the immutable serialized content of the records with their version, so every session still gets its own record
+ * instance, deserialized lazily. The storage invalidates the entries of the records changed by every commit; a record read
+ * concurrently with a commit is not cached if the commit completes in the meantime. When the cache is full, the least frequently
+ * read entries are evicted.
+ */
+public class OSharedRecordCache implements OMetadataUpdateListener {
+  public static final String CLASS_CUSTOM_ATTRIBUTE = "sharedCache";
+
+  private final int                            maxSize;
+  private final ConcurrentHashMap<ORID, Entry> entries;
+  private final AtomicLong                     modifications  = new AtomicLong();
+  private final AtomicLong                     hits           = new AtomicLong();
+  private final AtomicLong                     misses         = new AtomicLong();
+  private final AtomicLong                     evictions      = new AtomicLong();
+  private final Object                         evictionLock   = new Object();
+  private volatile Set<Integer>                cachedClusters = Collections.emptySet();
+
+  private static final class Entry {
+    private final int    version;
+    private final byte   recordType;
+    private final byte[] content;
+    private volatile int frequency = 1;
+
+    private Entry(final ORawBuffer buffer) {
+      this.version = buffer.version;
+      this.recordType = buffer.recordType;
+      this.content = buffer.buffer;
+    }
+  }
+
+  /**
+   * @param maxSize maximum number of cached records
+   */
+  public OSharedRecordCache(final int maxSize) {
+    this.maxSize = maxSize;
+    this.entries = new ConcurrentHashMap<ORID, Entry>(Math.min(maxSize, 1024));
+  }
+
+  public boolean isEnabled() {
+    return maxSize > 0 && !cachedClusters.isEmpty();
+  }
+
+  public boolean isCached(final int clusterId) {
+    return maxSize > 0 && cachedClusters.contains(clusterId);
+  }
+
+  /**
+   * Returns the stamp to pass to {@link #put(ORID, ORawBuffer, long)}, to be taken before reading the record from the storage.
+   */
+  public long getModificationStamp() {
+    return modifications.get();
+  }
+
+  /**
+   * @return a copy of the cached record, null if not cached
+   */
+  public ORawBuffer get(final ORID rid) {
+    final Entry entry = entries.get(rid);
+    if (entry == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    entry.frequency++;
+    return new ORawBuffer(entry.content.clone(), entry.version, entry.recordType);
+  }
+
+  /**
+   * Caches a document read from the storage. The record is not cached if any record has been changed since the stamp has been
+   * taken, because the content read could be already stale.
+   *
+   * @param stamp the value returned by {@link #getModificationStamp()} before the read
+   */
+  public void put(final ORID rid, final ORawBuffer buffer, final long stamp) {
+    if (buffer == null || buffer.buffer == null || buffer.recordType != ODocument.RECORD_TYPE || modifications.get() != stamp)
+      return;
+
+    final ORID key = rid.copy();
+    final Entry entry = new Entry(buffer);
+    entries.put(key, entry);
+    if (modifications.get() != stamp) {
+      // A COMMIT HAS INVALIDATED THE RECORD IN THE MEANTIME
+      entries.remove(key, entry);
+      return;
+    }
+
+    if (entries.size() > maxSize)
+      evict();
+  }
+
+  /**
+   * Removes a changed or deleted record. Must be called once the change is visible to the readers.
+   */
+  public void invalidate(final ORID rid) {
+    modifications.incrementAndGet();
+    entries.remove(rid);
+  }
+
+  public void invalidateCluster(final int clusterId) {
+    modifications.incrementAndGet();
+    entries.keySet().removeIf(rid -> rid.getClusterId() == clusterId);
+  }
+
+  public void clear() {
+    modifications.incrementAndGet();
+    entries.clear();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  /**
+   * Updates the clusters to cache from the class custom attributes.
+   */
+  public void configure(final ODatabaseDocumentInternal database, final OSchemaShared schema) {
+    final Set<Integer> clusters = new HashSet<Integer>();
+    try {
+      for (OClass clazz : schema.getClasses(database)) {
+        if (isCachedClass(clazz))
+          for (int clusterId : clazz.getPolymorphicClusterIds())
+            if (clusterId >= 0)
+              clusters.add(clusterId);
+      }
+    } catch (OSecurityException e) {
+      // KEEP THE CURRENT CONFIGURATION
+      return;
+    }
+
+    final Set<Integer> previous = cachedClusters;
+    cachedClusters = Collections.unmodifiableSet(clusters);
+    for (Integer clusterId : previous)
+      if (!clusters.contains(clusterId))
+        invalidateCluster(clusterId);
+  }
+
+  @Override
+  public void onSchemaUpdate(final String database, final OSchemaShared schema) {
+    final ODatabaseDocumentInternal db = ODatabaseRecordThreadLocal.instance().getIfDefined();
+    if (db != null && db.getName().equals(database))
+      configure(db, schema);
+  }
+
+  @Override
+  public void onIndexManagerUpdate(final String database, final OIndexManagerAbstract indexManager) {
+  }
+
+  @Override
+  public void onFunctionLibraryUpdate(final String database) {
+  }
+
+  @Override
+  public void onSequenceLibraryUpdate(final String database) {
+  }
+
+  @Override
+  public void onStorageConfigurationUpdate(final String database, final OStorageConfiguration update) {
+  }
+
+  private static boolean isCachedClass(final OClass clazz) {
+    if (Boolean.parseBoolean(clazz.getCustom(CLASS_CUSTOM_ATTRIBUTE)))
+      return true;
+    for (OClass superClass : clazz.getAllSuperClasses())
+      if (Boolean.parseBoolean(superClass.getCustom(CLASS_CUSTOM_ATTRIBUTE)))
+        return true;
+    return false;
+  }
+
+  private void evict() {
+    synchronized (evictionLock) {
+      final int toRemove = entries.size() - maxSize;
+      if (toRemove <= 0)
+        return;
+
+      // REMOVE THE LEAST FREQUENTLY READ RECORDS, PLUS A 10% MARGIN TO NOT SCAN THE CACHE ON EVERY INSERT
+      final List<Map.Entry<ORID, Entry>> candidates = new ArrayList<Map.Entry<ORID, Entry>>(entries.entrySet());
+      candidates.sort((a, b) -> Integer.compare(a.getValue().frequency, b.getValue().frequency));
+      final int count = Math.min(candidates.size(), toRemove + maxSize / 10);
+      for (int i = 0; i < count; i++) {
+        if (entries.remove(candidates.get(i).getKey(), candidates.get(i).getValue()))
+          evictions.incrementAndGet();
+      }
+
+      // AGING: HALVE THE FREQUENCIES, SO RECORDS THAT ARE NOT HOT ANYMORE CAN BE EVICTED
+      for (int i = count; i < candidates.size(); i++) {
+        final Entry entry = candidates.get(i).getValue();
+        entry.frequency = entry.frequency / 2 + 1;
+      }
+    }
+  }
+}
@@ -21,6 +21,7 @@ package com.orientechnologies.orient.core.config;
 
 import com.orientechnologies.common.io.OFileUtils;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OLatencyMetrics;
 import com.orientechnologies.common.profiler.OProfiler;
 import com.orientechnologies.common.util.OApi;
 import com.orientechnologies.orient.core.OConstants;
@@ -397,6 +398,10 @@ public enum OGlobalConfiguration {
   TX_PAGE_CACHE_SIZE("tx.pageCacheSize",
       "The size of a per-transaction page cache in pages, 12 by default, 0 to disable the cache.", Integer.class, 12),
 
+  TX_RELOCATE_NEW_RECORDS("tx.relocateNewRecords",
+      "Stores the new records of a transaction, whose cluster was selected by a class with the round-robin cluster selection strategy, in one cluster of the class that is not locked by other committing transactions. Transactions inserting in the same class can then commit concurrently, but the records of a transaction are no longer spread across the clusters of the class, and transactions that change the same non-unique indexes still wait for each other",
+      Boolean.class, false),
+
   // INDEX
   INDEX_EMBEDDED_TO_SBTREEBONSAI_THRESHOLD("index.embeddedToSbtreeBonsaiThreshold",
       "Amount of values, after which the index implementation will use an sbtree as a values container. Set to -1, to disable and force using an sbtree",
@@ -430,6 +435,10 @@ public enum OGlobalConfiguration {
   INDEX_USE_PREFIX_B_TREE("index.usePrefixBTRee", "Indicates that prefix B-Tree should be used for String indexes", Boolean.class,
       false),
 
+  INDEX_HYBRID_MAX_CACHED_KEYS("index.hybrid.maxCachedKeys",
+      "Maximum number of keys whose lookup result is kept in memory by every index created with the HYBRID algorithm. Only the indexes with a single value per key use this cache. 0 disables the cache",
+      Integer.class, 65536),
+
   /**
    * @see OIndexDefinition#isNullValuesIgnored()
    * @since 2.2
@@ -452,6 +461,12 @@ public enum OGlobalConfiguration {
   SBTREE_MAX_KEY_SIZE("sbtree.maxKeySize", "Maximum size of a key, which can be put in the SBTree in bytes (10240 by default)",
       Integer.class, 10240),
 
+  SBTREE_KEY_COMPRESSION("sbtree.keyCompression",
+      "Store the prefix shared by the keys of new SBTree pages only once and use the shortest separator keys in the internal pages. "
+          + "Pages written without compression remain readable, but indexes written with compression cannot be read by versions "
+          + "which do not support it",
+      Boolean.class, false),
+
   SBTREE_MAX_EMBEDDED_VALUE_SIZE("sbtree.maxEmbeddedValueSize",
       "Maximum size of value which can be put in an SBTree without creation link to a standalone page in bytes (40960 by default)",
       Integer.class, 40960),
@@ -482,6 +497,10 @@ public enum OGlobalConfiguration {
       "Amount of values, after which a LINKBAG implementation will use an embedded values container (disabled by default)",
       Integer.class, -1, true),
 
+  RID_BAG_NEIGHBOR_INDEX_THRESHOLD("ridBag.neighborIndexThreshold",
+      "Amount of edges, after which the traversals filtered by the target vertices build an in memory index of the neighbor vertices of the LINKBAG, instead of loading all the edges every time. -1 disables the index",
+      Integer.class, 1000, true),
+
   // FILE
   @Deprecated TRACK_FILE_CLOSE("file.trackFileClose",
       "Log all the cases when files are closed. This is needed only for internal debugging purposes", Boolean.class, false),
@@ -627,6 +646,14 @@ public enum OGlobalConfiguration {
   PROFILER_MEMORYCHECK_INTERVAL("profiler.memoryCheckInterval",
       "Checks the memory usage every configured milliseconds. Use 0 to disable it", Long.class, 120000),
 
+  PROFILER_LATENCY_HISTOGRAMS("profiler.latencyHistograms",
+      "Records the latency histograms of the page loads, cache flushes, WAL writes, commits and queries, exposed by the /metrics HTTP command. They are recorded also when the profiler is disabled",
+      Boolean.class, true, new OConfigurationChangeCallback() {
+    public void change(final Object iCurrentValue, final Object iNewValue) {
+      OLatencyMetrics.setEnabled((Boolean) iNewValue);
+    }
+  }),
+
   // SEQUENCES
 
   SEQUENCE_MAX_RETRY("sequence.maxRetry", "Maximum number of retries between attempt to change a sequence in concurrent mode",
@@ -636,6 +663,10 @@ public enum OGlobalConfiguration {
       "Maximum number of ms to wait between concurrent modification exceptions. The value is computed as random between 1 and this number",
       Integer.class, 200),
 
+  SEQUENCE_CACHED_THREAD_RANGES("sequence.cached.threadRanges",
+      "Give every thread its own range of values of the cached sequences. The values are taken from the range without locks, and the next range is reserved in background before the current one is exhausted. The values returned to different threads are not ordered. Sequences with a limit value and distributed databases keep using the shared cache",
+      Boolean.class, false),
+
   /**
    * Interval between snapshots of profiler state in milliseconds, default value is 100.
    */
@@ -670,6 +701,10 @@ public enum OGlobalConfiguration {
   // CACHE
   CACHE_LOCAL_IMPL("cache.local.impl", "Local Record cache implementation", String.class, ORecordCacheWeakRefs.class.getName()),
 
+  CACHE_SHARED_SIZE("cache.shared.size",
+      "Maximum number of records kept in the record cache shared by all the sessions of a database. Only the records of the classes with the custom attribute 'sharedCache=true' are cached. 0 disables the cache",
+      Integer.class, 10000),
+
   // COMMAND
   COMMAND_TIMEOUT("command.timeout", "Default timeout for commands (in ms)", Long.class, 0, true),
 
@@ -689,6 +724,14 @@ public enum OGlobalConfiguration {
       "The size of a remote ResultSet page, ie. the number of records"
           + "that are fetched together during remote query execution. This has to be set on the client.", Integer.class, 1000),
 
+  QUERY_REMOTE_RESULTSET_MAX_PAGE_SIZE("query.remoteResultSet.maxPageSize",
+      "The maximum size a remote ResultSet page grows to when the records are consumed faster than the pages are fetched. "
+          + "This has to be set on the client.", Integer.class, 10000),
+
+  QUERY_REMOTE_RESULTSET_PREFETCH("query.remoteResultSet.prefetch",
+      "Fetch the next page of a remote ResultSet in background while the current page is consumed. "
+          + "This has to be set on the client.", Boolean.class, true),
+
   QUERY_REMOTE_SEND_EXECUTION_PLAN("query.remoteResultSet.sendExecutionPlan",
       "Send the execution plan details or not. False by default", Boolean.class, false),
 
@@ -718,8 +761,40 @@ public enum OGlobalConfiguration {
 
   QUERY_LIVE_SUPPORT("query.live.support", "Enable/Disable the support of live query. (Use false to disable)", Boolean.class, true),
 
+  QUERY_LIVE_DISPATCH_THREADS("query.live.dispatchThreads",
+      "Number of threads that deliver the changes to the live query subscribers of a database. The changes for a subscriber are always delivered in commit order. Use 1 to deliver the changes from the live query queue thread",
+      Integer.class, Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()))),
+
   STATEMENT_CACHE_SIZE("statement.cacheSize", "Number of parsed SQL statements kept in cache", Integer.class, 100),
 
+  QUERY_AUTO_PARAMETERIZE("query.autoParameterize",
+      "Replace the literals in the WHERE condition of SELECT statements with parameters, so the statements that differ only by literal values share the same parsed statement and execution plan. The statements are tokenized once more before parsing, so enable it when many statements differ only by literal values",
+      Boolean.class, false),
+
+  QUERY_RESULT_CACHE_SIZE("query.resultCache.size",
+      "Maximum number of rows kept in the cache of query results of a database. The results of a query are removed from the cache when the records of the classes read by the query change. 0 disables the cache",
+      Integer.class, 0),
+
+  QUERY_RESULT_CACHE_MAX_RESULT_SIZE("query.resultCache.maxResultSize",
+      "Maximum number of rows of a query result that can be kept in the query result cache", Integer.class, 1000),
+
+  QUERY_SLOW_THRESHOLD("query.slowQueryThreshold",
+      "Execution time in milliseconds over which a query or a command is written to the slow query log with the resources it used. The time the client spends between the fetches of the results is not counted. A negative value disables the log",
+      Long.class, 10000),
+
+  QUERY_MAX_MEMORY_PER_QUERY("query.maxMemoryPerQuery",
+      "Maximum memory in megabytes used by the blocking steps of a query (ORDER BY, DISTINCT, GROUP BY, MATCH prefetch). Over the limit ORDER BY spills its results to temporary files, GROUP BY spills the groups of count(), sum(), avg(), min() and max() to temporary files, and the other steps fail the query. The memory is estimated from the size of the results. 0 uses a quarter of the maximum heap, a negative value disables the limit",
+      Long.class, 0),
+
+  QUERY_MAX_MEMORY("query.maxMemory",
+      "Maximum memory in megabytes used by the blocking steps of all the queries running in the JVM. Over the limit the queries behave as over their own limit. 0 uses half of the maximum heap, a negative value disables the limit",
+      Long.class, 0),
+
+  // VIEWS
+  VIEW_INCREMENTAL_MAX_PENDING_CHANGES("view.incremental.maxPendingChanges",
+      "Maximum number of committed changes queued for the incremental update of a batch view. Beyond this limit the view is rebuilt from scratch. 0 disables the incremental update of the views",
+      Integer.class, 100000),
+
   // GRAPH
   SQL_GRAPH_CONSISTENCY_MODE("sql.graphConsistencyMode",
       "Consistency mode for graphs. It can be 'tx' (default), 'notx_sync_repair' and 'notx_async_repair'. "
@@ -806,6 +881,10 @@ public enum OGlobalConfiguration {
   DISTRIBUTED_DEPLOYDB_TASK_COMPRESSION("distributed.deployDbTaskCompression",
       "Compression level (between 0 and 9) to use in backup for database deployment", Integer.class, 7, true),
 
+  DISTRIBUTED_DEPLOYDB_STREAMING("distributed.deployDbStreaming",
+      "Streams the database to the synchronizing node without writing a backup file on disk on both sides. Chunks are compressed with LZ4 instead of ZIP deflate",
+      Boolean.class, false, true),
+
   DISTRIBUTED_ASYNCH_QUEUE_SIZE("distributed.asynchQueueSize",
       "Queue size to handle distributed asynchronous operations. The bigger is the queue, the more operation are buffered, but also more memory it's consumed. 0 = dynamic allocation, which means up to 2^31-1 entries",
       Integer.class, 0),
@@ -906,6 +985,14 @@ public enum OGlobalConfiguration {
   @OApi(maturity = OApi.MATURITY.NEW) DISTRIBUTED_DB_WORKERTHREADS("distributed.dbWorkerThreads",
       "Number of parallel worker threads per database that process distributed messages. Use 0 for automatic", Integer.class, 0),
 
+  DISTRIBUTED_TX_DEPENDENCY_SCHEDULING("distributed.txDependencyScheduling",
+      "Applies replicated transactions that do not touch the same records concurrently on any worker thread, instead of serializing them on the worker queues of their clusters. Overlapping transactions are applied in the order they are received",
+      Boolean.class, true),
+
+  DISTRIBUTED_READ_YOUR_WRITES_TIMEOUT("distributed.readYourWritesTimeout",
+      "Maximum time in ms a read with a session consistency token waits for the local node to apply the transaction of the token. After that the read goes through the read quorum",
+      Long.class, 1000, true),
+
   /**
    * @Since 2.1.3, Deprecated in 2.2.0
    */
@@ -13,6 +13,7 @@ import com.orientechnologies.orient.core.metadata.sequence.OSequenceLibraryImpl;
 import com.orientechnologies.orient.core.query.live.OLiveQueryHook;
 import com.orientechnologies.orient.core.query.live.OLiveQueryHookV2;
 import com.orientechnologies.orient.core.schedule.OSchedulerImpl;
+import com.orientechnologies.orient.core.sql.executor.OQueryResultCache;
 import com.orientechnologies.orient.core.sql.executor.OQueryStats;
 import com.orientechnologies.orient.core.sql.parser.OExecutionPlanCache;
 import com.orientechnologies.orient.core.sql.parser.OStatementCache;
@@ -37,6 +38,7 @@ public abstract class OSharedContext extends OListenerManger<OMetadataUpdateList
   protected OCommandCache                  commandCache;
   protected OStatementCache                statementCache;
   protected OExecutionPlanCache            executionPlanCache;
+  protected OQueryResultCache              queryResultCache;
   protected OQueryStats                    queryStats;
   protected volatile boolean loaded = false;
 
@@ -88,6 +90,13 @@ public abstract class OSharedContext extends OListenerManger<OMetadataUpdateList
     return executionPlanCache;
   }
 
+  /**
+   * @return the cache of query results, null if the database has no result cache
+   */
+  public OQueryResultCache getQueryResultCache() {
+    return queryResultCache;
+  }
+
   public OQueryStats getQueryStats() {
     return queryStats;
   }
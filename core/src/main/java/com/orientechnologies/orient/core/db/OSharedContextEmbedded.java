@@ -15,6 +15,7 @@ import com.orientechnologies.orient.core.query.live.OLiveQueryHook;
 import com.orientechnologies.orient.core.query.live.OLiveQueryHookV2;
 import com.orientechnologies.orient.core.schedule.OSchedulerImpl;
 import com.orientechnologies.orient.core.security.OSecurityManager;
+import com.orientechnologies.orient.core.sql.executor.OQueryResultCache;
 import com.orientechnologies.orient.core.sql.executor.OQueryStats;
 import com.orientechnologies.orient.core.sql.parser.OExecutionPlanCache;
 import com.orientechnologies.orient.core.sql.parser.OStatementCache;
@@ -51,6 +52,11 @@ public class OSharedContextEmbedded extends OSharedContext {
     executionPlanCache = new OExecutionPlanCache(
         storage.getConfiguration().getContextConfiguration().getValueAsInteger(OGlobalConfiguration.STATEMENT_CACHE_SIZE));
     this.registerListener(executionPlanCache);
+    this.registerListener(((OAbstractPaginatedStorage) storage).getSharedRecordCache());
+
+    queryResultCache = new OQueryResultCache(storage.getConfiguration().getContextConfiguration());
+    this.registerListener(queryResultCache);
+    ((OAbstractPaginatedStorage) storage).setClusterChangeListener(queryResultCache);
 
     queryStats = new OQueryStats();
     activeDistributedQueries = new HashMap<>();
@@ -72,12 +78,15 @@ public class OSharedContextEmbedded extends OSharedContext {
         indexManager.load(database);
         //The Immutable snapshot should be after index and schema that require and before everything else that use it
         schema.forceSnapshot(database);
+        ((OAbstractPaginatedStorage) storage).getSharedRecordCache().configure(database, schema);
         security.load();
         functionLibrary.load(database);
         scheduler.load(database);
         sequenceLibrary.load(database);
         schema.onPostIndexManagement();
         viewManager.load();
+        executionPlanCache.registerProfilerHooks(storage.getName());
+        liveQueryOpsV2.registerProfilerHooks(storage.getName());
         loaded = true;
       }
     } finally {
@@ -99,6 +108,8 @@ public class OSharedContextEmbedded extends OSharedContext {
     commandCache.shutdown();
     statementCache.clear();
     executionPlanCache.invalidate();
+    executionPlanCache.unregisterProfilerHooks();
+    queryResultCache.invalidate();
     liveQueryOps.close();
     liveQueryOpsV2.close();
     activeDistributedQueries.values().forEach(x -> x.close());
@@ -110,6 +121,7 @@ public class OSharedContextEmbedded extends OSharedContext {
     indexManager.reload();
     //The Immutable snapshot should be after index and schema that require and before everything else that use it
     schema.forceSnapshot(database);
+    ((OAbstractPaginatedStorage) storage).getSharedRecordCache().configure(database, schema);
     security.load();
     functionLibrary.load(database);
     sequenceLibrary.load(database);
@@ -62,8 +62,10 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.record.impl.ODocumentInternal;
 import com.orientechnologies.orient.core.schedule.OScheduledEvent;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
+import com.orientechnologies.orient.core.sql.OCommandSQLParsingException;
 import com.orientechnologies.orient.core.sql.OSQLEngine;
 import com.orientechnologies.orient.core.sql.executor.*;
+import com.orientechnologies.orient.core.sql.parser.OAutoParameterizer;
 import com.orientechnologies.orient.core.sql.parser.OLocalResultSet;
 import com.orientechnologies.orient.core.sql.parser.OLocalResultSetLifecycleDecorator;
 import com.orientechnologies.orient.core.sql.parser.OStatement;
@@ -83,6 +85,7 @@ import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Created by tglman on 27/06/16.
@@ -513,15 +516,17 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
     checkOpenness();
     checkIfActive();
 
-    OStatement statement = OSQLEngine.parse(query, this);
+    OAutoParameterizer parameterized = autoParameterize(query);
+    String text = parameterized == null ? query : parameterized.getStatement();
+    OStatement statement = OSQLEngine.parse(text, this);
     if (!statement.isIdempotent()) {
       throw new OCommandExecutionException("Cannot execute query on non idempotent statement: " + query);
     }
-    OResultSet original = statement.execute(this, args);
-    OLocalResultSetLifecycleDecorator result = new OLocalResultSetLifecycleDecorator(original);
-    this.queryStarted(result.getQueryId(), result);
-    result.addLifecycleListener(this);
-    return result;
+    if (parameterized == null) {
+      return executeTracked("sql", query, false, () -> executeQuery(statement, text, toParameters(args), () -> statement.execute(this, args)));
+    }
+    Map<Object, Object> params = parameterized.mergeParameters(args);
+    return executeTracked("sql", query, false, () -> executeQuery(statement, text, params, () -> statement.execute(this, params)));
   }
 
   @Override
@@ -529,15 +534,14 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
     checkOpenness();
     checkIfActive();
 
-    OStatement statement = OSQLEngine.parse(query, this);
+    OAutoParameterizer parameterized = autoParameterize(query);
+    String text = parameterized == null ? query : parameterized.getStatement();
+    OStatement statement = OSQLEngine.parse(text, this);
     if (!statement.isIdempotent()) {
       throw new OCommandExecutionException("Cannot execute query on non idempotent statement: " + query);
     }
-    OResultSet original = statement.execute(this, args);
-    OLocalResultSetLifecycleDecorator result = new OLocalResultSetLifecycleDecorator(original);
-    this.queryStarted(result.getQueryId(), result);
-    result.addLifecycleListener(this);
-    return result;
+    Map<Object, Object> params = parameterized == null ? args : parameterized.mergeParameters(args);
+    return executeTracked("sql", query, false, () -> executeQuery(statement, text, params, () -> statement.execute(this, params)));
   }
 
   @Override
@@ -545,23 +549,10 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
     checkOpenness();
     checkIfActive();
 
-    OStatement statement = OSQLEngine.parse(query, this);
-    OResultSet original = statement.execute(this, args);
-    OLocalResultSetLifecycleDecorator result;
-    if (!statement.isIdempotent()) {
-      //fetch all, close and detach
-      OInternalResultSet prefetched = new OInternalResultSet();
-      original.forEachRemaining(x -> prefetched.add(x));
-      original.close();
-      result = new OLocalResultSetLifecycleDecorator(prefetched);
-    } else {
-      //stream, keep open and attach to the current DB
-      result = new OLocalResultSetLifecycleDecorator(original);
-      this.queryStarted(result.getQueryId(), result);
-      result.addLifecycleListener(this);
-    }
-    return result;
-
+    OAutoParameterizer parameterized = autoParameterize(query);
+    OStatement statement = OSQLEngine.parse(parameterized == null ? query : parameterized.getStatement(), this);
+    return executeTracked("sql", query, !statement.isIdempotent(),
+        () -> parameterized == null ? statement.execute(this, args) : statement.execute(this, parameterized.mergeParameters(args)));
   }
 
   @Override
@@ -569,35 +560,100 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
     checkOpenness();
     checkIfActive();
 
-    OStatement statement = OSQLEngine.parse(query, this);
-    OResultSet original = statement.execute(this, args);
+    OAutoParameterizer parameterized = autoParameterize(query);
+    OStatement statement = OSQLEngine.parse(parameterized == null ? query : parameterized.getStatement(), this);
+    return executeTracked("sql", query, !statement.isIdempotent(),
+        () -> parameterized == null ? statement.execute(this, args) : statement.execute(this, parameterized.mergeParameters(args)));
+  }
+
+  /**
+   * Executes a query or a command tracking the resources it uses with a {@link OQueryResourceUsage}.
+   *
+   * @param detach true to fetch all the results and close the execution before returning, false to stream the results
+   */
+  private OLocalResultSetLifecycleDecorator executeTracked(String language, String statement, boolean detach,
+      Supplier<OResultSet> execution) {
+    OQueryResourceUsage usage = OQueryResourceUsage.start(this, language, statement);
     OLocalResultSetLifecycleDecorator result;
-    if (!statement.isIdempotent()) {
-      //fetch all, close and detach
-      OInternalResultSet prefetched = new OInternalResultSet();
-      original.forEachRemaining(x -> prefetched.add(x));
-      original.close();
-      result = new OLocalResultSetLifecycleDecorator(prefetched);
+    try {
+      OResultSet original = execution.get();
+      if (detach) {
+        //fetch all, close and detach
+        OInternalResultSet prefetched = new OInternalResultSet();
+        original.forEachRemaining(x -> {
+          prefetched.add(x);
+          usage.onRowProduced();
+        });
+        original.close();
+        result = new OLocalResultSetLifecycleDecorator(prefetched);
+      } else {
+        //stream, keep open and attach to the current DB
+        result = new OLocalResultSetLifecycleDecorator(original);
+        result.setResourceUsage(usage);
+      }
+    } catch (RuntimeException | Error e) {
+      usage.close();
+      throw e;
+    } finally {
+      usage.exit();
+    }
+
+    if (detach) {
+      usage.close();
     } else {
-      //stream, keep open and attach to the current DB
-      result = new OLocalResultSetLifecycleDecorator(original);
       this.queryStarted(result.getQueryId(), result);
       result.addLifecycleListener(this);
     }
     return result;
   }
 
+  /**
+   * Replaces the literals in the WHERE condition of a SELECT statement with parameters, if enabled with {@link
+   * OGlobalConfiguration#QUERY_AUTO_PARAMETERIZE}.
+   *
+   * @return the parameterized statement, null if the statement cannot be parameterized
+   */
+  private OAutoParameterizer autoParameterize(String query) {
+    if (!getConfiguration().getValueAsBoolean(OGlobalConfiguration.QUERY_AUTO_PARAMETERIZE)) {
+      return null;
+    }
+    OAutoParameterizer result = OAutoParameterizer.parameterize(query);
+    if (result != null) {
+      try {
+        // THE GRAMMAR DOES NOT ACCEPT A PARAMETER IN PLACE OF EVERY LITERAL
+        OSQLEngine.parse(result.getStatement(), this);
+      } catch (OCommandSQLParsingException ignore) {
+        return null;
+      }
+    }
+    return result;
+  }
+
+  private OResultSet executeQuery(OStatement statement, String text, Map<Object, Object> params, Supplier<OResultSet> execution) {
+    OQueryResultCache resultCache = getSharedContext().getQueryResultCache();
+    if (resultCache == null) {
+      return execution.get();
+    }
+    return resultCache.execute(this, statement, text, params, execution);
+  }
+
+  private static Map<Object, Object> toParameters(Object[] args) {
+    Map<Object, Object> result = new HashMap<>();
+    if (args != null) {
+      for (int i = 0; i < args.length; i++) {
+        result.put(i, args[i]);
+      }
+    }
+    return result;
+  }
+
   @Override
   public OResultSet execute(String language, String script, Object... args) {
     checkOpenness();
     checkIfActive();
 
     OScriptExecutor executor = OCommandManager.instance().getScriptExecutor(language);
-    OResultSet original = executor.execute(this, script, args);
-    OLocalResultSetLifecycleDecorator result = new OLocalResultSetLifecycleDecorator(original);
-    this.queryStarted(result.getQueryId(), result);
-    result.addLifecycleListener(this);
-    return result;
+    return executeTracked(language, script, false, () -> executor.execute(this, script, args));
   }
 
   @Override
@@ -606,11 +662,7 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
     checkIfActive();
 
     OScriptExecutor executor = OCommandManager.instance().getScriptExecutor(language);
-    OResultSet original = executor.execute(this, script, args);
-    OLocalResultSetLifecycleDecorator result = new OLocalResultSetLifecycleDecorator(original);
-    this.queryStarted(result.getQueryId(), result);
-    result.addLifecycleListener(this);
-    return result;
+    return executeTracked(language, script, false, () -> executor.execute(this, script, args));
   }
 
   public OLocalResultSetLifecycleDecorator query(OExecutionPlan plan, Map<Object, Object> params) {
@@ -621,12 +673,8 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
     ctx.setDatabase(this);
     ctx.setInputParameters(params);
 
-    OLocalResultSet result = new OLocalResultSet((OInternalExecutionPlan) plan);
-    OLocalResultSetLifecycleDecorator decorator = new OLocalResultSetLifecycleDecorator(result);
-    this.queryStarted(decorator.getQueryId(), decorator);
-    decorator.addLifecycleListener(this);
-
-    return decorator;
+    OInternalExecutionPlan internalPlan = (OInternalExecutionPlan) plan;
+    return executeTracked("sql", internalPlan.getStatement(), false, () -> new OLocalResultSet(internalPlan));
   }
 
   public OrientDBConfig getConfig() {
@@ -728,16 +776,19 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
           microTransaction.commit();
           OLiveQueryHook.notifyForTxChanges(this);
           OLiveQueryHookV2.notifyForTxChanges(this);
+          getSharedContext().getViewManager().notifyCommit(this);
         } catch (Exception e) {
           microTransaction.rollbackAfterFailedCommit();
           OLiveQueryHook.removePendingDatabaseOps(this);
           OLiveQueryHookV2.removePendingDatabaseOps(this);
+          getSharedContext().getViewManager().discardChanges(this);
           throw e;
         }
       else {
         microTransaction.rollback();
         OLiveQueryHook.removePendingDatabaseOps(this);
         OLiveQueryHookV2.removePendingDatabaseOps(this);
+        getSharedContext().getViewManager().discardChanges(this);
       }
     } finally {
       if (!microTransaction.isActive())
@@ -989,6 +1040,7 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
     super.afterCommitOperations();
     OLiveQueryHook.notifyForTxChanges(this);
     OLiveQueryHookV2.notifyForTxChanges(this);
+    getSharedContext().getViewManager().notifyCommit(this);
   }
 
   @Override
@@ -996,6 +1048,7 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
     super.afterRollbackOperations();
     OLiveQueryHook.removePendingDatabaseOps(this);
     OLiveQueryHookV2.removePendingDatabaseOps(this);
+    getSharedContext().getViewManager().discardChanges(this);
   }
 
   @Override
@@ -1093,6 +1146,7 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
     ORecordSerializationContext.pushContext();
     try {
       checkSecurity(ORule.ResourceGeneric.CLUSTER, ORole.PERMISSION_READ, getClusterNameById(rid.getClusterId()));
+      OQueryResultCache.recordRead(rid);
 
       // either regular or micro tx must be active or both inactive
       assert !(getTransaction().isActive() && (microTransaction != null && microTransaction.isActive()));
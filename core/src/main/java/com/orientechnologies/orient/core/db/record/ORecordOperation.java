@@ -45,6 +45,12 @@ public class ORecordOperation implements Comparable {
   public ORecordCallback<Long>    createdCallback = null;
   public ORecordCallback<Integer> updatedCallback = null;
 
+  /**
+   * True if the cluster of a created record has been selected by its class and not requested, so the storage can store the record
+   * in any cluster of the class.
+   */
+  public boolean clusterSelectedByClass;
+
   private Object resultData;
 
   public ORecordOperation() {
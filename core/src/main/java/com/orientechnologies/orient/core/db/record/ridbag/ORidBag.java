@@ -85,6 +85,9 @@ public class ORidBag implements OStringBuilderSerializable, Iterable<OIdentifiab
 
   private UUID uuid;
 
+  // BUMPED ON EVERY CHANGE OF THE CONTENT OR OF THE DELEGATE
+  private transient int modCount;
+
   public ORidBag(final ORidBag ridBag) {
     init();
     for (Iterator<OIdentifiable> it = ridBag.rawIterator(); it.hasNext(); )
@@ -147,16 +150,19 @@ public class ORidBag implements OStringBuilderSerializable, Iterable<OIdentifiab
   }
 
   public void addAll(Collection<OIdentifiable> values) {
+    modCount++;
     delegate.addAll(values);
   }
 
   @Override
   public void add(OIdentifiable identifiable) {
+    modCount++;
     delegate.add(identifiable);
   }
 
   @Override
   public void remove(OIdentifiable identifiable) {
+    modCount++;
     delegate.remove(identifiable);
   }
 
@@ -169,6 +175,7 @@ public class ORidBag implements OStringBuilderSerializable, Iterable<OIdentifiab
    * @return
    */
   public boolean changeValue(int index, OIdentifiable newValue) {
+    modCount++;
     if (isEmbedded()) {
       return ((OEmbeddedRidBag) delegate).swap(index, newValue);
     } else {
@@ -176,6 +183,13 @@ public class ORidBag implements OStringBuilderSerializable, Iterable<OIdentifiab
     }
   }
 
+  /**
+   * @return the number of changes of the bag made through this instance, used to detect that a view of the content is stale
+   */
+  public int getModCount() {
+    return modCount;
+  }
+
   public boolean isEmpty() {
     return delegate.isEmpty();
   }
@@ -268,6 +282,7 @@ public class ORidBag implements OStringBuilderSerializable, Iterable<OIdentifiab
       if (isEmbedded() && ODatabaseRecordThreadLocal.instance().get().getSbTreeCollectionManager() != null
           && delegate.size() >= topThreshold) {
         ORidBagDelegate oldDelegate = delegate;
+        modCount++;
         delegate = new OSBTreeRidBag();
         boolean oldAutoConvert = oldDelegate.isAutoConvertToRecord();
         oldDelegate.setAutoConvertToRecord(false);
@@ -289,6 +304,7 @@ public class ORidBag implements OStringBuilderSerializable, Iterable<OIdentifiab
         ORidBagDelegate oldDelegate = delegate;
         boolean oldAutoConvert = oldDelegate.isAutoConvertToRecord();
         oldDelegate.setAutoConvertToRecord(false);
+        modCount++;
         delegate = new OEmbeddedRidBag();
 
         for (OIdentifiable identifiable : oldDelegate)
@@ -337,6 +353,7 @@ public class ORidBag implements OStringBuilderSerializable, Iterable<OIdentifiab
   }
 
   public void fromStream(BytesContainer stream) {
+    modCount++;
     final byte first = stream.bytes[stream.offset++];
     if ((first & 1) == 1)
       delegate = new OEmbeddedRidBag();
@@ -401,6 +418,7 @@ public class ORidBag implements OStringBuilderSerializable, Iterable<OIdentifiab
    */
   public void notifySaved(OBonsaiCollectionPointer newPointer) {
     if (newPointer.isValid()) {
+      modCount++;
       if (isEmbedded()) {
         replaceWithSBTree(newPointer);
       } else {
@@ -428,6 +446,7 @@ public class ORidBag implements OStringBuilderSerializable, Iterable<OIdentifiab
       if (thisTree.getCollectionPointer().equals(otherTree.getCollectionPointer())) {
 
         thisTree.mergeChanges(otherTree);
+        modCount++;
 
         uuid = otherValue.uuid;
 
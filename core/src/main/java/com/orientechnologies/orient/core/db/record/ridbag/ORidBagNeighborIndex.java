@@ -0,0 +1,256 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.orient.core.db.record.ridbag;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Adjacency index of the edges contained in a {@link ORidBag} of a vertex: the pairs (neighbor vertex, edge) sorted by the
+ * identity of the neighbor vertex, so that the edges that connect the vertex to another vertex and the neighbors stored in a
+ * cluster are found with a binary search instead of loading all the edges of the bag. For lightweight edges the bag contains the
+ * neighbor vertex itself, that is also returned as edge.
+ * <p>
+ * The identities are packed in longs (cluster id in the 16 most significant bits, cluster position in the others), the index
+ * takes 16 bytes per edge.
+ * <p>
+ * The index is a snapshot: the edges of a tree based bag can be changed by other sessions and an edge can be moved to another
+ * vertex without changing the bag, so it must not be kept longer than a single query.
+ */
+public class ORidBagNeighborIndex {
+  private static final int  POSITION_BITS = 48;
+  private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+
+  private final String  neighborField;
+  private final int     modCount;
+  private final ORecord owner;
+  private final int     ownerVersion;
+  private final long[]  neighbors;
+  private final long[]  edges;
+
+  private ORidBagNeighborIndex(final ORidBag bag, final String neighborField, final long[] neighbors, final long[] edges) {
+    this.neighborField = neighborField;
+    this.modCount = bag.getModCount();
+    this.owner = bag.getDelegate().getOwner();
+    this.ownerVersion = owner != null ? owner.getVersion() : 0;
+    this.neighbors = neighbors;
+    this.edges = edges;
+  }
+
+  /**
+   * Builds the index loading all the records of the bag.
+   *
+   * @param neighborField the field of the edges that points to the neighbor vertex: "in" for the outgoing edges, "out" for the
+   *                      incoming ones
+   *
+   * @return the index, not usable if the bag contains records that are not persistent or that are not edges or vertices
+   */
+  public static ORidBagNeighborIndex build(final ORidBag bag, final String neighborField) {
+    final int size = bag.size();
+    long[] neighbors = new long[size];
+    long[] edges = new long[size];
+    int count = 0;
+    for (Iterator<OIdentifiable> it = bag.rawIterator(); it.hasNext(); ) {
+      final OIdentifiable item = it.next();
+      if (item == null)
+        continue;
+      // THE BAG CAN HOLD THE RECORDS LOADED BY A PREVIOUS ITERATION, THE EDGES ARE LOADED AGAIN BY IDENTITY
+      final ORecord record = item.getIdentity().getRecord();
+      if (!(record instanceof ODocument))
+        // DELETED RECORD: SKIP IT AS THE EDGE ITERATORS DO
+        continue;
+
+      final OClass clazz = ((ODocument) record).getSchemaClass();
+      final Object neighbor;
+      if (clazz != null && clazz.isVertexType())
+        // LIGHTWEIGHT EDGE
+        neighbor = item;
+      else if (clazz != null && clazz.isEdgeType())
+        neighbor = ((ODocument) record).rawField(neighborField);
+      else
+        return new ORidBagNeighborIndex(bag, neighborField, null, null);
+
+      if (!(neighbor instanceof OIdentifiable) || !isIndexable(((OIdentifiable) neighbor).getIdentity()) || !isIndexable(
+          item.getIdentity()))
+        return new ORidBagNeighborIndex(bag, neighborField, null, null);
+
+      if (count == neighbors.length) {
+        neighbors = Arrays.copyOf(neighbors, Math.max(16, count * 2));
+        edges = Arrays.copyOf(edges, neighbors.length);
+      }
+      neighbors[count] = pack(((OIdentifiable) neighbor).getIdentity());
+      edges[count] = pack(item.getIdentity());
+      count++;
+    }
+
+    if (count < neighbors.length) {
+      neighbors = Arrays.copyOf(neighbors, count);
+      edges = Arrays.copyOf(edges, count);
+    }
+    sort(neighbors, edges, 0, count - 1);
+    return new ORidBagNeighborIndex(bag, neighborField, neighbors, edges);
+  }
+
+  /**
+   * @return true if neither the bag nor the record that owns it have been changed since the index was built
+   */
+  public boolean isValid(final ORidBag bag, final String iNeighborField) {
+    if (modCount != bag.getModCount() || !neighborField.equals(iNeighborField))
+      return false;
+    // THE REMOVALS THROUGH THE ITERATORS ARE TRACKED ONLY BY THE OWNER
+    return owner == null || (owner == bag.getDelegate().getOwner() && !owner.isDirty() && owner.getVersion() == ownerVersion);
+  }
+
+  /**
+   * @return false if the content of the bag cannot be indexed
+   */
+  public boolean isUsable() {
+    return neighbors != null;
+  }
+
+  public int size() {
+    return neighbors.length;
+  }
+
+  /**
+   * @return the number of edges that connect to the vertex
+   */
+  public int count(final ORID neighbor) {
+    if (!isIndexable(neighbor))
+      return 0;
+    final long key = pack(neighbor);
+    final int first = firstIndexOf(key);
+    int last = first;
+    while (last < neighbors.length && neighbors[last] == key)
+      last++;
+    return last - first;
+  }
+
+  public boolean isConnected(final ORID neighbor) {
+    return count(neighbor) > 0;
+  }
+
+  /**
+   * @return the edges that connect to the vertex
+   */
+  public List<ORID> getEdges(final ORID neighbor) {
+    if (!isIndexable(neighbor))
+      return Collections.emptyList();
+    final long key = pack(neighbor);
+    final List<ORID> result = new ArrayList<>();
+    for (int i = firstIndexOf(key); i < neighbors.length && neighbors[i] == key; i++)
+      result.add(unpack(edges[i]));
+    return result;
+  }
+
+  /**
+   * @return the neighbor vertices stored in the cluster, once per edge
+   */
+  public List<ORID> getNeighbors(final int clusterId) {
+    final List<ORID> result = new ArrayList<>();
+    if (clusterId < 0 || clusterId > Short.MAX_VALUE)
+      return result;
+    for (int i = firstIndexOf((long) clusterId << POSITION_BITS); i < neighbors.length
+        && neighbors[i] >>> POSITION_BITS == clusterId; i++)
+      result.add(unpack(neighbors[i]));
+    return result;
+  }
+
+  private int firstIndexOf(final long key) {
+    int low = 0;
+    int high = neighbors.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (neighbors[mid] < key)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  private static boolean isIndexable(final ORID rid) {
+    return rid != null && rid.isPersistent() && rid.getClusterId() <= Short.MAX_VALUE
+        && rid.getClusterPosition() <= POSITION_MASK;
+  }
+
+  private static long pack(final ORID rid) {
+    return ((long) rid.getClusterId() << POSITION_BITS) | rid.getClusterPosition();
+  }
+
+  private static ORID unpack(final long value) {
+    return new ORecordId((int) (value >>> POSITION_BITS), value & POSITION_MASK);
+  }
+
+  // SORTS THE PAIRS BY NEIGHBOR, THE ARRAYS ARE TOO LARGE TO SORT BOXED INDEXES
+
+  private static void sort(final long[] keys, final long[] values, int low, int high) {
+    while (high - low > 16) {
+      final long pivot = median(keys[low], keys[(low + high) >>> 1], keys[high]);
+      int i = low;
+      int j = high;
+      while (i <= j) {
+        while (keys[i] < pivot)
+          i++;
+        while (keys[j] > pivot)
+          j--;
+        if (i <= j)
+          swap(keys, values, i++, j--);
+      }
+      // RECURSE ON THE SMALLER PARTITION TO BOUND THE STACK DEPTH
+      if (j - low < high - i) {
+        sort(keys, values, low, j);
+        low = i;
+      } else {
+        sort(keys, values, i, high);
+        high = j;
+      }
+    }
+    for (int i = low + 1; i <= high; i++)
+      for (int j = i; j > low && keys[j - 1] > keys[j]; j--)
+        swap(keys, values, j, j - 1);
+  }
+
+  private static long median(final long a, final long b, final long c) {
+    if (a < b)
+      return b < c ? b : (a < c ? c : a);
+    return a < c ? a : (b < c ? c : b);
+  }
+
+  private static void swap(final long[] keys, final long[] values, final int i, final int j) {
+    final long key = keys[i];
+    keys[i] = keys[j];
+    keys[j] = key;
+    final long value = values[i];
+    values[i] = values[j];
+    values[j] = value;
+  }
+}
@@ -0,0 +1,663 @@
+package com.orientechnologies.orient.core.db.viewmanager;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.metadata.schema.OView;
+import com.orientechnologies.orient.core.record.OElement;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultInternal;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import com.orientechnologies.orient.core.sql.parser.*;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Incremental maintenance of a batch view: the changes committed on the records of the source class are queued and applied to the
+ * current cluster of the view, instead of rebuilding the whole view. Supported queries are <code>SELECT [projections] FROM Class
+ * [WHERE ...]</code> on views with an origin rid field, and aggregations with count(), sum(), min() and max(), optionally with a
+ * GROUP BY on projected expressions.
+ * <p>
+ * A change can be concurrent with the query that computed a group (the full build of the view, or the recalculation of a single
+ * group): its effect could be already included in the result or not. Such changes are never applied arithmetically, the groups
+ * they touch are calculated again by query.
+ */
+class IncrementalView {
+  static final String GROUP_COUNT_ALIAS = "_viewGroupCount";
+
+  private static class Aggregate {
+    private final String      alias;
+    private final String      function;
+    private final OExpression argument;
+
+    private Aggregate(String alias, String function, OExpression argument) {
+      this.alias = alias;
+      this.function = function;
+      this.argument = argument;
+    }
+  }
+
+  private static class Group {
+    private ORID rid;
+    private long count;
+
+    private Group(ORID rid, long count) {
+      this.rid = rid;
+      this.count = count;
+    }
+  }
+
+  private final ViewManager           viewManager;
+  private final AtomicLong            sequence;
+  private final String                viewName;
+  private final String                query;
+  private final String                className;
+  private final String                originRidField;
+  private final int                   maxPendingChanges;
+  private final OWhereClause          where;
+  private final List<OProjectionItem> projections;
+  private final List<OExpression>     groupBy;
+  private final List<String>          groupAliases;
+  private final List<Aggregate>       aggregates;
+
+  private final Queue<ViewChange> changes        = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger     pendingChanges = new AtomicInteger();
+  private volatile boolean        overflow       = false;
+
+  private int          clusterId = -1;
+  private String       clusterName;
+  private List<String> indexNames;
+  private String       originIndexName;
+  private long[]       buildWindow;
+
+  // THE INDEXES OF THE SESSION THAT IS UPDATING THE VIEW
+  private List<OIndex> indexes;
+  private OIndex       originIndex;
+
+  private final Map<List<Object>, Group>  groups  = new HashMap<>();
+  private final Map<List<Object>, long[]> windows = new HashMap<>();
+
+  private IncrementalView(ViewManager viewManager, AtomicLong sequence, OView view, String className, OWhereClause where,
+      List<OProjectionItem> projections, List<OExpression> groupBy, List<String> groupAliases, List<Aggregate> aggregates,
+      int maxPendingChanges) {
+    this.viewManager = viewManager;
+    this.sequence = sequence;
+    this.viewName = view.getName();
+    this.query = view.getQuery();
+    this.originRidField = view.getOriginRidField();
+    this.className = className;
+    this.where = where;
+    this.projections = projections;
+    this.groupBy = groupBy;
+    this.groupAliases = groupAliases;
+    this.aggregates = aggregates;
+    this.maxPendingChanges = maxPendingChanges;
+  }
+
+  /**
+   * @return the incremental maintenance for the view, null if the view query is not supported
+   */
+  static IncrementalView create(ViewManager viewManager, AtomicLong sequence, OView view, ODatabaseDocumentInternal db,
+      int maxPendingChanges) {
+    OStatement statement;
+    try {
+      statement = OStatementCache.get(view.getQuery(), db);
+    } catch (RuntimeException e) {
+      return null;
+    }
+    if (!(statement instanceof OSelectStatement)) {
+      return null;
+    }
+    OSelectStatement select = (OSelectStatement) statement;
+    if (select.getLetClause() != null || select.getOrderBy() != null || select.getSkip() != null || select.getLimit() != null
+        || select.getUnwind() != null) {
+      return null;
+    }
+    OFromClause target = select.getTarget();
+    if (target == null || target.getItem() == null || target.getItem().getIdentifier() == null
+        || target.getItem().getModifier() != null) {
+      return null;
+    }
+    OClass clazz = db.getMetadata().getImmutableSchemaSnapshot().getClass(target.getItem().getIdentifier().getStringValue());
+    if (clazz == null) {
+      return null;
+    }
+
+    OProjection projection = select.getProjection();
+    List<OProjectionItem> projections = null;
+    if (projection != null && !(projection.getItems().size() == 1 && projection.getItems().get(0).isAll())) {
+      if (projection.isDistinct()) {
+        return null;
+      }
+      projections = projection.getItems();
+      for (OProjectionItem item : projections) {
+        if (item.isAll() || item.isExpand()) {
+          return null;
+        }
+      }
+    }
+
+    boolean aggregate = projections != null && projections.stream().anyMatch(x -> x.isAggregate());
+    if (!aggregate) {
+      if (select.getGroupBy() != null || view.getOriginRidField() == null) {
+        return null;
+      }
+      return new IncrementalView(viewManager, sequence, view, clazz.getName(), select.getWhereClause(), projections, null, null,
+          null, maxPendingChanges);
+    }
+
+    List<OExpression> groupBy = select.getGroupBy() == null ? Collections.emptyList() : select.getGroupBy().getItems();
+    String[] groupAliases = new String[groupBy.size()];
+    List<Aggregate> aggregates = new ArrayList<>();
+    for (OProjectionItem item : projections) {
+      if (item.isAggregate()) {
+        Aggregate agg = toAggregate(item);
+        if (agg == null) {
+          return null;
+        }
+        aggregates.add(agg);
+      } else {
+        // A PLAIN PROJECTION OF AN AGGREGATE VIEW MUST BE A GROUPING EXPRESSION
+        int pos = groupBy.stream().map(x -> x.toString()).collect(Collectors.toList())
+            .indexOf(item.getExpression().toString());
+        if (pos < 0) {
+          return null;
+        }
+        groupAliases[pos] = item.getProjectionAliasAsString();
+      }
+    }
+    for (String alias : groupAliases) {
+      if (alias == null) {
+        return null;
+      }
+    }
+    return new IncrementalView(viewManager, sequence, view, clazz.getName(), select.getWhereClause(), projections, groupBy,
+        Arrays.asList(groupAliases), aggregates, maxPendingChanges);
+  }
+
+  private static Aggregate toAggregate(OProjectionItem item) {
+    OMathExpression math = item.getExpression().getMathExpression();
+    if (!(math instanceof OBaseExpression) || ((OBaseExpression) math).getModifier() != null) {
+      return null;
+    }
+    OBaseIdentifier identifier = ((OBaseExpression) math).getIdentifier();
+    if (identifier == null || identifier.getSuffix() != null || identifier.getLevelZero() == null) {
+      return null;
+    }
+    OFunctionCall function = identifier.getLevelZero().getFunctionCall();
+    if (function == null || function.getParams().size() != 1 || function.getParams().get(0).isAggregate()) {
+      return null;
+    }
+    String name = function.getName().getStringValue().toLowerCase(Locale.ENGLISH);
+    switch (name) {
+    case "count":
+      return new Aggregate(item.getProjectionAliasAsString(), name, function.isStar() ? null : function.getParams().get(0));
+    case "sum":
+    case "min":
+    case "max":
+      return new Aggregate(item.getProjectionAliasAsString(), name, function.getParams().get(0));
+    default:
+      return null;
+    }
+  }
+
+  boolean isAggregate() {
+    return aggregates != null;
+  }
+
+  String getClassName() {
+    return className;
+  }
+
+  boolean isSourceOf(OClass clazz) {
+    return clazz.isSubClassOf(className);
+  }
+
+  /**
+   * @return true if the view can still be updated incrementally: the query did not change, the view is still on the cluster
+   * populated by the last build and no change has been lost.
+   */
+  boolean isApplicable(OView view) {
+    int[] clusterIds = view.getClusterIds();
+    return !overflow && buildWindow != null && query.equals(view.getQuery()) && clusterIds.length == 1
+        && clusterIds[0] == clusterId;
+  }
+
+  void enqueue(ViewChange change) {
+    if (overflow) {
+      return;
+    }
+    if (pendingChanges.incrementAndGet() > maxPendingChanges) {
+      // IT'S CHEAPER TO REBUILD THE VIEW, RELEASE THE CHANGES
+      overflow = true;
+      changes.clear();
+      return;
+    }
+    changes.add(change);
+  }
+
+  /**
+   * @return the query of the full build, that keeps the rid of the original records of the projections and the number of records
+   * of every group of the aggregations
+   */
+  String getBuildQuery() {
+    if (projections == null) {
+      return query;
+    }
+    StringBuilder builder = new StringBuilder();
+    appendSelect(builder);
+    if (where != null) {
+      builder.append(" WHERE ").append(where);
+    }
+    if (isAggregate()) {
+      appendGroupBy(builder);
+    }
+    return builder.toString();
+  }
+
+  boolean needsOriginIndex() {
+    return !isAggregate();
+  }
+
+  void startBuild(int clusterId, String clusterName, List<OIndex> indexes, OIndex originIndex) {
+    this.clusterId = clusterId;
+    this.clusterName = clusterName;
+    this.indexes = indexes;
+    this.indexNames = indexes.stream().map(x -> x.getName()).collect(Collectors.toList());
+    this.originIndexName = originIndex == null ? null : originIndex.getName();
+    this.groups.clear();
+    this.windows.clear();
+    this.buildWindow = new long[] { sequence.get(), Long.MAX_VALUE };
+  }
+
+  void addBuiltItem(OResult item, ODatabaseDocument db) {
+    if (!isAggregate()) {
+      viewManager.addItemToView(item, db, originRidField, viewName, clusterName, indexes);
+      return;
+    }
+    OResultInternal row = copyWithoutCount(item);
+    OElement saved = viewManager.addItemToView(row, db, originRidField, viewName, clusterName, indexes);
+    groups.put(groupKeyOfRow(item), new Group(saved.getIdentity(), groupCountOf(item)));
+  }
+
+  void endBuild() {
+    buildWindow[1] = sequence.get();
+  }
+
+  /**
+   * Applies the queued changes to the view.
+   *
+   * @return false if the view has to be rebuilt
+   */
+  boolean applyChanges(ODatabaseDocument db) {
+    if (changes.isEmpty()) {
+      return true;
+    }
+    List<ViewChange> batch = new ArrayList<>();
+    ViewChange change;
+    while ((change = changes.poll()) != null) {
+      batch.add(change);
+      pendingChanges.decrementAndGet();
+    }
+    try {
+      indexes = new ArrayList<>();
+      for (String name : indexNames) {
+        indexes.add(db.getMetadata().getIndexManager().getIndex(name));
+      }
+      originIndex = originIndexName == null ? null : db.getMetadata().getIndexManager().getIndex(originIndexName);
+      if (isAggregate()) {
+        applyToGroups(batch, db);
+      } else {
+        applyToRows(batch, db);
+      }
+      return true;
+    } catch (RuntimeException e) {
+      overflow = true;
+      return false;
+    }
+  }
+
+  private void applyToRows(List<ViewChange> batch, ODatabaseDocument db) {
+    OCommandContext ctx = newContext(db);
+    for (ViewChange change : batch) {
+      if (change.getCommitSequence() < buildWindow[0]) {
+        // ALREADY INCLUDED IN THE BUILD
+        continue;
+      }
+      List<OElement> rows = new ArrayList<>();
+      Object found = originIndex.get(change.getRid());
+      if (found instanceof Collection) {
+        for (Object item : (Collection) found) {
+          rows.add(db.load(((OIdentifiable) item).getIdentity()));
+        }
+      } else if (found instanceof OIdentifiable) {
+        rows.add(db.load(((OIdentifiable) found).getIdentity()));
+      }
+      rows.removeIf(Objects::isNull);
+
+      OResult after = change.getAfter();
+      if (after != null && matches(after, ctx)) {
+        OResult projected = project(after, ctx);
+        if (rows.isEmpty()) {
+          viewManager.addItemToView(projected, db, originRidField, viewName, clusterName, indexes);
+        } else {
+          updateRow(rows.remove(0), projected, projections == null);
+        }
+      }
+      rows.forEach(this::deleteRow);
+    }
+  }
+
+  private void applyToGroups(List<ViewChange> batch, ODatabaseDocument db) {
+    OCommandContext ctx = newContext(db);
+    Set<List<Object>> toCalculate = new LinkedHashSet<>();
+    Map<List<Object>, OElement> rows = new HashMap<>();
+    Map<List<Object>, Object[]> previousKeys = new HashMap<>();
+
+    for (ViewChange change : batch) {
+      for (int i = 0; i < 2; i++) {
+        OResult image = i == 0 ? change.getBefore() : change.getAfter();
+        int sign = i == 0 ? -1 : 1;
+        if (image == null || !matches(image, ctx)) {
+          continue;
+        }
+        List<Object> key = groupKeyOf(image, ctx);
+        long[] window = windows.getOrDefault(key, buildWindow);
+        if (change.getCommitSequence() < window[0]) {
+          // ALREADY INCLUDED IN THE GROUP
+          continue;
+        }
+        if (change.getCaptureSequence() <= window[1] || toCalculate.contains(key)) {
+          // CONCURRENT WITH THE QUERY THAT CALCULATED THE GROUP
+          toCalculate.add(key);
+          continue;
+        }
+        Group group = groups.get(key);
+        if (group == null) {
+          toCalculate.add(key);
+          continue;
+        }
+        OElement row = rows.get(key);
+        if (row == null) {
+          row = db.load(group.rid);
+          if (row == null) {
+            toCalculate.add(key);
+            continue;
+          }
+          rows.put(key, row);
+          previousKeys.put(key, indexKeysOf(row));
+        }
+        group.count += sign;
+        if ((group.count <= 0 && !groupBy.isEmpty()) || !applyToRow(row, image, sign, ctx)) {
+          toCalculate.add(key);
+        }
+      }
+    }
+
+    for (Map.Entry<List<Object>, OElement> entry : rows.entrySet()) {
+      if (!toCalculate.contains(entry.getKey())) {
+        saveRow(entry.getValue(), previousKeys.get(entry.getKey()));
+      }
+    }
+    for (List<Object> key : toCalculate) {
+      calculateGroup(key, db);
+    }
+  }
+
+  /**
+   * Applies the contribution of a record to the aggregates of its group.
+   *
+   * @return false if the group has to be calculated again, eg. when the current minimum is removed
+   */
+  private boolean applyToRow(OElement row, OResult image, int sign, OCommandContext ctx) {
+    for (Aggregate agg : aggregates) {
+      Object value = agg.argument == null ? null : agg.argument.execute(image, ctx);
+      Object current = row.getProperty(agg.alias);
+      switch (agg.function) {
+      case "count":
+        if (agg.argument == null || value != null) {
+          row.setProperty(agg.alias, current == null ? (long) sign : OType.increment((Number) current, sign));
+        }
+        break;
+      case "sum":
+        if (value == null) {
+          break;
+        }
+        if (!(value instanceof Number)) {
+          return false;
+        }
+        Number delta = sign > 0 ? (Number) value : negate((Number) value);
+        row.setProperty(agg.alias, current == null ? delta : OType.increment((Number) current, delta));
+        break;
+      default:
+        if (value == null) {
+          break;
+        }
+        boolean min = agg.function.equals("min");
+        if (current == null) {
+          if (sign < 0) {
+            return false;
+          }
+          row.setProperty(agg.alias, value);
+          break;
+        }
+        Integer cmp = compare(value, current);
+        if (cmp == null) {
+          return false;
+        }
+        if (sign > 0 && (min ? cmp < 0 : cmp > 0)) {
+          row.setProperty(agg.alias, value);
+        } else if (sign < 0 && (min ? cmp <= 0 : cmp >= 0)) {
+          // THE CURRENT EXTREME HAS BEEN REMOVED
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private void calculateGroup(List<Object> key, ODatabaseDocument db) {
+    StringBuilder builder = new StringBuilder();
+    appendSelect(builder);
+    builder.append(" WHERE ");
+    if (where != null) {
+      builder.append("(").append(where).append(")");
+    }
+    List<Object> params = new ArrayList<>();
+    for (int i = 0; i < groupBy.size(); i++) {
+      if (i > 0 || where != null) {
+        builder.append(" AND ");
+      }
+      builder.append("(").append(groupBy.get(i));
+      if (key.get(i) == null) {
+        builder.append(" IS NULL)");
+      } else {
+        builder.append(" = ?)");
+        params.add(key.get(i));
+      }
+    }
+    if (groupBy.isEmpty() && where == null) {
+      builder.setLength(builder.length() - " WHERE ".length());
+    }
+    appendGroupBy(builder);
+
+    long start = sequence.get();
+    OResult result = null;
+    try (OResultSet rs = db.query(builder.toString(), params.toArray())) {
+      if (rs.hasNext()) {
+        result = rs.next();
+      }
+    }
+    windows.put(key, new long[] { start, sequence.get() });
+
+    Group group = groups.get(key);
+    OElement row = group == null ? null : db.load(group.rid);
+    if (result == null) {
+      if (row != null) {
+        deleteRow(row);
+      }
+      groups.remove(key);
+    } else if (row == null) {
+      OElement saved = viewManager.addItemToView(copyWithoutCount(result), db, originRidField, viewName, clusterName, indexes);
+      groups.put(key, new Group(saved.getIdentity(), groupCountOf(result)));
+    } else {
+      group.count = groupCountOf(result);
+      updateRow(row, copyWithoutCount(result), false);
+    }
+  }
+
+  private void updateRow(OElement row, OResult values, boolean removeMissing) {
+    Object[] previousKeys = indexKeysOf(row);
+    if (removeMissing) {
+      for (String prop : row.getPropertyNames()) {
+        if (!prop.startsWith("@") && !prop.equals(originRidField) && !values.hasProperty(prop)) {
+          row.removeProperty(prop);
+        }
+      }
+    }
+    for (String prop : values.getPropertyNames()) {
+      if (!prop.equalsIgnoreCase("@rid") && !prop.equalsIgnoreCase("@class")) {
+        row.setProperty(prop, values.getProperty(prop));
+      }
+    }
+    saveRow(row, previousKeys);
+  }
+
+  private void saveRow(OElement row, Object[] previousKeys) {
+    row.save();
+    for (int i = 0; i < indexes.size(); i++) {
+      OIndex idx = indexes.get(i);
+      Object key = viewManager.indexedKeyFor(idx, row);
+      if (!Objects.equals(key, previousKeys[i])) {
+        idx.remove(previousKeys[i], row);
+        idx.put(key, row);
+      }
+    }
+  }
+
+  private void deleteRow(OElement row) {
+    for (OIndex idx : indexes) {
+      idx.remove(viewManager.indexedKeyFor(idx, row), row);
+    }
+    row.delete();
+  }
+
+  private Object[] indexKeysOf(OElement row) {
+    Object[] keys = new Object[indexes.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = viewManager.indexedKeyFor(indexes.get(i), row);
+    }
+    return keys;
+  }
+
+  private OResult project(OResult record, OCommandContext ctx) {
+    if (projections == null) {
+      return record;
+    }
+    OResultInternal result = new OResultInternal();
+    for (OProjectionItem item : projections) {
+      result.setProperty(item.getProjectionAliasAsString(), item.execute(record, ctx));
+    }
+    result.setProperty("@rid", record.getProperty("@rid"));
+    return result;
+  }
+
+  private boolean matches(OResult record, OCommandContext ctx) {
+    return where == null || where.matchesFilters(record, ctx);
+  }
+
+  private List<Object> groupKeyOf(OResult record, OCommandContext ctx) {
+    List<Object> key = new ArrayList<>(groupBy.size());
+    for (OExpression expression : groupBy) {
+      key.add(expression.execute(record, ctx));
+    }
+    return key;
+  }
+
+  private List<Object> groupKeyOfRow(OResult row) {
+    List<Object> key = new ArrayList<>(groupAliases.size());
+    for (String alias : groupAliases) {
+      key.add(row.getProperty(alias));
+    }
+    return key;
+  }
+
+  private static long groupCountOf(OResult row) {
+    Object count = row.getProperty(GROUP_COUNT_ALIAS);
+    return count instanceof Number ? ((Number) count).longValue() : 0;
+  }
+
+  private static OResultInternal copyWithoutCount(OResult item) {
+    OResultInternal row = new OResultInternal();
+    for (String prop : item.getPropertyNames()) {
+      if (!prop.equals(GROUP_COUNT_ALIAS)) {
+        row.setProperty(prop, item.getProperty(prop));
+      }
+    }
+    return row;
+  }
+
+  private void appendSelect(StringBuilder builder) {
+    builder.append("SELECT ");
+    for (OProjectionItem item : projections) {
+      builder.append(item).append(", ");
+    }
+    builder.append(isAggregate() ? "count(*) AS " + GROUP_COUNT_ALIAS : "@rid").append(" FROM `").append(className).append("`");
+  }
+
+  private void appendGroupBy(StringBuilder builder) {
+    if (!groupBy.isEmpty()) {
+      builder.append(" GROUP BY ");
+      for (int i = 0; i < groupBy.size(); i++) {
+        if (i > 0) {
+          builder.append(", ");
+        }
+        builder.append(groupBy.get(i));
+      }
+    }
+  }
+
+  private static OCommandContext newContext(ODatabaseDocument db) {
+    OBasicCommandContext ctx = new OBasicCommandContext();
+    ctx.setDatabase((ODatabaseDocumentInternal) db);
+    return ctx;
+  }
+
+  private static Integer compare(Object value, Object current) {
+    try {
+      if (value instanceof Number && current instanceof Number) {
+        Number[] converted = OType.castComparableNumber((Number) value, (Number) current);
+        return ((Comparable) converted[0]).compareTo(converted[1]);
+      }
+      return ((Comparable) value).compareTo(current);
+    } catch (ClassCastException e) {
+      return null;
+    }
+  }
+
+  private static Number negate(Number value) {
+    if (value instanceof Integer) {
+      return -value.intValue();
+    } else if (value instanceof Long) {
+      return -value.longValue();
+    } else if (value instanceof Short) {
+      return -value.shortValue();
+    } else if (value instanceof Float) {
+      return -value.floatValue();
+    } else if (value instanceof BigDecimal) {
+      return ((BigDecimal) value).negate();
+    }
+    return -value.doubleValue();
+  }
+}
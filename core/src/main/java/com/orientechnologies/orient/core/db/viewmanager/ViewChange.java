@@ -0,0 +1,111 @@
+package com.orientechnologies.orient.core.db.viewmanager;
+
+import com.orientechnologies.orient.core.db.record.ORecordOperation;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.query.live.OLiveQueryHookV2;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultInternal;
+
+/**
+ * A change of a record of the source class of a view, captured when the record is saved and completed with the final content of
+ * the record when the transaction commits.
+ */
+class ViewChange {
+  private final ODocument document;
+  private final OClass    clazz;
+  private final long      captureSequence;
+  private       byte      type;
+  private       OResult   before;
+  private       OResult   after;
+  private       ORID      rid;
+  private       long      commitSequence;
+
+  ViewChange(ODocument document, OClass clazz, byte type, long captureSequence) {
+    this.document = document;
+    this.clazz = clazz;
+    this.type = type;
+    this.captureSequence = captureSequence;
+    if (type != ORecordOperation.CREATED) {
+      this.before = calculateBefore(document);
+    }
+  }
+
+  /**
+   * Merges a following change of the same record in the same transaction.
+   *
+   * @return false if the record has been created and deleted by the transaction, so there is nothing left to apply
+   */
+  boolean merge(byte type) {
+    if (type == ORecordOperation.DELETED) {
+      if (this.type == ORecordOperation.CREATED) {
+        return false;
+      }
+      this.type = ORecordOperation.DELETED;
+    }
+    return true;
+  }
+
+  void committed(long commitSequence) {
+    this.commitSequence = commitSequence;
+    // THE IDENTITY OF THE CREATED RECORDS IS DEFINITIVE ONLY AFTER THE COMMIT
+    this.rid = document.getIdentity().copy();
+    if (type != ORecordOperation.DELETED) {
+      this.after = calculateAfter(document, rid);
+    }
+  }
+
+  OClass getSchemaClass() {
+    return clazz;
+  }
+
+  long getCaptureSequence() {
+    return captureSequence;
+  }
+
+  long getCommitSequence() {
+    return commitSequence;
+  }
+
+  ORID getRid() {
+    return rid;
+  }
+
+  /**
+   * @return the committed content of the record before the change, null for new records
+   */
+  OResult getBefore() {
+    return before;
+  }
+
+  /**
+   * @return the content of the record after the change, null for deleted records
+   */
+  OResult getAfter() {
+    return after;
+  }
+
+  private static OResult calculateBefore(ODocument document) {
+    OResultInternal result = new OResultInternal();
+    for (String prop : document.getPropertyNames()) {
+      result.setProperty(prop, OLiveQueryHookV2.unboxRidbags(document.getProperty(prop)));
+    }
+    for (String prop : document.getDirtyFields()) {
+      result.setProperty(prop, OLiveQueryHookV2.unboxRidbags(document.getOriginalValue(prop)));
+    }
+    result.setProperty("@rid", document.getIdentity().copy());
+    result.setProperty("@class", document.getClassName());
+    return result;
+  }
+
+  private static OResult calculateAfter(ODocument document, ORID rid) {
+    OResultInternal result = new OResultInternal();
+    for (String prop : document.getPropertyNames()) {
+      result.setProperty(prop, OLiveQueryHookV2.unboxRidbags(document.getProperty(prop)));
+    }
+    result.setProperty("@rid", rid);
+    result.setProperty("@class", document.getClassName());
+    return result;
+  }
+}
@@ -5,9 +5,11 @@ import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.util.OPair;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.*;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentEmbedded;
+import com.orientechnologies.orient.core.db.record.ORecordOperation;
 import com.orientechnologies.orient.core.exception.ODatabaseException;
 import com.orientechnologies.orient.core.index.*;
 import com.orientechnologies.orient.core.metadata.schema.*;
@@ -20,6 +22,7 @@ import com.orientechnologies.orient.core.sql.parser.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public class ViewManager {
@@ -48,6 +51,26 @@ public class ViewManager {
 
   private final Map<String, Long> lastChangePerClass = new ConcurrentHashMap<>();
 
+  /**
+   * Incremental maintenance of the batch views, with the changes committed since the last update
+   * <p>
+   * view -> incremental view
+   */
+  private final    Map<String, IncrementalView>                        incrementalViews = new ConcurrentHashMap<>();
+  private final    Map<ODatabaseDocument, Map<ODocument, ViewChange>> pendingChanges   = new ConcurrentHashMap<>();
+  private final    AtomicLong                                          changeSequence   = new AtomicLong();
+  private volatile SourceClasses                                       sourceClasses;
+
+  private static class SourceClasses {
+    private final OImmutableSchema schema;
+    private final Set<String>      names;
+
+    private SourceClasses(OImmutableSchema schema, Set<String> names) {
+      this.schema = schema;
+      this.names = names;
+    }
+  }
+
   private volatile String    lastUpdatedView = null;
   private volatile TimerTask timerTask;
   private volatile Future<?> lastTask;
@@ -116,6 +139,7 @@ public class ViewManager {
     try {
       cleanUnusedViewClusters(db);
       cleanUnusedViewIndexes(db);
+      incrementalViews.keySet().removeIf(name -> db.getMetadata().getSchema().getView(name) == null);
       OView view = getNextViewToUpdate(db);
       if (view != null) {
         updateView(view, db);
@@ -148,6 +172,8 @@ public class ViewManager {
       }
     }
 
+    incrementalViews.clear();
+    pendingChanges.clear();
     closed = true;
   }
 
@@ -222,6 +248,10 @@ public class ViewManager {
     return true;
   }
 
+  protected boolean isIncrementalUpdateSupported() {
+    return true;
+  }
+
   /**
    * Checks if the view could need an update based on watch rules
    *
@@ -273,15 +303,43 @@ public class ViewManager {
   public synchronized void updateView(OView view, ODatabaseDocument db) {
     lastUpdateTimestampForView.put(view.getName(), System.currentTimeMillis());
 
+    IncrementalView incremental = incrementalViews.get(view.getName());
+    if (incremental != null && incremental.isApplicable(view)) {
+      Object applied = OScenarioThreadLocal.executeAsDistributed(() -> incremental.applyChanges(db));
+      if (Boolean.TRUE.equals(applied)) {
+        return;
+      }
+      OLogManager.instance().warn(this, "Failed to update view %s incrementally, rebuilding it", view.getName());
+    }
+
     int cluster = db.addCluster(getNextClusterNameFor(view, db));
 
     String viewName = view.getName();
-    String query = view.getQuery();
     String originRidField = view.getOriginRidField();
     String clusterName = db.getClusterNameById(cluster);
 
     List<OIndex> indexes = createNewIndexesForView(view, cluster, db);
 
+    // CHANGES ARE COLLECTED SINCE BEFORE THE BUILD, SO NOTHING COMMITTED IN THE MEANTIME IS LOST
+    IncrementalView candidate = createIncrementalView(view, db);
+    OIndex originIndex = null;
+    if (candidate != null && candidate.needsOriginIndex()) {
+      originIndex = createOriginIndex(view, cluster, db);
+      if (originIndex != null) {
+        indexes.add(originIndex);
+      } else {
+        candidate = null;
+      }
+    }
+    final IncrementalView newIncremental = candidate;
+    if (newIncremental != null) {
+      newIncremental.startBuild(cluster, clusterName, indexes, originIndex);
+      incrementalViews.put(viewName, newIncremental);
+    } else {
+      incrementalViews.remove(viewName);
+    }
+    String query = newIncremental != null ? newIncremental.getBuildQuery() : view.getQuery();
+
     OScenarioThreadLocal.executeAsDistributed(new Callable<Object>() {
       @Override
       public Object call() {
@@ -289,17 +347,25 @@ public class ViewManager {
         OResultSet rs = db.query(query);
         while (rs.hasNext()) {
           OResult item = rs.next();
-          addItemToView(item, db, originRidField, viewName, clusterName, indexes);
+          if (newIncremental != null) {
+            newIncremental.addBuiltItem(item, db);
+          } else {
+            addItemToView(item, db, originRidField, viewName, clusterName, indexes);
+          }
         }
 
         return null;
       }
 
     });
+    if (newIncremental != null) {
+      newIncremental.endBuild();
+    }
 
     view = db.getMetadata().getSchema().getView(view.getName());
     if (view == null) {
       //the view was dropped in the meantime
+      incrementalViews.remove(viewName);
       db.dropCluster(clusterName, false);
       indexes.forEach(x -> x.delete());
       return;
@@ -330,7 +396,7 @@ public class ViewManager {
 
   }
 
-  private void addItemToView(OResult item, ODatabaseDocument db, String originRidField, String viewName, String clusterName,
+  OElement addItemToView(OResult item, ODatabaseDocument db, String originRidField, String viewName, String clusterName,
       List<OIndex> indexes) {
     OElement newRow = copyElement(item, db);
     if (originRidField != null) {
@@ -340,9 +406,10 @@ public class ViewManager {
     db.save(newRow, clusterName);
 
     indexes.forEach(idx -> idx.put(indexedKeyFor(idx, newRow), newRow));
+    return newRow;
   }
 
-  private Object indexedKeyFor(OIndex idx, OElement newRow) {
+  Object indexedKeyFor(OIndex idx, OElement newRow) {
     List<String> fieldsToIndex = idx.getDefinition().getFieldsToIndex();
     if (fieldsToIndex.size() == 1) {
       return idx.getDefinition().createValue((Object) newRow.getProperty(fieldsToIndex.get(0)));
@@ -373,6 +440,29 @@ public class ViewManager {
     }
   }
 
+  /**
+   * Creates the index to find the rows of a view from the rid of the original records, used by the incremental updates.
+   */
+  private OIndex createOriginIndex(OView view, int cluster, ODatabaseDocument db) {
+    try {
+      OIndexDefinition definition = new OPropertyIndexDefinition(view.getName(), view.getOriginRidField(), OType.LINK);
+      String indexName = view.getName() + "_" + UUID.randomUUID().toString().replaceAll("-", "_");
+      return db.getMetadata().getIndexManager()
+          .createIndex(indexName, OClass.INDEX_TYPE.NOTUNIQUE_HASH_INDEX.name(), definition, new int[] { cluster }, null, null);
+    } catch (Exception e) {
+      OLogManager.instance().warn(this, "Cannot create the origin index of view %s", e, view.getName());
+      return null;
+    }
+  }
+
+  private IncrementalView createIncrementalView(OView view, ODatabaseDocument db) {
+    int maxPendingChanges = db.getConfiguration().getValueAsInteger(OGlobalConfiguration.VIEW_INCREMENTAL_MAX_PENDING_CHANGES);
+    if (maxPendingChanges <= 0 || !isIncrementalUpdateSupported() || !OViewConfig.UPDATE_STRATEGY_BATCH.equalsIgnoreCase(view.getUpdateStrategy())) {
+      return null;
+    }
+    return IncrementalView.create(this, changeSequence, view, (ODatabaseDocumentInternal) db, maxPendingChanges);
+  }
+
   private OIndexDefinition createIndexDefinition(String viewName, List<OPair<String, OType>> requiredIndexesInfo) {
     if (requiredIndexesInfo.size() == 1) {
       return new OPropertyIndexDefinition(viewName, requiredIndexesInfo.get(0).getKey(), requiredIndexesInfo.get(0).getValue());
@@ -452,14 +542,85 @@ public class ViewManager {
 
   public void recordAdded(OImmutableClass clazz, ODocument doc, ODatabaseDocumentEmbedded oDatabaseDocumentEmbedded) {
     lastChangePerClass.put(clazz.getName().toLowerCase(Locale.ENGLISH), System.currentTimeMillis());
+    captureChange(clazz, doc, ORecordOperation.CREATED, oDatabaseDocumentEmbedded);
   }
 
   public void recordUpdated(OImmutableClass clazz, ODocument doc, ODatabaseDocumentEmbedded oDatabaseDocumentEmbedded) {
     lastChangePerClass.put(clazz.getName().toLowerCase(Locale.ENGLISH), System.currentTimeMillis());
+    captureChange(clazz, doc, ORecordOperation.UPDATED, oDatabaseDocumentEmbedded);
   }
 
   public void recordDeleted(OImmutableClass clazz, ODocument doc, ODatabaseDocumentEmbedded oDatabaseDocumentEmbedded) {
     lastChangePerClass.put(clazz.getName().toLowerCase(Locale.ENGLISH), System.currentTimeMillis());
+    captureChange(clazz, doc, ORecordOperation.DELETED, oDatabaseDocumentEmbedded);
+  }
+
+  private void captureChange(OImmutableClass clazz, ODocument doc, byte type, ODatabaseDocumentEmbedded db) {
+    if (!isSourceOfIncrementalView(clazz, db)) {
+      return;
+    }
+    Map<ODocument, ViewChange> changes = pendingChanges.computeIfAbsent(db, k -> new IdentityHashMap<>());
+    ViewChange change = changes.get(doc);
+    if (change == null) {
+      changes.put(doc, new ViewChange(doc, clazz, type, changeSequence.incrementAndGet()));
+    } else if (!change.merge(type)) {
+      changes.remove(doc);
+    }
+  }
+
+  /**
+   * Source classes are watched as soon as an incrementally maintainable view is defined on them, also before its first build, so
+   * the transactions that are in progress when a build starts are captured too.
+   */
+  private boolean isSourceOfIncrementalView(OImmutableClass clazz, ODatabaseDocumentEmbedded db) {
+    if (db.getConfiguration().getValueAsInteger(OGlobalConfiguration.VIEW_INCREMENTAL_MAX_PENDING_CHANGES) <= 0) {
+      return false;
+    }
+    OImmutableSchema schema = db.getMetadata().getImmutableSchemaSnapshot();
+    SourceClasses sources = sourceClasses;
+    if (sources == null || sources.schema != schema) {
+      Set<String> names = new HashSet<>();
+      for (OView view : schema.getViews()) {
+        IncrementalView incremental = createIncrementalView(view, db);
+        if (incremental != null) {
+          names.add(incremental.getClassName());
+        }
+      }
+      sources = new SourceClasses(schema, names);
+      sourceClasses = sources;
+    }
+    for (String name : sources.names) {
+      if (clazz.isSubClassOf(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Queues the changes of the views source classes committed by the current transaction of the session.
+   */
+  public void notifyCommit(ODatabaseDocument db) {
+    Map<ODocument, ViewChange> changes = pendingChanges.remove(db);
+    if (changes == null) {
+      return;
+    }
+    long sequence = changeSequence.incrementAndGet();
+    for (ViewChange change : changes.values()) {
+      change.committed(sequence);
+      for (IncrementalView incremental : incrementalViews.values()) {
+        if (incremental.isSourceOf(change.getSchemaClass())) {
+          incremental.enqueue(change);
+        }
+      }
+    }
+  }
+
+  /**
+   * Discards the changes of the current transaction of the session after a rollback.
+   */
+  public void discardChanges(ODatabaseDocument db) {
+    pendingChanges.remove(db);
   }
 
   public String getViewFromOldCluster(int clusterId) {
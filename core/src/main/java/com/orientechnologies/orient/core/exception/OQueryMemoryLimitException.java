@@ -0,0 +1,40 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.exception;
+
+/**
+ * Exception thrown when a query exceeds its memory limit, or the limit of all the queries, and its results cannot be spilled to
+ * disk.
+ *
+ * @see com.orientechnologies.orient.core.config.OGlobalConfiguration#QUERY_MAX_MEMORY_PER_QUERY
+ */
+public class OQueryMemoryLimitException extends OCommandExecutionException {
+
+  private static final long serialVersionUID = 4170356452810268335L;
+
+  public OQueryMemoryLimitException(OQueryMemoryLimitException exception) {
+    super(exception);
+  }
+
+  public OQueryMemoryLimitException(String message) {
+    super(message);
+  }
+
+}
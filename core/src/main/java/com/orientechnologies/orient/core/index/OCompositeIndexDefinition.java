@@ -105,6 +105,13 @@ public class OCompositeIndexDefinition extends OAbstractIndexDefinition {
     collate.addCollate(indexDefinition.getCollate());
   }
 
+  /**
+   * @return the definitions of the components of the key, in key order
+   */
+  public List<OIndexDefinition> getIndexDefinitions() {
+    return Collections.unmodifiableList(indexDefinitions);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -20,6 +20,7 @@ import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import com.orientechnologies.orient.core.storage.index.engine.OHybridIndexEngine;
 import com.orientechnologies.orient.core.storage.index.engine.OPrefixBTreeIndexEngine;
 import com.orientechnologies.orient.core.storage.index.engine.ORemoteIndexEngine;
 import com.orientechnologies.orient.core.storage.index.engine.OSBTreeIndexEngine;
@@ -43,6 +44,10 @@ public class ODefaultIndexFactory implements OIndexFactory {
 
   public static final String SBTREE_ALGORITHM       = "SBTREE";
   public static final String PREFIX_BTREE_ALGORITHM = "PREFIX_BTREE";
+  /**
+   * SBTree with an in-memory hash of the results of the point lookups, see {@link OHybridIndexEngine}.
+   */
+  public static final String HYBRID_ALGORITHM       = "HYBRID";
 
   public static final String SBTREEBONSAI_VALUE_CONTAINER = "SBTREEBONSAISET";
   public static final String NONE_VALUE_CONTAINER         = "NONE";
@@ -63,6 +68,7 @@ public class ODefaultIndexFactory implements OIndexFactory {
     final Set<String> algorithms = new HashSet<String>();
     algorithms.add(SBTREE_ALGORITHM);
     algorithms.add(PREFIX_BTREE_ALGORITHM);
+    algorithms.add(HYBRID_ALGORITHM);
 
     ALGORITHMS = Collections.unmodifiableSet(algorithms);
   }
@@ -106,7 +112,7 @@ public class ODefaultIndexFactory implements OIndexFactory {
       version = getLastVersion();
     }
 
-    if (SBTREE_ALGORITHM.equals(algorithm) || PREFIX_BTREE_ALGORITHM.equals(algorithm)) {
+    if (SBTREE_ALGORITHM.equals(algorithm) || PREFIX_BTREE_ALGORITHM.equals(algorithm) || HYBRID_ALGORITHM.equals(algorithm)) {
       return createSBTreeIndex(name, indexType, valueContainerAlgorithm, metadata,
           (OAbstractPaginatedStorage) storage.getUnderlying(), version, algorithm);
     }
@@ -152,6 +158,8 @@ public class ODefaultIndexFactory implements OIndexFactory {
     case "plocal":
       if (algorithm.equals(PREFIX_BTREE_ALGORITHM)) {
         indexEngine = new OPrefixBTreeIndexEngine(name, (OAbstractPaginatedStorage) storage, version);
+      } else if (algorithm.equals(HYBRID_ALGORITHM)) {
+        indexEngine = new OHybridIndexEngine(name, (OAbstractPaginatedStorage) storage, version);
       } else {
         indexEngine = new OSBTreeIndexEngine(name, (OAbstractPaginatedStorage) storage, version);
       }
@@ -159,6 +167,8 @@ public class ODefaultIndexFactory implements OIndexFactory {
     case "distributed":  // DISTRIBUTED CASE: HANDLE IT AS FOR LOCAL
       if (algorithm.equals(PREFIX_BTREE_ALGORITHM)) {
         indexEngine = new OPrefixBTreeIndexEngine(name, (OAbstractPaginatedStorage) storage.getUnderlying(), version);
+      } else if (algorithm.equals(HYBRID_ALGORITHM)) {
+        indexEngine = new OHybridIndexEngine(name, (OAbstractPaginatedStorage) storage.getUnderlying(), version);
       } else {
         indexEngine = new OSBTreeIndexEngine(name, (OAbstractPaginatedStorage) storage.getUnderlying(), version);
       }
@@ -43,6 +43,7 @@ public interface OIndexInternal<T> extends OIndex<T> {
   String INDEX_DEFINITION_CLASS    = "indexDefinitionClass";
   String INDEX_VERSION             = "indexVersion";
   String METADATA                  = "metadata";
+  String METADATA_INCLUDE          = "include";
 
   Object getCollatingValue(final Object key);
 
@@ -56,6 +56,10 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
   }
 
   public Set<OIdentifiable> get(Object key) {
+    final OCompositeKey prefix = getIncludedPrefix(this, key);
+    if (prefix != null)
+      return Collections.unmodifiableSet(iterateEntriesBetween(prefix, true, prefix, true, true).toValues());
+
     key = getCollatingValue(key);
 
     acquireSharedLock();
@@ -83,6 +87,10 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
   }
 
   public long count(Object key) {
+    final OCompositeKey prefix = getIncludedPrefix(this, key);
+    if (prefix != null)
+      return iterateEntriesBetween(prefix, true, prefix, true, true).toValues().size();
+
     key = getCollatingValue(key);
 
     acquireSharedLock();
@@ -109,6 +117,37 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
     }
   }
 
+  @Override
+  public boolean contains(Object key) {
+    final OCompositeKey prefix = getIncludedPrefix(this, key);
+    if (prefix != null)
+      return iterateEntriesBetween(prefix, true, prefix, true, true).nextEntry() != null;
+
+    return super.contains(key);
+  }
+
+  /**
+   * The keys of an index with included properties end with the included values, so a key made of the indexed properties
+   * only is looked up as a prefix of the stored keys.
+   *
+   * @return the key as a prefix of the stored keys, or <code>null</code> if it is looked up as it is
+   */
+  static OCompositeKey getIncludedPrefix(final OIndex<?> index, final Object key) {
+    final ODocument metadata = index.getMetadata();
+    final OIndexDefinition definition = index.getDefinition();
+    if (key == null || metadata == null || definition == null || !metadata.containsField(OIndexInternal.METADATA_INCLUDE))
+      return null;
+
+    final OCompositeKey prefix;
+    if (key instanceof OCompositeKey)
+      prefix = (OCompositeKey) key;
+    else if (key instanceof List)
+      prefix = new OCompositeKey((List<?>) key);
+    else
+      prefix = new OCompositeKey(key);
+    return prefix.getKeys().size() < definition.getParamCount() ? prefix : null;
+  }
+
   public OIndexMultiValues put(Object key, final OIdentifiable singleValue) {
     key = getCollatingValue(key);
 
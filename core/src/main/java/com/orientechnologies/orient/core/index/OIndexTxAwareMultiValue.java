@@ -118,23 +118,8 @@ public class OIndexTxAwareMultiValue extends OIndexTxAware<Set<OIdentifiable>> {
     }
 
     Map.Entry<Object, OIdentifiable> nextEntryInternal() {
-      final OIdentifiable identifiable = valuesIterator.next();
-      return new Map.Entry<Object, OIdentifiable>() {
-        @Override
-        public Object getKey() {
-          return key;
-        }
-
-        @Override
-        public OIdentifiable getValue() {
-          return identifiable;
-        }
-
-        @Override
-        public OIdentifiable setValue(OIdentifiable value) {
-          throw new UnsupportedOperationException("setValue");
-        }
-      };
+      // THE KEY IS CAPTURED NOW, THE CURSOR MOVES TO THE NEXT KEY BEFORE THE MERGED ENTRY IS CONSUMED
+      return new MapEntry(key, valuesIterator.next());
     }
   }
 
@@ -193,23 +178,7 @@ public class OIndexTxAwareMultiValue extends OIndexTxAware<Set<OIdentifiable>> {
     }
 
     private Map.Entry<Object, OIdentifiable> nextEntryInternal() {
-      final OIdentifiable identifiable = valuesIterator.next();
-      return new Map.Entry<Object, OIdentifiable>() {
-        @Override
-        public Object getKey() {
-          return key;
-        }
-
-        @Override
-        public OIdentifiable getValue() {
-          return identifiable;
-        }
-
-        @Override
-        public OIdentifiable setValue(OIdentifiable value) {
-          throw new UnsupportedOperationException("setValue");
-        }
-      };
+      return new MapEntry(key, valuesIterator.next());
     }
   }
 
@@ -291,6 +260,12 @@ public class OIndexTxAwareMultiValue extends OIndexTxAware<Set<OIdentifiable>> {
   public Set<OIdentifiable> get(Object key) {
     final OTransactionIndexChanges indexChanges = database.getMicroOrRegularTransaction()
         .getIndexChangesInternal(delegate.getName());
+    final OCompositeKey prefix = OIndexMultiValues.getIncludedPrefix(this, key);
+    if (prefix != null && indexChanges != null) {
+      final Set<OIdentifiable> res = iterateEntriesBetween(prefix, true, prefix, true, true).toValues();
+      return res.isEmpty() ? null : res;
+    }
+
     if (indexChanges == null) {
       Set<OIdentifiable> res = super.get(key);
       //In case of active transaction we use to return null instead of empty list, make check to be backward compatible
@@ -458,23 +433,7 @@ public class OIndexTxAwareMultiValue extends OIndexTxAware<Set<OIdentifiable>> {
       }
 
       private Map.Entry<Object, OIdentifiable> nextEntryInternal() {
-        final OIdentifiable identifiable = valuesIterator.next();
-        return new Map.Entry<Object, OIdentifiable>() {
-          @Override
-          public Object getKey() {
-            return key;
-          }
-
-          @Override
-          public OIdentifiable getValue() {
-            return identifiable;
-          }
-
-          @Override
-          public OIdentifiable setValue(OIdentifiable value) {
-            throw new UnsupportedOperationException("setValue");
-          }
-        };
+        return new MapEntry(key, valuesIterator.next());
       }
     };
 
@@ -1123,8 +1123,9 @@ public abstract class OClassImpl implements OClass {
 
     final String localName = this.name;
     final int[] localPolymorphicClusterIds = polymorphicClusterIds;
+    final String[] indexFields = addIncludedFields(name, type, metadata, fields);
 
-    for (final String fieldToIndex : fields) {
+    for (final String fieldToIndex : indexFields) {
       final String fieldName = decodeClassName(OIndexDefinitionFactory.extractFieldName(fieldToIndex));
 
       if (!fieldName.equals("@rid") && !existsProperty(fieldName))
@@ -1134,12 +1135,49 @@ public abstract class OClassImpl implements OClass {
     }
 
     final OIndexDefinition indexDefinition = OIndexDefinitionFactory
-        .createIndexDefinition(this, Arrays.asList(fields), extractFieldTypes(fields), null, type, algorithm);
+        .createIndexDefinition(this, Arrays.asList(indexFields), extractFieldTypes(indexFields), null, type, algorithm);
 
     return getDatabase().getMetadata().getIndexManager()
         .createIndex(name, type, indexDefinition, localPolymorphicClusterIds, progressListener, metadata, algorithm);
   }
 
+  /**
+   * Appends the properties listed in the "include" entry of the index metadata to the indexed fields. Included properties are
+   * stored as trailing components of the key, so queries that only read them can be answered without loading the records.
+   */
+  private static String[] addIncludedFields(final String name, final String type, final ODocument metadata,
+      final String[] fields) {
+    final Object include = metadata == null ? null : metadata.field(OIndexInternal.METADATA_INCLUDE);
+    if (include == null)
+      return fields;
+
+    // THE INCLUDED VALUES ARE PART OF THE KEY, SO THEY WOULD CHANGE THE MEANING OF A UNIQUE CONSTRAINT
+    if (!INDEX_TYPE.NOTUNIQUE.name().equals(type))
+      throw new OIndexException(
+          "Index with name '" + name + "' cannot include properties, only " + INDEX_TYPE.NOTUNIQUE + " indexes support them");
+
+    // A RECORD WITHOUT A VALUE FOR AN INCLUDED PROPERTY MUST STAY IN THE INDEX
+    if (Boolean.TRUE.equals(metadata.field("ignoreNullValues")))
+      throw new OIndexException("Index with name '" + name + "' cannot include properties and ignore null values");
+    metadata.field("ignoreNullValues", false);
+
+    final List<String> result = new ArrayList<String>(Arrays.asList(fields));
+    final Collection<?> included = include instanceof Collection ? (Collection<?>) include : Collections.singleton(include);
+    for (Object field : included) {
+      final String fieldName = field == null ? null : field.toString().trim();
+      if (fieldName == null || fieldName.isEmpty() || !fieldName.equals(OIndexDefinitionFactory.extractFieldName(fieldName))
+          || fieldName.equals("@rid"))
+        throw new OIndexException("Index with name '" + name + "' cannot include '" + field + "', only properties can be included");
+
+      for (String existing : result) {
+        if (OIndexDefinitionFactory.extractFieldName(existing).equalsIgnoreCase(fieldName))
+          throw new OIndexException("Index with name '" + name + "' already contains the field '" + fieldName + "'");
+      }
+      result.add(fieldName);
+    }
+    return result.toArray(new String[result.size()]);
+  }
+
   public boolean areIndexed(final String... fields) {
     return areIndexed(Arrays.asList(fields));
   }
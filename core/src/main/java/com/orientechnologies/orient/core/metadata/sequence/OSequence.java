@@ -493,6 +493,18 @@ public abstract class OSequence {
 
   public abstract long nextWork() throws OSequenceLimitReachedException;
 
+  /*
+   * Forwards the sequence by the given number of values, and returns them in the order they would have been returned by next().
+   */
+  @OApi
+  public long[] next(int count) throws OSequenceLimitReachedException, ODatabaseException {
+    long[] values = new long[Math.max(count, 0)];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = next();
+    }
+    return values;
+  }
+
   /*
    * Returns the current sequence value. If next() was never called, returns null
    */
@@ -20,7 +20,10 @@
 package com.orientechnologies.orient.core.metadata.sequence;
 
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.exception.ODatabaseException;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
@@ -44,6 +47,13 @@ public class OSequenceCached extends OSequence {
   private boolean           recyclable;
   private String name = null;
 
+  /**
+   * Ranges of values reserved by each thread when {@link OGlobalConfiguration#SEQUENCE_CACHED_THREAD_RANGES} is enabled. The
+   * ranges reserved before the last reset or change of the sequence parameters are discarded.
+   */
+  private final    ThreadLocal<ThreadRange> threadRanges  = new ThreadLocal<>();
+  private volatile int                      rangesVersion = 0;
+
   public OSequenceCached() {
     this(null, null);
   }
@@ -79,6 +89,7 @@ public class OSequenceCached extends OSequence {
       }
 
       firstCache = true;
+      rangesVersion++;
       save();
     }
     return any;
@@ -153,6 +164,12 @@ public class OSequenceCached extends OSequence {
 
   @Override
   public long next() throws OSequenceLimitReachedException, ODatabaseException {
+    ThreadRange range = getThreadRange();
+    if (range != null) {
+      long value = range.take();
+      prefetchIfNeeded(range);
+      return value;
+    }
     boolean shouldGoOverDistributted = shouldGoOverDistrtibute();
     if (shouldGoOverDistributted) {      
       return nextWithNewCurrentValue(cacheStart, true);      
@@ -249,11 +266,154 @@ public class OSequenceCached extends OSequence {
     }
   }
 
+  @Override
+  public long[] next(int count) throws OSequenceLimitReachedException, ODatabaseException {
+    ThreadRange range = getThreadRange();
+    if (range == null || count <= 0) {
+      return super.next(count);
+    }
+    long[] values = new long[count];
+    int i = 0;
+    while (i < count && !range.isEmpty()) {
+      values[i++] = range.take();
+    }
+    if (i < count) {
+      // THE MISSING VALUES ARE RESERVED WITH A SINGLE UPDATE OF THE SEQUENCE
+      Block block = reserveBlock(count - i);
+      for (int j = 0; i < count; i++, j++) {
+        values[i] = block.start + block.step * j;
+      }
+      range.last = values[count - 1];
+      range.used = true;
+    }
+    prefetchIfNeeded(range);
+    return values;
+  }
+
   @Override
   protected synchronized long currentWork() {
+    ThreadRange range = threadRanges.get();
+    if (range != null && range.used && range.version == rangesVersion) {
+      return range.last;
+    }
     return this.cacheStart;
   }
 
+  /**
+   * @return the range of values of the current thread, or null if the values have to be taken from the shared cache
+   */
+  private ThreadRange getThreadRange() {
+    if (!OGlobalConfiguration.SEQUENCE_CACHED_THREAD_RANGES.getValueAsBoolean() || isOnDistributted()) {
+      return null;
+    }
+    ThreadRange range = threadRanges.get();
+    if (range == null || range.version != rangesVersion) {
+      range = new ThreadRange(rangesVersion);
+      threadRanges.set(range);
+    }
+    if (range.disabled) {
+      return null;
+    }
+    if (range.isEmpty() && !range.usePrefetched()) {
+      Block block = reserveBlock(0);
+      if (block == null) {
+        // THE LIMIT VALUE NEEDS THE CHECKS OF THE SHARED CACHE
+        range.disabled = true;
+        return null;
+      }
+      range.fill(block);
+    }
+    return range;
+  }
+
+  /**
+   * Reserves the next block of values of the sequence, outside of the current transaction.
+   *
+   * @param count number of values to reserve, 0 for the cache size of the sequence
+   *
+   * @return the reserved block, or null if the sequence has a limit value
+   */
+  private Block reserveBlock(int count) {
+    ODatabaseDocumentInternal mainDb = ODatabaseRecordThreadLocal.instance().get();
+    boolean tx = mainDb.getTransaction().isActive();
+    try {
+      ODatabaseDocumentInternal db = mainDb;
+      if (tx) {
+        db = mainDb.copy();
+        db.activateOnCurrentThread();
+      }
+      try {
+        return reserveBlock(count, db);
+      } finally {
+        if (tx) {
+          db.close();
+        }
+      }
+    } finally {
+      if (tx) {
+        mainDb.activateOnCurrentThread();
+      }
+    }
+  }
+
+  private Block reserveBlock(int count, ODatabaseDocumentInternal db) {
+    return callRetry(false, new Callable<Block>() {
+      @Override
+      public Block call() throws Exception {
+        synchronized (OSequenceCached.this) {
+          reloadSequence();
+          if (getLimitValue() != null) {
+            return null;
+          }
+          int size = count > 0 ? count : Math.max(getCacheSize(), 1);
+          long step = getOrderType() == SequenceOrderType.ORDER_POSITIVE ? getIncrement() : -getIncrement();
+          long value = getValue();
+          setValue(value + step * size);
+          save(db);
+          // THE SHARED CACHE HAS TO SKIP THE LAST RESERVED VALUE WHEN IT IS REFILLED
+          firstCache = true;
+          return new Block(value + step, size, step, rangesVersion);
+        }
+      }
+    }, "next");
+  }
+
+  /**
+   * Reserves in background the next block of the range, when the values left in the range go below a quarter of the block.
+   */
+  private void prefetchIfNeeded(ThreadRange range) {
+    if (range.prefetching || range.prefetched != null || range.remaining > range.size / 4) {
+      return;
+    }
+    range.prefetching = true;
+    ODatabaseDocumentInternal db = null;
+    try {
+      ODatabaseDocumentInternal mainDb = ODatabaseRecordThreadLocal.instance().get();
+      db = mainDb.copy();
+      mainDb.activateOnCurrentThread();
+      final ODatabaseDocumentInternal prefetchDb = db;
+      Orient.instance().submit(() -> {
+        prefetchDb.activateOnCurrentThread();
+        try {
+          bindOnLocalThread();
+          range.prefetched = reserveBlock(range.size, prefetchDb);
+        } catch (Exception e) {
+          OLogManager.instance().debug(this, "Error on reserving the next values of sequence '%s'", e, name);
+        } finally {
+          range.prefetching = false;
+          prefetchDb.close();
+          ODatabaseRecordThreadLocal.instance().remove();
+        }
+      });
+    } catch (RuntimeException e) {
+      // THE NEXT BLOCK WILL BE RESERVED WHEN THE RANGE IS EXHAUSTED
+      range.prefetching = false;
+      if (db != null) {
+        db.close();
+      }
+    }
+  }
+
   @Override
   public long resetWork() {
     ODatabaseDocumentInternal mainDb = getDatabase();
@@ -274,6 +434,7 @@ public class OSequenceCached extends OSequence {
               setValue(newValue);
               save(finalDb);
               firstCache = true;
+              rangesVersion++;
               allocateCache(getCacheSize(), finalDb);
               return newValue;
             }
@@ -335,4 +496,71 @@ public class OSequenceCached extends OSequence {
     firstCache = false;
   }
 
+  private static class Block {
+    private final long start;
+    private final int  count;
+    private final long step;
+    private final int  version;
+
+    private Block(long start, int count, long step, int version) {
+      this.start = start;
+      this.count = count;
+      this.step = step;
+      this.version = version;
+    }
+  }
+
+  /**
+   * Values of the sequence reserved by a thread. Only the owner thread takes values from it, the next block can be set by the
+   * background reservation.
+   */
+  private static class ThreadRange {
+    private final    int     version;
+    private          long    next;
+    private          long    step;
+    private          int     remaining;
+    private          int     size;
+    private          long    last;
+    private          boolean used;
+    private          boolean disabled;
+    private volatile Block   prefetched;
+    private volatile boolean prefetching;
+
+    private ThreadRange(int version) {
+      this.version = version;
+    }
+
+    private boolean isEmpty() {
+      return remaining == 0;
+    }
+
+    private void fill(Block block) {
+      next = block.start;
+      step = block.step;
+      remaining = block.count;
+      size = block.count;
+    }
+
+    private boolean usePrefetched() {
+      Block block = prefetched;
+      if (block == null) {
+        return false;
+      }
+      prefetched = null;
+      if (block.version != version) {
+        return false;
+      }
+      fill(block);
+      return true;
+    }
+
+    private long take() {
+      long value = next;
+      next += step;
+      remaining--;
+      last = value;
+      used = true;
+      return value;
+    }
+  }
 }
\ No newline at end of file
@@ -21,24 +21,33 @@ package com.orientechnologies.orient.core.query.live;
 
 import com.orientechnologies.common.concur.resource.OCloseable;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.AtomicLongOProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.ODatabaseInternal;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordOperation;
 import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
 import com.orientechnologies.orient.core.exception.ODatabaseException;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.ODocumentInternal;
 import com.orientechnologies.orient.core.sql.executor.OResult;
 import com.orientechnologies.orient.core.sql.executor.OResultInternal;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.orientechnologies.orient.core.config.OGlobalConfiguration.QUERY_LIVE_SUPPORT;
 
@@ -49,6 +58,11 @@ public class OLiveQueryHookV2 {
     public    OResult   after;
     public    byte      type;
     protected ODocument originalDoc;
+    /**
+     * lower case names of the class of the record and of its superclasses
+     */
+    List<String> classNames;
+    long         enqueueTime;
 
     OLiveQueryOp(ODocument originalDoc, OResult before, OResult after, byte type) {
       this.originalDoc = originalDoc;
@@ -58,6 +72,18 @@ public class OLiveQueryHookV2 {
     }
   }
 
+  /**
+   * Queued when a listener is unsubscribed, so that its end is delivered after the changes queued before.
+   */
+  static class OLiveQueryEndOp extends OLiveQueryOp {
+    final OLiveQueryListenerV2 listener;
+
+    OLiveQueryEndOp(OLiveQueryListenerV2 listener) {
+      super(null, null, null, (byte) 0);
+      this.listener = listener;
+    }
+  }
+
   public static class OLiveQueryOps implements OCloseable {
 
     protected Map<ODatabaseDocument, List<OLiveQueryOp>> pendingOps  = new ConcurrentHashMap<ODatabaseDocument, List<OLiveQueryOp>>();
@@ -66,6 +92,12 @@ public class OLiveQueryHookV2 {
 
     private BlockingQueue<OLiveQueryOp>                  queue       = new LinkedBlockingQueue<OLiveQueryOp>();
     private ConcurrentMap<Integer, OLiveQueryListenerV2> subscribers = new ConcurrentHashMap<Integer, OLiveQueryListenerV2>();
+    private OLiveQuerySubscriptionIndex                  index       = new OLiveQuerySubscriptionIndex();
+
+    private final AtomicLong dispatched      = new AtomicLong();
+    private final AtomicLong lastDispatchLag = new AtomicLong();
+    private final AtomicLong maxDispatchLag  = new AtomicLong();
+    private       String     profilerPrefix;
 
     @Override
     public void close() {
@@ -76,6 +108,14 @@ public class OLiveQueryHookV2 {
         Thread.currentThread().interrupt();
       }
       pendingOps.clear();
+      // THE LISTENERS UNSUBSCRIBED AFTER THE QUEUE THREAD STOPPED ARE TOLD HERE
+      for (OLiveQueryOp op : queue) {
+        if (op instanceof OLiveQueryEndOp) {
+          ((OLiveQueryEndOp) op).listener.onLiveResultEnd();
+        }
+      }
+      queue.clear();
+      unregisterProfilerHooks();
     }
 
     public OLiveQueryQueueThreadV2 getQueueThread() {
@@ -90,22 +130,101 @@ public class OLiveQueryHookV2 {
       return queue;
     }
 
+    public OLiveQuerySubscriptionIndex getIndex() {
+      return index;
+    }
+
     public void enqueue(OLiveQueryHookV2.OLiveQueryOp item) {
+      item.enqueueTime = System.nanoTime();
       queue.offer(item);
     }
 
     public Integer subscribe(Integer id, OLiveQueryListenerV2 iListener) {
-      subscribers.put(id, iListener);
+      OLiveQueryListenerV2 prev = subscribers.put(id, iListener);
+      if (prev != null) {
+        index.remove(prev);
+      }
+      index.add(iListener);
       return id;
     }
 
     public void unsubscribe(Integer id) {
       OLiveQueryListenerV2 res = subscribers.remove(id);
       if (res != null) {
-        res.onLiveResultEnd();
+        index.remove(res);
+        if (queueThread.isAlive()) {
+          enqueue(new OLiveQueryEndOp(res));
+        } else {
+          res.onLiveResultEnd();
+        }
       }
     }
 
+    /**
+     * Records the time spent by an operation in the queue before being delivered to a subscriber.
+     */
+    void dispatched(OLiveQueryOp op) {
+      long lag = System.nanoTime() - op.enqueueTime;
+      dispatched.incrementAndGet();
+      lastDispatchLag.set(lag);
+      maxDispatchLag.accumulateAndGet(lag, Math::max);
+    }
+
+    /**
+     * @return the number of operations waiting to be dispatched to the subscribers
+     */
+    public int getQueueSize() {
+      return queue.size();
+    }
+
+    public long getDispatched() {
+      return dispatched.get();
+    }
+
+    /**
+     * @return the time in milliseconds spent in the queue by the last operation delivered to a subscriber
+     */
+    public long getLastDispatchLag() {
+      return TimeUnit.NANOSECONDS.toMillis(lastDispatchLag.get());
+    }
+
+    /**
+     * @return the maximum time in milliseconds spent in the queue by an operation before being delivered to a subscriber
+     */
+    public long getMaxDispatchLag() {
+      return TimeUnit.NANOSECONDS.toMillis(maxDispatchLag.get());
+    }
+
+    public void registerProfilerHooks(final String database) {
+      profilerPrefix = "db." + database + ".liveQuery.";
+      final OProfiler profiler = Orient.instance().getProfiler();
+      profiler.registerHookValue(profilerPrefix + "subscribers", "Number of live query subscribers", OProfiler.METRIC_TYPE.SIZE,
+          () -> subscribers.size(), "db.*.liveQuery.subscribers");
+      profiler.registerHookValue(profilerPrefix + "queueSize", "Number of changes waiting to be dispatched to the live queries",
+          OProfiler.METRIC_TYPE.SIZE, () -> queue.size(), "db.*.liveQuery.queueSize");
+      profiler.registerHookValue(profilerPrefix + "dispatched", "Number of changes delivered to the live query subscribers",
+          OProfiler.METRIC_TYPE.COUNTER, new AtomicLongOProfilerHookValue(dispatched), "db.*.liveQuery.dispatched");
+      profiler.registerHookValue(profilerPrefix + "lastLag",
+          "Time in ms spent in the queue by the last change delivered to a live query subscriber", OProfiler.METRIC_TYPE.STAT,
+          () -> getLastDispatchLag(), "db.*.liveQuery.lastLag");
+      profiler.registerHookValue(profilerPrefix + "maxLag",
+          "Maximum time in ms spent in the queue by a change before being delivered to a live query subscriber",
+          OProfiler.METRIC_TYPE.STAT, () -> getMaxDispatchLag(), "db.*.liveQuery.maxLag");
+    }
+
+    public void unregisterProfilerHooks() {
+      if (profilerPrefix == null) {
+        return;
+      }
+      final OProfiler profiler = Orient.instance().getProfiler();
+      profiler.unregisterHookValue(profilerPrefix + "subscribers");
+      profiler.unregisterHookValue(profilerPrefix + "queueSize");
+      profiler.unregisterHookValue(profilerPrefix + "dispatched");
+      profiler.unregisterHookValue(profilerPrefix + "lastLag");
+      profiler.unregisterHookValue(profilerPrefix + "maxLag");
+      profilerPrefix = null;
+    }
+
     public boolean hasListeners() {
       return !subscribers.isEmpty();
     }
@@ -193,6 +312,7 @@ public class OLiveQueryHookV2 {
     OResult after = iType == ORecordOperation.DELETED ? null : calculateAfter(iDocument);
 
     OLiveQueryOp result = new OLiveQueryOp(iDocument, before, after, iType);
+    result.classNames = calculateClassNames((ODatabaseDocumentInternal) database, iDocument);
     synchronized (ops.pendingOps) {
       List<OLiveQueryOp> list = ops.pendingOps.get(db);
       if (list == null) {
@@ -212,6 +332,19 @@ public class OLiveQueryHookV2 {
     }
   }
 
+  private static List<String> calculateClassNames(ODatabaseDocumentInternal database, ODocument iDocument) {
+    OClass clazz = ODocumentInternal.getImmutableSchemaClass(database, iDocument);
+    if (clazz == null) {
+      return null;
+    }
+    List<String> result = new ArrayList<>();
+    result.add(clazz.getName().toLowerCase(Locale.ENGLISH));
+    for (OClass superClass : clazz.getAllSuperClasses()) {
+      result.add(superClass.getName().toLowerCase(Locale.ENGLISH));
+    }
+    return result;
+  }
+
   private static OLiveQueryOp prevousUpdate(List<OLiveQueryOp> list, ODocument doc) {
     for (OLiveQueryOp oLiveQueryOp : list) {
       if (oLiveQueryOp.originalDoc == doc) {
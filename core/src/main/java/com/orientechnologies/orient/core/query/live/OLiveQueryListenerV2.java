@@ -29,4 +29,26 @@ public interface OLiveQueryListenerV2 {
   void onLiveResultEnd();
 
   int getToken();
+
+  /**
+   * @return the name of the class the subscriber is interested in, including its subclasses, or null if the subscriber is not
+   * bound to a class
+   */
+  default String getClassName() {
+    return null;
+  }
+
+  /**
+   * @return the property of an equality condition that all the records notified to the subscriber satisfy, or null
+   */
+  default String getIndexedProperty() {
+    return null;
+  }
+
+  /**
+   * @return the value of the equality condition on {@link #getIndexedProperty()}
+   */
+  default Object getIndexedValue() {
+    return null;
+  }
 }
@@ -20,6 +20,12 @@
 package com.orientechnologies.orient.core.query.live;
 
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.thread.OThreadPoolExecutorWithLogging;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Luigi Dell'Aquila (l.dellaquila-(at)-orientdb.com)
@@ -42,27 +48,85 @@ public class OLiveQueryQueueThreadV2 extends Thread {
 
   @Override
   public void run() {
-    while (!stopped) {
-      OLiveQueryHookV2.OLiveQueryOp next = null;
-      try {
-        next = ops.getQueue().take();
-      } catch (InterruptedException ignore) {
-        break;
-      }
-      if (next == null) {
-        continue;
-      }
-      for (OLiveQueryListenerV2 listener : ops.getSubscribers().values()) {
+    ExecutorService[] workers = createWorkers(OGlobalConfiguration.QUERY_LIVE_DISPATCH_THREADS.getValueAsInteger());
+    try {
+      while (!stopped) {
+        OLiveQueryHookV2.OLiveQueryOp next = null;
         try {
-          listener.onLiveResult(next);
-        } catch (Exception e) {
-          OLogManager.instance().warn(this, "Error executing live query subscriber.", e);
+          next = ops.getQueue().take();
+        } catch (InterruptedException ignore) {
+          break;
+        }
+        if (next == null) {
+          continue;
+        }
+        if (next instanceof OLiveQueryHookV2.OLiveQueryEndOp) {
+          end(workers, ((OLiveQueryHookV2.OLiveQueryEndOp) next).listener);
+          continue;
+        }
+        for (OLiveQueryListenerV2 listener : ops.getIndex().getCandidates(next)) {
+          if (workers == null) {
+            deliver(listener, next);
+          } else {
+            // THE CHANGES FOR A SUBSCRIBER ARE ALWAYS DELIVERED BY THE SAME WORKER, SO THEY ARE RECEIVED IN COMMIT ORDER
+            final OLiveQueryHookV2.OLiveQueryOp op = next;
+            workers[Math.floorMod(listener.getToken(), workers.length)].execute(() -> deliver(listener, op));
+          }
+        }
+      }
+    } finally {
+      if (workers != null) {
+        for (ExecutorService worker : workers) {
+          worker.shutdown();
         }
-
       }
     }
   }
 
+  private void deliver(OLiveQueryListenerV2 listener, OLiveQueryHookV2.OLiveQueryOp op) {
+    ops.dispatched(op);
+    try {
+      listener.onLiveResult(op);
+    } catch (Exception e) {
+      OLogManager.instance().warn(this, "Error executing live query subscriber.", e);
+    }
+  }
+
+  /**
+   * Ends the subscription of a listener on the worker that delivers its changes, after the changes already dispatched to it.
+   */
+  private void end(ExecutorService[] workers, OLiveQueryListenerV2 listener) {
+    if (workers == null) {
+      endSubscription(listener);
+    } else {
+      workers[Math.floorMod(listener.getToken(), workers.length)].execute(() -> endSubscription(listener));
+    }
+  }
+
+  private void endSubscription(OLiveQueryListenerV2 listener) {
+    try {
+      listener.onLiveResultEnd();
+    } catch (Exception e) {
+      OLogManager.instance().warn(this, "Error ending live query subscriber.", e);
+    }
+  }
+
+  private ExecutorService[] createWorkers(int threads) {
+    if (threads <= 1) {
+      return null;
+    }
+    ExecutorService[] workers = new ExecutorService[threads];
+    for (int i = 0; i < threads; i++) {
+      final String name = getName() + " dispatcher " + i;
+      workers[i] = new OThreadPoolExecutorWithLogging(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+        Thread thread = new Thread(r, name);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return workers;
+  }
+
   public void stopExecution() {
     this.stopped = true;
     this.interrupt();
@@ -0,0 +1,208 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.query.live;
+
+import com.orientechnologies.orient.core.db.record.ORecordOperation;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the live query subscribers by target class and by one equality condition on a property, used to find the subscribers
+ * that can be interested in a change without evaluating the condition of every subscriber. The returned candidates are a superset
+ * of the subscribers that match the change, each subscriber still checks its own condition.
+ * <p>
+ * Lookups are lock free, changes to the index are serialized.
+ */
+public class OLiveQuerySubscriptionIndex {
+
+  private final Set<OLiveQueryListenerV2>               global  = ConcurrentHashMap.newKeySet();
+  private final Map<String, ClassSubscriptions>         classes = new ConcurrentHashMap<>();
+  private final Map<OLiveQueryListenerV2, IndexedEntry> entries = new ConcurrentHashMap<>();
+
+  public synchronized void add(OLiveQueryListenerV2 listener) {
+    remove(listener);
+    String className = listener.getClassName();
+    if (className == null) {
+      global.add(listener);
+      entries.put(listener, new IndexedEntry(null, null, null));
+      return;
+    }
+    String classKey = className.toLowerCase(Locale.ENGLISH);
+    ClassSubscriptions subscriptions = classes.computeIfAbsent(classKey, k -> new ClassSubscriptions());
+    String property = listener.getIndexedProperty();
+    Object key = property == null ? null : normalize(listener.getIndexedValue());
+    if (key == null) {
+      subscriptions.unindexed.add(listener);
+      entries.put(listener, new IndexedEntry(classKey, null, null));
+    } else {
+      subscriptions.byProperty.computeIfAbsent(property, k -> new PropertySubscriptions()).add(key, listener);
+      entries.put(listener, new IndexedEntry(classKey, property, key));
+    }
+  }
+
+  public synchronized void remove(OLiveQueryListenerV2 listener) {
+    IndexedEntry entry = entries.remove(listener);
+    if (entry == null) {
+      return;
+    }
+    if (entry.classKey == null) {
+      global.remove(listener);
+      return;
+    }
+    ClassSubscriptions subscriptions = classes.get(entry.classKey);
+    if (subscriptions == null) {
+      return;
+    }
+    if (entry.property == null) {
+      subscriptions.unindexed.remove(listener);
+    } else {
+      PropertySubscriptions propertySubscriptions = subscriptions.byProperty.get(entry.property);
+      if (propertySubscriptions != null && propertySubscriptions.remove(entry.key, listener)) {
+        subscriptions.byProperty.remove(entry.property);
+      }
+    }
+    if (subscriptions.isEmpty()) {
+      classes.remove(entry.classKey);
+    }
+  }
+
+  public synchronized void clear() {
+    global.clear();
+    classes.clear();
+    entries.clear();
+  }
+
+  /**
+   * @return the subscribers that can be interested in the change
+   */
+  public List<OLiveQueryListenerV2> getCandidates(OLiveQueryHookV2.OLiveQueryOp op) {
+    List<OLiveQueryListenerV2> result = new ArrayList<>(global);
+    if (op.classNames == null || classes.isEmpty()) {
+      return result;
+    }
+    OResult record = op.type == ORecordOperation.DELETED ? op.before : op.after;
+    for (String className : op.classNames) {
+      ClassSubscriptions subscriptions = classes.get(className);
+      if (subscriptions == null) {
+        continue;
+      }
+      result.addAll(subscriptions.unindexed);
+      for (Map.Entry<String, PropertySubscriptions> entry : subscriptions.byProperty.entrySet()) {
+        entry.getValue().collect(record == null ? null : record.getProperty(entry.getKey()), result);
+      }
+    }
+    return result;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Normalizes the values that can be used as index keys, so that values of the same type family compare as the SQL equality
+   * does.
+   *
+   * @return the normalized value, or null if the value cannot be used as index key
+   */
+  public static Object normalize(Object value) {
+    if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+      return ((Number) value).longValue();
+    }
+    if (value instanceof String || value instanceof Boolean) {
+      return value;
+    }
+    return null;
+  }
+
+  private static class ClassSubscriptions {
+    private final Set<OLiveQueryListenerV2>          unindexed  = ConcurrentHashMap.newKeySet();
+    private final Map<String, PropertySubscriptions> byProperty = new ConcurrentHashMap<>();
+
+    private boolean isEmpty() {
+      return unindexed.isEmpty() && byProperty.isEmpty();
+    }
+  }
+
+  private static class PropertySubscriptions {
+    private final    Map<Object, Set<OLiveQueryListenerV2>> byValue = new ConcurrentHashMap<>();
+    private volatile Class<?>                               keyType;
+    private volatile boolean                                mixedKeyTypes;
+
+    private void add(Object key, OLiveQueryListenerV2 listener) {
+      if (keyType == null) {
+        keyType = key.getClass();
+      } else if (keyType != key.getClass()) {
+        mixedKeyTypes = true;
+      }
+      byValue.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(listener);
+    }
+
+    /**
+     * @return true if there are no more subscribers on the property
+     */
+    private boolean remove(Object key, OLiveQueryListenerV2 listener) {
+      Set<OLiveQueryListenerV2> listeners = byValue.get(key);
+      if (listeners != null) {
+        listeners.remove(listener);
+        if (listeners.isEmpty()) {
+          byValue.remove(key);
+        }
+      }
+      return byValue.isEmpty();
+    }
+
+    private void collect(Object value, List<OLiveQueryListenerV2> result) {
+      if (value == null) {
+        // NULL NEVER MATCHES AN EQUALITY CONDITION
+        return;
+      }
+      Object key = normalize(value);
+      if (key == null || mixedKeyTypes || key.getClass() != keyType) {
+        // THE VALUE CAN BE CONVERTED BY THE SQL EQUALITY, SO ALL THE SUBSCRIBERS OF THE PROPERTY ARE CANDIDATES
+        for (Set<OLiveQueryListenerV2> listeners : byValue.values()) {
+          result.addAll(listeners);
+        }
+        return;
+      }
+      Set<OLiveQueryListenerV2> listeners = byValue.get(key);
+      if (listeners != null) {
+        result.addAll(listeners);
+      }
+    }
+  }
+
+  private static class IndexedEntry {
+    private final String classKey;
+    private final String property;
+    private final Object key;
+
+    private IndexedEntry(String classKey, String property, Object key) {
+      this.classKey = classKey;
+      this.property = property;
+      this.key = key;
+    }
+  }
+}
@@ -26,6 +26,7 @@ import com.orientechnologies.orient.core.metadata.schema.OGlobalProperty;
 import com.orientechnologies.orient.core.metadata.schema.OImmutableClass;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.OElement;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ODocumentFieldSlots;
 
 import java.util.Map.Entry;
 import java.util.Set;
@@ -53,6 +54,14 @@ public class ODocumentInternal {
     return oDocument.rawContainsField(iFiledName);
   }
 
+  public static ODocumentFieldSlots getFieldSlots(final ODocument oDocument) {
+    return oDocument.getFieldSlots();
+  }
+
+  public static void setFieldSlots(final ODocument oDocument, final ODocumentFieldSlots fieldSlots) {
+    oDocument.setFieldSlots(fieldSlots);
+  }
+
   public static OImmutableClass getImmutableSchemaClass(final ODatabaseDocumentInternal database, final ODocument oDocument) {
     if (oDocument == null) {
       return null;
@@ -0,0 +1,167 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import com.orientechnologies.orient.core.metadata.schema.OType;
+
+import java.util.Arrays;
+
+import static com.orientechnologies.orient.core.serialization.serializer.record.binary.HelperClasses.stringFromBytes;
+
+/**
+ * Header of a serialized document read once and kept with the document while its fields are decoded lazily: one slot per field,
+ * in the order of the header, with the name, the type and the position of the value in the serialized bytes. The names of the
+ * schema properties are the instances of the global properties, so they are not repeated in every document. The other names are
+ * kept as positions in the serialized bytes and compared byte by byte: only the names of the requested fields are decoded.
+ * <p>
+ * The slots are valid only for the buffer they have been read from. Once the values of all the fields have been decoded the
+ * document does not need them anymore and releases them together with the buffer, see {@link #isFullyDecoded()}.
+ */
+public class ODocumentFieldSlots {
+
+  // FOR EVERY SLOT: POSITION AND LENGTH OF THE NAME NOT DECODED YET, POSITION OF THE VALUE, 1 IF THE VALUE HAS BEEN DECODED
+  private static final int ENTRY_SIZE  = 4;
+  private static final int NAME_OFFSET = 0;
+  private static final int NAME_LENGTH = 1;
+  private static final int POSITION    = 2;
+  private static final int DECODED     = 3;
+
+  private final byte[]   source;
+  private final int      headerOffset;
+  private       String[] names;
+  private       OType[]  types;
+  private       int[]    entries;
+  private       int      size;
+  private       int      decoded;
+
+  public ODocumentFieldSlots(final byte[] source, final int headerOffset, final int capacity) {
+    this.source = source;
+    this.headerOffset = headerOffset;
+    this.names = new String[capacity];
+    this.types = new OType[capacity];
+    this.entries = new int[capacity * ENTRY_SIZE];
+  }
+
+  /**
+   * @return true if the slots have been read from the header that starts at the given offset of the buffer
+   */
+  public boolean isReadFrom(final byte[] iSource, final int iHeaderOffset) {
+    return source == iSource && headerOffset == iHeaderOffset;
+  }
+
+  /**
+   * @param position the position of the value in the buffer, 0 if the value is null
+   */
+  public void add(final String name, final OType type, final int position) {
+    ensureCapacity();
+    names[size] = name;
+    types[size] = type;
+    entries[size * ENTRY_SIZE + POSITION] = position;
+    size++;
+  }
+
+  /**
+   * Adds a field whose name is serialized in the header, without decoding the name.
+   *
+   * @param nameOffset the position of the name in the buffer
+   * @param nameLength the length in bytes of the name
+   * @param position   the position of the value in the buffer, 0 if the value is null
+   */
+  public void add(final int nameOffset, final int nameLength, final OType type, final int position) {
+    ensureCapacity();
+    final int entry = size * ENTRY_SIZE;
+    entries[entry + NAME_OFFSET] = nameOffset;
+    entries[entry + NAME_LENGTH] = nameLength;
+    entries[entry + POSITION] = position;
+    types[size] = type;
+    size++;
+  }
+
+  /**
+   * @param name      the requested field name
+   * @param nameBytes the UTF-8 bytes of the requested field name
+   *
+   * @return true if the field of the slot has the requested name
+   */
+  public boolean matches(final int slot, final String name, final byte[] nameBytes) {
+    if (names[slot] != null)
+      return names[slot].equals(name);
+
+    final int entry = slot * ENTRY_SIZE;
+    if (entries[entry + NAME_LENGTH] != nameBytes.length)
+      return false;
+    final int offset = entries[entry + NAME_OFFSET];
+    for (int i = 0; i < nameBytes.length; i++)
+      if (source[offset + i] != nameBytes[i])
+        return false;
+
+    // SAME BYTES: THE REQUESTED NAME IS KEPT INSTEAD OF DECODING IT
+    names[slot] = name;
+    return true;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public String getName(final int slot) {
+    if (names[slot] == null) {
+      final int entry = slot * ENTRY_SIZE;
+      names[slot] = stringFromBytes(source, entries[entry + NAME_OFFSET], entries[entry + NAME_LENGTH]);
+    }
+    return names[slot];
+  }
+
+  public OType getType(final int slot) {
+    return types[slot];
+  }
+
+  public int getPosition(final int slot) {
+    return entries[slot * ENTRY_SIZE + POSITION];
+  }
+
+  /**
+   * Records that the value of the slot is now in the fields of the document.
+   */
+  public void setDecoded(final int slot) {
+    final int entry = slot * ENTRY_SIZE + DECODED;
+    if (entries[entry] == 0) {
+      entries[entry] = 1;
+      decoded++;
+    }
+  }
+
+  /**
+   * @return true if the values of all the fields are in the fields of the document, so the slots and the buffer are not needed
+   * anymore
+   */
+  public boolean isFullyDecoded() {
+    return decoded == size;
+  }
+
+  private void ensureCapacity() {
+    if (size == names.length) {
+      final int capacity = Math.max(4, size * 2);
+      names = Arrays.copyOf(names, capacity);
+      types = Arrays.copyOf(types, capacity);
+      entries = Arrays.copyOf(entries, capacity * ENTRY_SIZE);
+    }
+  }
+}
@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import static com.orientechnologies.orient.core.serialization.serializer.record.binary.HelperClasses.bytesFromString;
 import static com.orientechnologies.orient.core.serialization.serializer.record.binary.HelperClasses.getGlobalProperty;
 import static com.orientechnologies.orient.core.serialization.serializer.record.binary.HelperClasses.getTypeFromValueEmbedded;
 import static com.orientechnologies.orient.core.serialization.serializer.record.binary.HelperClasses.readByte;
@@ -42,147 +43,83 @@ public class ORecordSerializerBinaryV1 extends ORecordSerializerBinaryV0 {
     CONTINUE, RETURN, RETURN_VALUE, NO_ACTION
   }
 
-  private Tuple<Boolean, String> processNamedFieldInDeserializePartial(final String[] iFields, final BytesContainer bytes, int len,
-      byte[][] fields) {
-    boolean match = false;
-    String fieldName = null;
-    for (int i = 0; i < iFields.length; ++i) {
-      if (iFields[i] != null && iFields[i].length() == len) {
-        boolean matchField = true;
-        for (int j = 0; j < len; ++j) {
-          if (bytes.bytes[bytes.offset + j] != fields[i][j]) {
-            matchField = false;
-            break;
-          }
-        }
-        if (matchField) {
-          match = true;
+  @Override
+  public void deserializePartial(ODocument document, BytesContainer bytes, String[] iFields) {
+    final ODocumentFieldSlots slots = getFieldSlots(document, bytes);
+
+    final byte[][] fields = new byte[iFields.length][];
+    for (int i = 0; i < iFields.length; ++i)
+      if (iFields[i] != null)
+        fields[i] = bytesFromString(iFields[i]);
+
+    int unmarshalledFields = 0;
+    for (int slot = 0; slot < slots.size(); slot++) {
+      String fieldName = null;
+      for (int i = 0; i < iFields.length; ++i) {
+        if (fields[i] != null && slots.matches(slot, iFields[i], fields[i])) {
+          fieldName = iFields[i];
           break;
         }
       }
-    }
-
-    //field name is used only if match exists
-    if (match)
-      fieldName = stringFromBytes(bytes.bytes, bytes.offset, len).intern();
-    bytes.skip(len);
-    return new Tuple<>(match, fieldName);
-  }
-
-  private Tuple<Boolean, String> checkIfPropertyNameMatchSome(OGlobalProperty prop, final String[] iFields) {
-    String fieldName = prop.getName();
+      if (fieldName == null)
+        continue;
 
-    boolean matchField = false;
-    for (String f : iFields) {
-      if (fieldName.equals(f)) {
-        matchField = true;
-        break;
+      // THE FIELDS ALREADY DECODED FROM THE SAME SOURCE ARE NOT DECODED AGAIN
+      if (!ODocumentInternal.rawContainsField(document, fieldName)) {
+        final int valuePos = slots.getPosition(slot);
+        if (valuePos != 0) {
+          final int headerCursor = bytes.offset;
+          bytes.offset = valuePos;
+          final Object value = deserializeValue(bytes, slots.getType(slot), document);
+          bytes.offset = headerCursor;
+          ODocumentInternal.rawField(document, fieldName, value, slots.getType(slot));
+        } else
+          ODocumentInternal.rawField(document, fieldName, null, null);
       }
-    }
-
-    return new Tuple<>(matchField, fieldName);
-  }
+      slots.setDecoded(slot);
 
-  private Triple<Signal, Triple<Integer, OType, String>, Integer> processPropertyFiledInDeserializePartial(final ODocument document,
-      final int len, final String[] iFields, final BytesContainer bytes, int cumulativeLength, int headerStart, int headerLength) {
-    // LOAD GLOBAL PROPERTY BY ID
-    final OGlobalProperty prop = getGlobalProperty(document, len);
-    Tuple<Boolean, String> matchFieldName = checkIfPropertyNameMatchSome(prop, iFields);
-
-    boolean matchField = matchFieldName.getFirstVal();
-    String fieldName = matchFieldName.getSecondVal();
-
-    int fieldLength = OVarIntSerializer.readAsInteger(bytes);
-    OType type = getPropertyTypeFromStream(prop, bytes);
-
-    if (!matchField) {
-      return new Triple<>(Signal.CONTINUE, null, cumulativeLength + fieldLength);
-    }
-
-    int valuePos;
-    if (fieldLength == 0) {
-      valuePos = 0;
-    } else {
-      valuePos = cumulativeLength + headerStart + headerLength;
+      if (++unmarshalledFields == iFields.length)
+        // ALL REQUESTED FIELDS UNMARSHALLED: EXIT
+        break;
     }
-    Triple<Integer, OType, String> value = new Triple<>(valuePos, type, fieldName);
-    return new Triple<>(Signal.RETURN_VALUE, value, cumulativeLength + fieldLength);
   }
 
-  @Override
-  public void deserializePartial(ODocument document, BytesContainer bytes, String[] iFields) {
-    // TRANSFORMS FIELDS FOM STRINGS TO BYTE[]            
-    final byte[][] fields = new byte[iFields.length][];
-    for (int i = 0; i < iFields.length; ++i) {
-      fields[i] = iFields[i].getBytes();
-    }
-
-    String fieldName;
-    int valuePos;
-    OType type;
-    int unmarshalledFields = 0;
-
-    int headerLength = OVarIntSerializer.readAsInteger(bytes);
-    int headerStart = bytes.offset;
+  /**
+   * Returns the slots of the header that starts at the current position, reading them only the first time a field of the document
+   * is requested: the next partial reads of the same source decode only the values of the requested fields.
+   */
+  private ODocumentFieldSlots getFieldSlots(final ODocument document, final BytesContainer bytes) {
+    ODocumentFieldSlots slots = ODocumentInternal.getFieldSlots(document);
+    if (slots != null && slots.isReadFrom(bytes.bytes, bytes.offset))
+      return slots;
+
+    slots = new ODocumentFieldSlots(bytes.bytes, bytes.offset, 8);
+    final int headerLength = OVarIntSerializer.readAsInteger(bytes);
+    final int headerStart = bytes.offset;
     int cumulativeLength = 0;
-
-    while (true) {
-      if (bytes.offset >= headerStart + headerLength)
-        break;
-
+    while (bytes.offset < headerStart + headerLength) {
       final int len = OVarIntSerializer.readAsInteger(bytes);
-
+      final int fieldLength;
       if (len > 0) {
-        // CHECK BY FIELD NAME SIZE: THIS AVOID EVEN THE UNMARSHALLING OF FIELD NAME
-        Tuple<Boolean, String> matchFieldName = processNamedFieldInDeserializePartial(iFields, bytes, len, fields);
-        boolean match = matchFieldName.getFirstVal();
-        fieldName = matchFieldName.getSecondVal();
+        // THE NAME IS DECODED ONLY IF THE FIELD IS REQUESTED
+        final int nameOffset = bytes.offset;
+        bytes.skip(len);
         Tuple<Integer, OType> pointerAndType = getFieldSizeAndTypeFromCurrentPosition(bytes);
-        int fieldLength = pointerAndType.getFirstVal();
-
-        if (!match) {
-          // FIELD NOT INCLUDED: SKIP IT
-          cumulativeLength += fieldLength;
-          continue;
-        }
-
-        type = pointerAndType.getSecondVal();
-        if (fieldLength == 0) {
-          valuePos = 0;
-        } else {
-          valuePos = headerStart + headerLength + cumulativeLength;
-        }
-        cumulativeLength += fieldLength;
+        fieldLength = pointerAndType.getFirstVal();
+        slots.add(nameOffset, len, pointerAndType.getSecondVal(),
+            fieldLength == 0 ? 0 : headerStart + headerLength + cumulativeLength);
       } else {
         // LOAD GLOBAL PROPERTY BY ID
-        Triple<Signal, Triple<Integer, OType, String>, Integer> actionSignal = processPropertyFiledInDeserializePartial(document,
-            len, iFields, bytes, cumulativeLength, headerStart, headerLength);
-        cumulativeLength = actionSignal.getThirdVal();
-        switch (actionSignal.getFirstVal()) {
-        case CONTINUE:
-          continue;
-        case RETURN_VALUE:
-        default:
-          valuePos = actionSignal.getSecondVal().getFirstVal();
-          type = actionSignal.getSecondVal().getSecondVal();
-          fieldName = actionSignal.getSecondVal().getThirdVal();
-          break;
-        }
+        final OGlobalProperty prop = getGlobalProperty(document, len);
+        fieldLength = OVarIntSerializer.readAsInteger(bytes);
+        slots.add(prop.getName(), getPropertyTypeFromStream(prop, bytes),
+            fieldLength == 0 ? 0 : headerStart + headerLength + cumulativeLength);
       }
-
-      if (valuePos != 0) {
-        int headerCursor = bytes.offset;
-        bytes.offset = valuePos;
-        final Object value = deserializeValue(bytes, type, document);
-        bytes.offset = headerCursor;
-        ODocumentInternal.rawField(document, fieldName, value, type);
-      } else
-        ODocumentInternal.rawField(document, fieldName, null, null);
-
-      if (++unmarshalledFields == iFields.length)
-        // ALL REQUESTED FIELDS UNMARSHALLED: EXIT
-        break;
+      cumulativeLength += fieldLength;
     }
+
+    ODocumentInternal.setFieldSlots(document, slots);
+    return slots;
   }
 
   @Override
@@ -3,10 +3,8 @@ package com.orientechnologies.orient.core.sql.executor;
 import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
-import com.orientechnologies.orient.core.sql.parser.OExpression;
 import com.orientechnologies.orient.core.sql.parser.OGroupBy;
 import com.orientechnologies.orient.core.sql.parser.OProjection;
-import com.orientechnologies.orient.core.sql.parser.OProjectionItem;
 
 import java.util.*;
 
@@ -17,12 +15,11 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
 
   private final OGroupBy groupBy;
 
-  //the key is the GROUP BY key, the value is the (partially) aggregated value
-  private Map<List, OResultInternal> aggregateResults = new LinkedHashMap<>();
-  private List<OResultInternal>      finalResults     = null;
+  //the groups of the GROUP BY key with their (partially) aggregated values
+  private OHashAggregator   aggregator   = null;
+  private Iterator<OResult> finalResults = null;
 
-  private int  nextItem = 0;
-  private long cost     = 0;
+  private long cost = 0;
 
   public AggregateProjectionCalculationStep(OProjection projection, OGroupBy groupBy, OCommandContext ctx,
       boolean profilingEnabled) {
@@ -41,7 +38,7 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
 
       @Override
       public boolean hasNext() {
-        if (localNext > nRecords || nextItem >= finalResults.size()) {
+        if (localNext > nRecords || !finalResults.hasNext()) {
           return false;
         }
         return true;
@@ -49,11 +46,10 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
 
       @Override
       public OResult next() {
-        if (localNext > nRecords || nextItem >= finalResults.size()) {
+        if (localNext > nRecords || !finalResults.hasNext()) {
           throw new IllegalStateException();
         }
-        OResult result = finalResults.get(nextItem);
-        nextItem++;
+        OResult result = finalResults.next();
         localNext++;
         return result;
       }
@@ -80,55 +76,21 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
       throw new OCommandExecutionException("Cannot execute an aggregation or a GROUP BY without a previous result");
     }
     OExecutionStepInternal prevStep = prev.get();
+    aggregator = new OHashAggregator(projection, groupBy, ctx);
     OResultSet lastRs = prevStep.syncPull(ctx, nRecords);
     while (lastRs.hasNext()) {
-      aggregate(lastRs.next(), ctx);
+      aggregate(lastRs.next());
       if (!lastRs.hasNext()) {
         lastRs = prevStep.syncPull(ctx, nRecords);
       }
     }
-    finalResults = new ArrayList<>();
-    finalResults.addAll(aggregateResults.values());
-    aggregateResults.clear();
-    for (OResultInternal item : finalResults) {
-      for (String name : item.getPropertyNames()) {
-        Object prevVal = item.getProperty(name);
-        if (prevVal instanceof AggregationContext) {
-          item.setProperty(name, ((AggregationContext) prevVal).getFinalValue());
-        }
-      }
-    }
+    finalResults = aggregator.results();
   }
 
-  private void aggregate(OResult next, OCommandContext ctx) {
+  private void aggregate(OResult next) {
     long begin = profilingEnabled ? System.nanoTime() : 0;
     try {
-      List<Object> key = new ArrayList<>();
-      if (groupBy != null) {
-        for (OExpression item : groupBy.getItems()) {
-          Object val = item.execute(next, ctx);
-          key.add(val);
-        }
-      }
-      OResultInternal preAggr = aggregateResults.get(key);
-      if (preAggr == null) {
-        preAggr = new OResultInternal();
-        aggregateResults.put(key, preAggr);
-      }
-
-      for (OProjectionItem proj : this.projection.getItems()) {
-        String alias = proj.getProjectionAlias().getStringValue();
-        if (proj.isAggregate()) {
-          AggregationContext aggrCtx = preAggr.getProperty(alias);
-          if (aggrCtx == null) {
-            aggrCtx = proj.getAggregationContext(ctx);
-            preAggr.setProperty(alias, aggrCtx);
-          }
-          aggrCtx.apply(next, ctx);
-        } else {
-          preAggr.setProperty(alias, proj.execute(next, ctx));
-        }
-      }
+      aggregator.aggregate(next);
     } finally {
       if (profilingEnabled) {
         cost += (System.nanoTime() - begin);
@@ -136,6 +98,14 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
     }
   }
 
+  @Override
+  public void close() {
+    if (aggregator != null) {
+      aggregator.close();
+    }
+    super.close();
+  }
+
   @Override
   public String prettyPrint(int depth, int indent) {
     String spaces = OExecutionStepInternal.getIndent(depth, indent);
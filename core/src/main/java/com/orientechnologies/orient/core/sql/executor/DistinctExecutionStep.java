@@ -22,6 +22,9 @@ public class DistinctExecutionStep extends AbstractExecutionStep {
 
   private long cost = 0;
 
+  private OQueryMemoryBudget budget;
+  private long               reservedMemory = 0;
+
   public DistinctExecutionStep(OCommandContext ctx, boolean profilingEnabled) {
     super(ctx, profilingEnabled);
   }
@@ -117,6 +120,13 @@ public class DistinctExecutionStep extends AbstractExecutionStep {
         return;
       }
     }
+    if (budget == null) {
+      budget = OQueryMemoryBudget.of(ctx);
+    }
+    // THE PROJECTIONS ALREADY RETURNED ARE KEPT UNTIL THE END OF THE QUERY
+    long size = OQueryMemoryBudget.estimate(nextValue) + 32;
+    budget.reserve(size, "DISTINCT");
+    reservedMemory += size;
     pastItems.add(nextValue);
   }
 
@@ -139,6 +149,13 @@ public class DistinctExecutionStep extends AbstractExecutionStep {
 
   @Override
   public void close() {
+    if (budget != null) {
+      budget.release(reservedMemory);
+      reservedMemory = 0;
+      if (budget.isStandalone()) {
+        budget.releaseAll();
+      }
+    }
     prev.ifPresent(x -> x.close());
   }
 
@@ -4,6 +4,8 @@ import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.OMetadataInternal;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.sql.parser.OIdentifier;
 
@@ -68,6 +70,13 @@ public class FilterByClassStep extends AbstractExecutionStep {
               if (clazz.isPresent() && clazz.get().isSubClassOf(identifier.getStringValue())) {
                 break;
               }
+            } else if (nextItem.getProperty("@rid") instanceof ORID) {
+              // RESULTS READ FROM AN INDEX KEY HAVE NO RECORD, THE CLASS IS THE ONE OF THE CLUSTER
+              OClass clazz = ((OMetadataInternal) ctx.getDatabase().getMetadata()).getImmutableSchemaSnapshot()
+                  .getClassByClusterId(((ORID) nextItem.getProperty("@rid")).getClusterId());
+              if (clazz != null && clazz.isSubClassOf(identifier.getStringValue())) {
+                break;
+              }
             }
             nextItem = null;
           } finally {
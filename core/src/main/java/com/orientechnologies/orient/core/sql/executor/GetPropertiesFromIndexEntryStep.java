@@ -0,0 +1,181 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.concur.OTimeoutException;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the results of an index only scan: the properties are read from the key of the index entries, so the records are not
+ * loaded. The identity of the record is returned as "@rid" property.
+ */
+public class GetPropertiesFromIndexEntryStep extends AbstractExecutionStep {
+
+  private final List<String> fields;
+  private final int[]        filterClusterIds;
+
+  // runtime
+
+  private long cost = 0;
+
+  private OResultSet prevResult = null;
+
+  /**
+   * @param ctx              the execution context
+   * @param fields           the properties stored in the key of the index, in key order
+   * @param filterClusterIds only extract values from these clusters. Pass null if no filtering is needed
+   * @param profilingEnabled enable profiling
+   */
+  public GetPropertiesFromIndexEntryStep(OCommandContext ctx, List<String> fields, int[] filterClusterIds,
+      boolean profilingEnabled) {
+    super(ctx, profilingEnabled);
+    this.fields = fields;
+    this.filterClusterIds = filterClusterIds;
+  }
+
+  @Override
+  public OResultSet syncPull(OCommandContext ctx, int nRecords) throws OTimeoutException {
+    if (!prev.isPresent()) {
+      throw new IllegalStateException("filter step requires a previous step");
+    }
+    OExecutionStepInternal prevStep = prev.get();
+
+    return new OResultSet() {
+
+      boolean finished = false;
+
+      OResult nextItem = null;
+      int     fetched  = 0;
+
+      @Override
+      public boolean hasNext() {
+        if (fetched >= nRecords || finished) {
+          return false;
+        }
+        if (nextItem == null) {
+          fetchNextItem();
+        }
+        return nextItem != null;
+      }
+
+      @Override
+      public OResult next() {
+        if (!hasNext()) {
+          throw new IllegalStateException();
+        }
+        OResult result = nextItem;
+        nextItem = null;
+        fetched++;
+        ctx.setVariable("$current", result);
+        return result;
+      }
+
+      private void fetchNextItem() {
+        if (prevResult == null) {
+          prevResult = prevStep.syncPull(ctx, nRecords);
+        }
+        while (nextItem == null) {
+          while (!prevResult.hasNext()) {
+            prevResult = prevStep.syncPull(ctx, nRecords);
+            if (!prevResult.hasNext()) {
+              finished = true;
+              return;
+            }
+          }
+          OResult entry = prevResult.next();
+          long begin = profilingEnabled ? System.nanoTime() : 0;
+          try {
+            Object rid = entry.getProperty("rid");
+            if (rid instanceof OIdentifiable && accept(((OIdentifiable) rid).getIdentity())) {
+              nextItem = toResult(entry.getProperty("key"), ((OIdentifiable) rid).getIdentity());
+            }
+          } finally {
+            if (profilingEnabled) {
+              cost += (System.nanoTime() - begin);
+            }
+          }
+        }
+      }
+
+      @Override
+      public void close() {
+
+      }
+
+      @Override
+      public Optional<OExecutionPlan> getExecutionPlan() {
+        return null;
+      }
+
+      @Override
+      public Map<String, Long> getQueryStats() {
+        return null;
+      }
+    };
+  }
+
+  private boolean accept(ORID rid) {
+    if (filterClusterIds == null || rid.getClusterId() < 0) {
+      return true;
+    }
+    for (int filterClusterId : filterClusterIds) {
+      if (filterClusterId == rid.getClusterId()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private OResult toResult(Object key, ORID rid) {
+    OResultInternal result = new OResultInternal();
+    if (key instanceof OCompositeKey) {
+      List<Object> keys = ((OCompositeKey) key).getKeys();
+      for (int i = 0; i < fields.size(); i++) {
+        result.setProperty(fields.get(i), i < keys.size() ? keys.get(i) : null);
+      }
+    } else {
+      result.setProperty(fields.get(0), key);
+    }
+    result.setProperty("@rid", rid);
+    return result;
+  }
+
+  @Override
+  public String prettyPrint(int depth, int indent) {
+    String spaces = OExecutionStepInternal.getIndent(depth, indent);
+    String result = spaces + "+ EXTRACT PROPERTIES FROM INDEX KEY [" + String.join(", ", fields) + "]";
+    if (profilingEnabled) {
+      result += " (" + getCostFormatted() + ")";
+    }
+    if (filterClusterIds != null) {
+      result += "\n";
+      result += spaces;
+      result += "  filtering clusters [";
+      result += Arrays.stream(filterClusterIds).boxed().map(x -> "" + x).collect(Collectors.joining(","));
+      result += "]";
+    }
+    return result;
+  }
+
+  @Override
+  public long getCost() {
+    return cost;
+  }
+
+  @Override
+  public boolean canBeCached() {
+    return true;
+  }
+
+  @Override
+  public OExecutionStep copy(OCommandContext ctx) {
+    return new GetPropertiesFromIndexEntryStep(ctx, this.fields, this.filterClusterIds, this.profilingEnabled);
+  }
+}
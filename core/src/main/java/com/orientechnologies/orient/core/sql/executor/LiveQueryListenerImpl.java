@@ -11,10 +11,17 @@ import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.record.ORecordOperation;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.collate.ODefaultCollate;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.query.live.OLiveQueryHookV2;
 import com.orientechnologies.orient.core.query.live.OLiveQueryListenerV2;
+import com.orientechnologies.orient.core.query.live.OLiveQuerySubscriptionIndex;
 import com.orientechnologies.orient.core.sql.OSQLEngine;
+import com.orientechnologies.orient.core.sql.parser.OAndBlock;
+import com.orientechnologies.orient.core.sql.parser.OBinaryCondition;
+import com.orientechnologies.orient.core.sql.parser.OBooleanExpression;
+import com.orientechnologies.orient.core.sql.parser.OEqualsCompareOperator;
 import com.orientechnologies.orient.core.sql.parser.OSelectStatement;
 import com.orientechnologies.orient.core.sql.parser.OStatement;
 import com.orientechnologies.orient.core.sql.parser.OWhereClause;
@@ -40,6 +47,9 @@ public class LiveQueryListenerImpl implements OLiveQueryListenerV2 {
 
   private final Map<Object, Object> params;
 
+  private String indexedProperty;
+  private Object indexedValue;
+
   private              int    token;
   private static final Random random = new Random();
 
@@ -63,9 +73,12 @@ public class LiveQueryListenerImpl implements OLiveQueryListenerV2 {
     validateStatement(statement);
     if (statement.getTarget().getItem().getIdentifier() != null) {
       this.className = statement.getTarget().getItem().getIdentifier().getStringValue();
-      if (db.getClass(className) == null) {
+      OClass clazz = db.getClass(className);
+      if (clazz == null) {
         throw new OCommandExecutionException("Class " + className + " not found in the schema: " + query);
       }
+      this.className = clazz.getName();
+      findIndexedCondition(clazz);
     } else if (statement.getTarget().getItem().getRids() != null) {
       this.rids = statement.getTarget().getItem().getRids().stream()
           .map(x -> x.toRecordId(new OResultInternal(), new OBasicCommandContext())).collect(Collectors.toList());
@@ -115,10 +128,76 @@ public class LiveQueryListenerImpl implements OLiveQueryListenerV2 {
     }
   }
 
+  /**
+   * Looks for an equality condition between a property and a value that all the matching records satisfy, so that the
+   * subscription can be indexed on it.
+   */
+  private void findIndexedCondition(OClass clazz) {
+    OWhereClause where = statement.getWhereClause();
+    if (where == null) {
+      return;
+    }
+    List<OAndBlock> flattened = where.flatten();
+    if (flattened.size() != 1) {
+      return;
+    }
+    OBasicCommandContext ctx = new OBasicCommandContext();
+    ctx.setInputParameters(params);
+    for (OBooleanExpression block : flattened.get(0).getSubBlocks()) {
+      if (!(block instanceof OBinaryCondition)) {
+        continue;
+      }
+      OBinaryCondition condition = (OBinaryCondition) block;
+      if (!(condition.getOperator() instanceof OEqualsCompareOperator) || !condition.getLeft().isBaseIdentifier()
+          || !condition.getRight().isEarlyCalculated(ctx)) {
+        continue;
+      }
+      String property = condition.getLeft().getDefaultAlias().getStringValue();
+      if (!hasDefaultCollate(clazz, property)) {
+        continue;
+      }
+      Object value = condition.getRight().execute((OResult) null, ctx);
+      if (OLiveQuerySubscriptionIndex.normalize(value) != null) {
+        this.indexedProperty = property;
+        this.indexedValue = value;
+        return;
+      }
+    }
+  }
+
+  private static boolean hasDefaultCollate(OClass clazz, String property) {
+    OProperty prop = clazz.getProperty(property);
+    if (prop != null && prop.getCollate() != null && !ODefaultCollate.NAME.equals(prop.getCollate().getName())) {
+      return false;
+    }
+    for (OClass subclass : clazz.getAllSubclasses()) {
+      prop = subclass.getProperty(property);
+      if (prop != null && prop.getCollate() != null && !ODefaultCollate.NAME.equals(prop.getCollate().getName())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public int getToken() {
     return token;
   }
 
+  @Override
+  public String getClassName() {
+    return className;
+  }
+
+  @Override
+  public String getIndexedProperty() {
+    return indexedProperty;
+  }
+
+  @Override
+  public Object getIndexedValue() {
+    return indexedValue;
+  }
+
   @Override
   public void onLiveResult(OLiveQueryHookV2.OLiveQueryOp iRecord) {
     execDb.activateOnCurrentThread();
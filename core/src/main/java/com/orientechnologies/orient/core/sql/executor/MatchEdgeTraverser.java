@@ -72,6 +72,21 @@ public class MatchEdgeTraverser {
     return prevValue != null && prevValue.equals(nextElement);
   }
 
+  /**
+   * Returns the element already matched by the endpoint alias in the upstream record: a traversal of one level can only return
+   * that element, so it is passed to the traversal as only possible result (eg. to check if two vertices are connected without
+   * loading all the edges of a supernode).
+   *
+   * @return the element, or null if the endpoint is not matched yet
+   */
+  protected Object getBoundEndpoint() {
+    Object endpoint = sourceRecord.getProperty(getEndpointAlias());
+    if (endpoint instanceof OResult) {
+      endpoint = ((OResult) endpoint).getElement().orElse(null);
+    }
+    return endpoint instanceof OIdentifiable ? endpoint : null;
+  }
+
   protected Object toResult(OIdentifiable nextElement) {
     OResultInternal result = new OResultInternal();
     result.setElement(nextElement);
@@ -262,9 +277,14 @@ public class MatchEdgeTraverser {
   protected Iterable<OResultInternal> traversePatternEdge(OIdentifiable startingPoint, OCommandContext iCommandContext) {
 
     Iterable possibleResults = null;
-    if (this.item.getFilter() != null) {
+    if (this.item.getFilter() != null && this.item.getFilter().getWhileCondition() == null
+        && this.item.getFilter().getMaxDepth() == null) {
+      // THE POSSIBLE RESULTS APPLY ONLY TO THE LAST LEVEL, THE RECURSIVE TRAVERSALS HAVE TO REACH ALSO THE INTERMEDIATE NODES
       String alias = getEndpointAlias();
-      Object matchedNodes = iCommandContext.getVariable(MatchPrefetchStep.PREFETCHED_MATCH_ALIAS_PREFIX + alias);
+      Object matchedNodes = getBoundEndpoint();
+      if (matchedNodes == null) {
+        matchedNodes = iCommandContext.getVariable(MatchPrefetchStep.PREFETCHED_MATCH_ALIAS_PREFIX + alias);
+      }
       if (matchedNodes != null) {
         if (matchedNodes instanceof Iterable) {
           possibleResults = (Iterable) matchedNodes;
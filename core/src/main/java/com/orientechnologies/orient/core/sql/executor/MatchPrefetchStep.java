@@ -18,6 +18,9 @@ public class MatchPrefetchStep extends AbstractExecutionStep {
 
   boolean executed = false;
 
+  private OQueryMemoryBudget budget;
+  private long               reservedMemory = 0;
+
   public MatchPrefetchStep(OCommandContext ctx, OInternalExecutionPlan prefetchExecPlan, String alias, boolean profilingEnabled) {
     super(ctx, profilingEnabled);
     this.prefetchExecutionPlan = prefetchExecPlan;
@@ -26,6 +29,7 @@ public class MatchPrefetchStep extends AbstractExecutionStep {
 
   @Override
   public void reset() {
+    releaseMemory();
     executed = false;
     prefetchExecutionPlan.reset(ctx);
   }
@@ -35,11 +39,18 @@ public class MatchPrefetchStep extends AbstractExecutionStep {
     if (!executed) {
       getPrev().ifPresent(x -> x.syncPull(ctx, nRecords));
 
+      if (budget == null) {
+        budget = OQueryMemoryBudget.of(ctx);
+      }
       OResultSet nextBlock = prefetchExecutionPlan.fetchNext(nRecords);
       List<OResult> prefetched = new ArrayList<>();
       while (nextBlock.hasNext()) {
         while (nextBlock.hasNext()) {
-          prefetched.add(nextBlock.next());
+          OResult item = nextBlock.next();
+          long size = OQueryMemoryBudget.estimate(item);
+          budget.reserve(size, "MATCH prefetch of " + alias);
+          reservedMemory += size;
+          prefetched.add(item);
         }
         nextBlock = prefetchExecutionPlan.fetchNext(nRecords);
       }
@@ -50,6 +61,22 @@ public class MatchPrefetchStep extends AbstractExecutionStep {
     return new OInternalResultSet();
   }
 
+  @Override
+  public void close() {
+    releaseMemory();
+    super.close();
+  }
+
+  private void releaseMemory() {
+    if (budget != null) {
+      budget.release(reservedMemory);
+      reservedMemory = 0;
+      if (budget.isStandalone()) {
+        budget.releaseAll();
+      }
+    }
+  }
+
   @Override
   public String prettyPrint(int depth, int indent) {
     String spaces = OExecutionStepInternal.getIndent(depth, indent);
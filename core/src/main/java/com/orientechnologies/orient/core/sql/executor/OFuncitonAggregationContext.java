@@ -24,6 +24,14 @@ public class OFuncitonAggregationContext implements AggregationContext {
     }
   }
 
+  public OSQLFunction getFunction() {
+    return aggregateFunction;
+  }
+
+  public List<OExpression> getParams() {
+    return params;
+  }
+
   @Override public Object getFinalValue() {
     return aggregateFunction.getResult();
   }
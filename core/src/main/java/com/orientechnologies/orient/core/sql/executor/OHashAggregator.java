@@ -0,0 +1,957 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.OScenarioThreadLocal;
+import com.orientechnologies.orient.core.exception.OQueryMemoryLimitException;
+import com.orientechnologies.orient.core.exception.OSerializationException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.BytesContainer;
+import com.orientechnologies.orient.core.serialization.serializer.result.binary.OResultSerializerNetwork;
+import com.orientechnologies.orient.core.sql.functions.OSQLFunction;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionAverage;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionMax;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionMin;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionSum;
+import com.orientechnologies.orient.core.sql.functions.misc.OSQLFunctionCount;
+import com.orientechnologies.orient.core.sql.parser.OExpression;
+import com.orientechnologies.orient.core.sql.parser.OGroupBy;
+import com.orientechnologies.orient.core.sql.parser.OProjection;
+import com.orientechnologies.orient.core.sql.parser.OProjectionItem;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * Hash aggregation of the GROUP BY. The groups are stored by column: the keys encoded in a byte array and the state of count(),
+ * sum(), avg(), min() and max() in primitive arrays while their values are numbers, so a group takes some tens of bytes instead
+ * of a map entry, a key list, a result and an aggregation context with its function for each aggregate. The other aggregate
+ * functions keep an {@link AggregationContext} per group.
+ * <p>
+ * The groups are split in partitions by the hash of their key. When the query is over its memory budget the largest partition is
+ * spilled to disk: its partial aggregates are written to a temporary file, followed by the next rows of its groups, and the
+ * partition is aggregated again from the file once the other groups are returned. The keys that cannot be encoded, as maps and
+ * documents, are kept in a hash map that is never spilled, and the groups of the other aggregate functions cannot be spilled.
+ *
+ * @see OQueryMemoryBudget
+ */
+public class OHashAggregator {
+  private static final int PARTITION_BITS = 4;
+  private static final int PARTITIONS     = 1 << PARTITION_BITS;
+
+  // KINDS OF COLUMNS
+  private static final byte VALUE   = 0;
+  private static final byte COUNT   = 1;
+  private static final byte SUM     = 2;
+  private static final byte AVG     = 3;
+  private static final byte MIN     = 4;
+  private static final byte MAX     = 5;
+  private static final byte GENERIC = 6;
+
+  // TYPE OF THE NUMBER OF A SUM, AN AVERAGE, A MIN OR A MAX. FOR A SUM THE SAME AS THE NUMBER RETURNED BY OType.increment(), A MIN
+  // OR A MAX KEEPS ONLY INTEGERS, LONGS AND DOUBLES IN A PRIMITIVE
+  private static final byte NUMBER_NONE    = 0;
+  private static final byte NUMBER_SHORT   = 1;
+  private static final byte NUMBER_INTEGER = 2;
+  private static final byte NUMBER_LONG    = 3;
+  private static final byte NUMBER_DOUBLE  = 4;
+  private static final byte NUMBER_BOXED   = 5;
+
+  private static final String KEY_PROPERTY = "key";
+
+  private final List<OProjectionItem> items;
+  private final String[]              aliases;
+  private final byte[]                kinds;
+  private final OExpression[]         params;
+  private final List<OExpression>     groupBy;
+  private final OCommandContext       ctx;
+  private final OQueryMemoryBudget    budget;
+  private final long                  groupCost;
+  private final int                   valueColumns;
+
+  private final OResultSerializerNetwork serializer = new OResultSerializerNetwork();
+  private final BytesContainer           keyBuffer  = new BytesContainer();
+  private final Object[]                 keyValues;
+  private final Partition[]              partitions = new Partition[PARTITIONS + 1];
+  private final Partition                objectKeys;
+
+  // THE GROUPS IN THE ORDER THEY ARE CREATED, PARTITION IN THE 32 MOST SIGNIFICANT BITS AND GROUP IN THE OTHERS
+  private long[] order     = new long[16];
+  private int    orderSize = 0;
+
+  public OHashAggregator(OProjection projection, OGroupBy groupBy, OCommandContext ctx) {
+    this.items = projection.getItems();
+    this.groupBy = groupBy == null ? Collections.emptyList() : groupBy.getItems();
+    this.ctx = ctx;
+    this.budget = OQueryMemoryBudget.of(ctx);
+    this.keyValues = new Object[this.groupBy.size()];
+
+    aliases = new String[items.size()];
+    kinds = new byte[items.size()];
+    params = new OExpression[items.size()];
+    long cost = 4 + 4 + 2 * 4 + 8;
+    long contexts = 0;
+    int values = 0;
+    for (int i = 0; i < items.size(); i++) {
+      OProjectionItem item = items.get(i);
+      aliases[i] = item.getProjectionAlias().getStringValue();
+      kinds[i] = VALUE;
+      if (item.isAggregate()) {
+        kinds[i] = GENERIC;
+        AggregationContext aggregation = item.getAggregationContext(ctx);
+        if (aggregation instanceof OFuncitonAggregationContext) {
+          OSQLFunction function = ((OFuncitonAggregationContext) aggregation).getFunction();
+          List<OExpression> functionParams = ((OFuncitonAggregationContext) aggregation).getParams();
+          if (function instanceof OSQLFunctionCount && functionParams.size() <= 1) {
+            kinds[i] = COUNT;
+            params[i] = functionParams.isEmpty() ? null : functionParams.get(0);
+          } else if (function instanceof OSQLFunctionSum && functionParams.size() == 1) {
+            kinds[i] = SUM;
+            params[i] = functionParams.get(0);
+          } else if (function instanceof OSQLFunctionAverage && functionParams.size() == 1 && !OScenarioThreadLocal.INSTANCE
+              .isRunModeDistributed()) {
+            kinds[i] = AVG;
+            params[i] = functionParams.get(0);
+          } else if ((function instanceof OSQLFunctionMin || function instanceof OSQLFunctionMax) && function.aggregateResults()) {
+            kinds[i] = function instanceof OSQLFunctionMin ? MIN : MAX;
+            params[i] = functionParams.get(0);
+          }
+        }
+      }
+      switch (kinds[i]) {
+      case VALUE:
+        cost += 8;
+        values++;
+        break;
+      case COUNT:
+        cost += 8;
+        break;
+      case SUM:
+      case MIN:
+      case MAX:
+        cost += 8 + 8 + 1 + 8;
+        break;
+      case AVG:
+        cost += 8 + 8 + 1 + 8 + 8;
+        break;
+      default:
+        cost += 8;
+        contexts += 176;
+      }
+    }
+    // THE ARRAYS GROW BY DOUBLING THEIR SIZE
+    this.groupCost = 2 * cost + contexts;
+    this.valueColumns = values;
+
+    for (int i = 0; i < PARTITIONS; i++) {
+      partitions[i] = new Partition(i);
+    }
+    objectKeys = new Partition(PARTITIONS);
+    objectKeys.objectGroups = new HashMap<>();
+    partitions[PARTITIONS] = objectKeys;
+  }
+
+  public void aggregate(OResult row) {
+    for (int i = 0; i < keyValues.length; i++) {
+      keyValues[i] = groupBy.get(i).execute(row, ctx);
+    }
+
+    if (encodeKey()) {
+      int hash = hash(keyBuffer.bytes, 0, keyBuffer.offset);
+      Partition partition = partitions[hash >>> (32 - PARTITION_BITS)];
+      if (partition.spilled) {
+        partition.writeRow(row);
+        return;
+      }
+      int group = partition.find(keyBuffer.bytes, 0, keyBuffer.offset, hash);
+      if (group < 0) {
+        if (!reserveGroup(partition, keyBuffer.offset)) {
+          // THE PARTITION OF THE GROUP WAS SPILLED TO MAKE ROOM
+          partition.writeRow(row);
+          return;
+        }
+        group = partition.add(keyBuffer.bytes, 0, keyBuffer.offset, hash);
+        addToOrder(partition.index, group);
+      }
+      partition.apply(group, row);
+    } else {
+      List<Object> key = Arrays.asList(keyValues.clone());
+      Integer group = objectKeys.objectGroups.get(key);
+      if (group == null) {
+        reserveGroup(objectKeys, OQueryMemoryBudget.estimateValue(key));
+        group = objectKeys.addObject(key);
+        addToOrder(objectKeys.index, group);
+      }
+      objectKeys.apply(group, row);
+    }
+  }
+
+  /**
+   * @return the aggregated results, the groups in memory in the order they were created then the groups of the spilled
+   * partitions. The spilled partitions are aggregated while the results are read
+   */
+  public Iterator<OResult> results() {
+    return new Iterator<OResult>() {
+      private int       nextInOrder    = 0;
+      private boolean   released       = false;
+      private int       nextPartition  = 0;
+      private Partition reloaded       = null;
+      private int       nextInReloaded = 0;
+      private OResult   nextResult     = null;
+
+      @Override
+      public boolean hasNext() {
+        if (nextResult == null) {
+          nextResult = fetchNext();
+        }
+        return nextResult != null;
+      }
+
+      @Override
+      public OResult next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        OResult result = nextResult;
+        nextResult = null;
+        return result;
+      }
+
+      private OResult fetchNext() {
+        while (nextInOrder < orderSize) {
+          long entry = order[nextInOrder++];
+          Partition partition = partitions[(int) (entry >>> 32)];
+          if (!partition.spilled) {
+            return partition.toResult((int) entry);
+          }
+        }
+        if (!released) {
+          // THE GROUPS IN MEMORY ARE ALL RETURNED, MAKE ROOM FOR THE SPILLED ONES
+          releaseInMemoryPartitions();
+          released = true;
+        }
+
+        while (true) {
+          if (reloaded != null) {
+            if (nextInReloaded < reloaded.groups) {
+              return reloaded.toResult(nextInReloaded++);
+            }
+            reloaded.release();
+            reloaded = null;
+          }
+          while (nextPartition < PARTITIONS && !partitions[nextPartition].spilled) {
+            nextPartition++;
+          }
+          if (nextPartition == PARTITIONS) {
+            return null;
+          }
+          reloaded = reload(partitions[nextPartition++]);
+          nextInReloaded = 0;
+        }
+      }
+    };
+  }
+
+  /**
+   * Releases the memory and deletes the temporary files.
+   */
+  public void close() {
+    for (Partition partition : partitions) {
+      partition.release();
+      partition.closeFiles();
+    }
+    if (budget.isStandalone()) {
+      budget.releaseAll();
+    }
+  }
+
+  private void releaseInMemoryPartitions() {
+    for (Partition partition : partitions) {
+      if (!partition.spilled) {
+        partition.release();
+      }
+    }
+  }
+
+  private void addToOrder(int partition, int group) {
+    if (orderSize == order.length) {
+      order = Arrays.copyOf(order, order.length * 2);
+    }
+    order[orderSize++] = ((long) partition << 32) | group;
+  }
+
+  /**
+   * Reserves the memory of a new group, spilling the largest partitions if the query is over budget.
+   *
+   * @return false if the partition of the group was spilled
+   */
+  private boolean reserveGroup(Partition partition, long keySize) {
+    // THE VALUES OF THE PROJECTIONS ARE USUALLY THE KEYS OF THE GROUP
+    long size = groupCost + keySize + valueColumns * (24 + keySize);
+    while (!budget.tryReserve(size)) {
+      Partition largest = null;
+      for (int i = 0; i < PARTITIONS; i++) {
+        Partition candidate = partitions[i];
+        if (!candidate.spilled && candidate.groups > 0 && (largest == null
+            || candidate.reservedMemory > largest.reservedMemory)) {
+          largest = candidate;
+        }
+      }
+      if (largest == null) {
+        throw new OQueryMemoryLimitException(budget.limitExceeded("GROUP BY"));
+      }
+      largest.spill();
+      if (largest == partition) {
+        return false;
+      }
+    }
+    partition.reservedMemory += size;
+    return true;
+  }
+
+  /**
+   * @return a partition with the groups of the spilled partition, aggregated from its partial aggregates and rows
+   */
+  private Partition reload(Partition spilled) {
+    Partition partition = new Partition(spilled.index);
+    try {
+      Iterator<OResult> partials = spilled.partials.read();
+      while (partials.hasNext()) {
+        OResult partial = partials.next();
+        byte[] key = partial.getProperty(KEY_PROPERTY);
+        int hash = hash(key, 0, key.length);
+        int group = partition.find(key, 0, key.length, hash);
+        if (group < 0) {
+          reserveReloadedGroup(partition, key.length);
+          group = partition.add(key, 0, key.length, hash);
+        }
+        partition.merge(group, partial);
+      }
+
+      if (spilled.rows != null) {
+        Iterator<OResult> rows = spilled.rows.read();
+        while (rows.hasNext()) {
+          OResult row = rows.next();
+          for (int i = 0; i < keyValues.length; i++) {
+            keyValues[i] = groupBy.get(i).execute(row, ctx);
+          }
+          encodeKey();
+          int hash = hash(keyBuffer.bytes, 0, keyBuffer.offset);
+          int group = partition.find(keyBuffer.bytes, 0, keyBuffer.offset, hash);
+          if (group < 0) {
+            reserveReloadedGroup(partition, keyBuffer.offset);
+            group = partition.add(keyBuffer.bytes, 0, keyBuffer.offset, hash);
+          }
+          partition.apply(group, row);
+        }
+      }
+    } catch (RuntimeException e) {
+      partition.release();
+      throw e;
+    } finally {
+      spilled.closeFiles();
+    }
+    return partition;
+  }
+
+  private void reserveReloadedGroup(Partition partition, long keySize) {
+    long size = groupCost + keySize + valueColumns * (24 + keySize);
+    if (!budget.tryReserve(size)) {
+      throw new OQueryMemoryLimitException(
+          budget.limitExceeded("GROUP BY") + " (a partition of the groups spilled to disk does not fit in memory)");
+    }
+    partition.reservedMemory += size;
+  }
+
+  /**
+   * Encodes the values of the key in the key buffer.
+   *
+   * @return false if a value cannot be encoded so that equal encodings mean equal values
+   */
+  private boolean encodeKey() {
+    keyBuffer.offset = 0;
+    for (Object value : keyValues) {
+      if (value == null) {
+        keyBuffer.bytes[keyBuffer.alloc(1)] = (byte) -1;
+        continue;
+      }
+      OType type = keyType(value);
+      if (type == null) {
+        return false;
+      }
+      keyBuffer.bytes[keyBuffer.alloc(1)] = (byte) type.getId();
+      serializer.serializeValue(keyBuffer, value, type, null);
+    }
+    return true;
+  }
+
+  private static OType keyType(Object value) {
+    if (value instanceof String) {
+      return OType.STRING;
+    } else if (value instanceof Integer) {
+      return OType.INTEGER;
+    } else if (value instanceof Long) {
+      return OType.LONG;
+    } else if (value instanceof Short) {
+      return OType.SHORT;
+    } else if (value instanceof Byte) {
+      return OType.BYTE;
+    } else if (value instanceof Double) {
+      return OType.DOUBLE;
+    } else if (value instanceof Float) {
+      return OType.FLOAT;
+    } else if (value instanceof BigDecimal) {
+      return OType.DECIMAL;
+    } else if (value instanceof Boolean) {
+      return OType.BOOLEAN;
+    } else if (value.getClass() == Date.class) {
+      return OType.DATETIME;
+    } else if (value instanceof ORID && ((ORID) value).isPersistent()) {
+      return OType.LINK;
+    }
+    return null;
+  }
+
+  /**
+   * @return the average as {@link OSQLFunctionAverage} computes it from the sum and the number of values
+   */
+  private static Object computeAverage(Number sum, int count) {
+    if (sum instanceof Integer) {
+      return sum.intValue() / count;
+    } else if (sum instanceof Long) {
+      return sum.longValue() / count;
+    } else if (sum instanceof Float) {
+      return sum.floatValue() / count;
+    } else if (sum instanceof Double) {
+      return sum.doubleValue() / count;
+    } else if (sum instanceof BigDecimal) {
+      return ((BigDecimal) sum).divide(new BigDecimal(count), RoundingMode.HALF_UP);
+    }
+    return null;
+  }
+
+  private static int hash(byte[] bytes, int from, int length) {
+    int hash = 0x811C9DC5;
+    for (int i = from; i < from + length; i++) {
+      hash = (hash ^ bytes[i]) * 0x01000193;
+    }
+    // THE PARTITION IS TAKEN FROM THE HIGH BITS AND THE SLOT FROM THE LOW BITS, MIX THEM
+    hash ^= hash >>> 16;
+    hash *= 0x85EBCA6B;
+    hash ^= hash >>> 13;
+    hash *= 0xC2B2AE35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+
+  /**
+   * The groups of a partition, in arrays indexed by the group.
+   */
+  private final class Partition {
+    private final int index;
+
+    private int    groups     = 0;
+    private int[]  slots      = new int[16];
+    private int[]  hashes     = new int[8];
+    private int[]  keyOffsets = new int[9];
+    private byte[] keys       = new byte[256];
+
+    // ONLY IN THE PARTITION OF THE KEYS THAT CANNOT BE ENCODED
+    private Map<List<Object>, Integer> objectGroups;
+
+    // PER COLUMN: THE VALUES, THE AGGREGATION CONTEXTS AND THE SUMS, MINS AND MAXS THAT DO NOT FIT IN A PRIMITIVE
+    private Object[][] values      = new Object[kinds.length][];
+    private long[][]   longs       = new long[kinds.length][];
+    private double[][] doubles     = new double[kinds.length][];
+    private byte[][]   numberTypes = new byte[kinds.length][];
+    // THE NUMBER OF VALUES OF AN AVERAGE
+    private long[][]   counts      = new long[kinds.length][];
+
+    private long             reservedMemory = 0;
+    private boolean          spilled        = false;
+    private OResultSpillFile partials;
+    private OResultSpillFile rows;
+
+    private Partition(int index) {
+      this.index = index;
+      for (int i = 0; i < kinds.length; i++) {
+        switch (kinds[i]) {
+        case COUNT:
+          longs[i] = new long[8];
+          break;
+        case AVG:
+          counts[i] = new long[8];
+          // FALLTHROUGH
+        case SUM:
+        case MIN:
+        case MAX:
+          longs[i] = new long[8];
+          doubles[i] = new double[8];
+          numberTypes[i] = new byte[8];
+          values[i] = new Object[8];
+          break;
+        default:
+          values[i] = new Object[8];
+        }
+      }
+    }
+
+    private int find(byte[] key, int from, int length, int hash) {
+      int mask = slots.length - 1;
+      for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+        int entry = slots[slot];
+        if (entry == 0) {
+          return -1;
+        }
+        int group = entry - 1;
+        if (hashes[group] == hash && keyEquals(group, key, from, length)) {
+          return group;
+        }
+      }
+    }
+
+    private boolean keyEquals(int group, byte[] key, int from, int length) {
+      int start = keyOffsets[group];
+      if (keyOffsets[group + 1] - start != length) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (keys[start + i] != key[from + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private int add(byte[] key, int from, int length, int hash) {
+      int group = newGroup();
+      int start = keyOffsets[group];
+      if (start + length > keys.length) {
+        keys = Arrays.copyOf(keys, Math.max(keys.length * 2, start + length));
+      }
+      System.arraycopy(key, from, keys, start, length);
+      keyOffsets[group + 1] = start + length;
+      hashes[group] = hash;
+
+      if (groups * 2 > slots.length) {
+        int[] newSlots = new int[slots.length * 2];
+        for (int i = 0; i < groups - 1; i++) {
+          insert(newSlots, hashes[i], i);
+        }
+        slots = newSlots;
+      }
+      insert(slots, hash, group);
+      return group;
+    }
+
+    private void insert(int[] table, int hash, int group) {
+      int mask = table.length - 1;
+      int slot = hash & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = group + 1;
+    }
+
+    private int addObject(List<Object> key) {
+      int group = newGroup();
+      keyOffsets[group + 1] = keyOffsets[group];
+      objectGroups.put(key, group);
+      return group;
+    }
+
+    private int newGroup() {
+      if (groups == hashes.length) {
+        int capacity = hashes.length * 2;
+        hashes = Arrays.copyOf(hashes, capacity);
+        keyOffsets = Arrays.copyOf(keyOffsets, capacity + 1);
+        for (int i = 0; i < kinds.length; i++) {
+          if (values[i] != null) {
+            values[i] = Arrays.copyOf(values[i], capacity);
+          }
+          if (longs[i] != null) {
+            longs[i] = Arrays.copyOf(longs[i], capacity);
+          }
+          if (doubles[i] != null) {
+            doubles[i] = Arrays.copyOf(doubles[i], capacity);
+          }
+          if (numberTypes[i] != null) {
+            numberTypes[i] = Arrays.copyOf(numberTypes[i], capacity);
+          }
+          if (counts[i] != null) {
+            counts[i] = Arrays.copyOf(counts[i], capacity);
+          }
+        }
+      }
+      return groups++;
+    }
+
+    private void apply(int group, OResult row) {
+      for (int i = 0; i < kinds.length; i++) {
+        switch (kinds[i]) {
+        case VALUE:
+          values[i][group] = items.get(i).execute(row, ctx);
+          break;
+        case COUNT:
+          if (params[i] == null || params[i].execute(row, ctx) != null) {
+            longs[i][group]++;
+          }
+          break;
+        case SUM:
+          Object value = params[i].execute(row, ctx);
+          if (value instanceof Number) {
+            sum(i, group, (Number) value);
+          } else if (OMultiValue.isMultiValue(value)) {
+            for (Object item : OMultiValue.getMultiValueIterable(value)) {
+              sum(i, group, (Number) item);
+            }
+          }
+          break;
+        case AVG:
+          value = params[i].execute(row, ctx);
+          if (value instanceof Number) {
+            average(i, group, (Number) value);
+          } else if (OMultiValue.isMultiValue(value)) {
+            for (Object item : OMultiValue.getMultiValueIterable(value)) {
+              average(i, group, (Number) item);
+            }
+          }
+          break;
+        case MIN:
+        case MAX:
+          value = params[i].execute(row, ctx);
+          if (value instanceof Collection) {
+            // THE MIN OR THE MAX OF THE ITEMS, COMPARED AS THEY ARE
+            Object rowValue = null;
+            for (Object item : (Collection<?>) value) {
+              if (rowValue == null || item != null && compare(i, item, rowValue)) {
+                rowValue = item;
+              }
+            }
+            value = rowValue;
+          }
+          if (value != null) {
+            minMax(i, group, value);
+          }
+          break;
+        default:
+          AggregationContext aggregation = (AggregationContext) values[i][group];
+          if (aggregation == null) {
+            aggregation = items.get(i).getAggregationContext(ctx);
+            values[i][group] = aggregation;
+          }
+          aggregation.apply(row, ctx);
+        }
+      }
+    }
+
+    /**
+     * Adds a number to a sum as {@link OSQLFunctionSum} does, in a primitive while the sum is a short, an integer, a long or a
+     * double.
+     */
+    private void sum(int column, int group, Number value) {
+      if (value == null) {
+        return;
+      }
+      byte type = numberTypes[column][group];
+      byte valueType = value instanceof Integer ? NUMBER_INTEGER :
+          value instanceof Long ? NUMBER_LONG :
+              value instanceof Short ? NUMBER_SHORT : value instanceof Double ? NUMBER_DOUBLE : NUMBER_BOXED;
+
+      if (type == NUMBER_NONE) {
+        if (valueType == NUMBER_BOXED) {
+          values[column][group] = value;
+        } else if (valueType == NUMBER_DOUBLE) {
+          doubles[column][group] = value.doubleValue();
+        } else {
+          longs[column][group] = value.longValue();
+        }
+        numberTypes[column][group] = valueType;
+      } else if (type == NUMBER_BOXED || valueType == NUMBER_BOXED) {
+        values[column][group] = OType.increment(getSum(column, group), value);
+        numberTypes[column][group] = NUMBER_BOXED;
+      } else if (type == NUMBER_DOUBLE || valueType == NUMBER_DOUBLE) {
+        double sum = type == NUMBER_DOUBLE ? doubles[column][group] : longs[column][group];
+        doubles[column][group] = sum + value.doubleValue();
+        numberTypes[column][group] = NUMBER_DOUBLE;
+      } else if (type == NUMBER_LONG || valueType == NUMBER_LONG) {
+        longs[column][group] += value.longValue();
+        numberTypes[column][group] = NUMBER_LONG;
+      } else {
+        long current = longs[column][group];
+        long sum = current + value.longValue();
+        if (sum == (int) sum) {
+          longs[column][group] = sum;
+        } else {
+          // INTEGER OVERFLOW: OType.increment() RETURNS THE TRUNCATED SUM, AS A LONG IF THE VALUES ARE POSITIVE
+          longs[column][group] = (int) sum;
+          if (current > 0 && value.longValue() > 0) {
+            numberTypes[column][group] = NUMBER_LONG;
+            return;
+          }
+        }
+        numberTypes[column][group] = NUMBER_INTEGER;
+      }
+    }
+
+    private void average(int column, int group, Number value) {
+      if (value != null) {
+        sum(column, group, value);
+        counts[column][group]++;
+      }
+    }
+
+    /**
+     * Keeps the min or the max as {@link OSQLFunctionMin} and {@link OSQLFunctionMax} do: the numbers are compared in the type of
+     * the one with the largest range and the result keeps that type. Integers, longs and doubles are compared in a primitive.
+     */
+    @SuppressWarnings("unchecked")
+    private void minMax(int column, int group, Object value) {
+      byte type = numberTypes[column][group];
+      byte valueType = value instanceof Integer ? NUMBER_INTEGER :
+          value instanceof Long ? NUMBER_LONG : value instanceof Double ? NUMBER_DOUBLE : NUMBER_BOXED;
+
+      if (type != NUMBER_BOXED && valueType != NUMBER_BOXED) {
+        if (type == NUMBER_DOUBLE || valueType == NUMBER_DOUBLE) {
+          double current = type == NUMBER_DOUBLE ? doubles[column][group] : longs[column][group];
+          double number = ((Number) value).doubleValue();
+          doubles[column][group] = type == NUMBER_NONE || compare(column, Double.compare(number, current)) ? number : current;
+          numberTypes[column][group] = NUMBER_DOUBLE;
+        } else {
+          long current = longs[column][group];
+          long number = ((Number) value).longValue();
+          if (type == NUMBER_NONE || compare(column, Long.compare(number, current))) {
+            longs[column][group] = number;
+          }
+          numberTypes[column][group] = (byte) Math.max(type, valueType);
+        }
+        return;
+      }
+
+      Object current = getAggregate(column, group);
+      if (current != null) {
+        if (current instanceof Number && value instanceof Number) {
+          Number[] casted = OType.castComparableNumber((Number) current, (Number) value);
+          current = casted[0];
+          value = casted[1];
+        }
+        if (!compare(column, ((Comparable<Object>) value).compareTo(current))) {
+          value = current;
+        }
+      }
+      if (value instanceof Integer || value instanceof Long) {
+        longs[column][group] = ((Number) value).longValue();
+        numberTypes[column][group] = value instanceof Integer ? NUMBER_INTEGER : NUMBER_LONG;
+      } else if (value instanceof Double) {
+        doubles[column][group] = (Double) value;
+        numberTypes[column][group] = NUMBER_DOUBLE;
+      } else {
+        values[column][group] = value;
+        numberTypes[column][group] = NUMBER_BOXED;
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean compare(int column, Object value, Object current) {
+      return compare(column, ((Comparable<Object>) value).compareTo(current));
+    }
+
+    /**
+     * @return true if the value compared to the current one replaces it in the column
+     */
+    private boolean compare(int column, int comparison) {
+      return kinds[column] == MIN ? comparison < 0 : comparison > 0;
+    }
+
+    private Number getSum(int column, int group) {
+      return (Number) getAggregate(column, group);
+    }
+
+    /**
+     * @return the sum, the min or the max of the group in the column
+     */
+    private Object getAggregate(int column, int group) {
+      switch (numberTypes[column][group]) {
+      case NUMBER_SHORT:
+        return (short) longs[column][group];
+      case NUMBER_INTEGER:
+        return (int) longs[column][group];
+      case NUMBER_LONG:
+        return longs[column][group];
+      case NUMBER_DOUBLE:
+        return doubles[column][group];
+      case NUMBER_BOXED:
+        return values[column][group];
+      default:
+        return null;
+      }
+    }
+
+    private OResultInternal toResult(int group) {
+      OResultInternal result = new OResultInternal();
+      for (int i = 0; i < kinds.length; i++) {
+        switch (kinds[i]) {
+        case VALUE:
+          result.setProperty(aliases[i], values[i][group]);
+          break;
+        case COUNT:
+          result.setProperty(aliases[i], longs[i][group]);
+          break;
+        case SUM:
+          Number sum = getSum(i, group);
+          result.setProperty(aliases[i], sum == null ? 0 : sum);
+          break;
+        case AVG:
+          result.setProperty(aliases[i], computeAverage(getSum(i, group), (int) counts[i][group]));
+          break;
+        case MIN:
+        case MAX:
+          result.setProperty(aliases[i], getAggregate(i, group));
+          break;
+        default:
+          result.setProperty(aliases[i], ((AggregationContext) values[i][group]).getFinalValue());
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Writes the partial aggregates of the groups to disk and releases their memory, the next rows of the groups are written to
+     * disk too.
+     */
+    private void spill() {
+      for (byte kind : kinds) {
+        if (kind == GENERIC) {
+          throw new OQueryMemoryLimitException(budget.limitExceeded("GROUP BY")
+              + " (only the groups of count(), sum(), avg(), min() and max() can be spilled to disk)");
+        }
+      }
+
+      partials = new OResultSpillFile();
+      try {
+        for (int group = 0; group < groups; group++) {
+          OResultInternal partial = new OResultInternal();
+          partial.setProperty(KEY_PROPERTY, Arrays.copyOfRange(keys, keyOffsets[group], keyOffsets[group + 1]));
+          for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+            case VALUE:
+              partial.setProperty("c" + i, values[i][group]);
+              break;
+            case COUNT:
+              partial.setProperty("c" + i, longs[i][group]);
+              break;
+            case AVG:
+              partial.setProperty("n" + i, counts[i][group]);
+              // FALLTHROUGH
+            default:
+              partial.setProperty("c" + i, getAggregate(i, group));
+            }
+          }
+          partials.write(partial);
+        }
+      } catch (OSerializationException e) {
+        throw new OQueryMemoryLimitException(
+            budget.limitExceeded("GROUP BY") + " (the groups cannot be spilled to disk: " + e.getMessage() + ")");
+      }
+
+      spilled = true;
+      release();
+    }
+
+    private void writeRow(OResult row) {
+      if (!OResultSpillFile.isSpillable(row)) {
+        throw new OQueryMemoryLimitException(
+            budget.limitExceeded("GROUP BY") + " (the rows cannot be spilled to disk because they contain unsaved records)");
+      }
+      if (rows == null) {
+        rows = new OResultSpillFile();
+      }
+      try {
+        rows.write(row);
+      } catch (OSerializationException e) {
+        throw new OQueryMemoryLimitException(
+            budget.limitExceeded("GROUP BY") + " (the rows cannot be spilled to disk: " + e.getMessage() + ")");
+      }
+    }
+
+    /**
+     * Adds to a group the partial aggregates read from disk.
+     */
+    private void merge(int group, OResult partial) {
+      for (int i = 0; i < kinds.length; i++) {
+        Object value = partial.getProperty("c" + i);
+        switch (kinds[i]) {
+        case VALUE:
+          values[i][group] = value;
+          break;
+        case COUNT:
+          longs[i][group] += ((Number) value).longValue();
+          break;
+        case AVG:
+          counts[i][group] += partial.<Number>getProperty("n" + i).longValue();
+          // FALLTHROUGH
+        case SUM:
+          sum(i, group, (Number) value);
+          break;
+        default:
+          if (value != null) {
+            minMax(i, group, value);
+          }
+        }
+      }
+    }
+
+    /**
+     * Drops the groups and releases their memory.
+     */
+    private void release() {
+      budget.release(reservedMemory);
+      reservedMemory = 0;
+      groups = 0;
+      slots = new int[16];
+      hashes = new int[8];
+      keyOffsets = new int[9];
+      keys = new byte[256];
+      if (objectGroups != null) {
+        objectGroups.clear();
+      }
+      for (int i = 0; i < kinds.length; i++) {
+        values[i] = values[i] == null ? null : new Object[8];
+        longs[i] = longs[i] == null ? null : new long[8];
+        doubles[i] = doubles[i] == null ? null : new double[8];
+        numberTypes[i] = numberTypes[i] == null ? null : new byte[8];
+        counts[i] = counts[i] == null ? null : new long[8];
+      }
+    }
+
+    private void closeFiles() {
+      if (partials != null) {
+        partials.close();
+      }
+      if (rows != null) {
+        rows.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,252 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OQueryMemoryLimitException;
+import com.orientechnologies.orient.core.record.ORecord;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory budget of a query: the blocking steps (ORDER BY, DISTINCT, GROUP BY, MATCH prefetch) reserve the memory of the results
+ * they keep before keeping them, and release it when they are closed. A reservation fails when the query is over its own limit,
+ * {@link OGlobalConfiguration#QUERY_MAX_MEMORY_PER_QUERY}, or all the queries of the JVM are over
+ * {@link OGlobalConfiguration#QUERY_MAX_MEMORY}: the step then spills its results to disk, or fails the query with {@link
+ * OQueryMemoryLimitException}.
+ * <p>
+ * The memory is estimated from the content of the results, see {@link #estimate(OResult)}. The budget takes the memory from the
+ * global pool in chunks, so the queries do not contend on it for every result.
+ */
+public class OQueryMemoryBudget {
+  private static final long       MB            = 1024 * 1024;
+  private static final long       CHUNK         = MB;
+  private static final AtomicLong GLOBAL_GRANTS = new AtomicLong();
+
+  private final long    limit;
+  private final boolean standalone;
+
+  private volatile long    reserved;
+  private volatile long    peak;
+  private          long    granted;
+  private          boolean globalLimitExceeded;
+
+  public OQueryMemoryBudget(final long limit) {
+    this(limit, false);
+  }
+
+  private OQueryMemoryBudget(final long limit, final boolean standalone) {
+    this.limit = limit;
+    this.standalone = standalone;
+  }
+
+  /**
+   * @return the budget of the query executed by the current thread, or a new budget with the limit configured in the database if
+   * the query is not tracked: the step owns this budget and releases all of it when it is closed, see {@link #isStandalone()}
+   */
+  public static OQueryMemoryBudget of(final OCommandContext ctx) {
+    final OQueryResourceUsage usage = OQueryResourceUsage.current();
+    if (usage != null)
+      return usage.getMemoryBudget();
+    final ODatabaseDocumentInternal db = ctx != null ? (ODatabaseDocumentInternal) ctx.getDatabase() : null;
+    return new OQueryMemoryBudget(getQueryLimit(db), true);
+  }
+
+  /**
+   * @return the memory limit in bytes of a query of the database, -1 if unlimited
+   */
+  public static long getQueryLimit(final ODatabaseDocumentInternal db) {
+    final long limit = db != null ?
+        db.getConfiguration().getValueAsLong(OGlobalConfiguration.QUERY_MAX_MEMORY_PER_QUERY) :
+        OGlobalConfiguration.QUERY_MAX_MEMORY_PER_QUERY.getValueAsLong();
+    return toBytes(limit, 4);
+  }
+
+  /**
+   * @return the memory limit in bytes of all the queries, -1 if unlimited
+   */
+  public static long getGlobalLimit() {
+    return toBytes(OGlobalConfiguration.QUERY_MAX_MEMORY.getValueAsLong(), 2);
+  }
+
+  /**
+   * @return the memory reserved by all the queries, rounded up to the chunks taken from the global pool
+   */
+  public static long getGlobalReserved() {
+    return GLOBAL_GRANTS.get();
+  }
+
+  private static long toBytes(final long megabytes, final int heapFraction) {
+    if (megabytes < 0)
+      return -1;
+    if (megabytes == 0)
+      return Runtime.getRuntime().maxMemory() / heapFraction;
+    return megabytes * MB;
+  }
+
+  /**
+   * Reserves the memory if the query and all the queries stay within their limits.
+   *
+   * @return false if the memory was not reserved
+   */
+  public synchronized boolean tryReserve(final long bytes) {
+    final long newReserved = reserved + bytes;
+    if (limit >= 0 && newReserved > limit) {
+      globalLimitExceeded = false;
+      return false;
+    }
+
+    if (newReserved > granted) {
+      final long grant = Math.max(CHUNK, newReserved - granted);
+      final long globalLimit = getGlobalLimit();
+      if (GLOBAL_GRANTS.addAndGet(grant) > globalLimit && globalLimit >= 0) {
+        GLOBAL_GRANTS.addAndGet(-grant);
+        globalLimitExceeded = true;
+        return false;
+      }
+      granted += grant;
+    }
+
+    reserved = newReserved;
+    if (newReserved > peak)
+      peak = newReserved;
+    return true;
+  }
+
+  /**
+   * Reserves the memory or fails the query.
+   *
+   * @param step the name of the step that reserves the memory, reported in the error
+   *
+   * @throws OQueryMemoryLimitException if the query or all the queries would exceed their limits
+   */
+  public void reserve(final long bytes, final String step) {
+    if (!tryReserve(bytes))
+      throw new OQueryMemoryLimitException(limitExceeded(step));
+  }
+
+  public synchronized void release(final long bytes) {
+    reserved = Math.max(0, reserved - Math.max(0, bytes));
+    // GIVE BACK TO THE GLOBAL POOL THE CHUNKS NOT USED ANY MORE, KEEP ONE FOR THE NEXT RESERVATIONS
+    final long unused = granted - reserved - CHUNK;
+    if (unused > 0) {
+      GLOBAL_GRANTS.addAndGet(-unused);
+      granted -= unused;
+    }
+  }
+
+  /**
+   * Releases all the memory reserved by the query, called when the query is closed.
+   */
+  public synchronized void releaseAll() {
+    GLOBAL_GRANTS.addAndGet(-granted);
+    granted = 0;
+    reserved = 0;
+  }
+
+  /**
+   * @return true if the budget has been created for a single step by {@link #of(OCommandContext)}: nobody else releases it, so the
+   * step calls {@link #releaseAll()} when it is closed
+   */
+  public boolean isStandalone() {
+    return standalone;
+  }
+
+  public long getReserved() {
+    return reserved;
+  }
+
+  public long getPeak() {
+    return peak;
+  }
+
+  public long getLimit() {
+    return limit;
+  }
+
+  /**
+   * @return the error of a query that failed to reserve memory in the step
+   */
+  public synchronized String limitExceeded(final String step) {
+    if (!globalLimitExceeded)
+      return "Query exceeded its memory limit of " + limit / MB + "MB in " + step
+          + ": reduce the results kept by the query or increase '" + OGlobalConfiguration.QUERY_MAX_MEMORY_PER_QUERY.getKey()
+          + "'";
+    return "Queries running in the server exceeded their memory limit of " + getGlobalLimit() / MB + "MB, the query was stopped in "
+        + step + " using " + reserved / MB + "MB: retry later or increase '" + OGlobalConfiguration.QUERY_MAX_MEMORY.getKey()
+        + "'";
+  }
+
+  /**
+   * @return the estimated heap taken by the result and by its values
+   */
+  public static long estimate(final OResult result) {
+    if (!result.isProjection()) {
+      final Object element = result instanceof OResultInternal ? ((OResultInternal) result).element : null;
+      if (element instanceof ORecord)
+        return 64 + estimateValue(element);
+      return 64 + 40;
+    }
+    long size = 96;
+    for (String name : result.getPropertyNames())
+      size += 48 + estimateValue(result.getProperty(name));
+    return size;
+  }
+
+  /**
+   * @return the estimated heap taken by a value of a result
+   */
+  public static long estimateValue(final Object value) {
+    if (value == null)
+      return 0;
+    if (value instanceof String)
+      return 40 + 2 * ((String) value).length();
+    if (value instanceof Number || value instanceof Boolean || value instanceof Date)
+      return 24;
+    if (value instanceof OResult)
+      return estimate((OResult) value);
+    if (value instanceof ORecord)
+      // THE UNMARSHALLED RECORD TAKES ABOUT TWICE ITS SERIALIZED SIZE
+      return 128 + 2L * ((ORecord) value).getSize();
+    if (value instanceof OIdentifiable)
+      return 40;
+    if (value instanceof byte[])
+      return 16 + ((byte[]) value).length;
+    if (value instanceof Collection) {
+      long size = 64;
+      for (Object item : (Collection<?>) value)
+        size += 16 + estimateValue(item);
+      return size;
+    }
+    if (value instanceof Map) {
+      long size = 64;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet())
+        size += 48 + estimateValue(entry.getKey()) + estimateValue(entry.getValue());
+      return size;
+    }
+    return 64;
+  }
+}
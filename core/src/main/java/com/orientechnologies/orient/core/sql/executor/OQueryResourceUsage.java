@@ -0,0 +1,305 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.metadata.security.OSecurityUser;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resources used by a query or a command of the current executor: the pages read from the disk cache and from the disk, the
+ * record deserializations, the rows returned, the memory kept by the blocking steps and the wall, execution and CPU time. The
+ * usage is attributed to the query while a thread executes it, between {@link #enter()} and {@link #exit()}, so the time the
+ * client spends between the fetches is not counted. The CPU time is estimated from a sample of the executions.
+ * <p>
+ * The queries are listed by {@link #getRunningQueries()} until their result set is closed. The queries that executed longer than
+ * {@link OGlobalConfiguration#QUERY_SLOW_THRESHOLD} are written to the slow query log, a JSON object per query logged at warning
+ * level by the logger of this class.
+ */
+public class OQueryResourceUsage implements OQueryMetrics {
+  private static final ThreadLocal<OQueryResourceUsage>         CURRENT           = new ThreadLocal<>();
+  private static final ConcurrentMap<Long, OQueryResourceUsage> RUNNING           = new ConcurrentHashMap<>();
+  private static final AtomicLong                               SERIAL            = new AtomicLong();
+  private static final ThreadMXBean                             THREADS           = ManagementFactory.getThreadMXBean();
+  // THE CPU TIME OF THE THREAD IS READ WITH A SYSTEM CALL, ONLY ONE EXECUTION OUT OF 16 IS SAMPLED
+  private static final int                                      CPU_SAMPLING_MASK = 15;
+
+  private final long   id;
+  private final String database;
+  private final String user;
+  private final String language;
+  private final String statement;
+  private final long   startTime;
+  private final long   slowThreshold;
+
+  private final OQueryMemoryBudget memoryBudget;
+
+  // WRITTEN ONLY BY THE THREAD THAT EXECUTES THE QUERY, READ ALSO BY THE THREADS THAT LIST THE RUNNING QUERIES
+  private volatile long    pagesReadFromCache;
+  private volatile long    pagesReadFromDisk;
+  private volatile long    recordsDeserialized;
+  private volatile long    rowsProduced;
+  private volatile long    executionNanos;
+  private volatile long    sampledCpuNanos;
+  private volatile long    sampledExecutionNanos;
+  private volatile long    endTime;
+  private volatile Thread  thread;
+  private volatile boolean closed;
+
+  private int                 depth;
+  private int                 executions;
+  private long                enterNanos;
+  private long                enterCpuNanos = -1;
+  private OQueryResourceUsage previous;
+
+  private OQueryResourceUsage(final ODatabaseDocumentInternal db, final String language, final String statement) {
+    this.id = SERIAL.incrementAndGet();
+    this.database = db.getName();
+    final OSecurityUser dbUser = db.getUser();
+    this.user = dbUser != null ? dbUser.getName() : null;
+    this.language = language;
+    this.statement = statement;
+    this.startTime = System.currentTimeMillis();
+    this.slowThreshold = db.getConfiguration().getValueAsLong(OGlobalConfiguration.QUERY_SLOW_THRESHOLD);
+    this.memoryBudget = new OQueryMemoryBudget(OQueryMemoryBudget.getQueryLimit(db));
+  }
+
+  /**
+   * Registers a new query and attributes to it the resources used by the current thread, until {@link #exit()}.
+   */
+  public static OQueryResourceUsage start(final ODatabaseDocumentInternal db, final String language, final String statement) {
+    final OQueryResourceUsage usage = new OQueryResourceUsage(db, language, statement);
+    RUNNING.put(usage.id, usage);
+    usage.enter();
+    return usage;
+  }
+
+  /**
+   * @return the query executed by the current thread, null if none
+   */
+  public static OQueryResourceUsage current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * @return the queries started and not closed yet
+   */
+  public static Collection<OQueryResourceUsage> getRunningQueries() {
+    return new ArrayList<>(RUNNING.values());
+  }
+
+  public static void onPageLoad(final boolean cacheHit) {
+    final OQueryResourceUsage usage = CURRENT.get();
+    if (usage != null) {
+      if (cacheHit)
+        usage.pagesReadFromCache++;
+      else
+        usage.pagesReadFromDisk++;
+    }
+  }
+
+  public static void onRecordDeserialization() {
+    final OQueryResourceUsage usage = CURRENT.get();
+    if (usage != null)
+      usage.recordsDeserialized++;
+  }
+
+  /**
+   * Starts attributing the resources used by the current thread to this query. The calls can be nested.
+   */
+  public void enter() {
+    if (depth++ > 0)
+      return;
+    previous = CURRENT.get();
+    CURRENT.set(this);
+    enterNanos = System.nanoTime();
+    if ((executions++ & CPU_SAMPLING_MASK) == 0)
+      enterCpuNanos = currentThreadCpuTime();
+    thread = Thread.currentThread();
+  }
+
+  public void exit() {
+    if (depth == 0 || --depth > 0)
+      return;
+    final long elapsed = System.nanoTime() - enterNanos;
+    executionNanos += elapsed;
+    if (enterCpuNanos >= 0) {
+      final long cpuTime = currentThreadCpuTime();
+      if (cpuTime >= 0) {
+        sampledCpuNanos += cpuTime - enterCpuNanos;
+        sampledExecutionNanos += elapsed;
+      }
+      enterCpuNanos = -1;
+    }
+    thread = null;
+    if (previous != null)
+      CURRENT.set(previous);
+    else
+      CURRENT.remove();
+    previous = null;
+  }
+
+  public void onRowProduced() {
+    rowsProduced++;
+  }
+
+  /**
+   * Unregisters the query, releases its memory and writes it to the slow query log if it executed longer than the threshold.
+   */
+  public void close() {
+    if (closed)
+      return;
+    while (depth > 0)
+      exit();
+    endTime = System.currentTimeMillis();
+    closed = true;
+    RUNNING.remove(id);
+    memoryBudget.releaseAll();
+
+    if (slowThreshold >= 0 && getExecutionTimeMillis() >= slowThreshold)
+      OLogManager.instance().warn(this, "Slow query: %s", toResult().toJSON());
+  }
+
+  private static long currentThreadCpuTime() {
+    try {
+      return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    } catch (UnsupportedOperationException ignore) {
+      return -1;
+    }
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public String getDatabase() {
+    return database;
+  }
+
+  public String getUser() {
+    return user;
+  }
+
+  @Override
+  public String getStatement() {
+    return statement;
+  }
+
+  @Override
+  public String getLanguage() {
+    return language;
+  }
+
+  @Override
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * @return the wall time from the start of the query to its close, or to now if the query is running
+   */
+  @Override
+  public long getElapsedTimeMillis() {
+    return (closed ? endTime : System.currentTimeMillis()) - startTime;
+  }
+
+  /**
+   * @return the time spent executing the query, including the current execution if a thread is executing it
+   */
+  public long getExecutionTimeMillis() {
+    long nanos = executionNanos;
+    if (thread != null && !closed)
+      nanos += System.nanoTime() - enterNanos;
+    return nanos / 1_000_000;
+  }
+
+  /**
+   * @return the CPU time spent executing the query, estimated from the executions sampled
+   */
+  public long getCpuTimeMillis() {
+    final long sampled = sampledExecutionNanos;
+    if (sampled == 0)
+      return 0;
+    return (long) (executionNanos * ((double) sampledCpuNanos / sampled) / 1_000_000);
+  }
+
+  public long getPagesReadFromCache() {
+    return pagesReadFromCache;
+  }
+
+  public long getPagesReadFromDisk() {
+    return pagesReadFromDisk;
+  }
+
+  public long getRecordsDeserialized() {
+    return recordsDeserialized;
+  }
+
+  public long getRowsProduced() {
+    return rowsProduced;
+  }
+
+  public OQueryMemoryBudget getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  /**
+   * @return true if a thread is executing the query now, false if the query waits for the client to fetch the next results
+   */
+  public boolean isExecuting() {
+    return thread != null;
+  }
+
+  public OResultInternal toResult() {
+    final OResultInternal result = new OResultInternal();
+    result.setProperty("id", id);
+    result.setProperty("database", database);
+    result.setProperty("user", user);
+    result.setProperty("language", language);
+    result.setProperty("statement", statement);
+    result.setProperty("startTime", new Date(startTime));
+    result.setProperty("elapsedTimeMillis", getElapsedTimeMillis());
+    result.setProperty("executionTimeMillis", getExecutionTimeMillis());
+    result.setProperty("cpuTimeMillis", getCpuTimeMillis());
+    result.setProperty("pagesReadFromCache", pagesReadFromCache);
+    result.setProperty("pagesReadFromDisk", pagesReadFromDisk);
+    result.setProperty("recordsDeserialized", recordsDeserialized);
+    result.setProperty("rowsProduced", rowsProduced);
+    result.setProperty("memoryReserved", memoryBudget.getReserved());
+    result.setProperty("peakMemory", memoryBudget.getPeak());
+    result.setProperty("executing", isExecuting());
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return toResult().toString();
+  }
+}
@@ -0,0 +1,431 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.config.OStorageConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.OMetadataUpdateListener;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OIndexManagerAbstract;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchemaShared;
+import com.orientechnologies.orient.core.metadata.security.OIdentity;
+import com.orientechnologies.orient.core.metadata.security.OSecurityRole;
+import com.orientechnologies.orient.core.metadata.security.OSecurityUser;
+import com.orientechnologies.orient.core.sql.parser.OFromClause;
+import com.orientechnologies.orient.core.sql.parser.OSelectStatement;
+import com.orientechnologies.orient.core.sql.parser.OStatement;
+import com.orientechnologies.orient.core.storage.OClusterChangeListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the results of the SELECT statements executed with the new SQL executor, keyed by statement, input parameters, user
+ * and roles. A cached result depends on the clusters of the target class, on the clusters of all the records read while producing
+ * it and on the clusters of the users and roles: every change to the records of these clusters, including a change of the
+ * permissions, removes the result from the cache.
+ * <p>
+ * Only the queries on a class, executed outside transactions, are cached. Records are cached as their identity and loaded again
+ * by every session, projections are cached as detached copies; results containing embedded records or values of other types are
+ * not cached. Functions that return a different value on every call, like <code>sysdate()</code>, are not detected.
+ */
+public class OQueryResultCache implements OMetadataUpdateListener, OClusterChangeListener {
+  private static final ThreadLocal<Set<Integer>> READ_CLUSTERS = new ThreadLocal<>();
+
+  private final int maxRows;
+  private final int maxResultSize;
+
+  private final ConcurrentHashMap<Key, Entry>          entries        = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Integer, Set<Key>>   clusterEntries = new ConcurrentHashMap<>();
+  // CLUSTER ID -> VALUE OF THE MODIFICATION COUNTER AT THE LAST CHANGE OF THE CLUSTER
+  private final ConcurrentHashMap<Integer, Long>       clusterChanges = new ConcurrentHashMap<>();
+  private final AtomicLong                             modifications  = new AtomicLong();
+  private final AtomicLong                             accessCounter  = new AtomicLong();
+  private final AtomicInteger                          cachedRows     = new AtomicInteger();
+  private final AtomicLong                             hits           = new AtomicLong();
+  private final AtomicLong                             misses         = new AtomicLong();
+  private final Object                                 evictionLock   = new Object();
+
+  private static final class Key {
+    private final String              statement;
+    private final String              user;
+    private final Set<String>         roles;
+    private final Map<Object, Object> parameters;
+
+    private Key(final String statement, final String user, final Set<String> roles, final Map<Object, Object> parameters) {
+      this.statement = statement;
+      this.user = user;
+      this.roles = roles;
+      this.parameters = parameters;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o)
+        return true;
+      if (!(o instanceof Key))
+        return false;
+      final Key other = (Key) o;
+      return statement.equals(other.statement) && Objects.equals(user, other.user) && roles.equals(other.roles) && parameters
+          .equals(other.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(statement, user, roles, parameters);
+    }
+  }
+
+  private static final class Entry {
+    private final List<OResult> results;
+    private final Set<Integer>  clusters;
+    private volatile long       lastAccess;
+
+    private Entry(final List<OResult> results, final Set<Integer> clusters, final long lastAccess) {
+      this.results = results;
+      this.clusters = clusters;
+      this.lastAccess = lastAccess;
+    }
+  }
+
+  /**
+   * @param maxRows       maximum number of result rows kept in cache, 0 disables the cache
+   * @param maxResultSize maximum number of rows of a cached result
+   */
+  public OQueryResultCache(final int maxRows, final int maxResultSize) {
+    this.maxRows = maxRows;
+    this.maxResultSize = Math.min(maxRows, maxResultSize);
+  }
+
+  public OQueryResultCache(final OContextConfiguration configuration) {
+    this(configuration.getValueAsInteger(OGlobalConfiguration.QUERY_RESULT_CACHE_SIZE),
+        configuration.getValueAsInteger(OGlobalConfiguration.QUERY_RESULT_CACHE_MAX_RESULT_SIZE));
+  }
+
+  /**
+   * Notifies the read of a record to the cache, if a result is being cached by the current thread.
+   */
+  public static void recordRead(final ORID rid) {
+    final Set<Integer> clusters = READ_CLUSTERS.get();
+    if (clusters != null)
+      clusters.add(rid.getClusterId());
+  }
+
+  /**
+   * Returns the cached result of a statement, or executes it and caches the result if possible.
+   *
+   * @param statement  the parsed statement
+   * @param text       the normalized text of the statement
+   * @param parameters the input parameters
+   * @param execution  executes the statement
+   */
+  public OResultSet execute(final ODatabaseDocumentInternal db, final OStatement statement, final String text,
+      final Map<Object, Object> parameters, final Supplier<OResultSet> execution) {
+    if (maxRows <= 0 || text == null || !(statement instanceof OSelectStatement) || db.getTransaction().isActive())
+      return execution.get();
+
+    final OClass target = getTargetClass(db, (OSelectStatement) statement);
+    if (target == null)
+      return execution.get();
+
+    final OSecurityUser user = db.getUser();
+    final Set<String> roles = new HashSet<>();
+    if (user != null && user.getRoles() != null)
+      for (OSecurityRole role : user.getRoles())
+        roles.add(role.getName());
+    final Key key = new Key(text, user == null ? null : user.getName(), roles,
+        parameters == null ? new HashMap<>() : new HashMap<>(parameters));
+    final Entry entry = entries.get(key);
+    if (entry != null) {
+      hits.incrementAndGet();
+      entry.lastAccess = accessCounter.incrementAndGet();
+      final OInternalResultSet result = new OInternalResultSet();
+      for (OResult row : entry.results)
+        result.add(detach(row));
+      return result;
+    }
+    misses.incrementAndGet();
+
+    final long stamp = modifications.get();
+    final Set<Integer> clusters = new HashSet<>();
+    for (int clusterId : target.getPolymorphicClusterIds())
+      clusters.add(clusterId);
+    // THE RECORDS VISIBLE TO A USER DEPEND ON ITS ROLES AND THEIR PERMISSIONS
+    final OClass identity = db.getMetadata().getImmutableSchemaSnapshot().getClass(OIdentity.CLASS_NAME);
+    if (identity != null)
+      for (int clusterId : identity.getPolymorphicClusterIds())
+        clusters.add(clusterId);
+
+    final Set<Integer> parentClusters = READ_CLUSTERS.get();
+    READ_CLUSTERS.set(clusters);
+    final List<OResult> fetched = new ArrayList<>();
+    final OResultSet original;
+    try {
+      original = execution.get();
+      while (fetched.size() <= maxResultSize && original.hasNext())
+        fetched.add(original.next());
+    } finally {
+      READ_CLUSTERS.set(parentClusters);
+      if (parentClusters != null)
+        parentClusters.addAll(clusters);
+    }
+
+    if (fetched.size() > maxResultSize)
+      // TOO BIG TO BE CACHED: RETURN THE ROWS ALREADY FETCHED FOLLOWED BY THE OTHER ONES
+      return new OFetchedResultSet(fetched, original, false);
+    original.close();
+
+    final List<OResult> results = new ArrayList<>(fetched.size());
+    for (OResult row : fetched) {
+      final OResult detached = detach(row);
+      if (detached == null)
+        return new OFetchedResultSet(fetched, original, true);
+      results.add(detached);
+    }
+    put(key, new Entry(results, clusters, accessCounter.incrementAndGet()), stamp);
+    return new OFetchedResultSet(fetched, original, true);
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public void invalidate() {
+    modifications.incrementAndGet();
+    entries.clear();
+    clusterEntries.clear();
+    cachedRows.set(0);
+  }
+
+  @Override
+  public void onClusterChange(final int clusterId) {
+    if (maxRows <= 0)
+      return;
+    clusterChanges.put(clusterId, modifications.incrementAndGet());
+    final Set<Key> keys = clusterEntries.remove(clusterId);
+    if (keys != null)
+      for (Key key : keys)
+        remove(key);
+  }
+
+  @Override
+  public void onSchemaUpdate(final String database, final OSchemaShared schema) {
+    // CLASSES CAN BE DROPPED AND THEIR CLUSTERS REUSED
+    invalidate();
+  }
+
+  @Override
+  public void onIndexManagerUpdate(final String database, final OIndexManagerAbstract indexManager) {
+  }
+
+  @Override
+  public void onFunctionLibraryUpdate(final String database) {
+    invalidate();
+  }
+
+  @Override
+  public void onSequenceLibraryUpdate(final String database) {
+  }
+
+  @Override
+  public void onStorageConfigurationUpdate(final String database, final OStorageConfiguration update) {
+  }
+
+  private void put(final Key key, final Entry entry, final long stamp) {
+    if (changedSince(entry.clusters, stamp))
+      return;
+
+    final Entry previous = entries.put(key, entry);
+    cachedRows.addAndGet(entry.results.size() - (previous == null ? 0 : previous.results.size()));
+    for (Integer clusterId : entry.clusters)
+      clusterEntries.computeIfAbsent(clusterId, k -> ConcurrentHashMap.newKeySet()).add(key);
+
+    if (changedSince(entry.clusters, stamp)) {
+      // A COMMIT HAS CHANGED THE RECORDS IN THE MEANTIME
+      remove(key);
+      return;
+    }
+
+    if (cachedRows.get() > maxRows)
+      evict();
+  }
+
+  private boolean changedSince(final Set<Integer> clusters, final long stamp) {
+    for (Integer clusterId : clusters) {
+      final Long lastChange = clusterChanges.get(clusterId);
+      if (lastChange != null && lastChange > stamp)
+        return true;
+    }
+    return false;
+  }
+
+  private void remove(final Key key) {
+    final Entry removed = entries.remove(key);
+    if (removed != null) {
+      cachedRows.addAndGet(-removed.results.size());
+      for (Integer clusterId : removed.clusters) {
+        final Set<Key> keys = clusterEntries.get(clusterId);
+        if (keys != null)
+          keys.remove(key);
+      }
+    }
+  }
+
+  private void evict() {
+    synchronized (evictionLock) {
+      if (cachedRows.get() <= maxRows)
+        return;
+
+      // REMOVE THE LEAST RECENTLY USED RESULTS, UNTIL 90% OF THE MAXIMUM SIZE IS REACHED
+      final List<Map.Entry<Key, Entry>> candidates = new ArrayList<>(entries.entrySet());
+      candidates.sort((a, b) -> Long.compare(a.getValue().lastAccess, b.getValue().lastAccess));
+      for (Map.Entry<Key, Entry> candidate : candidates) {
+        if (cachedRows.get() <= maxRows - maxRows / 10)
+          break;
+        remove(candidate.getKey());
+      }
+    }
+  }
+
+  private static OClass getTargetClass(final ODatabaseDocumentInternal db, final OSelectStatement statement) {
+    if (statement.getLetClause() != null)
+      return null;
+    final OFromClause target = statement.getTarget();
+    if (target == null || target.getItem() == null || target.getItem().getIdentifier() == null
+        || target.getItem().getModifier() != null)
+      return null;
+    return db.getMetadata().getImmutableSchemaSnapshot().getClass(target.getItem().getIdentifier().getStringValue());
+  }
+
+  /**
+   * Returns a copy of a result that does not depend on the session, or null if it contains values that cannot be copied.
+   */
+  private static OResult detach(final OResult row) {
+    if (row.isElement()) {
+      final Optional<ORID> identity = row.getIdentity();
+      if (!identity.isPresent() || !identity.get().isPersistent())
+        return null;
+      return new OResultInternal(identity.get().copy());
+    }
+
+    final OResultInternal result = new OResultInternal();
+    for (String name : row.getPropertyNames()) {
+      final Object value = detachValue(row.getProperty(name));
+      if (value == UNSUPPORTED)
+        return null;
+      result.setProperty(name, value);
+    }
+    return result;
+  }
+
+  private static final Object UNSUPPORTED = new Object();
+
+  private static Object detachValue(final Object value) {
+    if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean
+        || value instanceof Character)
+      return value;
+    if (value instanceof Date)
+      return new Date(((Date) value).getTime());
+    if (value instanceof byte[])
+      return ((byte[]) value).clone();
+    if (value instanceof OIdentifiable) {
+      final ORID identity = ((OIdentifiable) value).getIdentity();
+      return identity != null && identity.isPersistent() ? identity.copy() : UNSUPPORTED;
+    }
+    if (value instanceof OResult) {
+      final OResult result = detach((OResult) value);
+      return result == null ? UNSUPPORTED : result;
+    }
+    if (value instanceof Collection) {
+      final Collection<Object> result = value instanceof Set ? new LinkedHashSet<>() : new ArrayList<>();
+      for (Object item : (Collection<?>) value) {
+        final Object detached = detachValue(item);
+        if (detached == UNSUPPORTED)
+          return UNSUPPORTED;
+        result.add(detached);
+      }
+      return result;
+    }
+    if (value instanceof Map) {
+      final Map<Object, Object> result = new LinkedHashMap<>();
+      for (Map.Entry<?, ?> item : ((Map<?, ?>) value).entrySet()) {
+        final Object detached = detachValue(item.getValue());
+        if (detached == UNSUPPORTED)
+          return UNSUPPORTED;
+        result.put(item.getKey(), detached);
+      }
+      return result;
+    }
+    return UNSUPPORTED;
+  }
+
+  /**
+   * Result set that returns the rows already fetched, followed by the other rows of the original result set.
+   */
+  private static final class OFetchedResultSet implements OResultSet {
+    private final List<OResult> fetched;
+    private final OResultSet    original;
+    private final boolean       exhausted;
+    private       int           next;
+
+    private OFetchedResultSet(final List<OResult> fetched, final OResultSet original, final boolean exhausted) {
+      this.fetched = fetched;
+      this.original = original;
+      this.exhausted = exhausted;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < fetched.size() || (!exhausted && original.hasNext());
+    }
+
+    @Override
+    public OResult next() {
+      if (next < fetched.size())
+        return fetched.get(next++);
+      if (exhausted)
+        throw new IllegalStateException();
+      return original.next();
+    }
+
+    @Override
+    public void close() {
+      if (!exhausted)
+        original.close();
+    }
+
+    @Override
+    public Optional<OExecutionPlan> getExecutionPlan() {
+      return original.getExecutionPlan();
+    }
+
+    @Override
+    public Map<String, Long> getQueryStats() {
+      return original.getQueryStats();
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.exception.OSerializationException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.BytesContainer;
+import com.orientechnologies.orient.core.serialization.serializer.result.binary.OResultSerializerNetwork;
+
+import java.io.*;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * Temporary file where a blocking step writes the results that do not fit in the memory budget of the query, to read them back
+ * in the same order. The projections are written with the binary serializer of the network protocol, the persistent records only
+ * with their identity and their metadata: they are loaded again when read.
+ *
+ * @see OQueryMemoryBudget
+ */
+public class OResultSpillFile implements AutoCloseable {
+  private static final byte PROJECTION  = 0;
+  private static final byte RECORD      = 1;
+  private static final int  BUFFER_SIZE = 64 * 1024;
+
+  private final OResultSerializerNetwork serializer = new OResultSerializerNetwork();
+  private final File                     file;
+  private       DataOutputStream         output;
+  private       DataInputStream          input;
+  private       int                      size;
+
+  public OResultSpillFile() {
+    try {
+      file = File.createTempFile("orientdb-query-", ".spill");
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+    } catch (IOException e) {
+      throw OException.wrapException(new OCommandExecutionException("Cannot create a temporary file to spill the query results"), e);
+    }
+  }
+
+  /**
+   * @return false if the result cannot be written and read back, as the records not saved or changed and not saved yet
+   */
+  public static boolean isSpillable(final OResult result) {
+    if (result.isProjection())
+      return true;
+    final Optional<ORID> identity = result.getIdentity();
+    if (!identity.isPresent() || !identity.get().isPersistent())
+      return false;
+    final Object element = result instanceof OResultInternal ? ((OResultInternal) result).element : null;
+    if (element instanceof ORecord)
+      return !((ORecord) element).isDirty();
+    return result.getRecord().map(record -> !record.isDirty()).orElse(true);
+  }
+
+  /**
+   * @throws OSerializationException if the result contains values that cannot be serialized
+   */
+  public void write(final OResult result) {
+    final BytesContainer bytes = new BytesContainer();
+    final byte kind = result.isProjection() ? PROJECTION : RECORD;
+    try {
+      if (kind == PROJECTION)
+        serializer.serialize(result, bytes);
+      else {
+        final OResultInternal metadata = new OResultInternal();
+        for (String key : result.getMetadataKeys())
+          metadata.setMetadata(key, result.getMetadata(key));
+        serializer.serialize(metadata, bytes);
+      }
+    } catch (OSerializationException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      // THE SERIALIZER FAILS WITH OTHER EXCEPTIONS ON SOME VALUES, AS THE DOCUMENTS EMBEDDED IN A PROJECTION
+      throw OException.wrapException(new OSerializationException("Cannot serialize the result " + result), e);
+    }
+
+    try {
+      output.writeByte(kind);
+      if (kind == RECORD) {
+        final ORID identity = result.getIdentity().get();
+        output.writeInt(identity.getClusterId());
+        output.writeLong(identity.getClusterPosition());
+      }
+      output.writeInt(bytes.offset);
+      output.write(bytes.bytes, 0, bytes.offset);
+      size++;
+    } catch (IOException e) {
+      throw OException.wrapException(new OCommandExecutionException("Cannot spill the query results to " + file), e);
+    }
+  }
+
+  /**
+   * @return the number of results written
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Ends the writing.
+   *
+   * @return the results written, in the order they were written. The file can be read only once
+   */
+  public Iterator<OResult> read() {
+    try {
+      output.close();
+      output = null;
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+    } catch (IOException e) {
+      throw OException.wrapException(new OCommandExecutionException("Cannot read the query results spilled to " + file), e);
+    }
+
+    return new Iterator<OResult>() {
+      private int remaining = size;
+
+      @Override
+      public boolean hasNext() {
+        return remaining > 0;
+      }
+
+      @Override
+      public OResult next() {
+        if (remaining <= 0)
+          throw new NoSuchElementException();
+        remaining--;
+        try {
+          return readResult();
+        } catch (IOException e) {
+          throw OException.wrapException(new OCommandExecutionException("Cannot read the query results spilled to " + file), e);
+        }
+      }
+    };
+  }
+
+  private OResult readResult() throws IOException {
+    final byte kind = input.readByte();
+    ORID identity = null;
+    if (kind == RECORD)
+      identity = new ORecordId(input.readInt(), input.readLong());
+
+    final BytesContainer bytes = new BytesContainer();
+    bytes.bytes = new byte[input.readInt()];
+    input.readFully(bytes.bytes);
+    final OResultInternal result = serializer.deserialize(bytes);
+    if (identity == null)
+      return result;
+
+    final ORecord record = identity.getRecord();
+    final OResultInternal recordResult = new OResultInternal(record != null ? record : (OIdentifiable) identity);
+    for (String key : result.getMetadataKeys())
+      recordResult.setMetadata(key, result.getMetadata(key));
+    return recordResult;
+  }
+
+  /**
+   * Closes and deletes the file.
+   */
+  @Override
+  public void close() {
+    try {
+      if (output != null)
+        output.close();
+      if (input != null)
+        input.close();
+    } catch (IOException ignore) {
+      // THE FILE IS DELETED ANYWAY
+    } finally {
+      output = null;
+      input = null;
+      file.delete();
+    }
+  }
+}
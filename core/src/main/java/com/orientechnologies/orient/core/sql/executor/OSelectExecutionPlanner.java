@@ -10,10 +10,14 @@ import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.collate.ODefaultCollate;
+import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OPropertyIndexDefinition;
 import com.orientechnologies.orient.core.metadata.OMetadataInternal;
 import com.orientechnologies.orient.core.metadata.schema.*;
+import com.orientechnologies.orient.core.metadata.security.OSecurityShared;
 import com.orientechnologies.orient.core.sql.OCommandExecutorSQLAbstract;
 import com.orientechnologies.orient.core.sql.parser.*;
 
@@ -103,11 +107,29 @@ public class OSelectExecutionPlanner {
 
     if (useCache && !enableProfiling && statement.executinPlanCanBeCached() && result.canBeCached()
         && OExecutionPlanCache.getLastInvalidation(db) < planningStart) {
-      OExecutionPlanCache.put(statement.getOriginalStatement(), result, (ODatabaseDocumentInternal) ctx.getDatabase());
+      OExecutionPlanCache
+          .put(statement.getOriginalStatement(), result, getCacheDependencies(info), (ODatabaseDocumentInternal) ctx.getDatabase());
     }
     return result;
   }
 
+  /**
+   * Returns the classes the execution plan depends on, null if it can depend on any metadata
+   */
+  private static Collection<String> getCacheDependencies(QueryPlanningInfo info) {
+    if (info.globalLetPresent) {
+      return null;
+    }
+    if (info.target == null) {
+      return Collections.emptySet();
+    }
+    OFromItem item = info.target.getItem();
+    if (item != null && item.getIdentifier() != null && item.getModifier() == null) {
+      return Collections.singleton(item.getIdentifier().getStringValue());
+    }
+    return null;
+  }
+
   private void handleLockRecord(OSelectExecutionPlan result, QueryPlanningInfo info, OCommandContext ctx, boolean enableProfiling) {
     if (info.lockRecord != null) {
       result.chain(new LockRecordStep(info.lockRecord, ctx, enableProfiling));
@@ -1874,7 +1896,12 @@ public class OSelectExecutionPlanner {
         filterClusterIds = filterClusters.stream().map(name -> ctx.getDatabase().getClusterIdByName(name)).mapToInt(i -> i)
             .toArray();
       }
-      result.add(new GetValueFromIndexEntryStep(ctx, filterClusterIds, profilingEnabled));
+      if (isIndexOnlyScan(info, desc, clazz)) {
+        result.add(new GetPropertiesFromIndexEntryStep(ctx, desc.idx.getDefinition().getFields(), filterClusterIds,
+            profilingEnabled));
+      } else {
+        result.add(new GetValueFromIndexEntryStep(ctx, filterClusterIds, profilingEnabled));
+      }
       if (requiresMultipleIndexLookups(desc.keyCondition)) {
         result.add(new DistinctExecutionStep(ctx, profilingEnabled));
       }
@@ -1902,6 +1929,83 @@ public class OSelectExecutionPlanner {
     return result;
   }
 
+  /**
+   * checks if the query reads only properties stored in the key of the index, so that they can be returned without loading the
+   * records
+   */
+  private boolean isIndexOnlyScan(QueryPlanningInfo info, IndexSearchDescriptor desc, OClass clazz) {
+    if (info.expand || info.unwind != null || info.groupBy != null || info.lockRecord != null || info.globalLetPresent
+        || info.perRecordLetClause != null || info.preAggregateProjection != null || info.aggregateProjection != null) {
+      return false;
+    }
+    if (desc.remainingCondition != null && !desc.remainingCondition.isEmpty()) {
+      return false;
+    }
+    if (requiresMultipleIndexLookups(desc.keyCondition)) {
+      // THE DISTINCT STEP NEEDS THE RECORDS TO REMOVE THE DUPLICATES
+      return false;
+    }
+    if (clazz.isSubClassOf(OSecurityShared.RESTRICTED_CLASSNAME)) {
+      return false;
+    }
+    OIndexDefinition definition = desc.idx.getDefinition();
+    if (!isPlainPropertyIndex(definition)) {
+      return false;
+    }
+    Set<String> fields = new HashSet<>(definition.getFields());
+    if (!isCoveredBy(info.projection, fields) || (info.projectionAfterOrderBy != null && !isCoveredBy(
+        info.projectionAfterOrderBy, fields))) {
+      return false;
+    }
+    if (info.orderBy != null && info.orderBy.getItems() != null) {
+      for (OOrderByItem item : info.orderBy.getItems()) {
+        if (item.getAlias() == null || !fields.contains(item.getAlias()) || item.getModifier() != null
+            || item.getCollate() != null) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean isPlainPropertyIndex(OIndexDefinition definition) {
+    List<OIndexDefinition> properties;
+    if (definition.getClass() == OPropertyIndexDefinition.class) {
+      properties = Collections.singletonList(definition);
+    } else if (definition.getClass() == OCompositeIndexDefinition.class) {
+      properties = ((OCompositeIndexDefinition) definition).getIndexDefinitions();
+    } else {
+      return false;
+    }
+    for (OIndexDefinition property : properties) {
+      // THE KEY OF OTHER DEFINITIONS OR COLLATES DOES NOT HOLD THE VALUE OF THE PROPERTY
+      if (property.getClass() != OPropertyIndexDefinition.class || !(property.getCollate() instanceof ODefaultCollate)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isCoveredBy(OProjection projection, Set<String> fields) {
+    if (projection == null || projection.getItems() == null || projection.getItems().isEmpty()) {
+      return false;
+    }
+    for (OProjectionItem item : projection.getItems()) {
+      if (item.isAll() || item.getNestedProjection() != null || item.getExpression() == null) {
+        return false;
+      }
+      OExpression expression = item.getExpression();
+      if (expression.isBaseIdentifier()) {
+        if (!fields.contains(expression.getDefaultAlias().getStringValue())) {
+          return false;
+        }
+      } else if (!expression.toString().equalsIgnoreCase("@rid")) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private static OSchema getSchemaFromContext(OCommandContext ctx) {
     return ((OMetadataInternal) ctx.getDatabase().getMetadata()).getImmutableSchemaSnapshot();
   }
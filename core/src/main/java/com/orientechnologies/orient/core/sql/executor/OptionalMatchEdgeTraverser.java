@@ -53,6 +53,12 @@ public class OptionalMatchEdgeTraverser extends MatchEdgeTraverser {
     return result;
   }
 
+  @Override
+  protected Object getBoundEndpoint() {
+    // AN OPTIONAL NODE THAT IS NOT CONNECTED HAS TO BE DISTINGUISHED FROM A NODE WITHOUT CONNECTIONS
+    return null;
+  }
+
   public static boolean isEmptyOptional(Object elem) {
     if (elem == EMPTY_OPTIONAL) {
       return true;
@@ -2,6 +2,8 @@ package com.orientechnologies.orient.core.sql.executor;
 
 import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.exception.OQueryMemoryLimitException;
+import com.orientechnologies.orient.core.exception.OSerializationException;
 import com.orientechnologies.orient.core.sql.parser.OOrderBy;
 
 import java.util.*;
@@ -18,6 +20,12 @@ public class OrderByStep extends AbstractExecutionStep {
   List<OResult> cachedResult = null;
   int           nextElement  = 0;
 
+  // OVER BUDGET THE RESULTS IN cachedResult ARE SORTED AND SPILLED TO A FILE, AT THE END THE FILES ARE MERGED
+  private OQueryMemoryBudget     budget;
+  private long                   reservedMemory = 0;
+  private List<OResultSpillFile> spilledRuns    = null;
+  private Iterator<OResult>      mergedResults  = null;
+
   public OrderByStep(OOrderBy orderBy, OCommandContext ctx, boolean profilingEnabled) {
     this(orderBy, null, ctx, profilingEnabled);
   }
@@ -47,6 +55,9 @@ public class OrderByStep extends AbstractExecutionStep {
         if (currentBatchReturned >= nRecords) {
           return false;
         }
+        if (mergedResults != null) {
+          return mergedResults.hasNext();
+        }
         if (cachedResult.size() <= nextElement) {
           return false;
         }
@@ -60,6 +71,10 @@ public class OrderByStep extends AbstractExecutionStep {
           if (currentBatchReturned >= nRecords) {
             throw new IllegalStateException();
           }
+          if (mergedResults != null) {
+            currentBatchReturned++;
+            return mergedResults.next();
+          }
           if (cachedResult.size() <= nextElement) {
             throw new IllegalStateException();
           }
@@ -92,6 +107,7 @@ public class OrderByStep extends AbstractExecutionStep {
   }
 
   private void init(OExecutionStepInternal p, OCommandContext ctx) {
+    budget = OQueryMemoryBudget.of(ctx);
 
     boolean sorted = true;
     do {
@@ -106,12 +122,12 @@ public class OrderByStep extends AbstractExecutionStep {
         OResult item = lastBatch.next();
         long begin = profilingEnabled ? System.nanoTime() : 0;
         try {
+          reserveMemory(item, ctx);
           cachedResult.add(item);
           sorted = false;
           //compact, only at twice as the buffer, to avoid to do it at each add
           if (this.maxResults != null && maxResults * 2 < cachedResult.size()) {
-            cachedResult.sort((a, b) -> orderBy.compare(a, b, ctx));
-            cachedResult = new ArrayList<>(cachedResult.subList(0, maxResults));
+            compact(ctx);
             sorted = true;
           }
         } finally {
@@ -127,8 +143,7 @@ public class OrderByStep extends AbstractExecutionStep {
       try {
         //compact at each batch, if needed
         if (!sorted && this.maxResults != null && maxResults < cachedResult.size()) {
-          cachedResult.sort((a, b) -> orderBy.compare(a, b, ctx));
-          cachedResult = new ArrayList<>(cachedResult.subList(0, maxResults));
+          compact(ctx);
           sorted = true;
         }
       } finally {
@@ -142,6 +157,9 @@ public class OrderByStep extends AbstractExecutionStep {
       if (!sorted) {
         cachedResult.sort((a, b) -> orderBy.compare(a, b, ctx));
       }
+      if (spilledRuns != null) {
+        mergedResults = merge(ctx);
+      }
     } finally {
       if (profilingEnabled) {
         cost += (System.nanoTime() - begin);
@@ -150,6 +168,121 @@ public class OrderByStep extends AbstractExecutionStep {
 
   }
 
+  /**
+   * Reserves the memory of a result before adding it to the buffer. If the query is over budget the buffer is compacted, when
+   * there is a LIMIT, or sorted and spilled to disk.
+   */
+  private void reserveMemory(OResult item, OCommandContext ctx) {
+    long size = OQueryMemoryBudget.estimate(item);
+    if (budget.tryReserve(size)) {
+      reservedMemory += size;
+      return;
+    }
+    if (maxResults != null && maxResults < cachedResult.size()) {
+      compact(ctx);
+    } else if (maxResults == null && !cachedResult.isEmpty()) {
+      spill(ctx);
+    } else {
+      throw new OQueryMemoryLimitException(budget.limitExceeded("ORDER BY"));
+    }
+    budget.reserve(size, "ORDER BY");
+    reservedMemory += size;
+  }
+
+  private void compact(OCommandContext ctx) {
+    int size = cachedResult.size();
+    cachedResult.sort((a, b) -> orderBy.compare(a, b, ctx));
+    cachedResult = new ArrayList<>(cachedResult.subList(0, maxResults));
+    // THE DISCARDED RESULTS ARE NOT ESTIMATED AGAIN, THE MEMORY IS RELEASED IN PROPORTION
+    long released = reservedMemory - reservedMemory * maxResults / size;
+    budget.release(released);
+    reservedMemory -= released;
+  }
+
+  private void spill(OCommandContext ctx) {
+    cachedResult.sort((a, b) -> orderBy.compare(a, b, ctx));
+    if (spilledRuns == null) {
+      spilledRuns = new ArrayList<>();
+    }
+    OResultSpillFile run = new OResultSpillFile();
+    spilledRuns.add(run);
+    for (OResult item : cachedResult) {
+      if (!OResultSpillFile.isSpillable(item)) {
+        throw new OQueryMemoryLimitException(
+            budget.limitExceeded("ORDER BY") + " (the results cannot be spilled to disk because they contain unsaved records)");
+      }
+      try {
+        run.write(item);
+      } catch (OSerializationException e) {
+        throw new OQueryMemoryLimitException(
+            budget.limitExceeded("ORDER BY") + " (the results cannot be spilled to disk: " + e.getMessage() + ")");
+      }
+    }
+    cachedResult = new ArrayList<>();
+    budget.release(reservedMemory);
+    reservedMemory = 0;
+  }
+
+  /**
+   * @return the results of the spilled runs and of the buffer merged in order
+   */
+  private Iterator<OResult> merge(OCommandContext ctx) {
+    List<Iterator<OResult>> runs = new ArrayList<>();
+    for (OResultSpillFile run : spilledRuns) {
+      runs.add(run.read());
+    }
+    runs.add(cachedResult.iterator());
+
+    // THE HEADS OF THE RUNS, ON EQUAL KEYS THE RESULTS READ FIRST COME FIRST AS IN THE IN-MEMORY SORT
+    PriorityQueue<Map.Entry<OResult, Integer>> heads = new PriorityQueue<>(runs.size(), (a, b) -> {
+      int compare = orderBy.compare(a.getKey(), b.getKey(), ctx);
+      return compare != 0 ? compare : Integer.compare(a.getValue(), b.getValue());
+    });
+    for (int i = 0; i < runs.size(); i++) {
+      if (runs.get(i).hasNext()) {
+        heads.add(new AbstractMap.SimpleEntry<>(runs.get(i).next(), i));
+      }
+    }
+
+    return new Iterator<OResult>() {
+      @Override
+      public boolean hasNext() {
+        return !heads.isEmpty();
+      }
+
+      @Override
+      public OResult next() {
+        Map.Entry<OResult, Integer> head = heads.poll();
+        if (head == null) {
+          throw new NoSuchElementException();
+        }
+        Iterator<OResult> run = runs.get(head.getValue());
+        if (run.hasNext()) {
+          heads.add(new AbstractMap.SimpleEntry<>(run.next(), head.getValue()));
+        }
+        return head.getKey();
+      }
+    };
+  }
+
+  @Override
+  public void close() {
+    if (budget != null) {
+      budget.release(reservedMemory);
+      reservedMemory = 0;
+      if (budget.isStandalone()) {
+        budget.releaseAll();
+      }
+    }
+    if (spilledRuns != null) {
+      for (OResultSpillFile run : spilledRuns) {
+        run.close();
+      }
+      spilledRuns = null;
+    }
+    super.close();
+  }
+
   @Override
   public String prettyPrint(int depth, int indent) {
     String result = OExecutionStepInternal.getIndent(depth, indent) + "+ " + orderBy;
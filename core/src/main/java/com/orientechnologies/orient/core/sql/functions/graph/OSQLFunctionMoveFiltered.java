@@ -4,11 +4,28 @@ import com.orientechnologies.common.collection.OMultiValue;
 import com.orientechnologies.common.io.OIOUtils;
 import com.orientechnologies.common.util.OCallable;
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
+import com.orientechnologies.orient.core.db.record.ridbag.ORidBagNeighborIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OSQLEngine;
+import com.orientechnologies.orient.core.sql.executor.OResult;
 import com.orientechnologies.orient.core.sql.functions.OSQLFunctionFiltered;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Created by luigidellaquila on 03/01/17.
  */
@@ -16,6 +33,9 @@ public abstract class OSQLFunctionMoveFiltered extends OSQLFunctionMove implemen
 
   protected static int supernodeThreshold = 1000; // move to some configuration
 
+  // THE NEIGHBOR INDEXES BUILT BY THE QUERY, NOT KEPT AFTER IT
+  private static final String NEIGHBOR_INDEXES_VARIABLE = "$$OrientDB_Neighbor_Indexes__";
+
   public OSQLFunctionMoveFiltered() {
     super(NAME, 1, 2);
   }
@@ -42,7 +62,7 @@ public abstract class OSQLFunctionMoveFiltered extends OSQLFunctionMove implemen
     return OSQLEngine.foreachRecord(new OCallable<Object, OIdentifiable>() {
       @Override
       public Object call(final OIdentifiable iArgument) {
-        return move(iContext.getDatabase(), iArgument, labels, iPossibleResults);
+        return move(iContext.getDatabase(), iArgument, labels, iPossibleResults, iContext);
       }
     }, iThis, iContext);
 
@@ -51,4 +71,108 @@ public abstract class OSQLFunctionMoveFiltered extends OSQLFunctionMove implemen
   protected abstract Object move(ODatabase graph, OIdentifiable iArgument, String[] labels,
       Iterable<OIdentifiable> iPossibleResults);
 
+  protected Object move(final ODatabase graph, final OIdentifiable iArgument, final String[] labels,
+      final Iterable<OIdentifiable> iPossibleResults, final OCommandContext iContext) {
+    return move(graph, iArgument, labels, iPossibleResults);
+  }
+
+  /**
+   * Returns the vertices among the possible results that are connected to the record, looking them up in the neighbor indexes of
+   * the RidBags of the record (see {@link ORidBagNeighborIndex}) instead of loading all the edges. The indexes are kept in the
+   * context of the query, so they are built once per query.
+   *
+   * @return the connected vertices, once per edge, or null if the record has connections that are not indexed
+   */
+  protected Object fetchFromNeighborIndex(final ODatabase graph, final OIdentifiable iRecord, final ODirection iDirection,
+      final String[] iLabels, final Iterable<OIdentifiable> iPossibleResults, final OCommandContext iContext) {
+    final int threshold = OGlobalConfiguration.RID_BAG_NEIGHBOR_INDEX_THRESHOLD.getValueAsInteger();
+    final ODatabase db = graph != null ? graph : ODatabaseRecordThreadLocal.instance().getIfDefined();
+    if (threshold < 0 || iDirection == ODirection.BOTH || iContext == null || db == null || db.getTransaction().isActive())
+      // THE INDEX DOES NOT TRACK THE CHANGES OF THE TRANSACTION
+      return null;
+
+    final ORecord record = iRecord.getRecord();
+    if (!(record instanceof ODocument) || !((ODocument) record).isVertex())
+      return null;
+    final ODocument vertex = (ODocument) record;
+
+    final String prefix = iDirection == ODirection.OUT ? "out_" : "in_";
+    final Set<String> fieldNames = getConnectionFieldNames(db, prefix, iLabels);
+    final List<ORidBagNeighborIndex> indexes = new ArrayList<>();
+    for (String fieldName : vertex.getPropertyNames()) {
+      if (fieldNames == null ? !fieldName.startsWith(prefix) : !fieldNames.contains(fieldName))
+        continue;
+
+      final Object value = vertex.rawField(fieldName);
+      if (!(value instanceof ORidBag) || ((ORidBag) value).size() < threshold)
+        return null;
+      final ORidBagNeighborIndex index = getNeighborIndex(iContext, (ORidBag) value, iDirection == ODirection.OUT ? "in" : "out");
+      if (index == null)
+        return null;
+      indexes.add(index);
+    }
+
+    final List<OIdentifiable> result = new ArrayList<>();
+    final Set<Object> visited = new HashSet<>();
+    for (Object possibleResult : iPossibleResults) {
+      if (possibleResult instanceof OResult)
+        possibleResult = ((OResult) possibleResult).getElement().orElse(null);
+      if (!(possibleResult instanceof OIdentifiable) || !visited.add(((OIdentifiable) possibleResult).getIdentity()))
+        continue;
+
+      for (ORidBagNeighborIndex index : indexes) {
+        for (int i = index.count(((OIdentifiable) possibleResult).getIdentity()); i > 0; i--)
+          result.add((OIdentifiable) possibleResult);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the index of the bag built by the query, built again if the bag has been changed, or null if the content of the bag
+   * cannot be indexed
+   */
+  private static ORidBagNeighborIndex getNeighborIndex(final OCommandContext iContext, final ORidBag bag,
+      final String neighborField) {
+    OCommandContext queryContext = iContext;
+    while (queryContext.getParent() != null)
+      queryContext = queryContext.getParent();
+
+    @SuppressWarnings("unchecked")
+    Map<ORidBag, ORidBagNeighborIndex> indexes = (Map<ORidBag, ORidBagNeighborIndex>) queryContext
+        .getVariable(NEIGHBOR_INDEXES_VARIABLE);
+    if (indexes == null) {
+      indexes = new IdentityHashMap<>();
+      queryContext.setVariable(NEIGHBOR_INDEXES_VARIABLE, indexes);
+    }
+
+    ORidBagNeighborIndex index = indexes.get(bag);
+    if (index == null || !index.isValid(bag, neighborField)) {
+      index = ORidBagNeighborIndex.build(bag, neighborField);
+      indexes.put(bag, index);
+    }
+    return index.isUsable() ? index : null;
+  }
+
+  /**
+   * @return the names of the fields of the connections with the given labels and their sub classes, null for all the connections
+   */
+  private static Set<String> getConnectionFieldNames(final ODatabase graph, final String prefix, final String[] iLabels) {
+    if (iLabels == null || iLabels.length == 0 || (iLabels.length == 1 && iLabels[0].equalsIgnoreCase("E")))
+      return null;
+
+    final OSchema schema = graph.getMetadata().getSchema();
+    final Set<String> result = new HashSet<>();
+    for (String label : iLabels) {
+      result.add(prefix + label);
+      final OClass clazz = schema.getClass(label);
+      if (clazz != null) {
+        result.add(prefix + clazz.getName());
+        for (OClass subClass : clazz.getAllSubclasses())
+          result.add(prefix + subClass.getName());
+      }
+    }
+    return result;
+  }
+
 }
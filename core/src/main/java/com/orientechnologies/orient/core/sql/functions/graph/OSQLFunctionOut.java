@@ -2,6 +2,7 @@ package com.orientechnologies.orient.core.sql.functions.graph;
 
 import com.orientechnologies.common.collection.OMultiCollectionIterator;
 import com.orientechnologies.common.util.OSizeable;
+import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.db.ODatabase;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.index.OCompositeKey;
@@ -33,6 +34,12 @@ public class OSQLFunctionOut extends OSQLFunctionMoveFiltered {
 
   protected Object move(final ODatabase graph, final OIdentifiable iRecord, final String[] iLabels,
       Iterable<OIdentifiable> iPossibleResults) {
+    return move(graph, iRecord, iLabels, iPossibleResults, null);
+  }
+
+  @Override
+  protected Object move(final ODatabase graph, final OIdentifiable iRecord, final String[] iLabels,
+      Iterable<OIdentifiable> iPossibleResults, final OCommandContext iContext) {
     if (iPossibleResults == null) {
       return v2v(graph, iRecord, ODirection.OUT, iLabels);
     }
@@ -53,6 +60,11 @@ public class OSQLFunctionOut extends OSQLFunctionMoveFiltered {
 
     }
 
+    Object result = fetchFromNeighborIndex(graph, iRecord, ODirection.OUT, iLabels, iPossibleResults, iContext);
+    if (result != null) {
+      return result;
+    }
+
     return v2v(graph, iRecord, ODirection.OUT, iLabels);
   }
 
@@ -0,0 +1,247 @@
+package com.orientechnologies.orient.core.sql.parser;
+
+import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the literals in the WHERE condition of a SELECT statement with named parameters, so statements that differ only by
+ * the literal values share the same parsed statement and execution plan, eg. <code>select from Person where name = 'John'</code>
+ * becomes <code>select from Person where name = :__p0</code> with parameter <code>__p0 = "John"</code>.
+ * <p>
+ * Only the literals that are certainly used as values are replaced: literals inside function calls, method calls, modifiers and
+ * map literals, RIDs, signed numbers and literals after INSTANCEOF are left as they are. Statements with positional parameters,
+ * subqueries or LET blocks are not parameterized at all.
+ */
+public class OAutoParameterizer {
+  public static final String PARAMETER_PREFIX = "__p";
+
+  private final String              statement;
+  private final Map<String, Object> parameters;
+
+  private OAutoParameterizer(final String statement, final Map<String, Object> parameters) {
+    this.statement = statement;
+    this.parameters = parameters;
+  }
+
+  /**
+   * @param statement an SQL statement
+   *
+   * @return the parameterized statement or null if the statement has no literals that can be replaced
+   */
+  public static OAutoParameterizer parameterize(final String statement) {
+    if (statement == null || statement.indexOf('\\') >= 0)
+      // UNICODE ESCAPES WOULD SHIFT THE TOKEN POSITIONS
+      return null;
+
+    final List<Token> tokens = new ArrayList<Token>();
+    try {
+      final JavaCharStream stream = new JavaCharStream(new StringReader(statement));
+      stream.setTabSize(1);
+      final OrientSqlTokenManager tokenManager = new OrientSqlTokenManager(stream);
+      for (Token token = tokenManager.getNextToken(); token.kind != OrientSqlConstants.EOF; token = tokenManager.getNextToken())
+        tokens.add(token);
+    } catch (TokenMgrError e) {
+      // LET THE PARSER REPORT THE ERROR
+      return null;
+    }
+
+    if (tokens.isEmpty() || tokens.get(0).kind != OrientSqlConstants.SELECT)
+      return null;
+
+    final List<Token> literals = new ArrayList<Token>();
+    // ONE ENTRY PER OPEN PARENTHESIS/BRACKET/BRACE: TRUE IF THE LITERALS INSIDE IT CAN BE REPLACED
+    final Deque<Boolean> groups = new ArrayDeque<Boolean>();
+    boolean inWhere = false;
+
+    for (int i = 1; i < tokens.size(); i++) {
+      final Token token = tokens.get(i);
+      final Token previous = tokens.get(i - 1);
+
+      switch (token.kind) {
+      case OrientSqlConstants.SELECT:
+      case OrientSqlConstants.TRAVERSE:
+      case OrientSqlConstants.MATCH:
+      case OrientSqlConstants.LET:
+      case OrientSqlConstants.HOOK:
+      case OrientSqlConstants.SEMICOLON:
+        return null;
+
+      case OrientSqlConstants.WHERE:
+        if (groups.isEmpty())
+          inWhere = true;
+        break;
+
+      case OrientSqlConstants.GROUP:
+      case OrientSqlConstants.ORDER:
+      case OrientSqlConstants.UNWIND:
+      case OrientSqlConstants.SKIP2:
+      case OrientSqlConstants.OFFSET:
+      case OrientSqlConstants.LIMIT:
+      case OrientSqlConstants.LOCK:
+      case OrientSqlConstants.TIMEOUT:
+      case OrientSqlConstants.FETCHPLAN:
+      case OrientSqlConstants.PARALLEL:
+      case OrientSqlConstants.NOCACHE:
+        if (groups.isEmpty())
+          inWhere = false;
+        break;
+
+      case OrientSqlConstants.LPAREN:
+      case OrientSqlConstants.LBRACKET:
+        groups.push(isGroupingAfter(previous) && (groups.isEmpty() || groups.peek()));
+        break;
+
+      case OrientSqlConstants.LBRACE:
+        groups.push(Boolean.FALSE);
+        break;
+
+      case OrientSqlConstants.RPAREN:
+      case OrientSqlConstants.RBRACKET:
+      case OrientSqlConstants.RBRACE:
+        if (groups.isEmpty())
+          return null;
+        groups.pop();
+        break;
+
+      case OrientSqlConstants.INTEGER_LITERAL:
+      case OrientSqlConstants.FLOATING_POINT_LITERAL:
+      case OrientSqlConstants.STRING_LITERAL:
+      case OrientSqlConstants.CHARACTER_LITERAL:
+        if (inWhere && (groups.isEmpty() || groups.peek()) && isValueAfter(previous) && (i + 1 >= tokens.size()
+            || tokens.get(i + 1).kind != OrientSqlConstants.COLON))
+          literals.add(token);
+        break;
+      }
+    }
+
+    if (literals.isEmpty() || !groups.isEmpty())
+      return null;
+
+    // REPLACE THE LITERALS IN THE ORIGINAL TEXT, SO EVERYTHING BETWEEN THEM IS KEPT AS IS
+    final int[] lineOffsets = lineOffsets(statement);
+    final StringBuilder builder = new StringBuilder(statement.length());
+    final Map<String, Object> parameters = new HashMap<String, Object>();
+    int position = 0;
+    for (Token token : literals) {
+      final int begin = lineOffsets[token.beginLine - 1] + token.beginColumn - 1;
+      final int end = lineOffsets[token.endLine - 1] + token.endColumn;
+      if (begin < position || end > statement.length() || !statement.substring(begin, end).equals(token.image))
+        return null;
+
+      final String name = PARAMETER_PREFIX + parameters.size();
+      builder.append(statement, position, begin).append(':').append(name);
+      parameters.put(name, getLiteralValue(token));
+      position = end;
+    }
+    builder.append(statement, position, statement.length());
+
+    return new OAutoParameterizer(builder.toString(), parameters);
+  }
+
+  public String getStatement() {
+    return statement;
+  }
+
+  public Map<String, Object> getParameters() {
+    return parameters;
+  }
+
+  /**
+   * Returns the input parameters to execute the parameterized statement with.
+   */
+  public Map<Object, Object> mergeParameters(final Object[] args) {
+    final Map<Object, Object> result = new HashMap<Object, Object>(parameters);
+    if (args != null)
+      for (int i = 0; i < args.length; i++)
+        result.put(i, args[i]);
+    return result;
+  }
+
+  /**
+   * Returns the input parameters to execute the parameterized statement with.
+   */
+  public Map<Object, Object> mergeParameters(final Map<?, ?> args) {
+    final Map<Object, Object> result = new HashMap<Object, Object>(parameters);
+    if (args != null)
+      result.putAll(args);
+    return result;
+  }
+
+  private static boolean isGroupingAfter(final Token previous) {
+    // A PARENTHESIS AFTER AN IDENTIFIER, A KEYWORD OR THE END OF AN EXPRESSION IS A CALL OR A MODIFIER
+    switch (previous.kind) {
+    case OrientSqlConstants.WHERE:
+    case OrientSqlConstants.AND:
+    case OrientSqlConstants.OR:
+    case OrientSqlConstants.NOT:
+    case OrientSqlConstants.IN:
+      return true;
+    case OrientSqlConstants.RPAREN:
+    case OrientSqlConstants.RBRACKET:
+      return false;
+    default:
+      return isOperator(previous);
+    }
+  }
+
+  private static boolean isValueAfter(final Token previous) {
+    switch (previous.kind) {
+    case OrientSqlConstants.MINUS:
+    case OrientSqlConstants.PLUS:
+    case OrientSqlConstants.COLON:
+    case OrientSqlConstants.INSTANCEOF:
+      return false;
+    default:
+      return !"#".equals(previous.image);
+    }
+  }
+
+  private static boolean isOperator(final Token token) {
+    final String image = token.image;
+    if (image == null || image.isEmpty())
+      return false;
+    for (int i = 0; i < image.length(); i++)
+      if (Character.isLetterOrDigit(image.charAt(i)) || image.charAt(i) == '_' || image.charAt(i) == '`'
+          || image.charAt(i) == '$' || image.charAt(i) == '@' || image.charAt(i) == '"' || image.charAt(i) == '\'')
+        return false;
+    return !"#".equals(image);
+  }
+
+  private static Object getLiteralValue(final Token token) {
+    switch (token.kind) {
+    case OrientSqlConstants.INTEGER_LITERAL:
+      final OInteger integer = new OInteger(-1);
+      integer.setValue(1, token.image);
+      return integer.getValue();
+    case OrientSqlConstants.FLOATING_POINT_LITERAL:
+      final OFloatingPoint floatingPoint = new OFloatingPoint(-1);
+      floatingPoint.setStringValue(token.image);
+      return floatingPoint.getValue();
+    default:
+      return OStringSerializerHelper.decode(token.image.substring(1, token.image.length() - 1));
+    }
+  }
+
+  private static int[] lineOffsets(final String text) {
+    final List<Integer> offsets = new ArrayList<Integer>();
+    offsets.add(0);
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n')
+        i++;
+      if (c == '\r' || c == '\n')
+        offsets.add(i + 1);
+    }
+    final int[] result = new int[offsets.size()];
+    for (int i = 0; i < result.length; i++)
+      result[i] = offsets.get(i);
+    return result;
+  }
+}
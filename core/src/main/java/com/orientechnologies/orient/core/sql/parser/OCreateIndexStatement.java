@@ -123,6 +123,10 @@ public class OCreateIndexStatement extends ODDLStatement {
 
       idx = oClass.createIndex(name.getValue(), type.getStringValue(), null, metadataDoc, engine, fields);
     } else {
+      if (metadataDoc != null && metadataDoc.containsField(OIndexInternal.METADATA_INCLUDE))
+        throw new OIndexException(
+            "Index with name '" + name.getValue() + "' cannot include properties when key types or collates are specified");
+
       final List<OType> fieldTypeList;
       if (keyTypes == null || keyTypes.size() == 0 && fields.length > 0) {
         for (final String fieldName : fields) {
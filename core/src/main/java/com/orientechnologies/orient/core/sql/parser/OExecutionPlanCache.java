@@ -1,43 +1,83 @@
 package com.orientechnologies.orient.core.sql.parser;
 
+import com.orientechnologies.common.profiler.AtomicLongOProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.config.OStorageConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.OMetadataUpdateListener;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
-import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexManagerAbstract;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.metadata.schema.OSchemaShared;
 import com.orientechnologies.orient.core.sql.executor.OExecutionPlan;
 import com.orientechnologies.orient.core.sql.executor.OInternalExecutionPlan;
 
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class is an LRU cache for already prepared SQL execution plans. It stores itself in the storage as a resource. It also acts
  * an an entry point for the SQL executor.
+ * <p>
+ * The cache is lock-free on reads. Every plan keeps the signature of the schema classes (and their indexes) it depends on, so a
+ * schema or index change invalidates only the plans of the classes that changed.
  *
  * @author Luigi Dell'Aquila (l.dellaquila-(at)-orientdb.com)
  */
 public class OExecutionPlanCache implements OMetadataUpdateListener {
 
-  Map<String, OInternalExecutionPlan> map;
-  int                                 mapSize;
+  Map<String, OCachedPlan> map;
+  int                      mapSize;
 
-  protected long lastInvalidation = -1;
+  protected volatile long lastInvalidation = -1;
+  // INCREMENTED ON EVERY METADATA CHANGE, THE CACHED PLANS ARE VALID FOR THE CHECKED VERSION
+  private final    AtomicLong metadataVersion = new AtomicLong();
+  private volatile long       checkedVersion;
+
+  private final AtomicLong accessCounter = new AtomicLong();
+  private final AtomicLong hits          = new AtomicLong();
+  private final AtomicLong misses        = new AtomicLong();
+  private final AtomicLong evictions     = new AtomicLong();
+  private final AtomicLong invalidations = new AtomicLong();
+  private final Object     evictionLock  = new Object();
+  private final Object     checkLock     = new Object();
+  private       String     profilerPrefix;
+
+  private static class OCachedPlan {
+    private final OInternalExecutionPlan plan;
+    // CLASS NAME (LOWER CASE) -> SIGNATURE, NULL IF THE PLAN DEPENDS ON THE WHOLE METADATA
+    private final Map<String, Integer>   dependencies;
+    private volatile long                lastAccess;
+
+    private OCachedPlan(final OInternalExecutionPlan plan, final Map<String, Integer> dependencies, final long lastAccess) {
+      this.plan = plan;
+      this.dependencies = dependencies;
+      this.lastAccess = lastAccess;
+    }
+  }
 
   /**
    * @param size the size of the cache
    */
   public OExecutionPlanCache(int size) {
     this.mapSize = size;
-    map = new LinkedHashMap<String, OInternalExecutionPlan>(size) {
-      protected boolean removeEldestEntry(final Map.Entry<String, OInternalExecutionPlan> eldest) {
-        return super.size() > mapSize;
-      }
-    };
+    map = new ConcurrentHashMap<String, OCachedPlan>(size);
   }
 
   public static long getLastInvalidation(ODatabaseDocumentInternal db) {
@@ -46,9 +86,7 @@ public class OExecutionPlanCache implements OMetadataUpdateListener {
     }
 
     OExecutionPlanCache resource = db.getSharedContext().getExecutionPlanCache();
-    synchronized (resource) {
-      return resource.lastInvalidation;
-    }
+    return resource.lastInvalidation;
   }
 
   /**
@@ -57,9 +95,8 @@ public class OExecutionPlanCache implements OMetadataUpdateListener {
    * @return true if the corresponding executor is present in the cache
    */
   public boolean contains(String statement) {
-    synchronized (map) {
-      return map.containsKey(statement);
-    }
+    checkMetadata(ODatabaseRecordThreadLocal.instance().getIfDefined());
+    return map.containsKey(statement);
   }
 
   /**
@@ -85,6 +122,13 @@ public class OExecutionPlanCache implements OMetadataUpdateListener {
   }
 
   public static void put(String statement, OExecutionPlan plan, ODatabaseDocumentInternal db) {
+    put(statement, plan, null, db);
+  }
+
+  /**
+   * @param classes the classes the plan depends on, null if the plan depends on the whole metadata
+   */
+  public static void put(String statement, OExecutionPlan plan, Collection<String> classes, ODatabaseDocumentInternal db) {
     if (db == null) {
       throw new IllegalArgumentException("DB cannot be null");
     }
@@ -93,21 +137,36 @@ public class OExecutionPlanCache implements OMetadataUpdateListener {
     }
 
     OExecutionPlanCache resource = db.getSharedContext().getExecutionPlanCache();
-    resource.putInternal(statement, plan, db);
+    resource.putInternal(statement, plan, classes, db);
   }
 
   public void putInternal(String statement, OExecutionPlan plan, ODatabaseDocument db) {
+    putInternal(statement, plan, null, db);
+  }
+
+  public void putInternal(String statement, OExecutionPlan plan, Collection<String> classes, ODatabaseDocument db) {
     if (statement == null) {
       return;
     }
-    synchronized (map) {
-      OInternalExecutionPlan internal = (OInternalExecutionPlan) plan;
-      OBasicCommandContext ctx = new OBasicCommandContext();
-      ctx.setDatabase(db);
-      internal = internal.copy(ctx);
-      //this copy is never used, so it has to be closed to free resources
-      internal.close();
-      map.put(statement, internal);
+    OInternalExecutionPlan internal = (OInternalExecutionPlan) plan;
+    OBasicCommandContext ctx = new OBasicCommandContext();
+    ctx.setDatabase(db);
+    internal = internal.copy(ctx);
+    //this copy is never used, so it has to be closed to free resources
+    internal.close();
+
+    Map<String, Integer> dependencies = null;
+    if (classes != null && db instanceof ODatabaseDocumentInternal) {
+      dependencies = new HashMap<String, Integer>();
+      for (String className : classes) {
+        final String key = className.toLowerCase(Locale.ENGLISH);
+        dependencies.put(key, signature((ODatabaseDocumentInternal) db, key));
+      }
+    }
+
+    map.put(statement, new OCachedPlan(internal, dependencies, accessCounter.incrementAndGet()));
+    if (map.size() > mapSize) {
+      evict();
     }
   }
 
@@ -118,39 +177,207 @@ public class OExecutionPlanCache implements OMetadataUpdateListener {
    * @return the corresponding executor, taking it from the internal cache, if it exists
    */
   public OExecutionPlan getInternal(String statement, OCommandContext ctx, ODatabaseDocumentInternal db) {
-    OInternalExecutionPlan result;
     if (statement == null) {
       return null;
     }
-    synchronized (map) {
-      //LRU
-      result = map.remove(statement);
-      if (result != null) {
-        map.put(statement, result);
-        result = result.copy(ctx);
+    checkMetadata(db);
+    final OCachedPlan cached = map.get(statement);
+    if (cached == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    cached.lastAccess = accessCounter.incrementAndGet();
+    return cached.plan.copy(ctx);
+  }
+
+  public void invalidate() {
+    lastInvalidation = System.currentTimeMillis();
+    invalidations.addAndGet(map.size());
+    map.clear();
+    lastInvalidation = System.currentTimeMillis();
+  }
+
+  /**
+   * Marks the cached plans to be checked against the current metadata on the next access.
+   */
+  protected void metadataChanged() {
+    lastInvalidation = System.currentTimeMillis();
+    metadataVersion.incrementAndGet();
+  }
+
+  private void checkMetadata(final ODatabaseDocumentInternal db) {
+    if (checkedVersion != metadataVersion.get() && db != null && db.getSharedContext() != null
+        && db.getSharedContext().getExecutionPlanCache() == this) {
+      // THE CHECK IS DONE HERE AND NOT IN THE LISTENERS, THAT CAN BE CALLED WHILE STORAGE LOCKS ARE HELD. THE CONCURRENT READERS
+      // WAIT FOR IT, SO THEY CANNOT GET A PLAN THAT IS BEING INVALIDATED
+      synchronized (checkLock) {
+        final long version = metadataVersion.get();
+        if (checkedVersion != version) {
+          invalidateChanged(db);
+          checkedVersion = version;
+        }
       }
     }
+  }
 
-    return result;
+  /**
+   * Removes the plans that depend on the whole metadata or on classes whose schema or indexes changed.
+   */
+  protected void invalidateChanged(final ODatabaseDocumentInternal db) {
+    final Map<String, Integer> signatures = new HashMap<String, Integer>();
+    for (Map.Entry<String, OCachedPlan> entry : map.entrySet()) {
+      final Map<String, Integer> dependencies = entry.getValue().dependencies;
+      boolean changed = dependencies == null;
+      if (!changed) {
+        for (Map.Entry<String, Integer> dependency : dependencies.entrySet()) {
+          Integer signature = signatures.get(dependency.getKey());
+          if (signature == null) {
+            signature = signature(db, dependency.getKey());
+            signatures.put(dependency.getKey(), signature);
+          }
+          if (!signature.equals(dependency.getValue())) {
+            changed = true;
+            break;
+          }
+        }
+      }
+      if (changed && map.remove(entry.getKey(), entry.getValue())) {
+        invalidations.incrementAndGet();
+      }
+    }
   }
 
-  public void invalidate() {
-    synchronized (this) {
-      synchronized (map) {
-        map.clear();
+  public int size() {
+    return map.size();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  public long getInvalidations() {
+    return invalidations.get();
+  }
+
+  public void registerProfilerHooks(final String database) {
+    profilerPrefix = "db." + database + ".executionPlanCache.";
+    final OProfiler profiler = Orient.instance().getProfiler();
+    profiler.registerHookValue(profilerPrefix + "hits", "Number of execution plans found in cache", OProfiler.METRIC_TYPE.COUNTER,
+        new AtomicLongOProfilerHookValue(hits), "db.*.executionPlanCache.hits");
+    profiler.registerHookValue(profilerPrefix + "misses", "Number of execution plans not found in cache",
+        OProfiler.METRIC_TYPE.COUNTER, new AtomicLongOProfilerHookValue(misses), "db.*.executionPlanCache.misses");
+    profiler.registerHookValue(profilerPrefix + "evictions", "Number of execution plans removed from cache because it was full",
+        OProfiler.METRIC_TYPE.COUNTER, new AtomicLongOProfilerHookValue(evictions), "db.*.executionPlanCache.evictions");
+    profiler.registerHookValue(profilerPrefix + "invalidations",
+        "Number of execution plans removed from cache because of a metadata change", OProfiler.METRIC_TYPE.COUNTER,
+        new AtomicLongOProfilerHookValue(invalidations), "db.*.executionPlanCache.invalidations");
+    profiler.registerHookValue(profilerPrefix + "current", "Number of execution plans in cache", OProfiler.METRIC_TYPE.SIZE,
+        () -> map.size(), "db.*.executionPlanCache.current");
+  }
+
+  public void unregisterProfilerHooks() {
+    if (profilerPrefix == null) {
+      return;
+    }
+    final OProfiler profiler = Orient.instance().getProfiler();
+    profiler.unregisterHookValue(profilerPrefix + "hits");
+    profiler.unregisterHookValue(profilerPrefix + "misses");
+    profiler.unregisterHookValue(profilerPrefix + "evictions");
+    profiler.unregisterHookValue(profilerPrefix + "invalidations");
+    profiler.unregisterHookValue(profilerPrefix + "current");
+    profilerPrefix = null;
+  }
+
+  private void evict() {
+    synchronized (evictionLock) {
+      final int toRemove = map.size() - mapSize;
+      if (toRemove <= 0) {
+        return;
+      }
+      // REMOVE THE LEAST RECENTLY USED PLANS, PLUS A 10% MARGIN TO NOT SCAN THE CACHE ON EVERY INSERT
+      final List<Map.Entry<String, OCachedPlan>> entries = new ArrayList<Map.Entry<String, OCachedPlan>>(map.entrySet());
+      entries.sort((a, b) -> Long.compare(a.getValue().lastAccess, b.getValue().lastAccess));
+      final int margin = Math.min(mapSize / 10, entries.size() - toRemove);
+      for (int i = 0; i < toRemove + margin; i++) {
+        if (map.remove(entries.get(i).getKey(), entries.get(i).getValue())) {
+          evictions.incrementAndGet();
+        }
       }
-      lastInvalidation = System.currentTimeMillis();
     }
   }
 
+  /**
+   * Returns a hash of the definition of a class, its super and sub classes and their indexes, 0 if the class does not exist.
+   */
+  private static int signature(final ODatabaseDocumentInternal db, final String className) {
+    final OSchemaShared schema = db.getSharedContext().getSchema();
+    final OIndexManagerAbstract indexManager = db.getSharedContext().getIndexManager();
+    final OClass clazz = schema.getClass(className);
+    if (clazz == null) {
+      return 0;
+    }
+
+    final Set<OClass> hierarchy = new HashSet<OClass>();
+    hierarchy.add(clazz);
+    hierarchy.addAll(clazz.getAllSuperClasses());
+    hierarchy.addAll(clazz.getAllSubclasses());
+
+    int result = 0;
+    for (OClass cls : hierarchy) {
+      int classHash = cls.getName().hashCode();
+      classHash = 31 * classHash + Arrays.hashCode(cls.getClusterIds());
+      classHash = 31 * classHash + (cls.isAbstract() ? 1 : 0);
+      classHash = 31 * classHash + (cls.isStrictMode() ? 1 : 0);
+      for (OClass superClass : cls.getSuperClasses()) {
+        classHash = 31 * classHash + superClass.getName().hashCode();
+      }
+      int propertiesHash = 0;
+      for (OProperty property : cls.declaredProperties()) {
+        int propertyHash = property.getName().hashCode();
+        propertyHash = 31 * propertyHash + property.getType().hashCode();
+        propertyHash = 31 * propertyHash + (property.getLinkedType() == null ? 0 : property.getLinkedType().hashCode());
+        propertyHash =
+            31 * propertyHash + (property.getLinkedClass() == null ? 0 : property.getLinkedClass().getName().hashCode());
+        propertyHash = 31 * propertyHash + (property.getCollate() == null ? 0 : property.getCollate().getName().hashCode());
+        propertiesHash += propertyHash;
+      }
+      result += 31 * classHash + propertiesHash;
+    }
+
+    final Set<OIndex<?>> indexes = new HashSet<OIndex<?>>();
+    for (OClass cls : hierarchy) {
+      indexManager.getClassIndexes(db, cls.getName(), indexes);
+    }
+    final Set<String> indexNames = new HashSet<String>();
+    for (OIndex<?> index : indexes) {
+      final OIndexDefinition definition = index.getDefinition();
+      if (indexNames.add(index.getName())) {
+        int indexHash = index.getName().hashCode();
+        indexHash = 31 * indexHash + index.getType().hashCode();
+        indexHash = 31 * indexHash + (definition == null ? 0 : definition.getFields().hashCode());
+        result += indexHash;
+      }
+    }
+    return 31 * result + 1;
+  }
+
   @Override
   public void onSchemaUpdate(String database, OSchemaShared schema) {
-    invalidate();
+    metadataChanged();
   }
 
   @Override
   public void onIndexManagerUpdate(String database, OIndexManagerAbstract indexManager) {
-    invalidate();
+    metadataChanged();
   }
 
   @Override
@@ -160,15 +387,16 @@ public class OExecutionPlanCache implements OMetadataUpdateListener {
 
   @Override
   public void onSequenceLibraryUpdate(String database) {
-    invalidate();
+    metadataChanged();
   }
 
   @Override
   public void onStorageConfigurationUpdate(String database, OStorageConfiguration update) {
-    invalidate();
+    // CLUSTER CHANGES ARE PART OF THE SIGNATURE OF THE CLASSES
+    metadataChanged();
   }
 
-  public static OExecutionPlanCache instance(ODatabaseDocumentTx db) {
+  public static OExecutionPlanCache instance(ODatabaseDocumentInternal db) {
     if (db == null) {
       throw new IllegalArgumentException("DB cannot be null");
     }
@@ -1,11 +1,14 @@
 package com.orientechnologies.orient.core.sql.parser;
 
+import com.orientechnologies.common.profiler.OLatencyMetrics;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.metadata.security.OSecurityUser;
 import com.orientechnologies.orient.core.sql.executor.OExecutionPlan;
+import com.orientechnologies.orient.core.sql.executor.OInternalResultSet;
 import com.orientechnologies.orient.core.sql.executor.OInternalExecutionPlan;
+import com.orientechnologies.orient.core.sql.executor.OQueryResourceUsage;
 import com.orientechnologies.orient.core.sql.executor.OResult;
 import com.orientechnologies.orient.core.sql.executor.OResultSet;
 
@@ -24,21 +27,35 @@ public class OLocalResultSet implements OResultSet {
 
   long totalExecutionTime = 0;
   long startTime = 0;
+  private long executionNanos = 0;
+  private boolean executionRecorded = false;
+  private final OQueryResourceUsage resourceUsage;
 
 
 
   public OLocalResultSet(OInternalExecutionPlan executionPlan) {
     this.executionPlan = executionPlan;
+    this.resourceUsage = OQueryResourceUsage.current();
     fetchNext();
   }
 
+  /**
+   * The steps return lazy result sets: the rows of a batch are pulled here, so the execution is measured and attributed to the
+   * resource usage of the query once per batch instead of on every row.
+   */
   private boolean fetchNext() {
-    long begin = System.currentTimeMillis();
+    final long begin = startExecution();
+    long beginMillis = System.currentTimeMillis();
     try {
       if(lastFetch == null) {
-        startTime = begin;
+        startTime = beginMillis;
       }
-      lastFetch = executionPlan.fetchNext(100);
+      final OResultSet batch = executionPlan.fetchNext(100);
+      final OInternalResultSet rows = new OInternalResultSet();
+      while (batch.hasNext()) {
+        rows.add(batch.next());
+      }
+      lastFetch = rows;
       if (!lastFetch.hasNext()) {
         finished = true;
         logProfiling();
@@ -46,7 +63,27 @@ public class OLocalResultSet implements OResultSet {
       }
       return true;
     } finally {
-      totalExecutionTime += (System.currentTimeMillis() - begin);
+      totalExecutionTime += (System.currentTimeMillis() - beginMillis);
+      endExecution(begin);
+    }
+  }
+
+  private long startExecution() {
+    if (resourceUsage != null) {
+      resourceUsage.enter();
+    }
+    return OLatencyMetrics.QUERY.start();
+  }
+
+  private void endExecution(long begin) {
+    if (begin != 0) {
+      executionNanos += System.nanoTime() - begin;
+      if (finished) {
+        recordExecution();
+      }
+    }
+    if (resourceUsage != null) {
+      resourceUsage.exit();
     }
   }
 
@@ -89,6 +126,13 @@ public class OLocalResultSet implements OResultSet {
     }
   }
 
+  private void recordExecution() {
+    if (!executionRecorded) {
+      executionRecorded = true;
+      OLatencyMetrics.QUERY.record(executionNanos);
+    }
+  }
+
   public long getTotalExecutionTime() {
     return totalExecutionTime;
   }
@@ -99,6 +143,8 @@ public class OLocalResultSet implements OResultSet {
 
   @Override
   public void close() {
+    if (executionNanos > 0)
+      recordExecution();
     executionPlan.close();
   }
 
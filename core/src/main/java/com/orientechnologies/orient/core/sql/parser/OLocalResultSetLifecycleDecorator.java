@@ -3,6 +3,7 @@ package com.orientechnologies.orient.core.sql.parser;
 import com.orientechnologies.orient.core.db.document.OQueryLifecycleListener;
 import com.orientechnologies.orient.core.sql.executor.OExecutionPlan;
 import com.orientechnologies.orient.core.sql.executor.OInternalResultSet;
+import com.orientechnologies.orient.core.sql.executor.OQueryResourceUsage;
 import com.orientechnologies.orient.core.sql.executor.OResult;
 import com.orientechnologies.orient.core.sql.executor.OResultSet;
 
@@ -22,6 +23,7 @@ public class OLocalResultSetLifecycleDecorator implements OResultSet {
   private OResultSet                    entity;
   private List<OQueryLifecycleListener> lifecycleListeners = new ArrayList<>();
   private String                        queryId;
+  private OQueryResourceUsage           resourceUsage;
 
   private boolean hasNextPage;
 
@@ -54,12 +56,18 @@ public class OLocalResultSetLifecycleDecorator implements OResultSet {
       throw new IllegalStateException();
     }
     OResult result = entity.next();
+    if (resourceUsage != null) {
+      resourceUsage.onRowProduced();
+    }
     return result;
   }
 
   @Override
   public void close() {
     entity.close();
+    if (resourceUsage != null) {
+      resourceUsage.close();
+    }
     this.lifecycleListeners.forEach(x -> x.queryClosed(this.getQueryId()));
     this.lifecycleListeners.clear();
   }
@@ -78,6 +86,17 @@ public class OLocalResultSetLifecycleDecorator implements OResultSet {
     return queryId;
   }
 
+  /**
+   * @return the resources used by the query, null if they are not tracked
+   */
+  public OQueryResourceUsage getResourceUsage() {
+    return resourceUsage;
+  }
+
+  public void setResourceUsage(OQueryResourceUsage resourceUsage) {
+    this.resourceUsage = resourceUsage;
+  }
+
   public boolean hasNextPage() {
     return hasNextPage;
   }
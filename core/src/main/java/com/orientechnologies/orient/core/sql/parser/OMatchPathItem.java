@@ -132,7 +132,8 @@ public class OMatchPathItem extends SimpleNode {
       OCommandContext iCommandContext) {
 
     Iterable possibleResults = null;
-    if (filter != null) {
+    if (filter != null && filter.getWhileCondition() == null && filter.getMaxDepth() == null) {
+      // THE POSSIBLE RESULTS APPLY ONLY TO THE LAST LEVEL, THE RECURSIVE TRAVERSALS HAVE TO REACH ALSO THE INTERMEDIATE NODES
       OIdentifiable matchedNode = matchContext.matched.get(filter.getAlias());
       if (matchedNode != null) {
         possibleResults = Collections.singleton(matchedNode);
@@ -77,6 +77,10 @@ public class OProjectionItem extends SimpleNode {
     return expression;
   }
 
+  public ONestedProjection getNestedProjection() {
+    return nestedProjection;
+  }
+
   public void setExpression(OExpression expression) {
     this.expression = expression;
   }
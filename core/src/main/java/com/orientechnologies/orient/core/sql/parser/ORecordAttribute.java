@@ -79,7 +79,8 @@ public class ORecordAttribute extends SimpleNode {
 
   public Object evaluate(OResult iCurrentRecord, OCommandContext ctx) {
     if (name.equalsIgnoreCase("@rid")) {
-      return iCurrentRecord.getIdentity().orElse(null);
+      // RESULTS BUILT WITHOUT LOADING THE RECORD, EG. FROM AN INDEX KEY, CARRY THE IDENTITY AS PROPERTY
+      return iCurrentRecord.getIdentity().orElseGet(() -> iCurrentRecord.getProperty("@rid"));
     } else if (name.equalsIgnoreCase("@class")) {
       return iCurrentRecord.getElement().flatMap(r -> r.getSchemaType()).map(clazz -> clazz.getName()).orElse(null);
     } else if (name.equalsIgnoreCase("@version")) {
@@ -167,5 +167,11 @@ public interface OCluster {
    */
   void acquireAtomicExclusiveLock();
 
+  /**
+   * Returns true if the exclusive lock of this cluster is held by an atomic operation. The result is only a hint, the lock can be
+   * acquired or released right after.
+   */
+  boolean isAtomicExclusiveLocked();
+
   OClusterBrowsePage nextPage(long lastPosition) throws IOException;
 }
@@ -0,0 +1,8 @@
+package com.orientechnologies.orient.core.storage;
+
+/**
+ * Listener of the changes of the records of the clusters, notified once the changes are visible to the readers.
+ */
+public interface OClusterChangeListener {
+  void onClusterChange(int clusterId);
+}
@@ -29,6 +29,7 @@ import com.orientechnologies.common.directmemory.OByteBufferPool;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.io.OIOUtils;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OLatencyMetrics;
 import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
@@ -2984,6 +2985,8 @@ public final class OWOWCache extends OAbstractWriteCache implements OWriteCache,
       return 0;
     }
 
+    final long startTime = OLatencyMetrics.WRITE_CACHE_FLUSH.start();
+
     long startTs = 0;
     if (printCacheStatistics) {
       startTs = System.nanoTime();
@@ -3087,6 +3090,8 @@ public final class OWOWCache extends OAbstractWriteCache implements OWriteCache,
       }
     }
 
+    OLatencyMetrics.WRITE_CACHE_FLUSH.stop(startTime);
+
     return flushedPages;
   }
 
@@ -25,12 +25,14 @@ import com.orientechnologies.common.concur.lock.OPartitionedLockManager;
 import com.orientechnologies.common.concur.lock.OReadersWriterSpinLock;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OLatencyMetrics;
 import com.orientechnologies.common.types.OModifiableBoolean;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.exception.OAllCacheEntriesAreUsedException;
 import com.orientechnologies.orient.core.exception.OLoadCacheStateException;
 import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.sql.executor.OQueryResourceUsage;
 import com.orientechnologies.orient.core.storage.cache.OAbstractWriteCache;
 import com.orientechnologies.orient.core.storage.cache.OCacheEntry;
 import com.orientechnologies.orient.core.storage.cache.OCacheEntryImpl;
@@ -238,7 +240,9 @@ public class O2QCache implements OReadCache {
   @Override
   public OCacheEntry loadForWrite(long fileId, long pageIndex, boolean checkPinnedPages, OWriteCache writeCache, int pageCount,
       boolean verifyChecksums, OLogSequenceNumber startLSN) throws IOException {
+    final long startTime = OLatencyMetrics.PAGE_LOAD.start();
     final OCacheEntry cacheEntry = doLoad(fileId, pageIndex, checkPinnedPages, writeCache, pageCount, verifyChecksums);
+    OLatencyMetrics.PAGE_LOAD.stop(startTime);
 
     if (cacheEntry != null) {
       cacheEntry.acquireExclusiveLock();
@@ -297,7 +301,10 @@ public class O2QCache implements OReadCache {
   @Override
   public OCacheEntry loadForRead(long fileId, long pageIndex, boolean checkPinnedPages, OWriteCache writeCache, int pageCount,
       boolean verifyChecksums) throws IOException {
-    return doLoad(fileId, pageIndex, checkPinnedPages, writeCache, pageCount, verifyChecksums);
+    final long startTime = OLatencyMetrics.PAGE_LOAD.start();
+    final OCacheEntry cacheEntry = doLoad(fileId, pageIndex, checkPinnedPages, writeCache, pageCount, verifyChecksums);
+    OLatencyMetrics.PAGE_LOAD.stop(startTime);
+    return cacheEntry;
   }
 
   @Override
@@ -436,6 +443,7 @@ public class O2QCache implements OReadCache {
     if (cacheHit.getValue()) {
       cacheHits.increment();
     }
+    OQueryResourceUsage.onPageLoad(cacheHit.getValue());
     return cacheResult.cacheEntry;
   }
 
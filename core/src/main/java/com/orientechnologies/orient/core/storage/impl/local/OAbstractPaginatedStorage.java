@@ -32,6 +32,7 @@ import com.orientechnologies.common.exception.OHighLevelException;
 import com.orientechnologies.common.io.OIOException;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.profiler.AtomicLongOProfilerHookValue;
+import com.orientechnologies.common.profiler.OLatencyMetrics;
 import com.orientechnologies.common.profiler.OProfiler;
 import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.common.serialization.types.OUTF8Serializer;
@@ -43,6 +44,7 @@ import com.orientechnologies.common.util.OPair;
 import com.orientechnologies.common.util.OUncaughtExceptionHandler;
 import com.orientechnologies.orient.core.OConstants;
 import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.cache.OSharedRecordCache;
 import com.orientechnologies.orient.core.command.OCommandExecutor;
 import com.orientechnologies.orient.core.command.OCommandManager;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
@@ -97,6 +99,7 @@ import com.orientechnologies.orient.core.index.ORuntimeKeyIndexDefinition;
 import com.orientechnologies.orient.core.metadata.OMetadataDefault;
 import com.orientechnologies.orient.core.metadata.schema.OImmutableClass;
 import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.metadata.schema.clusterselection.ORoundRobinClusterSelectionStrategy;
 import com.orientechnologies.orient.core.metadata.security.OSecurityUser;
 import com.orientechnologies.orient.core.metadata.security.OToken;
 import com.orientechnologies.orient.core.query.OQueryAbstract;
@@ -109,6 +112,7 @@ import com.orientechnologies.orient.core.serialization.serializer.binary.impl.in
 import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OSimpleKeySerializer;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
 import com.orientechnologies.orient.core.storage.OCluster;
+import com.orientechnologies.orient.core.storage.OClusterChangeListener;
 import com.orientechnologies.orient.core.storage.OIdentifiableStorage;
 import com.orientechnologies.orient.core.storage.OPhysicalPosition;
 import com.orientechnologies.orient.core.storage.ORawBuffer;
@@ -188,6 +192,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -338,6 +343,10 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
   private final AtomicLong txCommit       = new AtomicLong(0);
   private final AtomicLong txRollback     = new AtomicLong(0);
 
+  private final    OSharedRecordCache     sharedRecordCache = new OSharedRecordCache(
+      OGlobalConfiguration.CACHE_SHARED_SIZE.getValueAsInteger());
+  private volatile OClusterChangeListener clusterChangeListener;
+
   public OAbstractPaginatedStorage(String name, String filePath, String mode, int id) {
     super(name, filePath, mode);
 
@@ -876,6 +885,8 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
         if (iTruncate)
           cluster.truncate();
         cluster.delete();
+        sharedRecordCache.invalidateCluster(clusterId);
+        fireClusterChange(clusterId);
 
         makeStorageDirty();
         clusterMap.remove(cluster.getName().toLowerCase(configuration.getLocaleInstance()));
@@ -1594,7 +1605,7 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
         throw OException.wrapException(new ORecordNotFoundException(iRid), e);
       }
 
-      return new OStorageOperationResult<>(readRecord(cluster, iRid, prefetchRecords));
+      return new OStorageOperationResult<>(readRecord(cluster, iRid, iIgnoreCache, prefetchRecords));
     } catch (RuntimeException ee) {
       throw logAndPrepareForRethrow(ee);
     } catch (Error ee) {
@@ -1697,6 +1708,19 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
     return transaction.get();
   }
 
+  public OSharedRecordCache getSharedRecordCache() {
+    return sharedRecordCache;
+  }
+
+  /**
+   * Called by a cluster once its content has been truncated: the cached copies of its records and the cached results of the
+   * queries that read it are no longer valid.
+   */
+  public void onClusterTruncated(final int clusterId) {
+    sharedRecordCache.invalidateCluster(clusterId);
+    fireClusterChange(clusterId);
+  }
+
   public OAtomicOperationsManager getAtomicOperationsManager() {
     return atomicOperationsManager;
   }
@@ -1978,7 +2002,12 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
    */
   @Override
   public List<ORecordOperation> commit(final OTransactionInternal clientTx) {
-    return commit(clientTx, false);
+    final long startTime = OLatencyMetrics.COMMIT.start();
+    try {
+      return commit(clientTx, false);
+    } finally {
+      OLatencyMetrics.COMMIT.stop(startTime);
+    }
   }
 
   /**
@@ -1990,7 +2019,12 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
    */
   @SuppressWarnings("UnusedReturnValue")
   public List<ORecordOperation> commitPreAllocated(final OTransactionInternal clientTx) {
-    return commit(clientTx, true);
+    final long startTime = OLatencyMetrics.COMMIT.start();
+    try {
+      return commit(clientTx, true);
+    } finally {
+      OLatencyMetrics.COMMIT.stop(startTime);
+    }
   }
 
   /**
@@ -2032,6 +2066,11 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
 
       final Set<ORecordOperation> newRecords = new TreeSet<>(COMMIT_RECORD_OPERATION_COMPARATOR);
 
+      // NEW RECORDS THAT CAN BE STORED IN ANY CLUSTER OF THEIR CLASS, THE CLUSTER IS CHOSEN ONCE THE ATOMIC OPERATION IS STARTED
+      final Map<OImmutableClass, List<ORecordOperation>> relocatableRecords = new LinkedHashMap<>();
+      final boolean relocateNewRecords =
+          !allocated && getConfiguration().getContextConfiguration().getValueAsBoolean(OGlobalConfiguration.TX_RELOCATE_NEW_RECORDS);
+
       for (ORecordOperation recordOperation : recordOperations) {
         if (recordOperation.type == ORecordOperation.CREATED || recordOperation.type == ORecordOperation.UPDATED) {
           final ORecord record = recordOperation.getRecord();
@@ -2059,6 +2098,14 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
               clusterId = class_.getClusterForNewInstance((ODocument) record);
               clusterOverrides.put(recordOperation, clusterId);
             }
+          } else if (relocateNewRecords && recordOperation.clusterSelectedByClass && rid.isTemporary() && record.isDirty()
+              && record instanceof ODocument) {
+            final OImmutableClass class_ = ODocumentInternal.getImmutableSchemaClass(((ODocument) record));
+            if (class_ != null && class_.getClusterIds().length > 1 && ORoundRobinClusterSelectionStrategy.NAME
+                .equals(class_.getClusterSelection().getName())) {
+              relocatableRecords.computeIfAbsent(class_, k -> new ArrayList<>()).add(recordOperation);
+              continue;
+            }
           }
 
           clustersToLock.put(clusterId, getClusterById(clusterId));
@@ -2094,6 +2141,7 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
           try {
             final OAtomicOperation atomicOperation = OAtomicOperationsManager.getCurrentOperation();
 
+            relocateNewRecords(relocatableRecords, clustersToLock, clusterOverrides);
             lockClusters(clustersToLock);
 
             checkReadOnlyConditions();
@@ -4264,7 +4312,8 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
     }
   }
 
-  private ORawBuffer readRecord(final OCluster clusterSegment, final ORecordId rid, boolean prefetchRecords) {
+  private ORawBuffer readRecord(final OCluster clusterSegment, final ORecordId rid, final boolean ignoreCache,
+      boolean prefetchRecords) {
     checkOpenness();
 
     if (!rid.isPersistent())
@@ -4277,6 +4326,15 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
       return doReadRecord(clusterSegment, rid, prefetchRecords);
     }
 
+    final boolean sharedCache = !ignoreCache && !readLock && sharedRecordCache.isCached(rid.getClusterId());
+    if (sharedCache) {
+      final ORawBuffer cached = sharedRecordCache.get(rid);
+      if (cached != null) {
+        checkOpenness();
+        return cached;
+      }
+    }
+
     stateLock.acquireReadLock();
     try {
       if (readLock) {
@@ -4286,6 +4344,12 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
         }
       }
       checkOpenness();
+      if (sharedCache) {
+        final long stamp = sharedRecordCache.getModificationStamp();
+        final ORawBuffer buffer = doReadRecord(clusterSegment, rid, prefetchRecords);
+        sharedRecordCache.put(rid, buffer, stamp);
+        return buffer;
+      }
       return doReadRecord(clusterSegment, rid, prefetchRecords);
     } finally {
       try {
@@ -4306,6 +4370,19 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
     final OLogSequenceNumber lsn = atomicOperationsManager.endAtomicOperation(false);
     assert OAtomicOperationsManager.getCurrentOperation() == null;
 
+    final OClusterChangeListener listener = clusterChangeListener;
+    if (sharedRecordCache.isEnabled() || listener != null) {
+      final Set<Integer> changedClusters = new HashSet<>();
+      for (ORecordOperation recordOperation : recordOperations) {
+        if (recordOperation.type != ORecordOperation.CREATED)
+          sharedRecordCache.invalidate(recordOperation.getRID());
+        changedClusters.add(recordOperation.getRID().getClusterId());
+      }
+      if (listener != null)
+        for (Integer clusterId : changedClusters)
+          listener.onClusterChange(clusterId);
+    }
+
     OTransactionAbstract.updateCacheFromEntries(txi.getDatabase(), recordOperations, true);
     txCommit.incrementAndGet();
   }
@@ -4383,6 +4460,7 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
         throw ODatabaseException.wrapException(new OStorageException("Error during creation of record"), e);
       } finally {
         atomicOperationsManager.endAtomicOperation(rollback);
+        fireClusterChange(cluster.getId());
       }
 
       if (callback != null) {
@@ -4455,6 +4533,7 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
             .wrapException(new OStorageException("Error on updating record " + rid + " (cluster: " + cluster.getName() + ")"), e);
       } finally {
         atomicOperationsManager.endAtomicOperation(rollback);
+        recordChanged(rid);
       }
 
       //if we do not update content of the record we should keep version of the record the same
@@ -4511,6 +4590,7 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
         throw e;
       } finally {
         atomicOperationsManager.endAtomicOperation(rollback);
+        recordChanged(rid);
       }
 
       if (OLogManager.instance().isDebugEnabled()) {
@@ -4564,6 +4644,7 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
         throw e;
       } finally {
         atomicOperationsManager.endAtomicOperation(rollback);
+        recordChanged(rid);
       }
 
       if (OLogManager.instance().isDebugEnabled()) {
@@ -4603,6 +4684,7 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
         throw e;
       } finally {
         atomicOperationsManager.endAtomicOperation(rollback);
+        recordChanged(rid);
       }
 
       return new OStorageOperationResult<>(true);
@@ -4806,6 +4888,8 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
 
         sbTreeCollectionManager.close();
 
+        sharedRecordCache.clear();
+
         // we close all files inside cache system so we only clear cluster metadata
         clusters.clear();
         clusterMap.clear();
@@ -5555,6 +5639,21 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
 
   }
 
+  public void setClusterChangeListener(final OClusterChangeListener clusterChangeListener) {
+    this.clusterChangeListener = clusterChangeListener;
+  }
+
+  private void recordChanged(final ORecordId rid) {
+    sharedRecordCache.invalidate(rid);
+    fireClusterChange(rid.getClusterId());
+  }
+
+  private void fireClusterChange(final int clusterId) {
+    final OClusterChangeListener listener = clusterChangeListener;
+    if (listener != null)
+      listener.onClusterChange(clusterId);
+  }
+
   @SuppressWarnings("unused")
   public void setStorageConfigurationUpdateListener(OStorageConfigurationUpdateListener storageConfigurationUpdateListener) {
     stateLock.acquireWriteLock();
@@ -5612,6 +5711,59 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
     }
   }
 
+  /**
+   * Selects one cluster per class for the new records of a transaction that can be stored in any cluster of their class. A cluster
+   * already locked by the transaction is preferred, otherwise a cluster not locked by other committing transactions, so
+   * transactions inserting in the same class do not wait for each other. The clusters are only selected here, they are locked
+   * later together with the others in cluster id order, which keeps the locking free of deadlocks.
+   * <p>
+   * Only classes with the round-robin strategy are relocated, other strategies choose the cluster on purpose. Whether a cluster is
+   * locked is only checked, not reserved, so two transactions can still select the same cluster and wait for each other.
+   */
+  private void relocateNewRecords(final Map<OImmutableClass, List<ORecordOperation>> relocatableRecords,
+      final TreeMap<Integer, OCluster> clustersToLock, final Map<ORecordOperation, Integer> clusterOverrides) {
+    for (Map.Entry<OImmutableClass, List<ORecordOperation>> entry : relocatableRecords.entrySet()) {
+      final int[] classClusterIds = entry.getKey().getClusterIds();
+      final int selectedClusterId = entry.getValue().get(0).getRID().getClusterId();
+
+      int targetClusterId = -1;
+      for (int clusterId : classClusterIds) {
+        if (clustersToLock.containsKey(clusterId)) {
+          targetClusterId = clusterId;
+          break;
+        }
+      }
+
+      if (targetClusterId < 0) {
+        // START FROM THE CLUSTER SELECTED BY THE CLASS TO KEEP THE DISTRIBUTION OF ITS CLUSTER SELECTION STRATEGY
+        int start = 0;
+        for (int i = 0; i < classClusterIds.length; ++i) {
+          if (classClusterIds[i] == selectedClusterId) {
+            start = i;
+            break;
+          }
+        }
+
+        for (int i = 0; i < classClusterIds.length; ++i) {
+          final int clusterId = classClusterIds[(start + i) % classClusterIds.length];
+          final OCluster cluster = clusterId >= 0 && clusterId < clusters.size() ? clusters.get(clusterId) : null;
+          if (cluster != null && !(cluster instanceof OOfflineCluster) && !cluster.isAtomicExclusiveLocked()) {
+            targetClusterId = clusterId;
+            break;
+          }
+        }
+      }
+
+      if (targetClusterId < 0)
+        // ALL THE CLUSTERS ARE BUSY: WAIT FOR THE SELECTED ONE
+        targetClusterId = selectedClusterId;
+
+      clustersToLock.put(targetClusterId, getClusterById(targetClusterId));
+      for (ORecordOperation recordOperation : entry.getValue())
+        clusterOverrides.put(recordOperation, targetClusterId);
+    }
+  }
+
   private static void lockClusters(final TreeMap<Integer, OCluster> clustersToLock) {
     for (OCluster cluster : clustersToLock.values())
       cluster.acquireAtomicExclusiveLock();
@@ -278,6 +278,11 @@ public class OOfflineCluster implements OCluster {
     // do nothing, anyway there is no real data behind to lock it
   }
 
+  @Override
+  public boolean isAtomicExclusiveLocked() {
+    return false;
+  }
+
   @Override
   public OClusterBrowsePage nextPage(long lastPosition) {
     return null;
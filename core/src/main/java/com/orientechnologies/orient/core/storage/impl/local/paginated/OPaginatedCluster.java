@@ -1240,6 +1240,8 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
     } finally {
       endAtomicOperation(rollback);
     }
+
+    storage.onClusterTruncated(id);
   }
 
   @Override
@@ -2076,6 +2078,11 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
     atomicOperationsManager.acquireExclusiveLockTillOperationComplete(this);
   }
 
+  @Override
+  public boolean isAtomicExclusiveLocked() {
+    return atomicOperationsManager.isExclusivelyLocked(this);
+  }
+
   @Override
   public String toString() {
     return "plocal cluster: " + getName();
@@ -36,11 +36,13 @@ import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWrite
 import com.orientechnologies.orient.core.storage.impl.local.statistic.OPerformanceStatisticManager;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -72,6 +74,8 @@ public class OAtomicOperation {
 
   private final Map<String, OAtomicOperationMetadata<?>> metadata = new LinkedHashMap<>();
 
+  private List<Runnable> completionActions;
+
   public OAtomicOperation(OLogSequenceNumber startLSN, OOperationUnitId operationUnitId, OReadCache readCache,
       OWriteCache writeCache, int storageId, OPerformanceStatisticManager performanceStatisticManager) {
     this.storageId = storageId;
@@ -579,6 +583,21 @@ public class OAtomicOperation {
     return lockedObjects;
   }
 
+  /**
+   * Registers an action to execute when the atomic operation is completed, either committed or rolled back. The actions are
+   * executed once the committed changes are visible to the other threads.
+   */
+  public void addCompletionAction(Runnable action) {
+    if (completionActions == null) {
+      completionActions = new ArrayList<>();
+    }
+    completionActions.add(action);
+  }
+
+  List<Runnable> getCompletionActions() {
+    return completionActions == null ? Collections.emptyList() : completionActions;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o)
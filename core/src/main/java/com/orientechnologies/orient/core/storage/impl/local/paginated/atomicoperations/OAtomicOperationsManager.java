@@ -409,6 +409,14 @@ public class OAtomicOperationsManager implements OAtomicOperationsMangerMXBean {
           }
 
           currentOperation.set(null);
+
+          for (Runnable action : operation.getCompletionActions()) {
+            try {
+              action.run();
+            } catch (RuntimeException e) {
+              OLogManager.instance().error(this, "Error during execution of completion action of atomic operation", e);
+            }
+          }
         }
       } else {
         lsn = null;
@@ -468,6 +476,13 @@ public class OAtomicOperationsManager implements OAtomicOperationsMangerMXBean {
     acquireExclusiveLockTillOperationComplete(operation, durableComponent.getLockName());
   }
 
+  /**
+   * Returns true if the exclusive lock of the {@code durableComponent} is held by an atomic operation. The result is only a hint.
+   */
+  public boolean isExclusivelyLocked(ODurableComponent durableComponent) {
+    return lockManager.isExclusivelyLocked(durableComponent.getLockName());
+  }
+
   public void acquireReadLock(ODurableComponent durableComponent) {
     assert durableComponent.getLockName() != null;
 
@@ -148,6 +148,17 @@ public class ODurablePage {
     return changes.getBinaryValue(buffer, pageOffset, valLen);
   }
 
+  protected void getBinaryValue(int pageOffset, byte[] value, int valueOffset, int valLen) {
+    final ByteBuffer buffer = pointer.getBufferDuplicate();
+    if (changes == null) {
+      buffer.position(pageOffset);
+      buffer.get(value, valueOffset, valLen);
+      return;
+    }
+
+    System.arraycopy(changes.getBinaryValue(buffer, pageOffset, valLen), 0, value, valueOffset, valLen);
+  }
+
   protected int getObjectSizeInDirectMemory(OBinarySerializer binarySerializer, int offset) {
     final ByteBuffer buffer = pointer.getBufferDuplicate();
     if (changes == null) {
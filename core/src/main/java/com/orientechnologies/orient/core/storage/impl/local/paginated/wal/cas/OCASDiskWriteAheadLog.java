@@ -7,6 +7,7 @@ import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.io.OIOUtils;
 import com.orientechnologies.common.jna.ONative;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OLatencyMetrics;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
 import com.orientechnologies.common.thread.OScheduledThreadPoolExecutorWithLogging;
@@ -1053,6 +1054,7 @@ public final class OCASDiskWriteAheadLog implements OWriteAheadLog {
   }
 
   public OLogSequenceNumber log(final OWriteableWALRecord writeableRecord) {
+    final long startTime = OLatencyMetrics.WAL_LOG.start();
     final long segSize;
     final long size;
     final OLogSequenceNumber recordLSN;
@@ -1118,6 +1120,8 @@ public final class OCASDiskWriteAheadLog implements OWriteAheadLog {
       }
     }
 
+    OLatencyMetrics.WAL_LOG.stop(startTime);
+
     return recordLSN;
   }
 
@@ -1360,8 +1364,10 @@ public final class OCASDiskWriteAheadLog implements OWriteAheadLog {
   }
 
   public void flush() {
+    final long startTime = OLatencyMetrics.WAL_FLUSH.start();
     doFlush(true);
     waitTillWriteWillBeFinished();
+    OLatencyMetrics.WAL_FLUSH.stop(startTime);
   }
 
   public void close() throws IOException {
@@ -1996,6 +2002,7 @@ public final class OCASDiskWriteAheadLog implements OWriteAheadLog {
                 if (printPerformanceStatistic) {
                   startTs = System.nanoTime();
                 }
+                final long fsyncStartTime = OLatencyMetrics.WAL_FSYNC.start();
 
                 final int cqSize = fileCloseQueueSize.get();
                 if (cqSize > 0) {
@@ -2027,6 +2034,7 @@ public final class OCASDiskWriteAheadLog implements OWriteAheadLog {
                 if (callFsync) {
                   walFile.force(true);
                 }
+                OLatencyMetrics.WAL_FSYNC.stop(fsyncStartTime);
 
                 updateCheckpoint(writtenCheckpoint);
                 flushedLSN = writtenUpTo.get().lsn;
@@ -25,6 +25,7 @@ import com.orientechnologies.common.types.OModifiableBoolean;
 import com.orientechnologies.common.util.OCommonConst;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.sql.executor.OQueryResourceUsage;
 import com.orientechnologies.orient.core.storage.cache.OAbstractWriteCache;
 import com.orientechnologies.orient.core.storage.cache.OCacheEntry;
 import com.orientechnologies.orient.core.storage.cache.OCacheEntryImpl;
@@ -229,6 +230,7 @@ public class ODirectMemoryOnlyDiskCache extends OAbstractWriteCache implements O
         cacheEntry.incrementUsages();
       }
 
+      OQueryResourceUsage.onPageLoad(true);
       return cacheEntry;
     } finally {
       if (sessionStoragePerformanceStatistic != null) {
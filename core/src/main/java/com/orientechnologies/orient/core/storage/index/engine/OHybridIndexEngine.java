@@ -0,0 +1,283 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.storage.index.engine;
+
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.encryption.OEncryption;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OIndexKeyUpdater;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerRID;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.atomicoperations.OAtomicOperation;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.atomicoperations.OAtomicOperationsManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Index engine for point-lookup-heavy indexes: the keys are stored in an SBTree, so range queries and ordered iterations work as
+ * for the SBTREE algorithm, and the results of the point lookups are kept in an in-memory hash, so the lookups of hot keys do not
+ * descend the tree.
+ * <p>
+ * The hash is filled lazily by the lookups and bounded by {@link OGlobalConfiguration#INDEX_HYBRID_MAX_CACHED_KEYS}; it is only
+ * used by the indexes with a single value per key. A key is removed from the hash when it is changed and again when the atomic
+ * operation of the change is completed, and a key read concurrently with a change is not cached.
+ *
+ * @see com.orientechnologies.orient.core.index.ODefaultIndexFactory#HYBRID_ALGORITHM
+ */
+public class OHybridIndexEngine extends OSBTreeIndexEngine {
+  private static final Object NULL   = new Object();
+  private static final int    STRIPES = 64;
+
+  private final int                       maxCachedKeys;
+  private final Map<Object, Object>       cache     = new ConcurrentHashMap<>();
+  private final AtomicLongArray           stamps    = new AtomicLongArray(STRIPES);
+  private final AtomicLong                hits      = new AtomicLong();
+  private final AtomicLong                misses    = new AtomicLong();
+  private final Object                    evictLock = new Object();
+  private volatile boolean                enabled;
+  private volatile OBinarySerializer<Object> keySerializer;
+  private volatile OType[]                keyTypes;
+
+  public OHybridIndexEngine(String name, OAbstractPaginatedStorage storage, int version) {
+    super(name, storage, version);
+    maxCachedKeys = OGlobalConfiguration.INDEX_HYBRID_MAX_CACHED_KEYS.getValueAsInteger();
+  }
+
+  @Override
+  public void create(OBinarySerializer valueSerializer, boolean isAutomatic, OType[] keyTypes, boolean nullPointerSupport,
+      OBinarySerializer keySerializer, int keySize, Set<String> clustersToIndex, Map<String, String> engineProperties,
+      ODocument metadata, OEncryption encryption) {
+    clearCache();
+    super.create(valueSerializer, isAutomatic, keyTypes, nullPointerSupport, keySerializer, keySize, clustersToIndex,
+        engineProperties, metadata, encryption);
+    configure(valueSerializer, keySerializer, keyTypes);
+  }
+
+  @Override
+  public void load(String indexName, OBinarySerializer valueSerializer, boolean isAutomatic, OBinarySerializer keySerializer,
+      OType[] keyTypes, boolean nullPointerSupport, int keySize, Map<String, String> engineProperties, OEncryption encryption) {
+    clearCache();
+    super.load(indexName, valueSerializer, isAutomatic, keySerializer, keyTypes, nullPointerSupport, keySize, engineProperties,
+        encryption);
+    configure(valueSerializer, keySerializer, keyTypes);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void configure(OBinarySerializer valueSerializer, OBinarySerializer keySerializer, OType[] keyTypes) {
+    this.keySerializer = keySerializer;
+    this.keyTypes = keyTypes;
+    // THE CONTAINERS OF THE MULTI-VALUE INDEXES ARE MUTABLE, SO ONLY THE SINGLE RID VALUES ARE CACHED
+    this.enabled = maxCachedKeys > 0 && valueSerializer instanceof OStreamSerializerRID;
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (key == null || !enabled) {
+      return super.get(key);
+    }
+    final Object cacheKey = toCacheKey(key);
+    final Object cached = cache.get(cacheKey);
+    if (cached != null) {
+      hits.incrementAndGet();
+      return cached == NULL ? null : copy(cached);
+    }
+    misses.incrementAndGet();
+
+    final int stripe = stripe(cacheKey);
+    final long stamp = stamps.get(stripe);
+    final Object value = super.get(key);
+    if (value == null || value instanceof ORID) {
+      final Object entry = value == null ? NULL : ((ORID) value).copy();
+      cache.put(cacheKey, entry);
+      if (stamps.get(stripe) != stamp) {
+        // THE KEY HAS BEEN CHANGED IN THE MEANTIME
+        cache.remove(cacheKey, entry);
+      } else if (cache.size() > maxCachedKeys) {
+        evict();
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public boolean contains(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public void put(Object key, Object value) {
+    final Object cacheKey = beforeChange(key);
+    try {
+      super.put(key, value);
+    } finally {
+      afterChange(cacheKey);
+    }
+  }
+
+  @Override
+  public void update(Object key, OIndexKeyUpdater<Object> updater) {
+    final Object cacheKey = beforeChange(key);
+    try {
+      super.update(key, updater);
+    } finally {
+      afterChange(cacheKey);
+    }
+  }
+
+  @Override
+  public boolean validatedPut(Object key, OIdentifiable value, Validator<Object, OIdentifiable> validator) {
+    final Object cacheKey = beforeChange(key);
+    try {
+      return super.validatedPut(key, value, validator);
+    } finally {
+      afterChange(cacheKey);
+    }
+  }
+
+  @Override
+  public boolean remove(Object key) {
+    final Object cacheKey = beforeChange(key);
+    try {
+      return super.remove(key);
+    } finally {
+      afterChange(cacheKey);
+    }
+  }
+
+  @Override
+  public void clear() {
+    clearCache();
+    try {
+      super.clear();
+    } finally {
+      afterClear();
+    }
+  }
+
+  @Override
+  public void delete() {
+    clearCache();
+    super.delete();
+  }
+
+  @Override
+  public void deleteWithoutLoad(String indexName) {
+    clearCache();
+    super.deleteWithoutLoad(indexName);
+  }
+
+  @Override
+  public void close() {
+    clearCache();
+    super.close();
+  }
+
+  public long getCacheHits() {
+    return hits.get();
+  }
+
+  public long getCacheMisses() {
+    return misses.get();
+  }
+
+  public int getCachedKeys() {
+    return cache.size();
+  }
+
+  private Object beforeChange(Object key) {
+    if (key == null || !enabled) {
+      return null;
+    }
+    final Object cacheKey = toCacheKey(key);
+    invalidate(cacheKey);
+    return cacheKey;
+  }
+
+  private void afterChange(Object cacheKey) {
+    if (cacheKey == null) {
+      return;
+    }
+    // THE CHANGE IS VISIBLE TO THE OTHER THREADS ONLY WHEN THE ATOMIC OPERATION IS COMPLETED
+    final OAtomicOperation operation = OAtomicOperationsManager.getCurrentOperation();
+    if (operation != null) {
+      operation.addCompletionAction(() -> invalidate(cacheKey));
+    } else {
+      invalidate(cacheKey);
+    }
+  }
+
+  private void afterClear() {
+    final OAtomicOperation operation = OAtomicOperationsManager.getCurrentOperation();
+    if (operation != null) {
+      operation.addCompletionAction(this::clearCache);
+    } else {
+      clearCache();
+    }
+  }
+
+  private void invalidate(Object cacheKey) {
+    stamps.incrementAndGet(stripe(cacheKey));
+    cache.remove(cacheKey);
+  }
+
+  private void clearCache() {
+    for (int i = 0; i < STRIPES; i++) {
+      stamps.incrementAndGet(i);
+    }
+    cache.clear();
+  }
+
+  /**
+   * Converts the key to the types of the index, as the tree does, so that equal keys of different types share the same entry.
+   */
+  private Object toCacheKey(Object key) {
+    final OBinarySerializer<Object> serializer = keySerializer;
+    return serializer == null ? key : serializer.preprocess(key, (Object[]) keyTypes);
+  }
+
+  private static int stripe(Object cacheKey) {
+    return (cacheKey.hashCode() & 0x7fffffff) % STRIPES;
+  }
+
+  private static Object copy(Object value) {
+    return value instanceof ORID ? ((ORID) value).copy() : value;
+  }
+
+  private void evict() {
+    synchronized (evictLock) {
+      // THE ITERATION ORDER OF THE HASH IS UNRELATED TO THE ACCESS ORDER, SO A QUARTER OF THE KEYS IS REMOVED ALMOST AT RANDOM
+      final int target = maxCachedKeys - maxCachedKeys / 4;
+      final Iterator<Object> iterator = cache.keySet().iterator();
+      while (cache.size() > target && iterator.hasNext()) {
+        iterator.next();
+        iterator.remove();
+      }
+    }
+  }
+}
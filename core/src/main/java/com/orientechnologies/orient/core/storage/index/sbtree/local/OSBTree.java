@@ -1188,9 +1188,15 @@ public class OSBTree<K, V> extends ODurableComponent {
 
       final boolean splitLeaf = bucketToSplit.isLeaf();
       final int bucketSize = bucketToSplit.size();
+      final boolean keyCompression = OGlobalConfiguration.SBTREE_KEY_COMPRESSION.getValueAsBoolean();
 
       int indexToSplit = bucketSize >>> 1;
-      final K separationKey = bucketToSplit.getKey(indexToSplit);
+      final K separationKey;
+      if (splitLeaf && keyCompression) {
+        separationKey = shortestSeparator(bucketToSplit.getKey(indexToSplit - 1), bucketToSplit.getKey(indexToSplit));
+      } else {
+        separationKey = bucketToSplit.getKey(indexToSplit);
+      }
       final List<byte[]> rightEntries = new ArrayList<>(indexToSplit);
 
       final int startRightIndex = splitLeaf ? indexToSplit : indexToSplit + 1;
@@ -1201,10 +1207,10 @@ public class OSBTree<K, V> extends ODurableComponent {
 
       if (pageIndex != ROOT_INDEX) {
         return splitNonRootBucket(path, keyIndex, keyToInsert, pageIndex, bucketToSplit, splitLeaf, indexToSplit, separationKey,
-            rightEntries, atomicOperation);
+            rightEntries, keyCompression || bucketToSplit.isPrefixCompressed(), atomicOperation);
       } else {
         return splitRootBucket(path, keyIndex, keyToInsert, bucketEntry, bucketToSplit, splitLeaf, indexToSplit, separationKey,
-            rightEntries, atomicOperation);
+            rightEntries, keyCompression || bucketToSplit.isPrefixCompressed(), atomicOperation);
       }
     } finally {
       releasePageFromWrite(atomicOperation, bucketEntry);
@@ -1213,12 +1219,12 @@ public class OSBTree<K, V> extends ODurableComponent {
 
   private BucketSearchResult splitNonRootBucket(List<Long> path, int keyIndex, K keyToInsert, long pageIndex,
       OSBTreeBucket<K, V> bucketToSplit, boolean splitLeaf, int indexToSplit, K separationKey, List<byte[]> rightEntries,
-      OAtomicOperation atomicOperation) throws IOException {
+      boolean compressKeys, OAtomicOperation atomicOperation) throws IOException {
     OCacheEntry rightBucketEntry = addPage(atomicOperation, fileId);
 
     try {
       OSBTreeBucket<K, V> newRightBucket = new OSBTreeBucket<>(rightBucketEntry, splitLeaf, keySerializer, keyTypes,
-          valueSerializer, encryption);
+          valueSerializer, encryption, compressKeys);
       newRightBucket.addAll(rightEntries);
 
       bucketToSplit.shrink(indexToSplit);
@@ -1295,7 +1301,7 @@ public class OSBTree<K, V> extends ODurableComponent {
 
   private BucketSearchResult splitRootBucket(List<Long> path, int keyIndex, K keyToInsert, OCacheEntry bucketEntry,
       OSBTreeBucket<K, V> bucketToSplit, boolean splitLeaf, int indexToSplit, K separationKey, List<byte[]> rightEntries,
-      OAtomicOperation atomicOperation) throws IOException {
+      boolean compressKeys, OAtomicOperation atomicOperation) throws IOException {
     final long freeListPage = bucketToSplit.getValuesFreeListFirstIndex();
     final long treeSize = bucketToSplit.getTreeSize();
 
@@ -1310,7 +1316,7 @@ public class OSBTree<K, V> extends ODurableComponent {
     OCacheEntry rightBucketEntry = addPage(atomicOperation, fileId);
     try {
       OSBTreeBucket<K, V> newLeftBucket = new OSBTreeBucket<>(leftBucketEntry, splitLeaf, keySerializer, keyTypes, valueSerializer,
-          encryption);
+          encryption, compressKeys);
       newLeftBucket.addAll(leftEntries);
 
       if (splitLeaf) {
@@ -1323,7 +1329,7 @@ public class OSBTree<K, V> extends ODurableComponent {
 
     try {
       OSBTreeBucket<K, V> newRightBucket = new OSBTreeBucket<>(rightBucketEntry, splitLeaf, keySerializer, keyTypes,
-          valueSerializer, encryption);
+          valueSerializer, encryption, compressKeys);
       newRightBucket.addAll(rightEntries);
 
       if (splitLeaf) {
@@ -1333,7 +1339,7 @@ public class OSBTree<K, V> extends ODurableComponent {
       releasePageFromWrite(atomicOperation, rightBucketEntry);
     }
 
-    bucketToSplit = new OSBTreeBucket<>(bucketEntry, false, keySerializer, keyTypes, valueSerializer, encryption);
+    bucketToSplit = new OSBTreeBucket<>(bucketEntry, false, keySerializer, keyTypes, valueSerializer, encryption, compressKeys);
 
     bucketToSplit.setTreeSize(treeSize);
     bucketToSplit.setValuesFreeListFirstIndex(freeListPage);
@@ -1358,6 +1364,58 @@ public class OSBTree<K, V> extends ODurableComponent {
     return new BucketSearchResult(keyIndex - indexToSplit - 1, resultPath);
   }
 
+  /**
+   * @return the shortest key which is greater than the last key of the left bucket and not greater than the first key of the right
+   * bucket. String keys, and composite keys which differ in a string, are truncated after the first character which differs.
+   */
+  @SuppressWarnings("unchecked")
+  private K shortestSeparator(K leftKey, K rightKey) {
+    if (leftKey instanceof String && rightKey instanceof String) {
+      return (K) shortestSeparator((String) leftKey, (String) rightKey);
+    }
+
+    if (leftKey instanceof OCompositeKey && rightKey instanceof OCompositeKey) {
+      final List<Object> leftKeys = ((OCompositeKey) leftKey).getKeys();
+      final List<Object> rightKeys = ((OCompositeKey) rightKey).getKeys();
+
+      if (leftKeys.size() == rightKeys.size()) {
+        for (int i = 0; i < rightKeys.size(); i++) {
+          final Object left = leftKeys.get(i);
+          final Object right = rightKeys.get(i);
+
+          if (ODefaultComparator.INSTANCE.compare(left, right) != 0) {
+            if (left instanceof String && right instanceof String) {
+              final List<Object> separator = new ArrayList<>(rightKeys);
+              separator.set(i, shortestSeparator((String) left, (String) right));
+              return (K) new OCompositeKey(separator);
+            }
+
+            break;
+          }
+        }
+      }
+    }
+
+    return rightKey;
+  }
+
+  static String shortestSeparator(String left, String right) {
+    final int commonSize = Math.min(left.length(), right.length());
+
+    int end = 0;
+    while (end < commonSize && left.charAt(end) == right.charAt(end)) {
+      end++;
+    }
+
+    end++;
+    // SURROGATE PAIRS CANNOT BE SPLIT, THE SEPARATOR WOULD NOT BE PRESERVED BY THE SERIALIZATION
+    if (end < right.length() && Character.isHighSurrogate(right.charAt(end - 1))) {
+      end++;
+    }
+
+    return end >= right.length() ? right : right.substring(0, end);
+  }
+
   private BucketSearchResult findBucket(K key, OAtomicOperation atomicOperation) throws IOException {
     long pageIndex = ROOT_INDEX;
     final ArrayList<Long> path = new ArrayList<>();
@@ -25,14 +25,20 @@ import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.common.serialization.types.OByteSerializer;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.common.serialization.types.OShortSerializer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.common.serialization.types.OUTF8Serializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.encryption.OEncryption;
 import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
 import com.orientechnologies.orient.core.storage.cache.OCacheEntry;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -40,6 +46,12 @@ import java.util.List;
 import static com.orientechnologies.orient.core.storage.impl.local.paginated.OClusterPage.PAGE_SIZE;
 
 /**
+ * Page of {@link OSBTree}.
+ * <p>
+ * Buckets created when {@link OGlobalConfiguration#SBTREE_KEY_COMPRESSION} is on store the bytes shared by the serialized keys of
+ * all the entries only once, at the end of the page, and keep in every entry only the header of the serialized key (which holds its
+ * size) followed by the remaining bytes. Raw entries and raw keys exchanged with the tree are always in the uncompressed format.
+ *
  * @author Andrey Lomakin (a.lomakin-at-orientdb.com)
  * @since 8/7/13
  */
@@ -63,7 +75,32 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
   private static final int POSITIONS_ARRAY_OFFSET = FREE_VALUES_LIST_OFFSET + OLongSerializer.LONG_SIZE;
 
+  /**
+   * Prefix compressed buckets store the size of the shared prefix of the keys in place of the serializer ids.
+   */
+  private static final int PREFIX_SIZE_OFFSET = KEY_SERIALIZER_OFFSET;
+
+  private static final byte LEAF_FLAG              = 1;
+  private static final byte PREFIX_COMPRESSED_FLAG = 2;
+
+  private static final int    MAX_PREFIX_SIZE = 0xFFFF;
+  private static final byte[] EMPTY_PREFIX    = new byte[0];
+
   private final boolean isLeaf;
+  private final boolean prefixCompressed;
+
+  /**
+   * Size of the header of the serialized keys, which is kept in every entry of compressed buckets.
+   */
+  private final int keyHeaderSize;
+
+  private byte[] prefix;
+
+  /**
+   * Keys of compressed buckets are read in this buffer, which holds the prefix after the key header, so they are not copied together
+   * with the prefix at every comparison.
+   */
+  private byte[] keyBuffer;
 
   private final OBinarySerializer<K> keySerializer;
   private final OBinarySerializer<V> valueSerializer;
@@ -74,9 +111,15 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
   private final OEncryption encryption;
 
-  @SuppressFBWarnings("EI_EXPOSE_REP2")
   public OSBTreeBucket(OCacheEntry cacheEntry, boolean isLeaf, OBinarySerializer<K> keySerializer, OType[] keyTypes,
       OBinarySerializer<V> valueSerializer, OEncryption encryption) throws IOException {
+    this(cacheEntry, isLeaf, keySerializer, keyTypes, valueSerializer, encryption,
+        OGlobalConfiguration.SBTREE_KEY_COMPRESSION.getValueAsBoolean());
+  }
+
+  @SuppressFBWarnings("EI_EXPOSE_REP2")
+  OSBTreeBucket(OCacheEntry cacheEntry, boolean isLeaf, OBinarySerializer<K> keySerializer, OType[] keyTypes,
+      OBinarySerializer<V> valueSerializer, OEncryption encryption, boolean compressKeys) {
     super(cacheEntry);
 
     this.isLeaf = isLeaf;
@@ -85,18 +128,25 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     this.valueSerializer = valueSerializer;
     this.encryption = encryption;
 
+    this.keyHeaderSize = keyHeaderSize(keySerializer);
+    this.prefixCompressed = compressKeys && encryption == null && keyHeaderSize >= 0;
+
     setIntValue(FREE_POINTER_OFFSET, MAX_PAGE_SIZE_BYTES);
     setIntValue(SIZE_OFFSET, 0);
 
-    setByteValue(IS_LEAF_OFFSET, (byte) (isLeaf ? 1 : 0));
+    setByteValue(IS_LEAF_OFFSET, (byte) ((isLeaf ? LEAF_FLAG : 0) | (prefixCompressed ? PREFIX_COMPRESSED_FLAG : 0)));
     setLongValue(LEFT_SIBLING_OFFSET, -1);
     setLongValue(RIGHT_SIBLING_OFFSET, -1);
 
     setLongValue(TREE_SIZE_OFFSET, 0);
     setLongValue(FREE_VALUES_LIST_OFFSET, -1);
 
-    setByteValue(KEY_SERIALIZER_OFFSET, this.keySerializer.getId());
-    setByteValue(VALUE_SERIALIZER_OFFSET, this.valueSerializer.getId());
+    if (prefixCompressed) {
+      reset(EMPTY_PREFIX);
+    } else {
+      setByteValue(KEY_SERIALIZER_OFFSET, this.keySerializer.getId());
+      setByteValue(VALUE_SERIALIZER_OFFSET, this.valueSerializer.getId());
+    }
   }
 
   @SuppressFBWarnings("EI_EXPOSE_REP2")
@@ -106,9 +156,39 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     this.keyTypes = keyTypes;
     this.encryption = encryption;
 
-    this.isLeaf = getByteValue(IS_LEAF_OFFSET) > 0;
+    final byte flags = getByteValue(IS_LEAF_OFFSET);
+    this.isLeaf = (flags & LEAF_FLAG) != 0;
+    this.prefixCompressed = (flags & PREFIX_COMPRESSED_FLAG) != 0;
     this.keySerializer = keySerializer;
     this.valueSerializer = valueSerializer;
+
+    this.keyHeaderSize = prefixCompressed ? keyHeaderSize(keySerializer) : -1;
+    assert !prefixCompressed || keyHeaderSize >= 0;
+  }
+
+  /**
+   * @return the size of the part of the serialized key which holds its size, or -1 if the size of the key cannot be known from a
+   * fixed size header, so that keys cannot be compressed.
+   */
+  private static int keyHeaderSize(OBinarySerializer<?> keySerializer) {
+    if (keySerializer instanceof OCompositeKeySerializer) {
+      // SIZE AND COUNT OF THE KEYS
+      return 2 * OIntegerSerializer.INT_SIZE;
+    }
+    if (keySerializer instanceof OStringSerializer) {
+      return OIntegerSerializer.INT_SIZE;
+    }
+    if (keySerializer instanceof OUTF8Serializer) {
+      return OShortSerializer.SHORT_SIZE;
+    }
+    if (keySerializer.isFixedLength()) {
+      return 0;
+    }
+    return -1;
+  }
+
+  boolean isPrefixCompressed() {
+    return prefixCompressed;
   }
 
   public void setTreeSize(long size) throws IOException {
@@ -154,13 +234,8 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     final int entryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + entryIndex * OIntegerSerializer.INT_SIZE);
     final int keySize;
 
-    if (oldRawKey == null) {
-      if (encryption == null) {
-        keySize = getObjectSizeInDirectMemory(keySerializer, entryPosition);
-      } else {
-        final int encryptionSize = getIntValue(entryPosition);
-        keySize = OIntegerSerializer.INT_SIZE + encryptionSize;
-      }
+    if (oldRawKey == null || prefixCompressed) {
+      keySize = getKeySize(entryPosition);
     } else {
       keySize = oldRawKey.length;
     }
@@ -212,22 +287,8 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     int entryPosition = getIntValue(entryIndex * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
 
     if (isLeaf) {
-      K key;
-      if (encryption == null) {
-        key = deserializeFromDirectMemory(keySerializer, entryPosition);
-
-        entryPosition += getObjectSizeInDirectMemory(keySerializer, entryPosition);
-      } else {
-        final int encryptionSize = getIntValue(entryPosition);
-        entryPosition += OIntegerSerializer.INT_SIZE;
-
-        final byte[] encryptedKey = getBinaryValue(entryPosition, encryptionSize);
-        entryPosition += encryptedKey.length;
-
-        final byte[] serializedKey = encryption.decrypt(encryptedKey);
-
-        key = keySerializer.deserializeNativeObject(serializedKey, 0);
-      }
+      final K key = readKey(entryPosition);
+      entryPosition += getKeySize(entryPosition);
 
       boolean isLinkValue = getByteValue(entryPosition) > 0;
       long link = -1;
@@ -246,20 +307,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
       long rightChild = getLongValue(entryPosition);
       entryPosition += OLongSerializer.LONG_SIZE;
 
-      K key;
-
-      if (encryption == null) {
-        key = deserializeFromDirectMemory(keySerializer, entryPosition);
-      } else {
-        final int encryptionSize = getIntValue(entryPosition);
-        entryPosition += OIntegerSerializer.INT_SIZE;
-
-        final byte[] encryptedKey = getBinaryValue(entryPosition, encryptionSize);
-
-        final byte[] serializedKey = encryption.decrypt(encryptedKey);
-
-        key = keySerializer.deserializeNativeObject(serializedKey, 0);
-      }
+      final K key = readKey(entryPosition);
 
       return new SBTreeEntry<K, V>(leftChild, rightChild, key, null);
     }
@@ -269,14 +317,9 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     int entryPosition = getIntValue(entryIndex * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
     final int startEntryPosition = entryPosition;
 
+    final int entrySize;
     if (isLeaf) {
-      final int keySize;
-      if (encryption == null) {
-        keySize = getObjectSizeInDirectMemory(keySerializer, entryPosition);
-      } else {
-        final int encryptedSize = getIntValue(entryPosition);
-        keySize = OIntegerSerializer.INT_SIZE + encryptedSize;
-      }
+      final int keySize = getKeySize(entryPosition);
 
       entryPosition += keySize;
 
@@ -284,20 +327,15 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
       final int valueSize = getObjectSizeInDirectMemory(valueSerializer, entryPosition + OByteSerializer.BYTE_SIZE);
 
-      return getBinaryValue(startEntryPosition, keySize + valueSize + OByteSerializer.BYTE_SIZE);
+      entrySize = keySize + valueSize + OByteSerializer.BYTE_SIZE;
     } else {
       entryPosition += 2 * OLongSerializer.LONG_SIZE;
 
-      final int keySize;
-      if (encryption == null) {
-        keySize = getObjectSizeInDirectMemory(keySerializer, entryPosition);
-      } else {
-        final int encryptedSize = getIntValue(entryPosition);
-        keySize = OIntegerSerializer.INT_SIZE + encryptedSize;
-      }
-
-      return getBinaryValue(startEntryPosition, keySize + 2 * OLongSerializer.LONG_SIZE);
+      entrySize = getKeySize(entryPosition) + 2 * OLongSerializer.LONG_SIZE;
     }
+
+    final byte[] entry = getBinaryValue(startEntryPosition, entrySize);
+    return prefixCompressed ? decompressEntry(entry) : entry;
   }
 
   /**
@@ -313,12 +351,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     int entryPosition = getIntValue(entryIndex * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
 
     // skip key
-    if (encryption == null) {
-      entryPosition += getObjectSizeInDirectMemory(keySerializer, entryPosition);
-    } else {
-      final int encryptedSize = getIntValue(entryPosition);
-      entryPosition += OIntegerSerializer.INT_SIZE + encryptedSize;
-    }
+    entryPosition += getKeySize(entryPosition);
 
     boolean isLinkValue = getByteValue(entryPosition) > 0;
     long link = -1;
@@ -338,12 +371,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     int entryPosition = getIntValue(entryIndex * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
 
     // skip key
-    if (encryption == null) {
-      entryPosition += getObjectSizeInDirectMemory(keySerializer, entryPosition);
-    } else {
-      final int encryptedSize = getIntValue(entryPosition);
-      entryPosition += OIntegerSerializer.INT_SIZE + encryptedSize;
-    }
+    entryPosition += getKeySize(entryPosition);
 
     assert getByteValue(entryPosition) == 0;
 
@@ -355,19 +383,10 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   byte[] getRawKey(final int entryIndex) {
     assert isLeaf;
 
-    int entryPosition = getIntValue(entryIndex * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
-
-    byte[] rawKey;
-    if (encryption == null) {
-      final int keySize = getObjectSizeInDirectMemory(keySerializer, entryPosition);
-      rawKey = getBinaryValue(entryPosition, keySize);
-    } else {
-      final int encryptedSize = getIntValue(entryPosition);
+    final int entryPosition = getIntValue(entryIndex * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
 
-      rawKey = getBinaryValue(entryPosition, OIntegerSerializer.INT_SIZE + encryptedSize);
-    }
-
-    return rawKey;
+    final byte[] key = getBinaryValue(entryPosition, getKeySize(entryPosition));
+    return prefixCompressed ? decompressKey(key) : key;
   }
 
   public K getKey(int index) {
@@ -376,16 +395,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     if (!isLeaf)
       entryPosition += 2 * OLongSerializer.LONG_SIZE;
 
-    if (encryption == null) {
-      return deserializeFromDirectMemory(keySerializer, entryPosition);
-    } else {
-      final int encryptedSize = getIntValue(entryPosition);
-      entryPosition += OIntegerSerializer.INT_SIZE;
-
-      final byte[] encryptedKey = getBinaryValue(entryPosition, encryptedSize);
-      final byte[] serializedKey = encryption.decrypt(encryptedKey);
-      return keySerializer.deserializeNativeObject(serializedKey, 0);
-    }
+    return readKey(entryPosition);
   }
 
   public boolean isLeaf() {
@@ -393,6 +403,10 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   public void addAll(final List<byte[]> rawEntries) {
+    if (prefixCompressed) {
+      reset(commonPrefix(rawEntries, EMPTY_PREFIX));
+    }
+
     for (int i = 0; i < rawEntries.size(); i++) {
       appendRawEntry(i, rawEntries.get(i));
     }
@@ -419,7 +433,12 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
       }
     }
 
-    setIntValue(FREE_POINTER_OFFSET, PAGE_SIZE);//TODO set correct page size
+    if (prefixCompressed) {
+      // THE REMAINING KEYS CAN SHARE A LONGER PREFIX
+      reset(commonPrefix(rawEntries, EMPTY_PREFIX));
+    } else {
+      setIntValue(FREE_POINTER_OFFSET, PAGE_SIZE);//TODO set correct page size
+    }
 
     int index = 0;
     for (final byte[] entry : rawEntries) {
@@ -432,9 +451,18 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   boolean addLeafEntry(final int index, final byte[] serializedKey, final byte[] serializedValue) {
+    assert isLeaf;
+
+    if (prefixCompressed) {
+      final byte[] rawEntry = new byte[serializedKey.length + OByteSerializer.BYTE_SIZE + serializedValue.length];
+      System.arraycopy(serializedKey, 0, rawEntry, 0, serializedKey.length);
+      System.arraycopy(serializedValue, 0, rawEntry, serializedKey.length + OByteSerializer.BYTE_SIZE, serializedValue.length);
+
+      return addCompressedEntry(index, rawEntry);
+    }
+
     final int entrySize = serializedKey.length + serializedValue.length + OByteSerializer.BYTE_SIZE;
 
-    assert isLeaf;
     final int size = getIntValue(SIZE_OFFSET);
 
     int freePointer = getIntValue(FREE_POINTER_OFFSET);
@@ -461,17 +489,79 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   private void appendRawEntry(final int index, final byte[] rawEntry) {
+    final byte[] entry = prefixCompressed ? compressEntry(rawEntry) : rawEntry;
+
     int freePointer = getIntValue(FREE_POINTER_OFFSET);
-    freePointer -= rawEntry.length;
+    freePointer -= entry.length;
 
     setIntValue(FREE_POINTER_OFFSET, freePointer);
     setIntValue(POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE, freePointer);
 
-    setBinaryValue(freePointer, rawEntry);
+    setBinaryValue(freePointer, entry);
+  }
+
+  /**
+   * Adds an entry to a compressed bucket, the bucket is rewritten with a shorter prefix if the key of the entry does not start with
+   * the current one.
+   *
+   * @return false if there is not enough space for the entry
+   */
+  private boolean addCompressedEntry(final int index, final byte[] rawEntry) {
+    final int keyOffset = isLeaf ? 0 : 2 * OLongSerializer.LONG_SIZE;
+    final byte[] prefix = getPrefix();
+    final int size = size();
+
+    if (!hasPrefix(rawEntry, keyOffset, prefix)) {
+      final byte[] newPrefix = commonPrefix(Collections.singletonList(rawEntry), prefix);
+
+      final int entriesSize = MAX_PAGE_SIZE_BYTES - prefix.length - getIntValue(FREE_POINTER_OFFSET);
+      final int newEntriesSize = entriesSize + size * (prefix.length - newPrefix.length) + rawEntry.length - newPrefix.length;
+      if (MAX_PAGE_SIZE_BYTES - newPrefix.length - newEntriesSize < (size + 1) * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET) {
+        return false;
+      }
+
+      final List<byte[]> rawEntries = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        rawEntries.add(getRawEntry(i));
+      }
+
+      reset(newPrefix);
+      for (int i = 0; i < size; i++) {
+        appendRawEntry(i, rawEntries.get(i));
+      }
+      setIntValue(SIZE_OFFSET, size);
+    }
+
+    final byte[] entry = compressEntry(rawEntry);
+
+    int freePointer = getIntValue(FREE_POINTER_OFFSET);
+    if (freePointer - entry.length < (size + 1) * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET) {
+      return false;
+    }
+
+    if (index <= size - 1) {
+      moveData(POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE,
+          POSITIONS_ARRAY_OFFSET + (index + 1) * OIntegerSerializer.INT_SIZE, (size - index) * OIntegerSerializer.INT_SIZE);
+    }
+
+    freePointer -= entry.length;
+
+    setIntValue(FREE_POINTER_OFFSET, freePointer);
+    setIntValue(POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE, freePointer);
+    setIntValue(SIZE_OFFSET, size + 1);
+
+    setBinaryValue(freePointer, entry);
+
+    return true;
   }
 
   public boolean addEntry(int index, SBTreeEntry<K, V> treeEntry, boolean updateNeighbors) throws IOException {
     final byte[] serializedKey = keySerializer.serializeNativeAsWhole(treeEntry.key, (Object[]) keyTypes);
+
+    if (prefixCompressed) {
+      return addCompressedEntry(index, treeEntry, serializedKey, updateNeighbors);
+    }
+
     final int keySize;
     byte[] encryptedKey = null;
 
@@ -547,33 +637,67 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
         setBinaryValue(freePointer, encryptedKey);
       }
 
-      size++;
+      if (updateNeighbors) {
+        updateNeighbors(index, treeEntry);
+      }
+    }
 
-      if (updateNeighbors && size > 1) {
-        if (index < size - 1) {
-          final int nextEntryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + (index + 1) * OIntegerSerializer.INT_SIZE);
-          setLongValue(nextEntryPosition, treeEntry.rightChild);
-        }
+    return true;
+  }
 
-        if (index > 0) {
-          final int prevEntryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + (index - 1) * OIntegerSerializer.INT_SIZE);
-          setLongValue(prevEntryPosition + OLongSerializer.LONG_SIZE, treeEntry.leftChild);
-        }
+  private boolean addCompressedEntry(int index, SBTreeEntry<K, V> treeEntry, byte[] serializedKey, boolean updateNeighbors) {
+    final byte[] rawEntry;
+    if (isLeaf) {
+      final byte[] serializedValue;
+      if (treeEntry.value.isLink()) {
+        serializedValue = new byte[OLongSerializer.LONG_SIZE];
+        OLongSerializer.INSTANCE.serializeNative(treeEntry.value.getLink(), serializedValue, 0);
+      } else {
+        serializedValue = new byte[valueSerializer.getObjectSize(treeEntry.value.getValue())];
+        valueSerializer.serializeNativeObject(treeEntry.value.getValue(), serializedValue, 0);
       }
+
+      rawEntry = new byte[serializedKey.length + OByteSerializer.BYTE_SIZE + serializedValue.length];
+      System.arraycopy(serializedKey, 0, rawEntry, 0, serializedKey.length);
+      rawEntry[serializedKey.length] = treeEntry.value.isLink() ? (byte) 1 : (byte) 0;
+      System.arraycopy(serializedValue, 0, rawEntry, serializedKey.length + OByteSerializer.BYTE_SIZE, serializedValue.length);
+    } else {
+      rawEntry = new byte[2 * OLongSerializer.LONG_SIZE + serializedKey.length];
+      OLongSerializer.INSTANCE.serializeNative(treeEntry.leftChild, rawEntry, 0);
+      OLongSerializer.INSTANCE.serializeNative(treeEntry.rightChild, rawEntry, OLongSerializer.LONG_SIZE);
+      System.arraycopy(serializedKey, 0, rawEntry, 2 * OLongSerializer.LONG_SIZE, serializedKey.length);
+    }
+
+    if (!addCompressedEntry(index, rawEntry)) {
+      return false;
+    }
+
+    if (!isLeaf && updateNeighbors) {
+      updateNeighbors(index, treeEntry);
     }
 
     return true;
   }
 
+  private void updateNeighbors(int index, SBTreeEntry<K, V> treeEntry) {
+    final int size = size();
+    if (size > 1) {
+      if (index < size - 1) {
+        final int nextEntryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + (index + 1) * OIntegerSerializer.INT_SIZE);
+        setLongValue(nextEntryPosition, treeEntry.rightChild);
+      }
+
+      if (index > 0) {
+        final int prevEntryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + (index - 1) * OIntegerSerializer.INT_SIZE);
+        setLongValue(prevEntryPosition + OLongSerializer.LONG_SIZE, treeEntry.leftChild);
+      }
+    }
+  }
+
   void updateValue(final int index, final byte[] value, byte[] oldValue) {
     int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
 
-    if (encryption == null) {
-      entryPosition += getObjectSizeInDirectMemory(keySerializer, entryPosition);
-    } else {
-      final int encryptedValue = getIntValue(entryPosition);
-      entryPosition += OIntegerSerializer.INT_SIZE + encryptedValue;
-    }
+    entryPosition += getKeySize(entryPosition);
 
     assert getByteValue(entryPosition) == 0;
 
@@ -598,6 +722,182 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     return getLongValue(RIGHT_SIBLING_OFFSET);
   }
 
+  /**
+   * @return the size of the key stored at the given position of the page
+   */
+  private int getKeySize(int keyPosition) {
+    if (prefixCompressed) {
+      final int prefixSize = getPrefix().length;
+      if (keyHeaderSize == 0) {
+        return keySerializer.getFixedLength() - prefixSize;
+      }
+      // THE HEADER HOLDS THE SIZE OF THE WHOLE KEY
+      return getObjectSizeInDirectMemory(keySerializer, keyPosition) - prefixSize;
+    }
+
+    if (encryption == null) {
+      return getObjectSizeInDirectMemory(keySerializer, keyPosition);
+    }
+
+    return OIntegerSerializer.INT_SIZE + getIntValue(keyPosition);
+  }
+
+  private K readKey(int keyPosition) {
+    if (encryption == null) {
+      if (prefixCompressed && getPrefix().length > 0) {
+        return keySerializer.deserializeNativeObject(readCompressedKey(keyPosition), 0);
+      }
+
+      return deserializeFromDirectMemory(keySerializer, keyPosition);
+    }
+
+    final int encryptedSize = getIntValue(keyPosition);
+
+    final byte[] encryptedKey = getBinaryValue(keyPosition + OIntegerSerializer.INT_SIZE, encryptedSize);
+    final byte[] serializedKey = encryption.decrypt(encryptedKey);
+    return keySerializer.deserializeNativeObject(serializedKey, 0);
+  }
+
+  /**
+   * @return the buffer of the bucket filled with the key stored at the given position, the buffer may be longer than the key
+   */
+  private byte[] readCompressedKey(int keyPosition) {
+    final byte[] prefix = getPrefix();
+    final int keySize = getKeySize(keyPosition);
+
+    if (keyBuffer == null || keyBuffer.length < keySize + prefix.length) {
+      keyBuffer = new byte[keySize + prefix.length];
+      System.arraycopy(prefix, 0, keyBuffer, keyHeaderSize, prefix.length);
+    }
+
+    getBinaryValue(keyPosition, keyBuffer, 0, keyHeaderSize);
+    getBinaryValue(keyPosition + keyHeaderSize, keyBuffer, keyHeaderSize + prefix.length, keySize - keyHeaderSize);
+    return keyBuffer;
+  }
+
+  private byte[] getPrefix() {
+    if (prefix == null) {
+      final int prefixSize = ((getByteValue(PREFIX_SIZE_OFFSET) & 0xFF) << 8) | (getByteValue(PREFIX_SIZE_OFFSET + 1) & 0xFF);
+      prefix = prefixSize == 0 ? EMPTY_PREFIX : getBinaryValue(MAX_PAGE_SIZE_BYTES - prefixSize, prefixSize);
+    }
+
+    return prefix;
+  }
+
+  /**
+   * Removes all the entries of a compressed bucket and stores the prefix of the keys which will be added.
+   */
+  private void reset(byte[] prefix) {
+    assert prefix.length <= MAX_PREFIX_SIZE;
+
+    setByteValue(PREFIX_SIZE_OFFSET, (byte) (prefix.length >>> 8));
+    setByteValue(PREFIX_SIZE_OFFSET + 1, (byte) prefix.length);
+    if (prefix.length > 0) {
+      setBinaryValue(MAX_PAGE_SIZE_BYTES - prefix.length, prefix);
+    }
+
+    setIntValue(FREE_POINTER_OFFSET, MAX_PAGE_SIZE_BYTES - prefix.length);
+    setIntValue(SIZE_OFFSET, 0);
+
+    this.prefix = prefix;
+    this.keyBuffer = null;
+  }
+
+  /**
+   * @return the longest prefix of the serialized keys, not counting their headers, which is shared by all the given raw entries and
+   * by the current prefix, if not empty
+   */
+  private byte[] commonPrefix(List<byte[]> rawEntries, byte[] currentPrefix) {
+    if (rawEntries.isEmpty()) {
+      return EMPTY_PREFIX;
+    }
+
+    final int keyOffset = isLeaf ? 0 : 2 * OLongSerializer.LONG_SIZE;
+    final int contentOffset = keyOffset + keyHeaderSize;
+
+    byte[] reference = currentPrefix;
+    int prefixSize = currentPrefix.length;
+    int first = 0;
+
+    if (prefixSize == 0) {
+      reference = rawEntries.get(0);
+      reference = Arrays.copyOfRange(reference, contentOffset, keyOffset + keySerializer.getObjectSizeNative(reference, keyOffset));
+      prefixSize = Math.min(reference.length, MAX_PREFIX_SIZE);
+      first = 1;
+    }
+
+    for (int i = first; i < rawEntries.size() && prefixSize > 0; i++) {
+      final byte[] rawEntry = rawEntries.get(i);
+      final int contentSize = keySerializer.getObjectSizeNative(rawEntry, keyOffset) - keyHeaderSize;
+
+      int common = 0;
+      final int maxCommon = Math.min(prefixSize, contentSize);
+      while (common < maxCommon && rawEntry[contentOffset + common] == reference[common]) {
+        common++;
+      }
+
+      prefixSize = common;
+    }
+
+    return prefixSize == reference.length ? reference : Arrays.copyOf(reference, prefixSize);
+  }
+
+  private boolean hasPrefix(byte[] rawEntry, int keyOffset, byte[] prefix) {
+    final int contentOffset = keyOffset + keyHeaderSize;
+    if (keySerializer.getObjectSizeNative(rawEntry, keyOffset) - keyHeaderSize < prefix.length) {
+      return false;
+    }
+
+    for (int i = 0; i < prefix.length; i++) {
+      if (rawEntry[contentOffset + i] != prefix[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Removes the prefix from the key of an entry in the uncompressed format, the key must start with the prefix.
+   */
+  private byte[] compressEntry(byte[] rawEntry) {
+    final byte[] prefix = getPrefix();
+    if (prefix.length == 0) {
+      return rawEntry;
+    }
+
+    final int contentOffset = (isLeaf ? 0 : 2 * OLongSerializer.LONG_SIZE) + keyHeaderSize;
+    assert hasPrefix(rawEntry, contentOffset - keyHeaderSize, prefix);
+
+    final byte[] entry = new byte[rawEntry.length - prefix.length];
+    System.arraycopy(rawEntry, 0, entry, 0, contentOffset);
+    System.arraycopy(rawEntry, contentOffset + prefix.length, entry, contentOffset, entry.length - contentOffset);
+
+    return entry;
+  }
+
+  private byte[] decompressEntry(byte[] entry) {
+    return insertPrefix(entry, (isLeaf ? 0 : 2 * OLongSerializer.LONG_SIZE) + keyHeaderSize);
+  }
+
+  private byte[] decompressKey(byte[] key) {
+    return insertPrefix(key, keyHeaderSize);
+  }
+
+  private byte[] insertPrefix(byte[] data, int contentOffset) {
+    final byte[] prefix = getPrefix();
+    if (prefix.length == 0) {
+      return data;
+    }
+
+    final byte[] result = new byte[data.length + prefix.length];
+    System.arraycopy(data, 0, result, 0, contentOffset);
+    System.arraycopy(prefix, 0, result, contentOffset, prefix.length);
+    System.arraycopy(data, contentOffset, result, contentOffset + prefix.length, data.length - contentOffset);
+
+    return result;
+  }
+
   public static final class SBTreeEntry<K, V> implements Comparable<SBTreeEntry<K, V>> {
     private final Comparator<? super K> comparator = ODefaultComparator.INSTANCE;
 
@@ -381,6 +381,8 @@ public class OTransactionOptimistic extends OTransactionRealAbstract {
     changed = true;
     checkTransaction();
 
+    // NO CLUSTER REQUESTED FOR A NEW RECORD: THE STORAGE CAN STORE IT IN ANY CLUSTER OF ITS CLASS
+    final boolean clusterSelectedByClass = iClusterName == null && !iRecord.getIdentity().isValid();
     if (iClusterName == null)
       iClusterName = database.getClusterNameById(iRecord.getIdentity().getClusterId());
 
@@ -434,6 +436,7 @@ public class OTransactionOptimistic extends OTransactionRealAbstract {
           if (!(rid.isTemporary() && iStatus != ORecordOperation.CREATED)) {
             // NEW ENTRY: JUST REGISTER IT
             txEntry = new ORecordOperation(iRecord, iStatus);
+            txEntry.clusterSelectedByClass = clusterSelectedByClass;
             allEntries.put(rid.copy(), txEntry);
           }
         } else {
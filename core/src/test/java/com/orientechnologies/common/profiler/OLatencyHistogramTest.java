@@ -0,0 +1,47 @@
+package com.orientechnologies.common.profiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OLatencyHistogramTest {
+
+  @Test
+  public void testBuckets() {
+    Assert.assertEquals(0, OLatencyHistogram.bucketOf(0));
+    Assert.assertEquals(0, OLatencyHistogram.bucketOf(1024));
+    Assert.assertEquals(1, OLatencyHistogram.bucketOf(1025));
+    Assert.assertEquals(1, OLatencyHistogram.bucketOf(1280));
+    Assert.assertEquals(2, OLatencyHistogram.bucketOf(1281));
+
+    int previous = 0;
+    for (long value = 1; value < 1L << 40; value += value / 3 + 1) {
+      final int bucket = OLatencyHistogram.bucketOf(value);
+      Assert.assertTrue(bucket >= previous);
+      Assert.assertTrue(value <= OLatencyHistogram.getUpperBound(bucket));
+      if (bucket > 0)
+        Assert.assertTrue(value > OLatencyHistogram.getUpperBound(bucket - 1));
+      previous = bucket;
+    }
+    Assert.assertEquals(Long.MAX_VALUE, OLatencyHistogram.getUpperBound(OLatencyHistogram.bucketOf(Long.MAX_VALUE)));
+  }
+
+  @Test
+  public void testPrometheusFormat() {
+    final OLatencyHistogram histogram = new OLatencyHistogram("test_seconds", "Test latencies");
+    histogram.record(500);
+    histogram.record(1_000_000);
+    histogram.record(2_000_000);
+    histogram.record(100_000_000_000L);
+    Assert.assertEquals(4, histogram.getCount());
+
+    final StringBuilder buffer = new StringBuilder();
+    histogram.toPrometheus(buffer);
+    final String text = buffer.toString();
+    Assert.assertTrue(text.startsWith("# HELP test_seconds Test latencies\n# TYPE test_seconds histogram\n"));
+    Assert.assertTrue(text.contains("test_seconds_bucket{le=\"1.024E-6\"} 1\n"));
+    Assert.assertTrue(text.contains("test_seconds_bucket{le=\"0.001048576\"} 2\n"));
+    Assert.assertTrue(text.contains("test_seconds_bucket{le=\"+Inf\"} 4\n"));
+    Assert.assertTrue(text.contains("test_seconds_count 4\n"));
+    Assert.assertTrue(text.contains("test_seconds_sum 100.0030005\n"));
+  }
+}
@@ -0,0 +1,133 @@
+package com.orientechnologies.orient.core.cache;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OSharedRecordCacheTest {
+  private ODatabaseDocumentTx db;
+  private OSharedRecordCache  cache;
+
+  @Before
+  public void before() {
+    db = new ODatabaseDocumentTx("memory:" + OSharedRecordCacheTest.class.getSimpleName());
+    db.create();
+    cache = ((OAbstractPaginatedStorage) db.getStorage().getUnderlying()).getSharedRecordCache();
+  }
+
+  @After
+  public void after() {
+    db.drop();
+  }
+
+  @Test
+  public void testCachedClassReadAndInvalidation() {
+    OClass country = db.getMetadata().getSchema().createClass("Country");
+    OClass city = db.getMetadata().getSchema().createClass("City");
+    country.setCustom(OSharedRecordCache.CLASS_CUSTOM_ATTRIBUTE, "true");
+    Assert.assertTrue(cache.isCached(country.getDefaultClusterId()));
+    Assert.assertFalse(cache.isCached(city.getDefaultClusterId()));
+
+    ODocument italy = new ODocument("Country").field("name", "Italy");
+    db.save(italy);
+    ODocument rome = new ODocument("City").field("name", "Rome");
+    db.save(rome);
+    ORID rid = italy.getIdentity();
+
+    db.getLocalCache().clear();
+    Assert.assertEquals("Italy", ((ODocument) db.load(rid)).field("name"));
+    db.getLocalCache().clear();
+    Assert.assertEquals("Rome", ((ODocument) db.load(rome.getIdentity())).field("name"));
+    Assert.assertEquals(1, cache.size());
+
+    long hits = cache.getHits();
+    db.getLocalCache().clear();
+    Assert.assertEquals("Italy", ((ODocument) db.load(rid)).field("name"));
+    Assert.assertEquals(hits + 1, cache.getHits());
+
+    // A COMMIT REMOVES THE CHANGED RECORD
+    db.begin();
+    ODocument loaded = db.load(rid);
+    loaded.field("name", "Italia");
+    db.save(loaded);
+    db.commit();
+    Assert.assertEquals(0, cache.size());
+
+    db.getLocalCache().clear();
+    Assert.assertEquals("Italia", ((ODocument) db.load(rid)).field("name"));
+    Assert.assertEquals(1, cache.size());
+
+    // A NON TRANSACTIONAL DELETE REMOVES THE RECORD TOO
+    db.getLocalCache().clear();
+    db.delete(rid);
+    Assert.assertEquals(0, cache.size());
+    db.getLocalCache().clear();
+    Assert.assertNull(db.load(rid));
+
+    country.setCustom(OSharedRecordCache.CLASS_CUSTOM_ATTRIBUTE, null);
+    Assert.assertFalse(cache.isCached(country.getDefaultClusterId()));
+  }
+
+  @Test
+  public void testTruncateInvalidatesCachedRecords() {
+    OClass country = db.getMetadata().getSchema().createClass("Country");
+    country.setCustom(OSharedRecordCache.CLASS_CUSTOM_ATTRIBUTE, "true");
+
+    ODocument italy = new ODocument("Country").field("name", "Italy");
+    db.save(italy);
+    ORID rid = italy.getIdentity();
+
+    db.getLocalCache().clear();
+    Assert.assertEquals("Italy", ((ODocument) db.load(rid)).field("name"));
+    Assert.assertEquals(1, cache.size());
+
+    db.command("truncate class Country").close();
+    Assert.assertEquals(0, cache.size());
+    db.getLocalCache().clear();
+    Assert.assertNull(db.load(rid));
+
+    // THE POSITION IS REUSED BY THE NEXT RECORD
+    ODocument france = new ODocument("Country").field("name", "France");
+    db.save(france);
+    Assert.assertEquals(rid, france.getIdentity());
+    db.getLocalCache().clear();
+    Assert.assertEquals("France", ((ODocument) db.load(rid)).field("name"));
+  }
+
+  @Test
+  public void testStaleReadIsNotCached() {
+    OSharedRecordCache cache = new OSharedRecordCache(10);
+    ORID rid = new ORecordId(10, 0);
+    long stamp = cache.getModificationStamp();
+    cache.invalidate(rid);
+    cache.put(rid, new ORawBuffer(new byte[] { 1 }, 1, ODocument.RECORD_TYPE), stamp);
+    Assert.assertEquals(0, cache.size());
+
+    cache.put(rid, new ORawBuffer(new byte[] { 1 }, 1, ODocument.RECORD_TYPE), cache.getModificationStamp());
+    Assert.assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testLeastFrequentlyReadRecordsAreEvicted() {
+    OSharedRecordCache cache = new OSharedRecordCache(10);
+    ORID hot = new ORecordId(10, 0);
+    cache.put(hot, new ORawBuffer(new byte[] { 1 }, 1, ODocument.RECORD_TYPE), cache.getModificationStamp());
+    for (int i = 0; i < 5; i++)
+      Assert.assertNotNull(cache.get(hot));
+
+    for (int i = 1; i < 30; i++)
+      cache.put(new ORecordId(10, i), new ORawBuffer(new byte[] { 1 }, 1, ODocument.RECORD_TYPE), cache.getModificationStamp());
+
+    Assert.assertTrue(cache.size() <= 10);
+    Assert.assertTrue(cache.getEvictions() > 0);
+    Assert.assertNotNull(cache.get(hot));
+  }
+}
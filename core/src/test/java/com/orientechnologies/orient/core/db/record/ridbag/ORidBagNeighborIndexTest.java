@@ -0,0 +1,168 @@
+package com.orientechnologies.orient.core.db.record.ridbag;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.executor.OResultInternal;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import com.orientechnologies.orient.core.sql.functions.graph.OSQLFunctionOut;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+public class ORidBagNeighborIndexTest {
+
+  private OrientDB          orientDB;
+  private ODatabaseDocument db;
+  private Object            threshold;
+  private OVertex           hub;
+  private List<OVertex>     people = new ArrayList<>();
+
+  @Before
+  public void before() {
+    threshold = OGlobalConfiguration.RID_BAG_NEIGHBOR_INDEX_THRESHOLD.getValue();
+    OGlobalConfiguration.RID_BAG_NEIGHBOR_INDEX_THRESHOLD.setValue(10);
+
+    orientDB = new OrientDB("embedded:", OrientDBConfig.defaultConfig());
+    orientDB.create(ORidBagNeighborIndexTest.class.getSimpleName(), ODatabaseType.MEMORY);
+    db = orientDB.open(ORidBagNeighborIndexTest.class.getSimpleName(), "admin", "admin");
+    db.createVertexClass("Person");
+    db.createEdgeClass("Knows");
+
+    hub = db.newVertex("Person");
+    hub.setProperty("name", "hub");
+    hub.save();
+    for (int i = 0; i < 50; i++) {
+      OVertex person = db.newVertex("Person");
+      person.setProperty("name", "p" + i);
+      person.save();
+      people.add(person);
+      db.newEdge(hub, person, "Knows").save();
+    }
+    db.newEdge(hub, people.get(7), "Knows").save();
+    db.newVertex("Person").save();
+  }
+
+  @After
+  public void after() {
+    db.close();
+    orientDB.drop(ORidBagNeighborIndexTest.class.getSimpleName());
+    orientDB.close();
+    OGlobalConfiguration.RID_BAG_NEIGHBOR_INDEX_THRESHOLD.setValue(threshold);
+  }
+
+  @Test
+  public void testNeighborIndex() {
+    ODocument vertex = db.load(hub.getIdentity());
+    ORidBag bag = vertex.field("out_Knows");
+    ORidBagNeighborIndex index = ORidBagNeighborIndex.build(bag, "in");
+    Assert.assertTrue(index.isUsable());
+    Assert.assertTrue(index.isValid(bag, "in"));
+    Assert.assertFalse(index.isValid(bag, "out"));
+    Assert.assertEquals(51, index.size());
+
+    Assert.assertEquals(2, index.count(people.get(7).getIdentity()));
+    Assert.assertEquals(1, index.count(people.get(3).getIdentity()));
+    Assert.assertFalse(index.isConnected(hub.getIdentity()));
+
+    List<ORID> edges = index.getEdges(people.get(3).getIdentity());
+    Assert.assertEquals(1, edges.size());
+    ODocument edge = db.load(edges.get(0));
+    Assert.assertEquals(people.get(3).getIdentity(), edge.<OIdentifiable>field("in").getIdentity());
+
+    int neighbors = 0;
+    for (int clusterId : db.getMetadata().getSchema().getClass("Person").getClusterIds()) {
+      for (ORID rid : index.getNeighbors(clusterId)) {
+        Assert.assertEquals(clusterId, rid.getClusterId());
+        neighbors++;
+      }
+    }
+    Assert.assertEquals(51, neighbors);
+
+    // A CHANGE OF THE BAG INVALIDATES THE INDEX
+    bag.add(edge);
+    Assert.assertFalse(index.isValid(bag, "in"));
+    Assert.assertEquals(2, ORidBagNeighborIndex.build(bag, "in").count(people.get(3).getIdentity()));
+  }
+
+  @Test
+  public void testChangesOfAnotherSession() {
+    OSQLFunctionOut function = new OSQLFunctionOut();
+    OBasicCommandContext ctx = new OBasicCommandContext();
+    ctx.setDatabase(db);
+    Object result = function.execute(hub, hub, null, new Object[] { "Knows" },
+        Collections.<OIdentifiable>singletonList(people.get(3).getIdentity()), ctx);
+    Assert.assertEquals(1, ((Collection<?>) result).size());
+
+    try (ODatabaseDocument other = orientDB.open(ORidBagNeighborIndexTest.class.getSimpleName(), "admin", "admin")) {
+      // ONE MORE EDGE TO P3, AN EDGE TO P7 MOVED TO P5: THE BAG OF THE HUB KEEPS THE SAME EDGE
+      other.command("CREATE EDGE Knows FROM ? TO ?", hub.getIdentity(), people.get(3).getIdentity()).close();
+      other.command("UPDATE EDGE Knows SET in = ? WHERE @rid IN (SELECT out_Knows FROM ?) AND in = ? LIMIT 1",
+          people.get(5).getIdentity(), hub.getIdentity(), people.get(7).getIdentity()).close();
+    }
+    db.activateOnCurrentThread();
+
+    ctx = new OBasicCommandContext();
+    ctx.setDatabase(db);
+    result = function.execute(hub, hub, null, new Object[] { "Knows" },
+        Collections.<OIdentifiable>singletonList(people.get(3).getIdentity()), ctx);
+    Assert.assertEquals(2, ((Collection<?>) result).size());
+    result = function.execute(hub, hub, null, new Object[] { "Knows" },
+        Collections.<OIdentifiable>singletonList(people.get(7).getIdentity()), ctx);
+    Assert.assertEquals(1, ((Collection<?>) result).size());
+    result = function.execute(hub, hub, null, new Object[] { "Knows" },
+        Collections.<OIdentifiable>singletonList(people.get(5).getIdentity()), ctx);
+    Assert.assertEquals(2, ((Collection<?>) result).size());
+
+    String query = "MATCH {class: Person, as: a, where: (name = 'hub')}.out('Knows'){as: b}, "
+        + "{class: Person, as: b, where: (name = 'p3')} RETURN b.name as b";
+    try (OResultSet rs = db.query(query)) {
+      Assert.assertEquals(2, rs.stream().count());
+    }
+  }
+
+  @Test
+  public void testOutFilteredByPossibleResults() {
+    OSQLFunctionOut function = new OSQLFunctionOut();
+    OBasicCommandContext ctx = new OBasicCommandContext();
+    ctx.setDatabase(db);
+
+    Object result = function.execute(hub, hub, null, new Object[] { "Knows" },
+        Collections.<OIdentifiable>singletonList(people.get(7).getIdentity()), ctx);
+    Assert.assertEquals(2, ((Collection<?>) result).size());
+
+    OResultInternal candidate = new OResultInternal(people.get(3));
+    result = function.execute(hub, hub, null, new Object[] { "Knows" }, (List) Collections.singletonList(candidate), ctx);
+    Assert.assertEquals(Collections.singletonList(people.get(3)), result);
+
+    result = function.execute(hub, hub, null, new Object[] { "Knows" }, Collections.singletonList((OIdentifiable) hub), ctx);
+    Assert.assertTrue(((Collection<?>) result).isEmpty());
+  }
+
+  @Test
+  public void testMatchConnectedVertices() {
+    String query = "MATCH {class: Person, as: a, where: (name = 'hub')}.out('Knows'){as: b}, "
+        + "{class: Person, as: b, where: (name = 'p7')} RETURN a.name as a, b.name as b";
+    try (OResultSet rs = db.query(query)) {
+      int count = 0;
+      while (rs.hasNext()) {
+        Assert.assertEquals("p7", rs.next().getProperty("b"));
+        count++;
+      }
+      Assert.assertEquals(2, count);
+    }
+  }
+}
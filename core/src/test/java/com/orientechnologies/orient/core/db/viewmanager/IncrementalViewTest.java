@@ -0,0 +1,142 @@
+package com.orientechnologies.orient.core.db.viewmanager;
+
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.db.OSharedContextEmbedded;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OView;
+import com.orientechnologies.orient.core.metadata.schema.OViewConfig;
+import com.orientechnologies.orient.core.record.OElement;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+public class IncrementalViewTest {
+  private ODatabaseDocumentTx db;
+
+  @Before
+  public void before() {
+    db = new ODatabaseDocumentTx("memory:" + IncrementalViewTest.class.getSimpleName());
+    db.create();
+  }
+
+  @After
+  public void after() {
+    db.drop();
+  }
+
+  @Test
+  public void testRowsAreUpdatedIncrementally() throws InterruptedException {
+    db.createClass("Person");
+    for (int i = 0; i < 10; i++)
+      db.command("insert into Person set name = ?, age = ?", "name" + i, i * 10).close();
+
+    OViewConfig cfg = new OViewConfig("Adults", "SELECT name, age FROM Person WHERE age >= 18");
+    cfg.setOriginRidField("origin");
+    OView view = createView(cfg);
+    int clusterId = view.getClusterIds()[0];
+    Assert.assertEquals(8, count("Adults"));
+
+    db.command("insert into Person set name = 'new', age = 40").close();
+    db.command("update Person set age = 5 where name = 'name2'").close();
+    db.command("update Person set age = 25 where name = 'name1'").close();
+    db.command("delete from Person where name = 'name9'").close();
+    db.begin();
+    db.command("insert into Person set name = 'rolledBack', age = 50").close();
+    db.rollback();
+
+    updateView("Adults");
+    Assert.assertEquals(clusterId, db.getMetadata().getSchema().getView("Adults").getClusterIds()[0]);
+    Assert.assertEquals(8, count("Adults"));
+    try (OResultSet rs = db.query("SELECT FROM Adults WHERE name = 'name1'")) {
+      OResult row = rs.next();
+      Assert.assertEquals(25, (int) row.getProperty("age"));
+      OElement origin = ((ORID) row.getProperty("origin")).getRecord();
+      Assert.assertEquals("name1", origin.getProperty("name"));
+    }
+    Assert.assertEquals(0, count("Adults WHERE name in ['name2', 'name9', 'rolledBack']"));
+    Assert.assertEquals(1, count("Adults WHERE name = 'new'"));
+  }
+
+  @Test
+  public void testAggregatesAreUpdatedIncrementally() throws InterruptedException {
+    db.createClass("Item");
+    for (int i = 0; i < 20; i++)
+      db.command("insert into Item set category = ?, value = ?", "c" + (i % 3), i).close();
+
+    String query = "SELECT category, count(*) AS cnt, sum(value) AS total, min(value) AS low, max(value) AS high FROM Item "
+        + "WHERE value < 100 GROUP BY category";
+    OView view = createView(new OViewConfig("Stats", query));
+    int clusterId = view.getClusterIds()[0];
+    assertSameGroups(query);
+
+    db.begin();
+    db.command("insert into Item set category = 'c0', value = -5").close();
+    db.command("insert into Item set category = 'c3', value = 7").close();
+    db.commit();
+    updateView("Stats");
+    assertSameGroups(query);
+
+    // REMOVES THE MINIMUM OF c0 AND MOVES A RECORD TO ANOTHER GROUP
+    db.command("delete from Item where value = -5").close();
+    db.command("update Item set category = 'c2' where value = 19").close();
+    db.command("update Item set value = 200 where value = 18").close();
+    db.command("delete from Item where category = 'c3'").close();
+    updateView("Stats");
+    Assert.assertEquals(clusterId, db.getMetadata().getSchema().getView("Stats").getClusterIds()[0]);
+    assertSameGroups(query);
+    Assert.assertEquals(0, count("Stats WHERE category = 'c3'"));
+  }
+
+  private OView createView(OViewConfig cfg) throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(1);
+    db.getMetadata().getSchema().createView(cfg, new ViewCreationListener() {
+      @Override
+      public void afterCreate(ODatabaseSession database, String viewName) {
+        latch.countDown();
+      }
+
+      @Override
+      public void onError(String viewName, Exception exception) {
+        latch.countDown();
+      }
+    });
+    latch.await();
+    return db.getMetadata().getSchema().getView(cfg.getName());
+  }
+
+  private void updateView(String name) {
+    ViewManager viewManager = ((OSharedContextEmbedded) db.getSharedContext()).getViewManager();
+    viewManager.updateView(db.getMetadata().getSchema().getView(name), db);
+  }
+
+  private long count(String target) {
+    try (OResultSet rs = db.query("SELECT count(*) AS c FROM " + target)) {
+      return ((Number) rs.next().getProperty("c")).longValue();
+    }
+  }
+
+  private void assertSameGroups(String query) {
+    Map<String, String> expected = new HashMap<>();
+    try (OResultSet rs = db.query(query)) {
+      rs.stream().forEach(x -> expected.put(x.getProperty("category"), toString(x)));
+    }
+    Map<String, String> actual = new HashMap<>();
+    try (OResultSet rs = db.query("SELECT FROM Stats")) {
+      rs.stream().forEach(x -> actual.put(x.getProperty("category"), toString(x)));
+    }
+    Assert.assertEquals(expected, actual);
+  }
+
+  private static String toString(OResult row) {
+    return ((Number) row.getProperty("cnt")).longValue() + "/" + ((Number) row.getProperty("total")).longValue() + "/"
+        + row.getProperty("low") + "/" + row.getProperty("high");
+  }
+}
@@ -0,0 +1,77 @@
+package com.orientechnologies.orient.core.index;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OInvalidIndexEngineIdException;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import com.orientechnologies.orient.core.storage.index.engine.OHybridIndexEngine;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HybridIndexTest {
+  private ODatabaseDocumentTx db;
+
+  @Before
+  public void before() {
+    db = new ODatabaseDocumentTx("memory:" + HybridIndexTest.class.getSimpleName());
+    db.create();
+  }
+
+  @After
+  public void after() {
+    db.drop();
+  }
+
+  @Test
+  public void testLookupsAreCachedAndInvalidated() throws OInvalidIndexEngineIdException {
+    OClass clazz = db.getMetadata().getSchema().createClass("Item");
+    clazz.createProperty("code", OType.LONG);
+    clazz.createIndex("Item.code", OClass.INDEX_TYPE.UNIQUE.toString(), null, null, ODefaultIndexFactory.HYBRID_ALGORITHM,
+        new String[] { "code" });
+    for (int i = 0; i < 100; i++)
+      db.save(new ODocument("Item").field("code", i));
+
+    OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Item.code");
+    OHybridIndexEngine engine = getEngine(index);
+
+    OIdentifiable rid = (OIdentifiable) index.get(10L);
+    Assert.assertNotNull(rid);
+    long hits = engine.getCacheHits();
+    Assert.assertEquals(rid, index.get(10L));
+    Assert.assertEquals(hits + 1, engine.getCacheHits());
+    Assert.assertNull(index.get(1000L));
+    Assert.assertNull(index.get(1000L));
+
+    ODocument doc = rid.getRecord();
+    doc.field("code", 1000L);
+    db.save(doc);
+    Assert.assertNull(index.get(10L));
+    Assert.assertEquals(rid, index.get(1000L));
+
+    db.begin();
+    db.save(new ODocument("Item").field("code", 10L));
+    db.rollback();
+    Assert.assertNull(index.get(10L));
+
+    db.begin();
+    db.delete(doc);
+    db.commit();
+    Assert.assertNull(index.get(1000L));
+
+    // RANGE QUERIES STILL USE THE TREE
+    try (OResultSet rs = db.query("select count(*) as c from Item where code >= 90")) {
+      Assert.assertEquals(10L, ((Number) rs.next().getProperty("c")).longValue());
+    }
+  }
+
+  private OHybridIndexEngine getEngine(OIndex<?> index) throws OInvalidIndexEngineIdException {
+    int indexId = ((OIndexAbstract<?>) index.getInternal()).getIndexId();
+    return (OHybridIndexEngine) ((OAbstractPaginatedStorage) db.getStorage().getUnderlying()).getIndexEngine(indexId);
+  }
+}
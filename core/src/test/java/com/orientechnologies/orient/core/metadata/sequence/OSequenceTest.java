@@ -1,5 +1,6 @@
 package com.orientechnologies.orient.core.metadata.sequence;
 
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.exception.OConcurrentModificationException;
@@ -14,9 +15,12 @@ import org.junit.Test;
 import org.junit.rules.ExternalResource;
 
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -120,6 +124,71 @@ public class OSequenceTest {
 
   }
 
+  @Test
+  public void shouldReturnBulkValues() throws Exception {
+    sequences.createSequence("mySeq", OSequence.SEQUENCE_TYPE.ORDERED, new OSequence.CreateParams().setDefaults());
+    OSequence myseq = sequences.getSequence("MYSEQ");
+
+    assertThat(myseq.next(3)).containsExactly(1, 2, 3);
+    assertThat(myseq.next()).isEqualTo(4);
+  }
+
+  @Test
+  public void shouldGiveDisjointRangesToThreads() throws Exception {
+    OGlobalConfiguration.SEQUENCE_CACHED_THREAD_RANGES.setValue(true);
+    try {
+      OSequence.CreateParams params = new OSequence.CreateParams().setDefaults().setCacheSize(10).setIncrement(2);
+      sequences.createSequence("mySeq", OSequence.SEQUENCE_TYPE.CACHED, params);
+      OSequence myseq = sequences.getSequence("MYSEQ");
+      long first = myseq.next();
+      assertThat(myseq.current()).isEqualTo(first);
+      long[] bulk = myseq.next(25);
+      for (int i = 0; i < bulk.length; i++) {
+        assertThat(bulk[i]).isEqualTo(first + 2 * (i + 1));
+      }
+
+      final int threads = 4;
+      final int count = 500;
+      final Set<Long> values = ConcurrentHashMap.newKeySet();
+      final AtomicInteger errors = new AtomicInteger(0);
+      values.add(first);
+      for (long value : bulk) {
+        values.add(value);
+      }
+      ExecutorService service = Executors.newFixedThreadPool(threads);
+      for (int i = 0; i < threads; i++) {
+        service.execute(() -> {
+          ODatabaseDocument databaseDocument = new ODatabaseDocumentTx("memory:" + OSequenceTest.class.getName());
+          databaseDocument.open("admin", "admin");
+          try {
+            OSequence sequence = databaseDocument.getMetadata().getSequenceLibrary().getSequence("mySeq");
+            for (int j = 0; j < count; j += 5) {
+              long previous = sequence.next();
+              assertThat(values.add(previous)).isTrue();
+              for (long value : sequence.next(4)) {
+                assertThat(value).isGreaterThan(previous);
+                assertThat(values.add(value)).isTrue();
+                previous = value;
+              }
+            }
+          } catch (Throwable e) {
+            e.printStackTrace();
+            errors.incrementAndGet();
+          } finally {
+            databaseDocument.close();
+          }
+        });
+      }
+      service.shutdown();
+      assertThat(service.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+      assertThat(errors.get()).isEqualTo(0);
+      assertThat(values).hasSize(threads * count + 26);
+    } finally {
+      OGlobalConfiguration.SEQUENCE_CACHED_THREAD_RANGES.setValue(false);
+    }
+  }
+
   @Test(expected = OSequenceException.class)
   public void shouldThrowExceptionOnDuplicateSeqDefinition() throws Exception {
     sequences.createSequence("mySeq", OSequence.SEQUENCE_TYPE.ORDERED, null);
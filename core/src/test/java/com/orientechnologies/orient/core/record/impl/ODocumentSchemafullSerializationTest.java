@@ -10,6 +10,7 @@ import com.orientechnologies.orient.core.metadata.schema.OSchema;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ODocumentFieldSlots;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -351,6 +352,71 @@ public abstract class ODocumentSchemafullSerializationTest {
 
   }
 
+  @Test
+  public void testLazyFieldDecoding() {
+    ODatabaseRecordThreadLocal.instance().set(databaseDocument);
+    ODocument document = new ODocument(simple);
+    document.field(STRING_FIELD, NAME);
+    document.field(INT_FIELD, 20);
+    document.field(LONG_FIELD, (Object) null);
+    document.field("custom", "value");
+
+    byte[] res = serializer.toStream(document, false);
+    ODocument extr = new ODocument().fromStream(res);
+    assertEquals(NAME, extr.field(STRING_FIELD));
+    assertFalse(ODocumentInternal.rawContainsField(extr, INT_FIELD));
+
+    ODocumentFieldSlots slots = ODocumentInternal.getFieldSlots(extr);
+    assertNotNull(slots);
+    assertEquals(4, slots.size());
+    assertEquals(20, (int) extr.field(INT_FIELD));
+    assertNull(extr.field(LONG_FIELD));
+    assertNull(extr.field("notExisting"));
+    assertSame(slots, ODocumentInternal.getFieldSlots(extr));
+
+    // THE FULL DESERIALIZATION RELEASES THE SLOTS
+    assertEquals(document.fields(), extr.fields());
+    assertNull(ODocumentInternal.getFieldSlots(extr));
+  }
+
+  @Test
+  public void testLazyFieldDecodingReleasesTheSlots() {
+    ODatabaseRecordThreadLocal.instance().set(databaseDocument);
+    ODocument document = new ODocument(simple);
+    document.field(STRING_FIELD, NAME);
+    document.field(INT_FIELD, 20);
+    document.field("custom", "value");
+
+    byte[] res = serializer.toStream(document, false);
+    ODocument extr = new ODocument().fromStream(res);
+    assertEquals(NAME, extr.field(STRING_FIELD));
+    assertEquals(20, (int) extr.field(INT_FIELD));
+    assertNotNull(ODocumentInternal.getFieldSlots(extr));
+
+    // THE LAST FIELD DECODED ONE BY ONE RELEASES THE SLOTS: ONLY THE FIELDS ARE KEPT
+    assertEquals("value", extr.field("custom"));
+    assertNull(ODocumentInternal.getFieldSlots(extr));
+    assertEquals(document.fields(), extr.fields());
+    assertEquals("value", extr.field("custom"));
+  }
+
+  @Test
+  public void testLazyFieldNameMatch() {
+    ODatabaseRecordThreadLocal.instance().set(databaseDocument);
+    ODocument document = new ODocument();
+    document.field("città", "rome");
+    document.field("cittàx", "other");
+    document.field("cittaa", "ascii");
+
+    byte[] res = serializer.toStream(document, false);
+    ODocument extr = new ODocument().fromStream(res);
+    assertEquals("ascii", extr.field("cittaa"));
+    assertFalse(ODocumentInternal.rawContainsField(extr, "città"));
+    assertEquals("rome", extr.field("città"));
+    assertFalse(ODocumentInternal.rawContainsField(extr, "cittàx"));
+    assertEquals("cittàx", ODocumentInternal.getFieldSlots(extr).getName(1));
+  }
+
   @Test
   public void simpleTypeKeepingTest() {
     ODatabaseRecordThreadLocal.instance().set(databaseDocument);
@@ -20,6 +20,7 @@
 package com.orientechnologies.orient.core.sql;
 
 import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.OLiveQueryMonitor;
 import com.orientechnologies.orient.core.db.OLiveQueryResultListener;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
@@ -28,6 +29,7 @@ import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.query.live.OLiveQueryHookV2;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.executor.OResult;
 import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
@@ -35,6 +37,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -125,6 +128,54 @@ public class OLiveQueryV2Test {
     }
   }
 
+  @Test
+  public void testIndexedSubscriptions() throws InterruptedException {
+    ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:OLiveQueryV2Test_indexed");
+    db.activateOnCurrentThread();
+    db.create();
+    try {
+      OClass base = db.getMetadata().getSchema().createClass("Base");
+      db.getMetadata().getSchema().createClass("Sub", base);
+      MyLiveQueryListener byValue = new MyLiveQueryListener(new CountDownLatch(4));
+      MyLiveQueryListener byName = new MyLiveQueryListener(new CountDownLatch(1));
+      MyLiveQueryListener unindexed = new MyLiveQueryListener(new CountDownLatch(2));
+
+      List<OLiveQueryMonitor> monitors = new ArrayList<>();
+      monitors.add(db.live("select from Base where value = ?", byValue, 3L));
+      monitors.add(db.live("select from Sub where name = 'x' and value > 0", byName));
+      monitors.add(db.live("select from Base where name = 'x' or value = 1", unindexed));
+      Assert.assertEquals(3, OLiveQueryHookV2.getOpsReference(db).getIndex().size());
+
+      db.command("insert into Base set name = 'y', value = 3").close();
+      db.command("insert into Sub set name = 'x', value = 3").close();
+      db.command("insert into Sub set name = 'z', value = 1").close();
+      db.command("update Sub set value = 3 where name = 'z'").close();
+      db.command("delete from Base where name = 'y'").close();
+
+      Assert.assertTrue(byValue.latch.await(1, TimeUnit.MINUTES));
+      Assert.assertTrue(byName.latch.await(1, TimeUnit.MINUTES));
+      Assert.assertTrue(unindexed.latch.await(1, TimeUnit.MINUTES));
+
+      // THE CHANGES ARE DELIVERED TO EACH SUBSCRIBER IN COMMIT ORDER
+      Assert.assertEquals(4, byValue.ops.size());
+      Assert.assertEquals("y", byValue.ops.get(0).getProperty("name"));
+      Assert.assertEquals("x", byValue.ops.get(1).getProperty("name"));
+      Assert.assertEquals("z", byValue.ops.get(2).getProperty("name"));
+      Assert.assertEquals("y", byValue.ops.get(3).getProperty("name"));
+      Assert.assertEquals(1, byName.ops.size());
+      Assert.assertEquals(2, unindexed.ops.size());
+      Assert.assertEquals("x", unindexed.ops.get(0).getProperty("name"));
+      Assert.assertEquals("z", unindexed.ops.get(1).getProperty("name"));
+
+      for (OLiveQueryMonitor monitor : monitors) {
+        monitor.unSubscribe();
+      }
+      Assert.assertEquals(0, OLiveQueryHookV2.getOpsReference(db).getIndex().size());
+    } finally {
+      db.drop();
+    }
+  }
+
   @Test
   public void testRestrictedLiveInsert() throws ExecutionException, InterruptedException {
     ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:OLiveQueryTest");
@@ -209,4 +260,44 @@ public class OLiveQueryV2Test {
     }
   }
 
+  @Test
+  public void testEndAfterQueuedChanges() throws InterruptedException {
+    int oldThreads = OGlobalConfiguration.QUERY_LIVE_DISPATCH_THREADS.getValueAsInteger();
+    OGlobalConfiguration.QUERY_LIVE_DISPATCH_THREADS.setValue(4);
+    ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:OLiveQueryV2Test_end");
+    db.activateOnCurrentThread();
+    db.create();
+    try {
+      db.getMetadata().getSchema().createClass("test");
+      final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+      final CountDownLatch ended = new CountDownLatch(1);
+      MyLiveQueryListener listener = new MyLiveQueryListener(new CountDownLatch(10)) {
+        @Override
+        public void onCreate(ODatabaseDocument database, OResult data) {
+          events.add("create");
+        }
+
+        @Override
+        public void onEnd(ODatabaseDocument database) {
+          events.add("end");
+          ended.countDown();
+        }
+      };
+
+      OLiveQueryMonitor monitor = db.live("select from test", listener);
+      for (int i = 0; i < 10; i++) {
+        db.command("insert into test set counter = ?", i).close();
+      }
+      monitor.unSubscribe();
+
+      // THE END IS DELIVERED BY THE SUBSCRIBER'S WORKER, AFTER THE CHANGES COMMITTED BEFORE THE UNSUBSCRIBE
+      Assert.assertTrue(ended.await(1, TimeUnit.MINUTES));
+      Assert.assertEquals(11, events.size());
+      Assert.assertEquals("end", events.get(10));
+    } finally {
+      db.drop();
+      OGlobalConfiguration.QUERY_LIVE_DISPATCH_THREADS.setValue(oldThreads);
+    }
+  }
+
 }
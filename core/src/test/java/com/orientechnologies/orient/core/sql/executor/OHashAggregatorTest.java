@@ -0,0 +1,212 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.exception.OQueryMemoryLimitException;
+import com.orientechnologies.orient.core.sql.functions.OSQLFunction;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionAverage;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionMax;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionMin;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class OHashAggregatorTest {
+  private static final int ITEMS = 5000;
+
+  private ODatabaseDocumentTx db;
+  private Object              limit;
+
+  @Before
+  public void before() {
+    limit = OGlobalConfiguration.QUERY_MAX_MEMORY_PER_QUERY.getValue();
+
+    db = new ODatabaseDocumentTx("memory:" + OHashAggregatorTest.class.getSimpleName());
+    db.create();
+    db.getMetadata().getSchema().createClass("Item");
+    for (int i = 0; i < ITEMS; i++)
+      db.command("insert into Item set key = ?, group = ?, intValue = ?, longValue = ?, doubleValue = ?", "key" + i, i % 10, i,
+          (long) i, i % 2 == 0 ? null : 0.5).close();
+  }
+
+  @After
+  public void after() {
+    db.drop();
+    OGlobalConfiguration.QUERY_MAX_MEMORY_PER_QUERY.setValue(limit);
+  }
+
+  @Test
+  public void testCountAndSum() {
+    try (OResultSet rs = db.query(
+        "select group, count(*) as count, count(doubleValue) as notNull, sum(intValue) as intSum, sum(longValue) as longSum, "
+            + "sum(doubleValue) as doubleSum from Item group by group")) {
+      Set<Integer> groups = new HashSet<>();
+      while (rs.hasNext()) {
+        OResult item = rs.next();
+        int group = item.getProperty("group");
+        Assert.assertTrue(groups.add(group));
+        Assert.assertEquals(ITEMS / 10L, (long) item.getProperty("count"));
+        Assert.assertEquals(group % 2 == 0 ? 0L : ITEMS / 10L, (long) item.getProperty("notNull"));
+
+        long expected = 0;
+        for (int i = group; i < ITEMS; i += 10)
+          expected += i;
+        Object intSum = item.getProperty("intSum");
+        Assert.assertTrue(intSum instanceof Integer);
+        Assert.assertEquals(expected, ((Integer) intSum).longValue());
+        Object longSum = item.getProperty("longSum");
+        Assert.assertTrue(longSum instanceof Long);
+        Assert.assertEquals(expected, longSum);
+        Object doubleSum = item.getProperty("doubleSum");
+        if (group % 2 == 0)
+          Assert.assertEquals(0, doubleSum);
+        else
+          Assert.assertEquals(ITEMS / 20.0, (Double) doubleSum, 0.0001);
+      }
+      Assert.assertEquals(10, groups.size());
+    }
+  }
+
+  @Test
+  public void testAvgMinMax() {
+    try (OResultSet rs = db.query(
+        "select group, avg(intValue) as intAvg, avg(longValue) as longAvg, avg(doubleValue) as doubleAvg, min(intValue) as intMin, "
+            + "max(longValue) as longMax, min(doubleValue) as doubleMin, min(key) as keyMin, max(key) as keyMax from Item group by group")) {
+      Set<Integer> groups = new HashSet<>();
+      while (rs.hasNext()) {
+        OResult item = rs.next();
+        int group = item.getProperty("group");
+        Assert.assertTrue(groups.add(group));
+
+        int sum = 0;
+        String keyMin = null;
+        String keyMax = null;
+        for (int i = group; i < ITEMS; i += 10) {
+          sum += i;
+          String key = "key" + i;
+          keyMin = keyMin == null || key.compareTo(keyMin) < 0 ? key : keyMin;
+          keyMax = keyMax == null || key.compareTo(keyMax) > 0 ? key : keyMax;
+        }
+        Assert.assertEquals(sum / (ITEMS / 10), item.<Object>getProperty("intAvg"));
+        Assert.assertEquals((long) sum / (ITEMS / 10), item.<Object>getProperty("longAvg"));
+        Assert.assertEquals(group % 2 == 0 ? null : 0.5, item.getProperty("doubleAvg"));
+        Assert.assertEquals(group, item.<Object>getProperty("intMin"));
+        Assert.assertEquals((long) ITEMS - 10 + group, item.<Object>getProperty("longMax"));
+        Assert.assertEquals(group % 2 == 0 ? null : 0.5, item.getProperty("doubleMin"));
+        Assert.assertEquals(keyMin, item.getProperty("keyMin"));
+        Assert.assertEquals(keyMax, item.getProperty("keyMax"));
+      }
+      Assert.assertEquals(10, groups.size());
+    }
+  }
+
+  @Test
+  public void testAvgMinMaxOfMixedNumbers() {
+    // ONE CLUSTER: THE VALUES ARE READ IN THE ORDER THEY ARE INSERTED. THE FUNCTIONS CANNOT COMPARE A DECIMAL TO A LONG
+    db.getMetadata().getSchema().createClass("Mixed", 1);
+    Object[] numbers = { 3, 7L, (short) 2, 2.5f, 1.5d, 6, (short) 9, 4L, new BigDecimal("8.25") };
+    for (Object number : numbers)
+      db.command("insert into Mixed set value = ?", number).close();
+
+    List<Object> values = new ArrayList<>();
+    try (OResultSet rs = db.query("select value from Mixed")) {
+      while (rs.hasNext())
+        values.add(rs.next().getProperty("value"));
+    }
+    for (int size = 1; size <= values.size(); size++) {
+      List<Object> prefix = values.subList(0, size);
+      try (OResultSet rs = db.query("select avg(value) as avg, min(value) as min, max(value) as max from (select from Mixed limit "
+          + size + ")")) {
+        OResult item = rs.next();
+        assertSame(aggregate(new OSQLFunctionMin(), prefix), item.getProperty("min"));
+        assertSame(aggregate(new OSQLFunctionMax(), prefix), item.getProperty("max"));
+        assertSame(aggregate(new OSQLFunctionAverage(), prefix), item.getProperty("avg"));
+      }
+    }
+  }
+
+  private static Object aggregate(OSQLFunction function, List<Object> values) {
+    function.config(new Object[] { "value" });
+    for (Object value : values)
+      function.execute(null, null, null, new Object[] { value }, null);
+    return function.getResult();
+  }
+
+  private static void assertSame(Object expected, Object actual) {
+    Assert.assertEquals(expected, actual);
+    Assert.assertEquals(expected.getClass(), actual.getClass());
+  }
+
+  @Test
+  public void testSpill() {
+    OGlobalConfiguration.QUERY_MAX_MEMORY_PER_QUERY.setValue(1);
+    long globalReserved = OQueryMemoryBudget.getGlobalReserved();
+    // THE KEYS, WITH THE ROWS RETURNED BY THE PREVIOUS STEP, DO NOT FIT IN 1MB
+    try (OResultSet rs = db
+        .query("select key + '-' + group + '-padding-padding-padding-padding-padding-padding' as key, count(*) as count, "
+            + "sum(intValue) as sum, avg(intValue) as avg, min(longValue) as min, max(intValue) as max from Item "
+            + "group by key + '-' + group + '-padding-padding-padding-padding-padding-padding'")) {
+      Set<String> keys = new HashSet<>();
+      long total = 0;
+      while (rs.hasNext()) {
+        OResult item = rs.next();
+        Assert.assertTrue(keys.add(item.getProperty("key")));
+        Assert.assertEquals(1L, (long) item.getProperty("count"));
+        int sum = item.getProperty("sum");
+        Assert.assertEquals(sum, (int) item.getProperty("avg"));
+        Assert.assertEquals(sum, (long) item.getProperty("min"));
+        Assert.assertEquals(sum, (int) item.getProperty("max"));
+        total += sum;
+      }
+      Assert.assertEquals(ITEMS, keys.size());
+      Assert.assertEquals((long) ITEMS * (ITEMS - 1) / 2, total);
+    }
+    Assert.assertEquals(globalReserved, OQueryMemoryBudget.getGlobalReserved());
+  }
+
+  @Test
+  public void testSpillSeveralRowsPerGroup() {
+    OGlobalConfiguration.QUERY_MAX_MEMORY_PER_QUERY.setValue(1);
+    long globalReserved = OQueryMemoryBudget.getGlobalReserved();
+    StringBuilder padding = new StringBuilder();
+    for (int i = 0; i < 200; i++)
+      padding.append('x');
+    int groups = ITEMS / 2;
+    // TWO ROWS PER GROUP: THE GROUPS ARE SPILLED BETWEEN THEM, THE PARTIAL AGGREGATES ARE MERGED WITH THE ROWS
+    try (OResultSet rs = db.query("select intValue % " + groups + " as g, avg(intValue) as avg, min(doubleValue) as min, "
+        + "max(longValue) as max from Item group by '" + padding + "' + (intValue % " + groups + ")")) {
+      Set<Integer> keys = new HashSet<>();
+      while (rs.hasNext()) {
+        OResult item = rs.next();
+        int group = item.getProperty("g");
+        Assert.assertTrue(keys.add(group));
+        Assert.assertEquals((group + group + groups) / 2, (int) item.getProperty("avg"));
+        Assert.assertEquals(group % 2 == 0 ? null : 0.5, item.getProperty("min"));
+        Assert.assertEquals((long) group + groups, (long) item.getProperty("max"));
+      }
+      Assert.assertEquals(groups, keys.size());
+    }
+    Assert.assertEquals(globalReserved, OQueryMemoryBudget.getGlobalReserved());
+  }
+
+  @Test
+  public void testOtherAggregatesOverLimit() {
+    OGlobalConfiguration.QUERY_MAX_MEMORY_PER_QUERY.setValue(1);
+    long globalReserved = OQueryMemoryBudget.getGlobalReserved();
+    try (OResultSet rs = db.query("select key, variance(intValue) as variance from Item group by key")) {
+      while (rs.hasNext())
+        rs.next();
+      Assert.fail();
+    } catch (OQueryMemoryLimitException e) {
+      Assert.assertTrue(e.getMessage().contains("GROUP BY"));
+    }
+    Assert.assertEquals(globalReserved, OQueryMemoryBudget.getGlobalReserved());
+  }
+}
@@ -0,0 +1,147 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexException;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.OElement;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class OIndexOnlyScanTest {
+  private ODatabaseDocumentTx db;
+
+  @Before
+  public void before() {
+    db = new ODatabaseDocumentTx("memory:" + OIndexOnlyScanTest.class.getSimpleName());
+    db.create();
+    OClass person = db.getMetadata().getSchema().createClass("Person");
+    person.createProperty("surname", OType.STRING);
+    person.createProperty("name", OType.STRING);
+    person.createProperty("age", OType.INTEGER);
+    person.createProperty("city", OType.STRING);
+    db.command("CREATE INDEX Person.surname ON Person (surname) NOTUNIQUE METADATA {\"include\": [\"name\", \"age\"]}").close();
+    for (int i = 0; i < 20; i++)
+      db.command("insert into Person set surname = ?, name = ?, age = ?, city = 'Rome'", "s" + (i % 4), "n" + i, i).close();
+  }
+
+  @After
+  public void after() {
+    db.drop();
+  }
+
+  @Test
+  public void testIncludedPropertiesAreReadFromTheIndex() {
+    OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Person.surname");
+    Assert.assertEquals(3, index.getDefinition().getFields().size());
+
+    String query = "select name, age, @rid as rid from Person where surname = 's1' order by age";
+    try (OResultSet rs = db.query(query)) {
+      Assert.assertTrue(usesIndexOnlyScan(rs));
+      int count = 0;
+      while (rs.hasNext()) {
+        OResult row = rs.next();
+        int age = row.getProperty("age");
+        Assert.assertEquals(1 + count * 4, age);
+        Assert.assertEquals("n" + age, row.getProperty("name"));
+        OElement record = ((ORID) row.getProperty("rid")).getRecord();
+        Assert.assertEquals(age, (int) record.getProperty("age"));
+        count++;
+      }
+      Assert.assertEquals(5, count);
+    }
+
+    // PROPERTIES THAT ARE NOT IN THE INDEX REQUIRE THE RECORDS
+    try (OResultSet rs = db.query("select name, city from Person where surname = 's1'")) {
+      Assert.assertFalse(usesIndexOnlyScan(rs));
+      Assert.assertEquals("Rome", rs.next().getProperty("city"));
+    }
+    try (OResultSet rs = db.query("select name from Person where surname = 's1' and city = 'Rome'")) {
+      Assert.assertFalse(usesIndexOnlyScan(rs));
+    }
+  }
+
+  @Test
+  public void testIndexOnlyScanSeesTheChanges() {
+    String query = "select name, age from Person where surname = 's2'";
+    db.command("update Person set name = 'changed' where age = 2").close();
+    db.command("update Person set age = 100 where age = 6").close();
+    db.command("insert into Person set surname = 's2', age = 50").close();
+    Map<Integer, String> expected = new HashMap<>();
+    expected.put(2, "changed");
+    expected.put(100, "n6");
+    expected.put(10, "n10");
+    expected.put(14, "n14");
+    expected.put(18, "n18");
+    expected.put(50, null);
+    Assert.assertEquals(expected, collect(query));
+
+    db.begin();
+    db.command("delete from Person where age = 2").close();
+    db.command("update Person set name = 'inTx' where age = 10").close();
+    Map<Integer, String> inTx = new HashMap<>(expected);
+    inTx.remove(2);
+    inTx.put(10, "inTx");
+    Assert.assertEquals(inTx, collect(query));
+    db.rollback();
+    Assert.assertEquals(expected, collect(query));
+  }
+
+  @Test
+  public void testGetByIndexedProperties() {
+    OIndex<Set<OIdentifiable>> index = (OIndex<Set<OIdentifiable>>) db.getMetadata().getIndexManager().getIndex("Person.surname");
+    // THE INCLUDED PROPERTIES ARE NOT PART OF THE KEY FOR EXACT LOOKUPS
+    Set<Integer> ages = new HashSet<>();
+    for (OIdentifiable rid : index.get("s1"))
+      ages.add(rid.getRecord().<ODocument>getRecord().field("age"));
+    Assert.assertEquals(new HashSet<>(Arrays.asList(1, 5, 9, 13, 17)), ages);
+    Assert.assertEquals(5, index.count("s1"));
+    Assert.assertTrue(index.contains("s1"));
+    Assert.assertFalse(index.contains("s9"));
+    Assert.assertTrue(index.get("s9").isEmpty());
+    Assert.assertEquals(1, index.get(new OCompositeKey("s1", "n5", 5)).size());
+
+    db.begin();
+    db.command("insert into Person set surname = 's9', name = 'inTx', age = 50").close();
+    db.command("delete from Person where age = 1").close();
+    Assert.assertEquals(1, index.get("s9").size());
+    Assert.assertEquals(4, index.get("s1").size());
+    db.rollback();
+  }
+
+  @Test(expected = OIndexException.class)
+  public void testUniqueIndexCannotIncludeProperties() {
+    db.command("CREATE INDEX Person.name ON Person (name) UNIQUE METADATA {\"include\": [\"age\"]}").close();
+  }
+
+  @Test(expected = OIndexException.class)
+  public void testIndexedPropertyCannotBeIncluded() {
+    db.command("CREATE INDEX Person.city ON Person (city) NOTUNIQUE METADATA {\"include\": [\"city\"]}").close();
+  }
+
+  private Map<Integer, String> collect(String query) {
+    Map<Integer, String> result = new HashMap<>();
+    try (OResultSet rs = db.query(query)) {
+      Assert.assertTrue(usesIndexOnlyScan(rs));
+      rs.stream().forEach(x -> result.put(x.getProperty("age"), x.getProperty("name")));
+    }
+    return result;
+  }
+
+  private static boolean usesIndexOnlyScan(OResultSet rs) {
+    return rs.getExecutionPlan().get().getSteps().stream().anyMatch(x -> x instanceof GetPropertiesFromIndexEntryStep);
+  }
+}
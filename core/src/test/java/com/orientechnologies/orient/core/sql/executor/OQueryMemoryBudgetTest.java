@@ -0,0 +1,154 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.concur.OTimeoutException;
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.exception.OQueryMemoryLimitException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OQueryMemoryBudgetTest {
+  private static final int ITEMS = 5000;
+
+  private ODatabaseDocumentTx db;
+  private Object              limit;
+
+  @Before
+  public void before() {
+    limit = OGlobalConfiguration.QUERY_MAX_MEMORY_PER_QUERY.getValue();
+    OGlobalConfiguration.QUERY_MAX_MEMORY_PER_QUERY.setValue(1);
+
+    db = new ODatabaseDocumentTx("memory:" + OQueryMemoryBudgetTest.class.getSimpleName());
+    db.create();
+    db.getMetadata().getSchema().createClass("Item");
+    StringBuilder padding = new StringBuilder();
+    for (int i = 0; i < 200; i++)
+      padding.append('x');
+    for (int i = 0; i < ITEMS; i++)
+      db.command("insert into Item set value = ?, name = ?", (i * 7919) % ITEMS, "item" + i + padding).close();
+  }
+
+  @After
+  public void after() {
+    db.drop();
+    OGlobalConfiguration.QUERY_MAX_MEMORY_PER_QUERY.setValue(limit);
+  }
+
+  @Test
+  public void testBudget() {
+    OQueryMemoryBudget budget = new OQueryMemoryBudget(1000);
+    long globalReserved = OQueryMemoryBudget.getGlobalReserved();
+    Assert.assertTrue(budget.tryReserve(600));
+    Assert.assertFalse(budget.tryReserve(600));
+    Assert.assertEquals(600, budget.getReserved());
+    Assert.assertTrue(OQueryMemoryBudget.getGlobalReserved() > globalReserved);
+
+    budget.release(200);
+    budget.reserve(600, "TEST");
+    Assert.assertEquals(1000, budget.getPeak());
+    try {
+      budget.reserve(1, "TEST");
+      Assert.fail();
+    } catch (OQueryMemoryLimitException e) {
+      Assert.assertTrue(e.getMessage().contains("TEST"));
+      Assert.assertTrue(e.getMessage().contains(OGlobalConfiguration.QUERY_MAX_MEMORY_PER_QUERY.getKey()));
+    }
+
+    budget.releaseAll();
+    Assert.assertEquals(0, budget.getReserved());
+    Assert.assertEquals(globalReserved, OQueryMemoryBudget.getGlobalReserved());
+  }
+
+  @Test
+  public void testStandaloneBudgetReleasedOnClose() {
+    long globalReserved = OQueryMemoryBudget.getGlobalReserved();
+    OCommandContext ctx = new OBasicCommandContext();
+    DistinctExecutionStep step = new DistinctExecutionStep(ctx, false);
+    step.setPrevious(new AbstractExecutionStep(ctx, false) {
+      boolean done = false;
+
+      @Override
+      public OResultSet syncPull(OCommandContext ctx, int nRecords) throws OTimeoutException {
+        OInternalResultSet result = new OInternalResultSet();
+        if (!done) {
+          for (int i = 0; i < 10; i++) {
+            OResultInternal item = new OResultInternal();
+            item.setProperty("name", "item" + i);
+            result.add(item);
+          }
+          done = true;
+        }
+        return result;
+      }
+    });
+
+    // NO QUERY IS TRACKED: THE STEP OWNS ITS BUDGET
+    OResultSet res = step.syncPull(ctx, 10);
+    while (res.hasNext())
+      res.next();
+    Assert.assertTrue(OQueryMemoryBudget.getGlobalReserved() > globalReserved);
+
+    step.close();
+    Assert.assertEquals(globalReserved, OQueryMemoryBudget.getGlobalReserved());
+  }
+
+  @Test
+  public void testOrderBySpillsProjections() {
+    long globalReserved = OQueryMemoryBudget.getGlobalReserved();
+    try (OResultSet rs = db.query("select value, name from Item order by value desc")) {
+      int expected = ITEMS - 1;
+      while (rs.hasNext()) {
+        OResult item = rs.next();
+        Assert.assertEquals(expected--, (int) item.getProperty("value"));
+        Assert.assertTrue(item.<String>getProperty("name").startsWith("item"));
+      }
+      Assert.assertEquals(-1, expected);
+    }
+    Assert.assertEquals(globalReserved, OQueryMemoryBudget.getGlobalReserved());
+  }
+
+  @Test
+  public void testOrderBySpillsRecords() {
+    try (OResultSet rs = db.query("select from Item order by value")) {
+      int expected = 0;
+      while (rs.hasNext()) {
+        OResult item = rs.next();
+        Assert.assertTrue(item.isElement());
+        Assert.assertTrue(item.getIdentity().get().isPersistent());
+        Assert.assertEquals(expected++, (int) item.getProperty("value"));
+      }
+      Assert.assertEquals(ITEMS, expected);
+    }
+  }
+
+  @Test
+  public void testOrderByWithLimit() {
+    try (OResultSet rs = db.query("select value, name from Item order by value limit 10")) {
+      for (int i = 0; i < 10; i++)
+        Assert.assertEquals(i, (int) rs.next().getProperty("value"));
+      Assert.assertFalse(rs.hasNext());
+    }
+  }
+
+  @Test
+  public void testDistinctOverLimit() {
+    long globalReserved = OQueryMemoryBudget.getGlobalReserved();
+    try (OResultSet rs = db.query("select distinct name from Item")) {
+      while (rs.hasNext())
+        rs.next();
+      Assert.fail();
+    } catch (OQueryMemoryLimitException e) {
+      Assert.assertTrue(e.getMessage().contains("DISTINCT"));
+    }
+    Assert.assertEquals(globalReserved, OQueryMemoryBudget.getGlobalReserved());
+
+    // THE OTHER QUERIES ARE NOT AFFECTED
+    try (OResultSet rs = db.query("select count(*) as count from Item")) {
+      Assert.assertEquals(ITEMS, ((Number) rs.next().getProperty("count")).intValue());
+    }
+  }
+}
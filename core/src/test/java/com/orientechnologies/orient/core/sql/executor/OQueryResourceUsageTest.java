@@ -0,0 +1,80 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.sql.parser.OLocalResultSetLifecycleDecorator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OQueryResourceUsageTest {
+  private ODatabaseDocumentTx db;
+
+  @Before
+  public void before() {
+    db = new ODatabaseDocumentTx("memory:" + OQueryResourceUsageTest.class.getSimpleName());
+    db.create();
+    db.getMetadata().getSchema().createClass("Item");
+    for (int i = 0; i < 300; i++)
+      db.command("insert into Item set value = ?", i).close();
+  }
+
+  @After
+  public void after() {
+    db.drop();
+  }
+
+  @Test
+  public void testRunningQuery() {
+    db.getLocalCache().clear();
+    OResultSet rs = db.query("select value * 2 as twice from Item where value < 150");
+    OQueryResourceUsage usage = ((OLocalResultSetLifecycleDecorator) rs).getResourceUsage();
+    Assert.assertNotNull(usage);
+    Assert.assertTrue(OQueryResourceUsage.getRunningQueries().contains(usage));
+    Assert.assertEquals("select value * 2 as twice from Item where value < 150", usage.getStatement());
+    Assert.assertEquals("sql", usage.getLanguage());
+    Assert.assertEquals(db.getName(), usage.getDatabase());
+    Assert.assertFalse(usage.isExecuting());
+    Assert.assertNull(OQueryResourceUsage.current());
+
+    int count = 0;
+    while (rs.hasNext()) {
+      Assert.assertNotNull(rs.next().getProperty("twice"));
+      count++;
+    }
+    Assert.assertEquals(150, count);
+    Assert.assertEquals(150, usage.getRowsProduced());
+    Assert.assertTrue(usage.getPagesReadFromCache() > 0);
+    Assert.assertEquals(0, usage.getPagesReadFromDisk());
+
+    // THE PROJECTION DESERIALIZES THE RECORDS WHILE THE QUERY EXECUTES
+    Assert.assertTrue(usage.getRecordsDeserialized() >= 150);
+
+    // THE RESULT SET IS CLOSED AT THE END OF THE RESULTS
+    Assert.assertFalse(OQueryResourceUsage.getRunningQueries().contains(usage));
+    rs.close();
+  }
+
+  @Test
+  public void testCommand() {
+    long running = OQueryResourceUsage.getRunningQueries().size();
+    OResultSet rs = db.command("update Item set value = value + 1 where value < 10");
+    Assert.assertEquals(running, OQueryResourceUsage.getRunningQueries().size());
+    Assert.assertNull(OQueryResourceUsage.current());
+    rs.close();
+  }
+
+  @Test
+  public void testFailedQuery() {
+    long running = OQueryResourceUsage.getRunningQueries().size();
+    try {
+      db.query("select from NotExistingClass").close();
+      Assert.fail();
+    } catch (OCommandExecutionException e) {
+      // EXPECTED
+    }
+    Assert.assertEquals(running, OQueryResourceUsage.getRunningQueries().size());
+    Assert.assertNull(OQueryResourceUsage.current());
+  }
+}
@@ -0,0 +1,153 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.OElement;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OQueryResultCacheTest {
+  private ODatabaseDocumentTx db;
+  private OQueryResultCache   cache;
+  private Object              previousSize;
+
+  @Before
+  public void before() {
+    previousSize = OGlobalConfiguration.QUERY_RESULT_CACHE_SIZE.getValue();
+    OGlobalConfiguration.QUERY_RESULT_CACHE_SIZE.setValue(1000);
+    db = new ODatabaseDocumentTx("memory:" + OQueryResultCacheTest.class.getSimpleName());
+    db.create();
+    cache = db.getSharedContext().getQueryResultCache();
+  }
+
+  @After
+  public void after() {
+    db.drop();
+    OGlobalConfiguration.QUERY_RESULT_CACHE_SIZE.setValue(previousSize);
+  }
+
+  @Test
+  public void testAggregationIsCachedUntilTheClassChanges() {
+    db.getMetadata().getSchema().createClass("Metric");
+    db.getMetadata().getSchema().createClass("Other");
+    for (int i = 0; i < 10; i++)
+      db.command("insert into Metric set value = ?", i).close();
+
+    String query = "select count(*) as count, sum(value) as total from Metric where value >= 5";
+    assertMetrics(query, 5, 35);
+    long hits = cache.getHits();
+    assertMetrics(query, 5, 35);
+    Assert.assertEquals(hits + 1, cache.getHits());
+
+    // CHANGES TO OTHER CLASSES KEEP THE RESULT
+    db.command("insert into Other set value = 1").close();
+    assertMetrics(query, 5, 35);
+    Assert.assertEquals(hits + 2, cache.getHits());
+
+    db.command("insert into Metric set value = 7").close();
+    assertMetrics(query, 6, 42);
+    Assert.assertEquals(hits + 2, cache.getHits());
+
+    db.begin();
+    db.command("insert into Metric set value = 8").close();
+    // THE RESULT DOES NOT INCLUDE THE CHANGES OF THE TRANSACTION
+    assertMetrics(query, 7, 50);
+    db.rollback();
+    assertMetrics(query, 6, 42);
+  }
+
+  @Test
+  public void testLinkedRecordsInvalidateTheResult() {
+    db.getMetadata().getSchema().createClass("City");
+    db.getMetadata().getSchema().createClass("Person");
+    ODocument city = new ODocument("City").field("name", "Rome");
+    db.save(city);
+    db.save(new ODocument("Person").field("name", "John").field("city", city));
+
+    String query = "select name, city.name as city from Person";
+    assertCity(query, "Rome");
+    assertCity(query, "Rome");
+    Assert.assertEquals(1, cache.size());
+
+    city.field("name", "Milan");
+    db.save(city);
+    Assert.assertEquals(0, cache.size());
+    assertCity(query, "Milan");
+  }
+
+  @Test
+  public void testTruncateInvalidatesTheResult() {
+    db.getMetadata().getSchema().createClass("Vehicle");
+    db.getMetadata().getSchema().createClass("Car", db.getMetadata().getSchema().getClass("Vehicle"));
+    db.command("insert into Vehicle set name = 'Bike'").close();
+    db.command("insert into Car set name = 'Panda'").close();
+
+    assertCount("select count(*) as count from Vehicle", 2);
+    assertCount("select count(*) as count from Car", 1);
+    Assert.assertEquals(2, cache.size());
+
+    // THE RESULTS OF THE SUPERCLASS READ THE TRUNCATED CLUSTERS TOO
+    db.command("truncate class Car").close();
+    Assert.assertEquals(0, cache.size());
+    assertCount("select count(*) as count from Vehicle", 1);
+    assertCount("select count(*) as count from Car", 0);
+
+    db.command("truncate cluster " + db.getClusterNameById(db.getMetadata().getSchema().getClass("Vehicle").getDefaultClusterId()))
+        .close();
+    assertCount("select count(*) as count from Vehicle", 0);
+  }
+
+  @Test
+  public void testSecurityChangesInvalidateTheResult() {
+    db.getMetadata().getSchema().createClass("Secret");
+    db.command("insert into Secret set value = 1").close();
+
+    String query = "select count(*) as count from Secret";
+    db.query(query).close();
+    Assert.assertEquals(1, cache.size());
+
+    db.command("revoke read on database.class.Secret from reader").close();
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testRecordsAreLoadedByTheSession() {
+    db.getMetadata().getSchema().createClass("Person");
+    db.command("insert into Person set name = 'John'").close();
+
+    for (int i = 0; i < 2; i++) {
+      try (OResultSet result = db.query("select from Person where name = ?", "John")) {
+        OElement element = result.next().getElement().get();
+        Assert.assertEquals("John", element.getProperty("name"));
+        Assert.assertFalse(result.hasNext());
+      }
+    }
+    Assert.assertEquals(1, cache.getHits());
+  }
+
+  private void assertMetrics(String query, long count, long total) {
+    try (OResultSet result = db.query(query)) {
+      OResult row = result.next();
+      Assert.assertEquals(count, ((Number) row.getProperty("count")).longValue());
+      Assert.assertEquals(total, ((Number) row.getProperty("total")).longValue());
+      Assert.assertFalse(result.hasNext());
+    }
+  }
+
+  private void assertCount(String query, long count) {
+    try (OResultSet result = db.query(query)) {
+      Assert.assertEquals(count, ((Number) result.next().getProperty("count")).longValue());
+      Assert.assertFalse(result.hasNext());
+    }
+  }
+
+  private void assertCity(String query, String city) {
+    try (OResultSet result = db.query(query)) {
+      Assert.assertEquals(city, result.next().getProperty("city"));
+      Assert.assertFalse(result.hasNext());
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.orientechnologies.orient.core.sql.parser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OAutoParameterizerTest {
+
+  @Test
+  public void testWhereLiterals() {
+    OAutoParameterizer result = OAutoParameterizer
+        .parameterize("select name, 'x' as k from Person where name = 'John' and age > 30 and (weight < 1.5 or tags in [\"a\"])");
+    Assert.assertNotNull(result);
+    Assert.assertEquals(
+        "select name, 'x' as k from Person where name = :__p0 and age > :__p1 and (weight < :__p2 or tags in [:__p3])",
+        result.getStatement());
+    Assert.assertEquals("John", result.getParameters().get("__p0"));
+    Assert.assertEquals(30, result.getParameters().get("__p1"));
+    Assert.assertEquals(1.5f, result.getParameters().get("__p2"));
+    Assert.assertEquals("a", result.getParameters().get("__p3"));
+  }
+
+  @Test
+  public void testMultiLine() {
+    OAutoParameterizer result = OAutoParameterizer.parameterize("select from Person\n\twhere name = 'John'\r\n  and age = 30 limit 10");
+    Assert.assertNotNull(result);
+    Assert.assertEquals("select from Person\n\twhere name = :__p0\r\n  and age = :__p1 limit 10", result.getStatement());
+  }
+
+  @Test
+  public void testLiteralsNotReplaced() {
+    Assert.assertEquals("select from Person where name.left(3) = :__p0 and @rid = #12:0 and age > -3 and data = {\"a\": 1}",
+        OAutoParameterizer.parameterize("select from Person where name.left(3) = 'Joh' and @rid = #12:0 and age > -3 and data = {\"a\": 1}")
+            .getStatement());
+
+    Assert.assertNull(OAutoParameterizer.parameterize("select from Person"));
+    Assert.assertNull(OAutoParameterizer.parameterize("select from Person where name = ?"));
+    Assert.assertNull(OAutoParameterizer.parameterize("select from Person where friend in (select from Person where age = 3)"));
+    Assert.assertNull(OAutoParameterizer.parameterize("update Person set name = 'John' where age = 3"));
+  }
+}
@@ -1,9 +1,14 @@
 package com.orientechnologies.orient.core.sql.parser;
 
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.sql.OSQLEngine;
+import com.orientechnologies.orient.core.sql.executor.OInternalExecutionPlan;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -15,7 +20,8 @@ public class OExecutionPlanCacheTest {
     ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:OExecutionPlanCacheTest");
     db.create();
     OExecutionPlanCache cache = OExecutionPlanCache.instance(db);
-    String stm = "SELECT FROM OUser";
+    OClass clazz = db.getMetadata().getSchema().createClass(testName);
+    String stm = "SELECT FROM " + testName;
 
     /*
      * the cache has a mechanism that guarantees that if you are doing execution planning
@@ -27,22 +33,26 @@ public class OExecutionPlanCacheTest {
      */
     Thread.sleep(2);
 
-    //schema changes
+    //schema changes of other classes
     db.query(stm).close();
     cache = OExecutionPlanCache.instance(db);
     Assert.assertTrue(cache.contains(stm));
 
-    OClass clazz = db.getMetadata().getSchema().createClass(testName);
+    db.getMetadata().getSchema().createClass(testName + "Other");
+    Assert.assertTrue(cache.contains(stm));
+
+    //schema changes
+    OProperty prop = clazz.createProperty("name", OType.STRING);
     Assert.assertFalse(cache.contains(stm));
 
     Thread.sleep(2);
 
-    //schema changes 2
+    //schema changes of subclasses
     db.query(stm).close();
     cache = OExecutionPlanCache.instance(db);
     Assert.assertTrue(cache.contains(stm));
 
-    OProperty prop = clazz.createProperty("name", OType.STRING);
+    db.getMetadata().getSchema().createClass(testName + "Sub", clazz);
     Assert.assertFalse(cache.contains(stm));
 
     Thread.sleep(2);
@@ -59,4 +69,58 @@ public class OExecutionPlanCacheTest {
 
   }
 
+  @Test
+  public void testAutoParameterizedStatementsShareThePlan() throws InterruptedException {
+    OGlobalConfiguration.QUERY_AUTO_PARAMETERIZE.setValue(true);
+    ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:OExecutionPlanCacheTestAutoParameterize");
+    db.create();
+    try {
+      db.getMetadata().getSchema().createClass("Person").createProperty("name", OType.STRING);
+      db.command("insert into Person set name = 'John'").close();
+      db.command("insert into Person set name = 'Jane'").close();
+      OExecutionPlanCache cache = OExecutionPlanCache.instance(db);
+      Thread.sleep(2);
+
+      try (OResultSet result = db.query("select from Person where name = 'John'")) {
+        Assert.assertEquals("John", result.next().getProperty("name"));
+        Assert.assertFalse(result.hasNext());
+      }
+      Assert.assertTrue(cache.contains("select from Person where name = :__p0"));
+      long hits = cache.getHits();
+
+      try (OResultSet result = db.query("select from Person where name = 'Jane'")) {
+        Assert.assertEquals("Jane", result.next().getProperty("name"));
+        Assert.assertFalse(result.hasNext());
+      }
+      Assert.assertEquals(hits + 1, cache.getHits());
+    } finally {
+      db.drop();
+      OGlobalConfiguration.QUERY_AUTO_PARAMETERIZE.setValue(false);
+    }
+  }
+
+  @Test
+  public void testEviction() {
+    OExecutionPlanCache cache = new OExecutionPlanCache(10);
+    ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:OExecutionPlanCacheTestEviction");
+    db.create();
+    try {
+      OBasicCommandContext ctx = new OBasicCommandContext();
+      ctx.setDatabase(db);
+      for (int i = 0; i < 20; i++) {
+        String stm = "select from OUser where name = 'user" + (i + 1) + "'";
+        OInternalExecutionPlan plan = ((OSelectStatement) OSQLEngine.parse(stm, db)).createExecutionPlanNoCache(ctx, false);
+        cache.putInternal(stm, plan, db);
+        // KEEP THE FIRST ONE IN USE
+        Assert.assertNotNull(cache.getInternal("select from OUser where name = 'user1'", ctx, db));
+      }
+      Assert.assertTrue(cache.size() <= 10);
+      Assert.assertTrue(cache.contains("select from OUser where name = 'user1'"));
+      Assert.assertTrue(cache.contains("select from OUser where name = 'user20'"));
+      Assert.assertEquals(20 - cache.size(), cache.getEvictions());
+    } finally {
+      db.drop();
+    }
+  }
+
 }
@@ -0,0 +1,118 @@
+package com.orientechnologies.orient.core.storage.impl.local;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.clusterselection.ODefaultClusterSelectionStrategy;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class OCommitNewRecordsRelocationTest {
+
+  private ODatabaseSession db;
+  private OrientDB         orientDb;
+
+  @Before
+  public void before() {
+    orientDb = new OrientDB("embedded:",
+        OrientDBConfig.builder().addConfig(OGlobalConfiguration.CLASS_MINIMUM_CLUSTERS, 4)
+            .addConfig(OGlobalConfiguration.TX_RELOCATE_NEW_RECORDS, true).build());
+    orientDb.create("test", ODatabaseType.MEMORY);
+    db = orientDb.open("test", "admin", "admin");
+    db.createClass("Relocated");
+  }
+
+  @Test
+  public void testNewRecordsOfTheClassShareOneCluster() {
+    final OClass clazz = db.getClass("Relocated");
+    Assert.assertEquals(4, clazz.getClusterIds().length);
+
+    final List<ODocument> docs = new ArrayList<>();
+    db.begin();
+    for (int i = 0; i < 20; i++) {
+      final ODocument doc = new ODocument("Relocated");
+      doc.field("value", i);
+      if (!docs.isEmpty())
+        doc.field("previous", docs.get(docs.size() - 1));
+      db.save(doc);
+      docs.add(doc);
+    }
+    db.commit();
+
+    final Set<Integer> clusterIds = new HashSet<>();
+    for (ODocument doc : docs) {
+      Assert.assertTrue(doc.getIdentity().isPersistent());
+      clusterIds.add(doc.getIdentity().getClusterId());
+    }
+    Assert.assertEquals(1, clusterIds.size());
+    Assert.assertTrue(clazz.hasClusterId(clusterIds.iterator().next()));
+
+    Assert.assertEquals(20, db.countClass("Relocated"));
+    for (int i = 0; i < docs.size(); i++) {
+      final ODocument loaded = db.load(docs.get(i).getIdentity());
+      Assert.assertEquals(i, (int) loaded.field("value"));
+      if (i > 0)
+        Assert.assertEquals(docs.get(i - 1).getIdentity(), ((OIdentifiable) loaded.field("previous")).getIdentity());
+    }
+  }
+
+  @Test
+  public void testRequestedClustersAreKept() {
+    final OClass clazz = db.getClass("Relocated");
+    final int[] clusterIds = clazz.getClusterIds();
+
+    db.begin();
+    final ODocument first = new ODocument("Relocated");
+    db.save(first, db.getClusterNameById(clusterIds[1]));
+    final ODocument second = new ODocument("Relocated");
+    db.save(second, db.getClusterNameById(clusterIds[2]));
+    db.commit();
+
+    Assert.assertEquals(clusterIds[1], first.getIdentity().getClusterId());
+    Assert.assertEquals(clusterIds[2], second.getIdentity().getClusterId());
+  }
+
+  @Test
+  public void testOtherSelectionStrategiesAreKept() {
+    final OClass clazz = db.getClass("Relocated");
+    clazz.setClusterSelection(ODefaultClusterSelectionStrategy.NAME);
+    final int[] clusterIds = clazz.getClusterIds();
+    final int otherClusterId = clusterIds[0] == clazz.getDefaultClusterId() ? clusterIds[1] : clusterIds[0];
+
+    final ODocument existing = new ODocument("Relocated");
+    db.save(existing, db.getClusterNameById(otherClusterId));
+
+    db.begin();
+    // THE TRANSACTION LOCKS ANOTHER CLUSTER OF THE CLASS, THE NEW RECORDS ARE NOT MOVED THERE
+    existing.field("value", 1);
+    db.save(existing);
+    final List<ODocument> docs = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      final ODocument doc = new ODocument("Relocated");
+      db.save(doc);
+      docs.add(doc);
+    }
+    db.commit();
+
+    for (ODocument doc : docs)
+      Assert.assertEquals(clazz.getDefaultClusterId(), doc.getIdentity().getClusterId());
+  }
+
+  @After
+  public void after() {
+    db.close();
+    orientDb.close();
+  }
+}
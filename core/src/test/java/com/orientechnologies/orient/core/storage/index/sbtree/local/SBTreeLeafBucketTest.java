@@ -2,6 +2,7 @@ package com.orientechnologies.orient.core.storage.index.sbtree.local;
 
 import com.orientechnologies.common.directmemory.OByteBufferPool;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.common.serialization.types.OUTF8Serializer;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
@@ -12,8 +13,10 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.TreeSet;
@@ -358,4 +361,79 @@ public class SBTreeLeafBucketTest {
     cacheEntry.releaseExclusiveLock();
     cachePointer.decrementReferrer();
   }
+
+  @Test
+  public void testPrefixCompression() throws Exception {
+    OByteBufferPool bufferPool = OByteBufferPool.instance(null);
+    OCachePointer compressedPointer = new OCachePointer(bufferPool.acquireDirect(true), bufferPool, 0, 0);
+    compressedPointer.incrementReferrer();
+    OCachePointer plainPointer = new OCachePointer(bufferPool.acquireDirect(true), bufferPool, 0, 1);
+    plainPointer.incrementReferrer();
+
+    OCacheEntry compressedEntry = new OCacheEntryImpl(0, 0, compressedPointer);
+    compressedEntry.acquireExclusiveLock();
+    OCacheEntry plainEntry = new OCacheEntryImpl(0, 1, plainPointer);
+    plainEntry.acquireExclusiveLock();
+
+    OSBTreeBucket<String, OIdentifiable> compressed = new OSBTreeBucket<String, OIdentifiable>(compressedEntry, true,
+        OUTF8Serializer.INSTANCE, null, OLinkSerializer.INSTANCE, null, true);
+    OSBTreeBucket<String, OIdentifiable> plain = new OSBTreeBucket<String, OIdentifiable>(plainEntry, true,
+        OUTF8Serializer.INSTANCE, null, OLinkSerializer.INSTANCE, null, false);
+    Assert.assertTrue(compressed.isPrefixCompressed());
+    Assert.assertFalse(plain.isPrefixCompressed());
+
+    List<String> keys = new ArrayList<String>();
+    for (int i = 0; i < 10000; i++) {
+      keys.add(String.format("tenant-00000042/2018-05-14T10:00:00/record-%08d", i));
+    }
+
+    int plainSize = 0;
+    while (plain.addEntry(plainSize, entry(keys.get(plainSize), plainSize), true)) {
+      plainSize++;
+    }
+
+    List<byte[]> rawEntries = new ArrayList<byte[]>();
+    for (int i = 0; i < plainSize; i++) {
+      rawEntries.add(plain.getRawEntry(i));
+    }
+    compressed.addAll(rawEntries);
+
+    int compressedSize = plainSize;
+    while (compressed.addEntry(compressedSize, entry(keys.get(compressedSize), compressedSize), true)) {
+      compressedSize++;
+    }
+    Assert.assertTrue(compressedSize > 2 * plainSize);
+
+    for (int i = 0; i < compressedSize; i++) {
+      Assert.assertEquals(i, compressed.find(keys.get(i)));
+      Assert.assertEquals(entry(keys.get(i), i), compressed.getEntry(i));
+    }
+    Assert.assertArrayEquals(plain.getRawEntry(10), compressed.getRawEntry(10));
+
+    // A KEY WHICH DOES NOT SHARE THE PREFIX REWRITES THE BUCKET WITH A SHORTER ONE
+    compressed.shrink(plainSize);
+    Assert.assertTrue(compressed.addEntry(0, entry("tenant-00000041", -1), true));
+    Assert.assertEquals(plainSize + 1, compressed.size());
+    Assert.assertEquals("tenant-00000041", compressed.getKey(0));
+    for (int i = 0; i < plainSize; i++) {
+      Assert.assertEquals(entry(keys.get(i), i), compressed.getEntry(i + 1));
+    }
+
+    // THE BUCKET IS READ BACK WITH THE FORMAT IT WAS WRITTEN WITH
+    compressed = new OSBTreeBucket<String, OIdentifiable>(compressedEntry, OUTF8Serializer.INSTANCE, null,
+        OLinkSerializer.INSTANCE, null);
+    Assert.assertTrue(compressed.isPrefixCompressed());
+    compressed.remove(0, null, compressed.getRawValue(0));
+    Assert.assertEquals(0, compressed.find(keys.get(0)));
+
+    compressedEntry.releaseExclusiveLock();
+    compressedPointer.decrementReferrer();
+    plainEntry.releaseExclusiveLock();
+    plainPointer.decrementReferrer();
+  }
+
+  private static OSBTreeBucket.SBTreeEntry<String, OIdentifiable> entry(String key, int index) {
+    return new OSBTreeBucket.SBTreeEntry<String, OIdentifiable>(-1, -1, key,
+        new OSBTreeValue<OIdentifiable>(false, -1, new ORecordId(index & 0x7FFF, index)));
+  }
 }
@@ -201,4 +201,13 @@ public class SBTreeNonLeafBucketTest {
     cachePointer.decrementReferrer();
   }
 
+
+  @Test
+  public void testShortestSeparator() {
+    Assert.assertEquals("abd", OSBTree.shortestSeparator("abcdef", "abdaaa"));
+    Assert.assertEquals("abcd", OSBTree.shortestSeparator("abc", "abcdef"));
+    Assert.assertEquals("abc", OSBTree.shortestSeparator("abb", "abc"));
+    // A SURROGATE PAIR IS KEPT WHOLE
+    Assert.assertEquals("a\uD83D\uDE00", OSBTree.shortestSeparator("a", "a\uD83D\uDE00b"));
+  }
 }
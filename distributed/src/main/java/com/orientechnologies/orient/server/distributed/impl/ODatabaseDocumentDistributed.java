@@ -84,15 +84,96 @@ import static com.orientechnologies.orient.server.distributed.impl.ONewDistribut
 /**
  * Created by tglman on 30/03/17.
  */
-public class ODatabaseDocumentDistributed extends ODatabaseDocumentEmbedded {
+public class ODatabaseDocumentDistributed extends ODatabaseDocumentEmbedded implements OConsistencyTokenSession {
 
-  private final OHazelcastPlugin distributedManager;
+  private final    OHazelcastPlugin  distributedManager;
+  private          OConsistencyToken lastCommitToken;
+  private          OConsistencyToken readConsistencyToken;
+  private volatile boolean           readConsistencyTokenApplied = true;
 
   public ODatabaseDocumentDistributed(OStorage storage, OHazelcastPlugin hazelcastPlugin) {
     super(storage);
     this.distributedManager = hazelcastPlugin;
   }
 
+  /**
+   * Returns the consistency token of the last transaction committed by this session, null if none. A session on another node
+   * that sets it with {@link #setReadConsistencyToken(OConsistencyToken)} sees the transaction in its reads.
+   */
+  @Override
+  public OConsistencyToken getLastCommitToken() {
+    return lastCommitToken;
+  }
+
+  protected void setLastCommitToken(final OConsistencyToken lastCommitToken) {
+    this.lastCommitToken = lastCommitToken;
+  }
+
+  @Override
+  public OConsistencyToken getReadConsistencyToken() {
+    return readConsistencyToken;
+  }
+
+  /**
+   * Sets the consistency token the reads of this session must observe (read-your-writes). Reads and queries wait until the
+   * local node has applied the transaction of the token, up to {@link OGlobalConfiguration#DISTRIBUTED_READ_YOUR_WRITES_TIMEOUT},
+   * then record reads are served locally whatever the read quorum is.
+   *
+   * @param token the token, null to remove it
+   */
+  @Override
+  public void setReadConsistencyToken(final OConsistencyToken token) {
+    this.readConsistencyToken = token;
+    this.readConsistencyTokenApplied = token == null;
+  }
+
+  /**
+   * Waits until the local node has applied the read consistency token of this session.
+   *
+   * @return true if the token has been applied or the session has no token, false if the timeout expired
+   */
+  public boolean waitForReadConsistencyToken() {
+    if (readConsistencyTokenApplied)
+      return true;
+
+    final OConsistencyToken token = readConsistencyToken;
+    final ODistributedDatabase localDistributedDatabase = getStorageDistributed().getLocalDistributedDatabase();
+    if (token == null || localDistributedDatabase == null)
+      return true;
+
+    try {
+      readConsistencyTokenApplied = localDistributedDatabase.waitForLSN(token.getNodeName(), token.getLsn(),
+          getConfiguration().getValueAsLong(OGlobalConfiguration.DISTRIBUTED_READ_YOUR_WRITES_TIMEOUT));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return readConsistencyTokenApplied;
+  }
+
+  @Override
+  public OResultSet query(String query, Object[] args) {
+    waitForReadConsistencyToken();
+    return super.query(query, args);
+  }
+
+  @Override
+  public OResultSet query(String query, Map args) {
+    waitForReadConsistencyToken();
+    return super.query(query, args);
+  }
+
+  @Override
+  public OResultSet command(String query, Object[] args) {
+    waitForReadConsistencyToken();
+    return super.command(query, args);
+  }
+
+  @Override
+  public OResultSet command(String query, Map args) {
+    waitForReadConsistencyToken();
+    return super.command(query, args);
+  }
+
   public ODistributedStorage getStorageDistributed() {
     return (ODistributedStorage) super.getStorage();
   }
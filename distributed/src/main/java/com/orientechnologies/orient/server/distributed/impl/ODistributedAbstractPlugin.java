@@ -1501,6 +1501,12 @@ public abstract class ODistributedAbstractPlugin extends OServerPluginAbstract
 
     final String localNodeName = nodeName;
 
+    if (firstChunk.streamed) {
+      installStreamedDatabaseFromNetwork(dbPath, databaseName, distrDatabase, iNode, firstChunk, uniqueClustersBackupDirectory,
+          cfg);
+      return;
+    }
+
     ODistributedServerLog
         .info(this, localNodeName, iNode, DIRECTION.IN, "Copying remote database '%s' to: %s", databaseName, fileName);
 
@@ -1590,6 +1596,73 @@ public abstract class ODistributedAbstractPlugin extends OServerPluginAbstract
     final ODatabaseDocumentInternal db = installDatabaseOnLocalNode(databaseName, dbPath, iNode, fileName, delta,
         uniqueClustersBackupDirectory, cfg, firstChunk.incremental, firstChunk.walSegment, firstChunk.walPosition);
 
+    onDatabaseInstalled(databaseName, distrDatabase, iNode, db, cfg);
+  }
+
+  /**
+   * Installs a database streamed by the remote node. Chunks are decompressed and piped to the restore as they arrive, so nothing is
+   * written to the temp directory.
+   */
+  protected void installStreamedDatabaseFromNetwork(final String dbPath, final String databaseName,
+      final ODistributedDatabaseImpl distrDatabase, final String iNode, final ODistributedDatabaseChunk firstChunk,
+      final File uniqueClustersBackupDirectory, final OModifiableDistributedConfiguration cfg) {
+
+    ODistributedServerLog.info(this, nodeName, iNode, DIRECTION.IN, "Streaming remote database '%s'", databaseName);
+
+    final ODistributedStreamBuffer pipe = new ODistributedStreamBuffer(2 * OSyncDatabaseTask.CHUNK_MAX_SIZE);
+
+    final Thread t = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        final OutputStream out = pipe.getOutputStream();
+        try {
+          Thread.currentThread().setName("OrientDB installDatabase node=" + nodeName + " db=" + databaseName);
+          ODistributedDatabaseChunk chunk = firstChunk;
+
+          long fileSize = writeDatabaseChunk(1, chunk, out);
+          for (int chunkNum = 2; !chunk.last; chunkNum++) {
+            final ODistributedResponse response = sendRequest(databaseName, null, OMultiValue.getSingletonList(iNode),
+                new OCopyDatabaseChunkTask(chunk.filePath, chunkNum, chunk.offset + chunk.getContentLength(), false),
+                getNextMessageIdCounter(), ODistributedRequest.EXECUTION_MODE.RESPONSE, null, null, null);
+
+            final Object result = response.getPayload();
+            if (result instanceof Boolean)
+              continue;
+            else if (result instanceof Exception) {
+              throw OException.wrapException(
+                  new ODistributedException("Error on installing database " + databaseName + " (chunk #" + chunkNum + ")"),
+                  (Exception) result);
+            } else if (result instanceof ODistributedDatabaseChunk) {
+              chunk = (ODistributedDatabaseChunk) result;
+              fileSize += writeDatabaseChunk(chunkNum, chunk, out);
+            }
+          }
+
+          ODistributedServerLog.info(this, nodeName, null, DIRECTION.NONE, "Database streamed correctly, size=%s",
+              OFileUtils.getSizeAsString(fileSize));
+
+          pipe.close();
+
+        } catch (Exception e) {
+          ODistributedServerLog
+              .error(this, nodeName, null, DIRECTION.NONE, "Error on streaming database '%s'", e, databaseName);
+          pipe.abort();
+        }
+      }
+    });
+    t.setUncaughtExceptionHandler(new OUncaughtExceptionHandler());
+    t.start();
+
+    final ODatabaseDocumentInternal db = installDatabaseOnLocalNode(databaseName, dbPath, iNode, pipe.getInputStream(),
+        uniqueClustersBackupDirectory, cfg);
+
+    onDatabaseInstalled(databaseName, distrDatabase, iNode, db, cfg);
+  }
+
+  private void onDatabaseInstalled(final String databaseName, final ODistributedDatabaseImpl distrDatabase, final String iNode,
+      final ODatabaseDocumentInternal db, final OModifiableDistributedConfiguration cfg) {
+    final String localNodeName = nodeName;
+
     if (db == null)
       return;
 
@@ -1912,10 +1985,44 @@ public abstract class ODistributedAbstractPlugin extends OServerPluginAbstract
 
     ODistributedServerLog
         .info(this, nodeName, null, DIRECTION.NONE, "- writing chunk #%d offset=%d size=%s", iChunkId, chunk.offset,
-            OFileUtils.getSizeAsString(chunk.buffer.length));
-    out.write(chunk.buffer);
+            OFileUtils.getSizeAsString(chunk.getContentLength()));
+    out.write(chunk.getContent());
+
+    return chunk.getContentLength();
+  }
+
+  protected ODatabaseDocumentInternal installDatabaseOnLocalNode(final String databaseName, final String dbPath, final String iNode,
+      final InputStream iDatabaseStream, final File uniqueClustersBackupDirectory, final OModifiableDistributedConfiguration cfg) {
+    ODistributedServerLog.info(this, nodeName, iNode, DIRECTION.IN, "Installing streamed database '%s' to: %s...", databaseName,
+        dbPath);
+
+    new File(dbPath).mkdirs();
 
-    return chunk.buffer.length;
+    executeInDistributedDatabaseLock(databaseName, 20000, cfg, new OCallable<Void, OModifiableDistributedConfiguration>() {
+      @Override
+      public Void call(final OModifiableDistributedConfiguration cfg) {
+        try {
+          restoreDatabase(databaseName, dbPath, iDatabaseStream, uniqueClustersBackupDirectory);
+          return null;
+        } catch (IOException e) {
+          throw OException.wrapException(new OIOException("Error on distributed sync of database"), e);
+        } finally {
+          try {
+            iDatabaseStream.close();
+          } catch (IOException e) {
+            ODistributedServerLog
+                .warn(this, nodeName, null, DIRECTION.IN, "Error on copying database '%s' on local server", e, databaseName);
+          }
+        }
+      }
+    });
+
+    ODatabaseDocumentInternal database = serverInstance.openDatabase(databaseName);
+
+    ODistributedServerLog.info(this, nodeName, null, DIRECTION.NONE, "Installed database '%s' (LSN=%s)", databaseName,
+        ((OAbstractPaginatedStorage) database.getStorage().getUnderlying()).getLSN());
+
+    return database;
   }
 
   protected ODatabaseDocumentInternal installDatabaseOnLocalNode(final String databaseName, final String dbPath, final String iNode,
@@ -1929,7 +2036,6 @@ public abstract class ODistributedAbstractPlugin extends OServerPluginAbstract
     new File(dbPath).mkdirs();
 
     try {
-      final ODistributedAbstractPlugin me = this;
       executeInDistributedDatabaseLock(databaseName, 20000, cfg, new OCallable<Void, OModifiableDistributedConfiguration>() {
         @Override
         public Void call(final OModifiableDistributedConfiguration cfg) {
@@ -2058,30 +2164,7 @@ public abstract class ODistributedAbstractPlugin extends OServerPluginAbstract
                 }
               };
 
-              // IMPORT FULL DATABASE (LISTENER ONLY FOR DEBUG PURPOSE)
-              serverInstance.getDatabases().restore(databaseName, in, null, new Callable<Object>() {
-                @Override
-                public Object call() throws Exception {
-                  if (uniqueClustersBackupDirectory != null && uniqueClustersBackupDirectory.exists()) {
-                    // RESTORE UNIQUE FILES FROM THE BACKUP FOLDERS. THOSE FILES ARE THE CLUSTERS OWNED EXCLUSIVELY BY CURRENT
-                    // NODE THAT WOULD BE LOST IF NOT REPLACED
-                    for (File f : uniqueClustersBackupDirectory.listFiles()) {
-                      final File oldFile = new File(dbPath + "/" + f.getName());
-                      if (oldFile.exists())
-                        oldFile.delete();
-
-                      // REPLACE IT
-                      if (!f.renameTo(oldFile))
-                        throw new ODistributedException(
-                            "Cannot restore exclusive cluster file '" + f.getAbsolutePath() + "' into " + oldFile
-                                .getAbsolutePath());
-                    }
-
-                    uniqueClustersBackupDirectory.delete();
-                  }
-                  return null;
-                }
-              }, ODistributedServerLog.isDebugEnabled() ? me : null);
+              restoreDatabase(databaseName, dbPath, in, uniqueClustersBackupDirectory);
 
             }
             return null;
@@ -2113,6 +2196,36 @@ public abstract class ODistributedAbstractPlugin extends OServerPluginAbstract
 
   }
 
+  /**
+   * Restores a full backup of the database read from the stream.
+   */
+  private void restoreDatabase(final String databaseName, final String dbPath, final InputStream in,
+      final File uniqueClustersBackupDirectory) throws IOException {
+    // IMPORT FULL DATABASE (LISTENER ONLY FOR DEBUG PURPOSE)
+    serverInstance.getDatabases().restore(databaseName, in, null, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        if (uniqueClustersBackupDirectory != null && uniqueClustersBackupDirectory.exists()) {
+          // RESTORE UNIQUE FILES FROM THE BACKUP FOLDERS. THOSE FILES ARE THE CLUSTERS OWNED EXCLUSIVELY BY CURRENT
+          // NODE THAT WOULD BE LOST IF NOT REPLACED
+          for (File f : uniqueClustersBackupDirectory.listFiles()) {
+            final File oldFile = new File(dbPath + "/" + f.getName());
+            if (oldFile.exists())
+              oldFile.delete();
+
+            // REPLACE IT
+            if (!f.renameTo(oldFile))
+              throw new ODistributedException(
+                  "Cannot restore exclusive cluster file '" + f.getAbsolutePath() + "' into " + oldFile.getAbsolutePath());
+          }
+
+          uniqueClustersBackupDirectory.delete();
+        }
+        return null;
+      }
+    }, ODistributedServerLog.isDebugEnabled() ? this : null);
+  }
+
   @Override
   public void onMessage(String iText) {
     if (iText.startsWith("\r\n"))
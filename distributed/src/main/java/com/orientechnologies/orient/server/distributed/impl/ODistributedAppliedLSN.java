@@ -0,0 +1,142 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.server.distributed.impl;
+
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import com.orientechnologies.orient.server.distributed.ODistributedRequestId;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Tracks, per source node, the LSN up to which the transactions received from that node have been applied. Every transaction is
+ * registered when its first phase is received, with the LSN the source node had before sending it. The commit LSN of a completed
+ * transaction is published only when no transaction received before it with a lower LSN is still pending, so the applied LSN
+ * means that everything up to it has been applied, even if the second phases are executed out of order.
+ * <p>
+ * This relies on the requests from a node being received in the order they are sent.
+ */
+public class ODistributedAppliedLSN {
+  private final Map<String, Source> sources = new HashMap<String, Source>();
+
+  private static class Source {
+    // FIRST PHASE LSN OF THE TRANSACTIONS RECEIVED AND NOT COMPLETED YET
+    private final Map<ODistributedRequestId, OLogSequenceNumber> pending   = new HashMap<ODistributedRequestId, OLogSequenceNumber>();
+    // COMMIT LSN OF THE TRANSACTIONS APPLIED BUT NOT PUBLISHED YET
+    private final TreeSet<OLogSequenceNumber>                    completed = new TreeSet<OLogSequenceNumber>();
+    private       OLogSequenceNumber                             applied;
+  }
+
+  /**
+   * Registers a transaction received from a source node.
+   *
+   * @param lsn LSN of the source node when the transaction was sent
+   */
+  public synchronized void received(final String sourceNodeName, final ODistributedRequestId transactionId,
+      final OLogSequenceNumber lsn) {
+    if (lsn != null)
+      getSource(sourceNodeName).pending.put(transactionId, lsn);
+  }
+
+  /**
+   * Notifies a transaction committed on the local node.
+   *
+   * @param lsn LSN of the source node after the commit of the transaction
+   */
+  public synchronized void applied(final String sourceNodeName, final ODistributedRequestId transactionId,
+      final OLogSequenceNumber lsn) {
+    final Source source = getSource(sourceNodeName);
+    source.pending.remove(transactionId);
+    if (lsn != null)
+      source.completed.add(lsn);
+    advance(source);
+  }
+
+  /**
+   * Notifies a transaction that will not be applied on the local node (rolled back, failed or discarded).
+   */
+  public synchronized void discarded(final ODistributedRequestId transactionId) {
+    for (Source source : sources.values())
+      if (source.pending.remove(transactionId) != null)
+        advance(source);
+  }
+
+  /**
+   * Waits until all the transactions of a source node up to a LSN have been applied.
+   *
+   * @param lastSynchronized LSN of the last synchronization with the source node, used if nothing has been received from it yet
+   *
+   * @return false if the timeout expired
+   */
+  public synchronized boolean waitFor(final String sourceNodeName, final OLogSequenceNumber lsn,
+      final OLogSequenceNumber lastSynchronized, final long timeout) throws InterruptedException {
+    final Source source = getSource(sourceNodeName);
+    if (source.applied == null && source.pending.isEmpty() && source.completed.isEmpty())
+      // NOTHING RECEIVED SINCE THE START
+      source.applied = lastSynchronized;
+
+    final long deadline = System.currentTimeMillis() + timeout;
+    while (source.applied == null || source.applied.compareTo(lsn) < 0) {
+      final long toWait = deadline - System.currentTimeMillis();
+      if (toWait <= 0)
+        return false;
+      wait(toWait);
+    }
+    return true;
+  }
+
+  public synchronized OLogSequenceNumber get(final String sourceNodeName) {
+    final Source source = sources.get(sourceNodeName);
+    return source != null ? source.applied : null;
+  }
+
+  public synchronized void reset() {
+    sources.clear();
+    notifyAll();
+  }
+
+  private Source getSource(final String sourceNodeName) {
+    Source source = sources.get(sourceNodeName);
+    if (source == null) {
+      source = new Source();
+      sources.put(sourceNodeName, source);
+    }
+    return source;
+  }
+
+  private void advance(final Source source) {
+    OLogSequenceNumber minPending = null;
+    for (OLogSequenceNumber lsn : source.pending.values())
+      if (minPending == null || lsn.compareTo(minPending) < 0)
+        minPending = lsn;
+
+    boolean changed = false;
+    while (!source.completed.isEmpty() && (minPending == null || source.completed.first().compareTo(minPending) < 0)) {
+      final OLogSequenceNumber lsn = source.completed.pollFirst();
+      if (source.applied == null || source.applied.compareTo(lsn) < 0) {
+        source.applied = lsn;
+        changed = true;
+      }
+    }
+    if (changed)
+      notifyAll();
+  }
+}
@@ -19,11 +19,17 @@
  */
 package com.orientechnologies.orient.server.distributed.impl;
 
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.orient.core.serialization.OStreamable;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
 import com.orientechnologies.orient.server.distributed.ODistributedMomentum;
+import com.orientechnologies.orient.server.distributed.impl.task.OStreamingBackup;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
 
 import java.io.*;
+import java.util.Arrays;
 import java.util.zip.GZIPInputStream;
 
 public class ODistributedDatabaseChunk implements OStreamable {
@@ -36,6 +42,9 @@ public class ODistributedDatabaseChunk implements OStreamable {
   public  boolean              incremental;
   public  long                 walSegment;
   public  long                 walPosition;
+  // NOT SERIALIZED: THE STREAMED CHUNKS, ALWAYS COMPRESSED WITH LZ4, ARE RECOGNIZED BY THEIR STREAM ID
+  public  boolean              streamed;
+  public  boolean              lz4Compressed;
 
   public ODistributedDatabaseChunk() {
   }
@@ -100,6 +109,51 @@ public class ODistributedDatabaseChunk implements OStreamable {
     }
   }
 
+  /**
+   * Creates a chunk of a database streamed without an intermediate backup file. The content is compressed with LZ4, prefixed by its
+   * uncompressed length.
+   */
+  public ODistributedDatabaseChunk(final String streamId, final ODistributedStreamBuffer.Chunk chunk,
+      final ODistributedMomentum momentum) {
+    filePath = streamId;
+    offset = chunk.offset;
+    last = chunk.last;
+    this.momentum = momentum;
+    this.streamed = true;
+    this.lz4Compressed = true;
+    this.walSegment = -1;
+    this.walPosition = -1;
+
+    final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    final byte[] compressed = new byte[4 + compressor.maxCompressedLength(chunk.content.length)];
+    final int compressedLength = compressor
+        .compress(chunk.content, 0, chunk.content.length, compressed, 4, compressed.length - 4);
+    OIntegerSerializer.INSTANCE.serializeNative(chunk.content.length, compressed, 0);
+    buffer = Arrays.copyOf(compressed, 4 + compressedLength);
+  }
+
+  /**
+   * Returns the length of the chunk in the source stream, that is the offset to use to request the next chunk.
+   */
+  public int getContentLength() {
+    if (lz4Compressed)
+      return OIntegerSerializer.INSTANCE.deserializeNative(buffer, 0);
+    return buffer.length;
+  }
+
+  /**
+   * Returns the chunk content, decompressed if needed.
+   */
+  public byte[] getContent() {
+    if (!lz4Compressed)
+      return buffer;
+
+    final int length = OIntegerSerializer.INSTANCE.deserializeNative(buffer, 0);
+    final byte[] content = new byte[length];
+    LZ4Factory.fastestInstance().fastDecompressor().decompress(buffer, 4, content, 0, length);
+    return content;
+  }
+
   @Override
   public String toString() {
     return filePath + "[" + offset + "-" + buffer.length + "] (last=" + last + ")";
@@ -143,6 +197,8 @@ public class ODistributedDatabaseChunk implements OStreamable {
     incremental = in.readBoolean();
     walSegment = in.readLong();
     walPosition = in.readLong();
+    streamed = OStreamingBackup.isStream(filePath);
+    lz4Compressed = streamed;
   }
 
   public ODistributedMomentum getMomentum() {
@@ -45,6 +45,7 @@ import com.orientechnologies.orient.server.distributed.*;
 import com.orientechnologies.orient.server.distributed.ODistributedServerLog.DIRECTION;
 import com.orientechnologies.orient.server.distributed.impl.coordinator.*;
 import com.orientechnologies.orient.server.distributed.impl.task.ODistributedLockTask;
+import com.orientechnologies.orient.server.distributed.impl.task.OTransactionPhase1Task;
 import com.orientechnologies.orient.server.distributed.impl.task.OUnreachableServerLocalTask;
 import com.orientechnologies.orient.server.distributed.impl.task.OWaitForTask;
 import com.orientechnologies.orient.server.distributed.task.OAbstractRemoteTask;
@@ -62,6 +63,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.orientechnologies.orient.core.config.OGlobalConfiguration.DISTRIBUTED_ATOMIC_LOCK_TIMEOUT;
+import static com.orientechnologies.orient.core.config.OGlobalConfiguration.DISTRIBUTED_TX_DEPENDENCY_SCHEDULING;
 
 /**
  * Distributed database implementation. There is one instance per database. Each node creates own instance to talk with each
@@ -85,6 +87,8 @@ public class ODistributedDatabaseImpl implements ODistributedDatabase {
   protected final List<ODistributedWorker>                                        workerThreads    = new ArrayList<ODistributedWorker>();
   protected       ODistributedWorker                                              lockThread;
   protected       ODistributedWorker                                              nowaitThread;
+  protected final ODistributedTxApplyScheduler                                    txApplyScheduler = new ODistributedTxApplyScheduler(
+      this::processRequestOnAnyWorker);
 
   private          AtomicLong                            totalSentRequests     = new AtomicLong();
   private          AtomicLong                            totalReceivedRequests = new AtomicLong();
@@ -93,8 +97,11 @@ public class ODistributedDatabaseImpl implements ODistributedDatabase {
   private volatile boolean                               running               = true;
   private          AtomicBoolean                         parsing               = new AtomicBoolean(true);
   private final    AtomicReference<ODistributedMomentum> filterByMomentum      = new AtomicReference<ODistributedMomentum>();
+  // LSN APPLIED PER SOURCE NODE, USED TO WAIT FOR SESSION CONSISTENCY TOKENS
+  private final    ODistributedAppliedLSN                appliedLSN            = new ODistributedAppliedLSN();
 
   private final String                     localNodeName;
+  private final boolean                    txDependencyScheduling;
   private final OSimpleLockManager<ORID>   recordLockManager;
   private final OSimpleLockManager<Object> indexKeyLockManager;
 
@@ -125,6 +132,7 @@ public class ODistributedDatabaseImpl implements ODistributedDatabase {
     this.msgService = msgService;
     this.databaseName = iDatabaseName;
     this.localNodeName = manager.getLocalNodeName();
+    this.txDependencyScheduling = manager.getServerInstance().getContextConfiguration().getValueAsBoolean(DISTRIBUTED_TX_DEPENDENCY_SCHEDULING);
 
     // SELF REGISTERING ITSELF HERE BECAUSE IT'S NEEDED FURTHER IN THE CALL CHAIN
     final ODistributedDatabaseImpl prev = msgService.databases.put(iDatabaseName, this);
@@ -189,6 +197,24 @@ public class ODistributedDatabaseImpl implements ODistributedDatabase {
           }
         }, "distributed.db.*.recordLocks");
 
+    Orient.instance().getProfiler().registerHookValue("distributed.db." + databaseName + ".pendingTxs",
+        "Number of replicated transactions received and not applied yet", OProfiler.METRIC_TYPE.COUNTER,
+        new OAbstractProfiler.OProfilerHookValue() {
+          @Override
+          public Object getValue() {
+            return (long) txApplyScheduler.getPending();
+          }
+        }, "distributed.db.*.pendingTxs");
+
+    Orient.instance().getProfiler().registerHookValue("distributed.db." + databaseName + ".applyLag",
+        "Time in ms since the oldest replicated transaction not applied yet has been received", OProfiler.METRIC_TYPE.STAT,
+        new OAbstractProfiler.OProfilerHookValue() {
+          @Override
+          public Object getValue() {
+            return txApplyScheduler.getApplyLag();
+          }
+        }, "distributed.db.*.applyLag");
+
     long timeout = manager.getServerInstance().getContextConfiguration().getValueAsLong(DISTRIBUTED_ATOMIC_LOCK_TIMEOUT);
     recordLockManager = new OSimpleLockManagerImpl<>(timeout);
     indexKeyLockManager = new OSimpleLockManagerImpl<>(timeout);
@@ -267,7 +293,14 @@ public class ODistributedDatabaseImpl implements ODistributedDatabase {
           .debug(this, localNodeName, task.getNodeSource(), DIRECTION.IN, "Request %s on database '%s' partitionKeys=%s task=%s",
               request, databaseName, Arrays.toString(partitionKeys), task);
 
-    if (partitionKeys.length > 1 || partitionKeys[0] == -1) {
+    if (task instanceof OTransactionPhase1Task && ((OTransactionPhase1Task) task).getRetryCount() == 0)
+      appliedLSN.received(task.getNodeSource(), request.getId(), ((OTransactionPhase1Task) task).getLastLSN());
+
+    if (txDependencyScheduling && task instanceof OTransactionPhase1Task) {
+      // TRANSACTIONS THAT DO NOT TOUCH THE SAME RECORDS ARE APPLIED CONCURRENTLY, THE OTHERS IN ORDER OF ARRIVAL
+      txApplyScheduler.submit(request, ((OTransactionPhase1Task) task).getSchedulingKeys());
+
+    } else if (partitionKeys.length > 1 || partitionKeys[0] == -1) {
 
       final Set<Integer> involvedWorkerQueues;
       if (partitionKeys.length > 1)
@@ -291,6 +324,9 @@ public class ODistributedDatabaseImpl implements ODistributedDatabase {
         ODistributedServerLog.debug(this, localNodeName, null, DIRECTION.NONE,
             "Request %s on database '%s' waiting for all the previous requests to be completed", request, databaseName);
 
+        // THE TRANSACTIONS RECEIVED BEFORE AND STILL WAITING FOR OTHER TRANSACTIONS MUST BE IN THE QUEUES BEFORE SYNCHRONIZING THEM
+        txApplyScheduler.dispatchAll();
+
         // WAIT ALL THE INVOLVED QUEUES ARE FREE AND SYNCHRONIZED
         final CountDownLatch syncLatch = new CountDownLatch(involvedWorkerQueues.size());
         final ODistributedRequest syncRequest = new ODistributedRequest(null, request.getId().getNodeId(), -1, databaseName,
@@ -362,30 +398,7 @@ public class ODistributedDatabaseImpl implements ODistributedDatabase {
         }
       }
     } else if (partitionKeys.length == 1 && partitionKeys[0] == -2) {
-      // ANY PARTITION: USE THE FIRST EMPTY IF ANY, OTHERWISE THE FIRST IN THE LIST
-      boolean found = false;
-
-      for (ODistributedWorker q : workerThreads) {
-        if (q.isWaitingForNextRequest() && q.localQueue.isEmpty()) {
-          q.processRequest(request);
-          found = true;
-          break;
-        }
-      }
-
-      if (!found)
-        // ALL THE THREADS ARE BUSY, SELECT THE FIRST EMPTY ONE
-        for (ODistributedWorker q : workerThreads) {
-          if (q.localQueue.isEmpty()) {
-            q.processRequest(request);
-            found = true;
-            break;
-          }
-        }
-
-      if (!found)
-        // EXEC ON THE FIRST QUEUE
-        workerThreads.get(0).processRequest(request);
+      processRequestOnAnyWorker(request);
 
     } else if (partitionKeys.length == 1 && partitionKeys[0] == -3) {
       // SERVICE - LOCK
@@ -420,6 +433,65 @@ public class ODistributedDatabaseImpl implements ODistributedDatabase {
       }
   }
 
+  /**
+   * Notifies the end of the execution of a request by a worker.
+   */
+  public void onRequestExecuted(final ODistributedRequest request) {
+    final ORemoteTask task = request.getTask();
+    // THE RECORDS ARE LOCKED OR THE TRANSACTION FAILED: THE TRANSACTIONS DEPENDING ON IT CAN TRY TO LOCK THEM
+    txApplyScheduler.completed(request);
+    if (task instanceof OTransactionPhase1Task && task.hasResponse() && !activeTxContexts.containsKey(request.getId()))
+      // FAILED WITHOUT KEEPING THE TRANSACTION
+      appliedLSN.discarded(request.getId());
+  }
+
+  /**
+   * Notifies a request removed from a worker queue without being executed.
+   */
+  public void onRequestDiscarded(final ODistributedRequest request) {
+    txApplyScheduler.completed(request);
+    appliedLSN.discarded(request.getId());
+  }
+
+  /**
+   * Notifies the second phase of a transaction received from another node.
+   *
+   * @param lsn LSN of the source node after the commit, null if the transaction has not been committed on the local node
+   */
+  public void onTransactionCompleted(final String sourceNodeName, final ODistributedRequestId transactionId,
+      final OLogSequenceNumber lsn) {
+    if (lsn != null)
+      appliedLSN.applied(sourceNodeName, transactionId, lsn);
+    else
+      appliedLSN.discarded(transactionId);
+  }
+
+  /**
+   * Executes the request on the first idle worker if any, otherwise on the first worker with an empty queue or on the first worker.
+   */
+  protected void processRequestOnAnyWorker(final ODistributedRequest request) {
+    if (workerThreads.isEmpty())
+      throw new ODistributedException("There are no worker threads to process request " + request);
+
+    for (ODistributedWorker q : workerThreads) {
+      if (q.isWaitingForNextRequest() && q.localQueue.isEmpty()) {
+        q.processRequest(request);
+        return;
+      }
+    }
+
+    // ALL THE THREADS ARE BUSY, SELECT THE FIRST EMPTY ONE
+    for (ODistributedWorker q : workerThreads) {
+      if (q.localQueue.isEmpty()) {
+        q.processRequest(request);
+        return;
+      }
+    }
+
+    // EXEC ON THE FIRST QUEUE
+    workerThreads.get(0).processRequest(request);
+  }
+
   protected Set<Integer> getInvolvedQueuesByPartitionKeys(final int[] partitionKeys) {
     final Set<Integer> involvedWorkerQueues = new HashSet<Integer>(partitionKeys.length);
     for (int pk : partitionKeys) {
@@ -836,6 +908,7 @@ public class ODistributedDatabaseImpl implements ODistributedDatabase {
         }
         pReq.destroy();
         pendingReqIterator.remove();
+        appliedLSN.discarded(pReq.getReqId());
       }
     }
 
@@ -1030,12 +1103,16 @@ public class ODistributedDatabaseImpl implements ODistributedDatabase {
 
       lockManager.clear();
       activeTxContexts.clear();
+      txApplyScheduler.reset();
+      appliedLSN.reset();
 
       Orient.instance().getProfiler().unregisterHookValue("distributed.db." + databaseName + ".msgSent");
       Orient.instance().getProfiler().unregisterHookValue("distributed.db." + databaseName + ".msgReceived");
       Orient.instance().getProfiler().unregisterHookValue("distributed.db." + databaseName + ".activeContexts");
       Orient.instance().getProfiler().unregisterHookValue("distributed.db." + databaseName + ".workerThreads");
       Orient.instance().getProfiler().unregisterHookValue("distributed.db." + databaseName + ".recordLocks");
+      Orient.instance().getProfiler().unregisterHookValue("distributed.db." + databaseName + ".pendingTxs");
+      Orient.instance().getProfiler().unregisterHookValue("distributed.db." + databaseName + ".applyLag");
 
     } finally {
 
@@ -1218,6 +1295,16 @@ public class ODistributedDatabaseImpl implements ODistributedDatabase {
     cfg.setLastLSN(sourceNodeName, taskLastLSN, updateLastOperationTimestamp);
   }
 
+  @Override
+  public boolean waitForLSN(final String sourceNodeName, final OLogSequenceNumber lsn, final long timeout)
+      throws InterruptedException {
+    if (sourceNodeName.equals(localNodeName))
+      // COMMITTED ON THIS NODE
+      return true;
+
+    return appliedLSN.waitFor(sourceNodeName, lsn, getLastLSN(sourceNodeName), timeout);
+  }
+
   @Override
   public ODistributedDatabaseRepairer getDatabaseRepairer() {
     return repairer;
@@ -1268,6 +1355,7 @@ public class ODistributedDatabaseImpl implements ODistributedDatabase {
                       t);
                 } finally {
                   it.remove();
+                  appliedLSN.discarded(ctx.getReqId());
                 }
               }
             }
@@ -1324,6 +1412,8 @@ public class ODistributedDatabaseImpl implements ODistributedDatabase {
         if (w != null)
           w.reset();
       }
+      txApplyScheduler.reset();
+      appliedLSN.reset();
     }
 
     this.parsing.set(false);
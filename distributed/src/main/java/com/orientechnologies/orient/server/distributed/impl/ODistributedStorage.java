@@ -538,6 +538,19 @@ public class ODistributedStorage implements OStorage, OFreezableStorageComponent
     return executeLocally;
   }
 
+  /**
+   * Returns true if the session of the current thread has a read consistency token and the local node applied it, waiting for it
+   * if needed.
+   */
+  private boolean isReadConsistencyTokenApplied() {
+    final ODatabaseDocumentInternal db = ODatabaseRecordThreadLocal.instance().getIfDefined();
+    if (!(db instanceof ODatabaseDocumentDistributed))
+      return false;
+
+    final ODatabaseDocumentDistributed session = (ODatabaseDocumentDistributed) db;
+    return session.getReadConsistencyToken() != null && session.waitForReadConsistencyToken();
+  }
+
   public boolean isLocalEnv() {
     return localDistributedDatabase == null || dManager == null || distributedConfiguration == null || OScenarioThreadLocal.INSTANCE
         .isRunModeDistributed();
@@ -562,11 +575,12 @@ public class ODistributedStorage implements OStorage, OFreezableStorageComponent
       final List<String> nodes = dbCfg.getServers(clusterName, null);
       final int availableNodes = nodes.size();
 
-      // CHECK IF LOCAL NODE OWNS THE DATA AND READ-QUORUM = 1: GET IT LOCALLY BECAUSE IT'S FASTER
+      // CHECK IF LOCAL NODE OWNS THE DATA AND READ-QUORUM = 1 OR THE SESSION CONSISTENCY TOKEN IS APPLIED: GET IT LOCALLY BECAUSE
+      // IT'S FASTER
       final String localNodeName = dManager.getLocalNodeName();
 
-      if (nodes.isEmpty()
-          || nodes.contains(dManager.getLocalNodeName()) && dbCfg.getReadQuorum(clusterName, availableNodes, localNodeName) <= 1) {
+      if (nodes.isEmpty() || nodes.contains(dManager.getLocalNodeName()) && (isReadConsistencyTokenApplied()
+          || dbCfg.getReadQuorum(clusterName, availableNodes, localNodeName) <= 1)) {
         // DON'T REPLICATE
         return (OStorageOperationResult<ORawBuffer>) OScenarioThreadLocal.executeAsDistributed(new Callable() {
           @Override
@@ -626,11 +640,12 @@ public class ODistributedStorage implements OStorage, OFreezableStorageComponent
       final List<String> nodes = dbCfg.getServers(clusterName, null);
       final int availableNodes = nodes.size();
 
-      // CHECK IF LOCAL NODE OWNS THE DATA AND READ-QUORUM = 1: GET IT LOCALLY BECAUSE IT'S FASTER
+      // CHECK IF LOCAL NODE OWNS THE DATA AND READ-QUORUM = 1 OR THE SESSION CONSISTENCY TOKEN IS APPLIED: GET IT LOCALLY BECAUSE
+      // IT'S FASTER
       final String localNodeName = dManager.getLocalNodeName();
 
-      if (nodes.isEmpty()
-          || nodes.contains(dManager.getLocalNodeName()) && dbCfg.getReadQuorum(clusterName, availableNodes, localNodeName) <= 1) {
+      if (nodes.isEmpty() || nodes.contains(dManager.getLocalNodeName()) && (isReadConsistencyTokenApplied()
+          || dbCfg.getReadQuorum(clusterName, availableNodes, localNodeName) <= 1)) {
         // DON'T REPLICATE
         return (OStorageOperationResult<ORawBuffer>) OScenarioThreadLocal.executeAsDistributed(new Callable() {
           @Override
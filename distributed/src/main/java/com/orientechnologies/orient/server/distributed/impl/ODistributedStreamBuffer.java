@@ -0,0 +1,231 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.server.distributed.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * Bounded in-memory byte pipe used to stream a database between nodes without an intermediate file. The producer writes through
+ * {@link #getOutputStream()} and blocks while the buffer is full, the consumer reads chunks by absolute offset with
+ * {@link #readChunk(long, int)} or as a plain stream with {@link #getInputStream()}. The last chunk read is retained, so a chunk
+ * request retried at the same offset gets the same bytes again.
+ */
+public class ODistributedStreamBuffer {
+  private static final long WAIT_FOR_FULL_CHUNK = 1000;
+
+  private final byte[]  buffer;
+  private final long    writeTimeout;
+  private       int     head;
+  private       int     size;
+  private       long    readOffset;
+  private       boolean closed;
+  private       boolean aborted;
+  private       long    lastChunkOffset = -1;
+  private       byte[]  lastChunk;
+  private       boolean lastChunkIsLast;
+
+  public ODistributedStreamBuffer(final int capacity) {
+    this(capacity, 0);
+  }
+
+  /**
+   * @param writeTimeout maximum time in ms a write waits for the reader to free space in the buffer, after that the stream is
+   *                     aborted. 0 waits forever
+   */
+  public ODistributedStreamBuffer(final int capacity, final long writeTimeout) {
+    buffer = new byte[capacity];
+    this.writeTimeout = writeTimeout;
+  }
+
+  public static class Chunk {
+    public final long    offset;
+    public final byte[]  content;
+    public final boolean last;
+
+    public Chunk(final long offset, final byte[] content, final boolean last) {
+      this.offset = offset;
+      this.content = content;
+      this.last = last;
+    }
+  }
+
+  public OutputStream getOutputStream() {
+    return new OutputStream() {
+      @Override
+      public void write(final int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len) throws IOException {
+        ODistributedStreamBuffer.this.write(b, off, len);
+      }
+
+      @Override
+      public void close() {
+        ODistributedStreamBuffer.this.close();
+      }
+    };
+  }
+
+  public InputStream getInputStream() {
+    return new InputStream() {
+      @Override
+      public int read() throws IOException {
+        final byte[] b = new byte[1];
+        final int read = read(b, 0, 1);
+        return read <= 0 ? -1 : b[0] & 0xFF;
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException {
+        return ODistributedStreamBuffer.this.read(b, off, len);
+      }
+
+      @Override
+      public void close() {
+        abort();
+      }
+    };
+  }
+
+  public synchronized void write(final byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      final long waitStart = System.currentTimeMillis();
+      while (size == buffer.length && !aborted) {
+        if (writeTimeout > 0 && System.currentTimeMillis() - waitStart > writeTimeout) {
+          aborted = true;
+          notifyAll();
+          throw new IOException("Timeout on writing to the stream, the reader did not consume it for " + writeTimeout + "ms");
+        }
+        waitForChange();
+      }
+
+      if (aborted)
+        throw new IOException("Stream has been aborted by the reader");
+      if (closed)
+        throw new IOException("Stream is closed");
+
+      final int tail = (head + size) % buffer.length;
+      final int toCopy = Math.min(len, Math.min(buffer.length - size, buffer.length - tail));
+      System.arraycopy(b, off, buffer, tail, toCopy);
+      size += toCopy;
+      off += toCopy;
+      len -= toCopy;
+      notifyAll();
+    }
+  }
+
+  /**
+   * Signals the end of the stream.
+   */
+  public synchronized void close() {
+    closed = true;
+    notifyAll();
+  }
+
+  /**
+   * Discards the stream: the producer blocked on a write gets an error.
+   */
+  public synchronized void abort() {
+    aborted = true;
+    notifyAll();
+  }
+
+  public synchronized boolean isAborted() {
+    return aborted;
+  }
+
+  /**
+   * Reads the next chunk of the stream. Waits up to 1 second for a full chunk before returning what is available.
+   *
+   * @param offset  absolute offset of the requested chunk. It must be the offset following the last chunk read, or the offset of the
+   *                last chunk itself to read it again
+   * @param maxSize maximum chunk size
+   */
+  public synchronized Chunk readChunk(final long offset, final int maxSize) throws IOException {
+    if (offset == lastChunkOffset)
+      return new Chunk(lastChunkOffset, lastChunk, lastChunkIsLast);
+
+    if (offset != readOffset)
+      throw new IllegalArgumentException("Cannot read chunk at offset " + offset + ", the stream is at offset " + readOffset);
+
+    final long deadline = System.currentTimeMillis() + WAIT_FOR_FULL_CHUNK;
+    while (!closed && !aborted && (size == 0 || (size < maxSize && size < buffer.length
+        && System.currentTimeMillis() < deadline)))
+      waitForChange();
+
+    if (aborted)
+      throw new IOException("Stream has been aborted");
+
+    final byte[] content = new byte[Math.min(size, maxSize)];
+    copyOut(content, 0, content.length);
+
+    lastChunkOffset = offset;
+    lastChunk = content;
+    lastChunkIsLast = closed && size == 0;
+
+    return new Chunk(offset, content, lastChunkIsLast);
+  }
+
+  private synchronized int read(final byte[] b, final int off, final int len) throws IOException {
+    if (len == 0)
+      return 0;
+
+    while (size == 0 && !closed && !aborted)
+      waitForChange();
+
+    if (aborted)
+      throw new IOException("Stream has been aborted");
+
+    if (size == 0)
+      // END OF STREAM
+      return -1;
+
+    final int toRead = Math.min(size, len);
+    copyOut(b, off, toRead);
+    return toRead;
+  }
+
+  private void copyOut(final byte[] b, int off, int len) {
+    while (len > 0) {
+      final int toCopy = Math.min(len, buffer.length - head);
+      System.arraycopy(buffer, head, b, off, toCopy);
+      head = (head + toCopy) % buffer.length;
+      size -= toCopy;
+      readOffset += toCopy;
+      off += toCopy;
+      len -= toCopy;
+    }
+    notifyAll();
+  }
+
+  private void waitForChange() throws InterruptedIOException {
+    try {
+      wait(100);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting on database stream");
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.server.distributed.impl;
+
+import com.orientechnologies.orient.server.distributed.ODistributedRequest;
+import com.orientechnologies.orient.server.distributed.ODistributedRequestId;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Dependency tracking scheduler for the replicated transactions received by a node. Every request is submitted with the set of
+ * keys (records) it touches: a request that shares no key with the requests still in progress is dispatched immediately,
+ * otherwise it is dispatched when all the previous requests on the same keys have been executed. Overlapping transactions
+ * therefore try to lock their records in the order they are received, the others run concurrently.
+ * <p>
+ * A request is not held until the second phase of the previous transactions: the messages are not delivered in a total order, so
+ * two nodes could wait for each other's transaction. A transaction that finds the records locked by a previous one fails fast and
+ * is retried as without the scheduler.
+ */
+public class ODistributedTxApplyScheduler {
+  private final Consumer<ODistributedRequest>    dispatcher;
+  private final Map<Object, Node>                lastByKey = new HashMap<Object, Node>();
+  // REQUESTS SUBMITTED AND NOT EXECUTED YET, IN ORDER OF ARRIVAL
+  private final Map<ODistributedRequestId, Node> inFlight  = new LinkedHashMap<ODistributedRequestId, Node>();
+
+  private static class Node {
+    private final ODistributedRequest request;
+    private final Collection<?>       keys;
+    private final long                received   = System.currentTimeMillis();
+    private final List<Node>          successors = new ArrayList<Node>(2);
+    private       int                 predecessors;
+    private       boolean             dispatched;
+
+    private Node(final ODistributedRequest request, final Collection<?> keys) {
+      this.request = request;
+      this.keys = keys;
+    }
+  }
+
+  /**
+   * @param dispatcher executes a request once its dependencies have been executed. {@link #completed(ODistributedRequest)} must be
+   *                   called at the end of the execution
+   */
+  public ODistributedTxApplyScheduler(final Consumer<ODistributedRequest> dispatcher) {
+    this.dispatcher = dispatcher;
+  }
+
+  /**
+   * Submits a request.
+   *
+   * @param keys distinct keys touched by the request
+   */
+  public void submit(final ODistributedRequest request, final Set<?> keys) {
+    final List<ODistributedRequest> ready = new ArrayList<ODistributedRequest>();
+    synchronized (this) {
+      final Node node = new Node(request, keys);
+      final Node replaced = inFlight.put(request.getId(), node);
+      if (replaced != null)
+        // RE-ENQUEUED BEFORE THE END OF THE PREVIOUS EXECUTION WAS NOTIFIED
+        release(replaced, ready);
+
+      for (Object key : keys) {
+        final Node previous = lastByKey.put(key, node);
+        if (previous != null && (previous.successors.isEmpty()
+            || previous.successors.get(previous.successors.size() - 1) != node)) {
+          previous.successors.add(node);
+          node.predecessors++;
+        }
+      }
+
+      if (node.predecessors == 0) {
+        node.dispatched = true;
+        ready.add(request);
+      }
+    }
+    dispatch(ready);
+  }
+
+  /**
+   * Notifies the end of the execution of a request (executed, failed or discarded), dispatching the requests that were waiting for
+   * it.
+   */
+  public void completed(final ODistributedRequest request) {
+    final List<ODistributedRequest> ready = new ArrayList<ODistributedRequest>();
+    synchronized (this) {
+      final Node node = inFlight.get(request.getId());
+      if (node == null || node.request != request)
+        // NOT SCHEDULED HERE, OR ALREADY RE-ENQUEUED
+        return;
+      inFlight.remove(request.getId());
+      release(node, ready);
+    }
+    dispatch(ready);
+  }
+
+  /**
+   * Dispatches all the requests still waiting for the previous ones, without waiting. Used before executing a request that involves
+   * all the worker queues, so the requests received before it are in the queues before synchronizing them. The requests that find
+   * the records locked by the previous ones fail fast and are retried.
+   */
+  public void dispatchAll() {
+    final List<ODistributedRequest> ready = new ArrayList<ODistributedRequest>();
+    synchronized (this) {
+      for (Node node : inFlight.values()) {
+        if (!node.dispatched) {
+          node.dispatched = true;
+          ready.add(node.request);
+        }
+      }
+    }
+    dispatch(ready);
+  }
+
+  /**
+   * Discards all the requests in progress.
+   */
+  public synchronized void reset() {
+    lastByKey.clear();
+    inFlight.clear();
+  }
+
+  public synchronized int getPending() {
+    return inFlight.size();
+  }
+
+  /**
+   * Returns the time in ms since the oldest request not executed yet has been received, 0 if there are no requests in progress.
+   */
+  public synchronized long getApplyLag() {
+    if (inFlight.isEmpty())
+      return 0;
+    return System.currentTimeMillis() - inFlight.values().iterator().next().received;
+  }
+
+  private void release(final Node node, final List<ODistributedRequest> ready) {
+    for (Object key : node.keys)
+      lastByKey.remove(key, node);
+
+    for (Node successor : node.successors) {
+      if (--successor.predecessors == 0 && !successor.dispatched) {
+        successor.dispatched = true;
+        ready.add(successor.request);
+      }
+    }
+    node.successors.clear();
+  }
+
+  private void dispatch(final List<ODistributedRequest> requests) {
+    RuntimeException error = null;
+    for (ODistributedRequest request : requests) {
+      try {
+        dispatcher.accept(request);
+      } catch (RuntimeException e) {
+        // THE REQUEST WILL NEVER BE EXECUTED: RELEASE THE REQUESTS WAITING FOR IT
+        completed(request);
+        if (error == null)
+          error = e;
+      }
+    }
+    if (error != null)
+      throw error;
+  }
+}
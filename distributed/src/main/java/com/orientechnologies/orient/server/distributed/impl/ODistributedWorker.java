@@ -37,6 +37,8 @@ import com.orientechnologies.orient.server.distributed.ODistributedServerLog.DIR
 import com.orientechnologies.orient.server.distributed.task.ODistributedOperationException;
 import com.orientechnologies.orient.server.distributed.task.ORemoteTask;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -118,7 +120,11 @@ public class ODistributedWorker extends Thread {
         if (message != null) {
           message.getId();
           reqId = message.getId();
-          onMessage(message);
+          try {
+            onMessage(message);
+          } finally {
+            distributed.onRequestExecuted(message);
+          }
         }
 
         currentExecuting = null;
@@ -225,7 +231,7 @@ public class ODistributedWorker extends Thread {
           .debug(this, localNodeName, null, ODistributedServerLog.DIRECTION.NONE, "Shutdown distributed worker '%s' completed",
               getName());
 
-      localQueue.clear();
+      discardQueue();
 
       if (database != null) {
         database.activateOnCurrentThread();
@@ -470,7 +476,7 @@ public class ODistributedWorker extends Thread {
   }
 
   public void reset() {
-    localQueue.clear();
+    discardQueue();
     if (database != null) {
       database.activateOnCurrentThread();
       database.close();
@@ -478,6 +484,13 @@ public class ODistributedWorker extends Thread {
     }
   }
 
+  private void discardQueue() {
+    final List<ODistributedRequest> discarded = new ArrayList<ODistributedRequest>();
+    localQueue.drainTo(discarded);
+    for (ODistributedRequest request : discarded)
+      distributed.onRequestDiscarded(request);
+  }
+
   public void sendShutdown() {
     running = false;
   }
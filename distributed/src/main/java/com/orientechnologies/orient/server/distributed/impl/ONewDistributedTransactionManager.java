@@ -97,6 +97,7 @@ public class ONewDistributedTransactionManager {
     if (nodes.isEmpty()) {
       // NO FURTHER NODES TO INVOLVE
       localOk(requestId, database);
+      database.setLastCommitToken(new OConsistencyToken(localNodeName, getLsn()));
       return;
     }
     //TODO:check the lsn
@@ -139,11 +140,15 @@ public class ONewDistributedTransactionManager {
       assert results.size() > 0;
       OTransactionResultPayload resultPayload = results.get(0);
       switch (resultPayload.getResponseType()) {
-      case OTxSuccess.ID:
+      case OTxSuccess.ID: {
         //Success send ok
         localOk(requestId, database);
-        sendPhase2Task(involvedClusters, nodes, new OTransactionPhase2Task(requestId, true, involvedClustersIds, getLsn()));
+        final OLogSequenceNumber lsn = getLsn();
+        sendPhase2Task(involvedClusters, nodes, new OTransactionPhase2Task(requestId, true, involvedClustersIds, lsn));
+        // THE OTHER NODES REGISTER THE LSN SENT WITH THE SECOND PHASE ONCE THEY APPLIED IT
+        database.setLastCommitToken(new OConsistencyToken(dManager.getLocalNodeName(), lsn));
         break;
+      }
       case OTxException.ID:
         //Exception send ko and throws the exception
         localKo(requestId, database);
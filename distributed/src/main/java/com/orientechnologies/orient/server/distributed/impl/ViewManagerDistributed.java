@@ -23,4 +23,10 @@ public class ViewManagerDistributed extends ViewManager {
     String localNode = ((ODatabaseDocumentDistributed) db).getLocalNodeName();
     return nodesForView.contains(localNode);
   }
+
+  @Override
+  protected boolean isIncrementalUpdateSupported() {
+    // THE CHANGES OF THE DISTRIBUTED TRANSACTIONS ARE NOT NOTIFIED TO THE VIEW MANAGER, ALWAYS REBUILD THE VIEWS
+    return false;
+  }
 }
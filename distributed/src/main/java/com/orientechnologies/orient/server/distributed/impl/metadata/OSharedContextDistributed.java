@@ -14,10 +14,12 @@ import com.orientechnologies.orient.core.query.live.OLiveQueryHook;
 import com.orientechnologies.orient.core.query.live.OLiveQueryHookV2;
 import com.orientechnologies.orient.core.schedule.OSchedulerImpl;
 import com.orientechnologies.orient.core.security.OSecurityManager;
+import com.orientechnologies.orient.core.sql.executor.OQueryResultCache;
 import com.orientechnologies.orient.core.sql.executor.OQueryStats;
 import com.orientechnologies.orient.core.sql.parser.OExecutionPlanCache;
 import com.orientechnologies.orient.core.sql.parser.OStatementCache;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
 import com.orientechnologies.orient.server.distributed.impl.ViewManagerDistributed;
 
 /**
@@ -47,6 +49,10 @@ public class OSharedContextDistributed extends OSharedContext {
         storage.getConfiguration().getContextConfiguration().getValueAsInteger(OGlobalConfiguration.STATEMENT_CACHE_SIZE));
     this.registerListener(executionPlanCache);
 
+    queryResultCache = new OQueryResultCache(storage.getConfiguration().getContextConfiguration());
+    this.registerListener(queryResultCache);
+    ((OAbstractPaginatedStorage) storage.getUnderlying()).setClusterChangeListener(queryResultCache);
+
     queryStats = new OQueryStats();
 
     distributedContext = new ODistributedContext(storage, orientDB);
@@ -92,6 +98,7 @@ public class OSharedContextDistributed extends OSharedContext {
     commandCache.shutdown();
     statementCache.clear();
     executionPlanCache.invalidate();
+    queryResultCache.invalidate();
     liveQueryOps.close();
     liveQueryOpsV2.close();
     distributedContext.close();
@@ -64,12 +64,20 @@ public class OCopyDatabaseChunkTask extends OAbstractReplicatedTask {
   @Override
   public Object execute(ODistributedRequestId requestId, final OServer iServer, ODistributedServerManager iManager,
       final ODatabaseDocumentInternal database) throws Exception {
-    final File f = new File(fileName);
-    if (!f.exists())
-      throw new IllegalArgumentException("File name '" + fileName + "' not found");
-
-    final ODistributedDatabaseChunk result = new ODistributedDatabaseChunk(f, offset, OSyncDatabaseTask.CHUNK_MAX_SIZE, null,
-         compressed, false);
+    final ODistributedDatabaseChunk result;
+    if (OStreamingBackup.isStream(fileName)) {
+      final OStreamingBackup stream = OStreamingBackup.getStream(fileName);
+      if (stream == null)
+        throw new IllegalArgumentException("Database stream '" + fileName + "' not found");
+
+      result = stream.readChunk(offset, null);
+    } else {
+      final File f = new File(fileName);
+      if (!f.exists())
+        throw new IllegalArgumentException("File name '" + fileName + "' not found");
+
+      result = new ODistributedDatabaseChunk(f, offset, OSyncDatabaseTask.CHUNK_MAX_SIZE, null, compressed, false);
+    }
 
     ODistributedServerLog.info(this, iManager.getLocalNodeName(), getNodeSource(), ODistributedServerLog.DIRECTION.OUT,
         "- transferring chunk #%d offset=%d size=%s...", chunkNum, result.offset, OFileUtils.getSizeAsNumber(result.buffer.length));
@@ -0,0 +1,32 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.server.distributed.impl.task;
+
+/**
+ * Factory of remote tasks.
+ * <p>
+ * <ul> <li>V3: the node can install a database streamed without a backup file, see {@link OStreamingBackup}</li> </ul>
+ */
+public class ODefaultRemoteTaskFactoryV3 extends ODefaultRemoteTaskFactoryV2 {
+  @Override
+  public int getProtocolVersion() {
+    return 3;
+  }
+}
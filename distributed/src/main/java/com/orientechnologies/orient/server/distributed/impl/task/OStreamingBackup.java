@@ -0,0 +1,146 @@
+package com.orientechnologies.orient.server.distributed.impl.task;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.server.distributed.*;
+import com.orientechnologies.orient.server.distributed.impl.ODistributedDatabaseChunk;
+import com.orientechnologies.orient.server.distributed.impl.ODistributedStreamBuffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.TimerTask;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Backup of a database streamed to a synchronizing node through a bounded in-memory buffer, instead of a backup file in the temp
+ * directory. The backup is taken without ZIP compression, chunks are compressed with LZ4 when they are sent.
+ * <p>
+ * The backup is throttled by the receiving node: it waits while the buffer is full, so the storage stays frozen until the receiving
+ * node has read all but the last chunks. A stream whose chunks are not requested for
+ * {@link OGlobalConfiguration#DISTRIBUTED_DEPLOYCHUNK_TASK_SYNCH_TIMEOUT} is discarded, as the receiving node gave up, and the
+ * backup waiting on it fails.
+ */
+public class OStreamingBackup implements Runnable {
+  /**
+   * Distributed protocol version of the nodes that can install a streamed database.
+   */
+  public static final  int                           PROTOCOL_VERSION = 3;
+  public static final  String                        STREAM_PREFIX    = "stream:";
+  private static final Map<String, OStreamingBackup> streams       = new ConcurrentHashMap<String, OStreamingBackup>();
+
+  private final OSyncDatabaseTask                     oSyncDatabaseTask;
+  private final ODistributedServerManager             iManager;
+  private final ODatabaseDocumentInternal             database;
+  private final AtomicReference<ODistributedMomentum> momentum;
+  private final ODistributedDatabase                  dDatabase;
+  private final String                                streamId;
+  private final ODistributedStreamBuffer              buffer;
+  private final CountDownLatch                        started = new CountDownLatch(1);
+  private final long                                  idleTimeout;
+  private final TimerTask                             idleCheck;
+  private volatile long                               lastRead;
+
+  public OStreamingBackup(OSyncDatabaseTask oSyncDatabaseTask, ODistributedServerManager iManager,
+      ODatabaseDocumentInternal database, AtomicReference<ODistributedMomentum> momentum, ODistributedDatabase dDatabase) {
+    this.oSyncDatabaseTask = oSyncDatabaseTask;
+    this.iManager = iManager;
+    this.database = database;
+    this.momentum = momentum;
+    this.dDatabase = dDatabase;
+    this.streamId = STREAM_PREFIX + database.getName() + "/" + UUID.randomUUID();
+    this.idleTimeout = OGlobalConfiguration.DISTRIBUTED_DEPLOYCHUNK_TASK_SYNCH_TIMEOUT.getValueAsLong();
+    this.buffer = new ODistributedStreamBuffer(2 * OAbstractSyncDatabaseTask.CHUNK_MAX_SIZE, idleTimeout);
+    this.lastRead = System.currentTimeMillis();
+    this.idleCheck = new TimerTask() {
+      @Override
+      public void run() {
+        if (System.currentTimeMillis() - lastRead > idleTimeout)
+          discard("no chunk was requested for " + idleTimeout + "ms");
+      }
+    };
+    streams.put(streamId, this);
+    Orient.instance().scheduleTask(idleCheck, idleTimeout, idleTimeout);
+  }
+
+  public static boolean isStream(final String fileName) {
+    return fileName.startsWith(STREAM_PREFIX);
+  }
+
+  public static OStreamingBackup getStream(final String streamId) {
+    return streams.get(streamId);
+  }
+
+  @Override
+  public void run() {
+    Thread.currentThread()
+        .setName("OrientDB SyncDatabase (streaming) node=" + iManager.getLocalNodeName() + " db=" + database.getName());
+
+    final OutputStream out = buffer.getOutputStream();
+    try {
+      database.activateOnCurrentThread();
+
+      ODistributedServerLog
+          .info(this, iManager.getLocalNodeName(), oSyncDatabaseTask.getNodeSource(), ODistributedServerLog.DIRECTION.OUT,
+              "Streaming database '%s' %d clusters %s...", database.getName(), database.getClusterNames().size(),
+              database.getClusterNames());
+
+      database.backup(out, null, () -> {
+        momentum.set(dDatabase.getSyncConfiguration().getMomentum().copy());
+        started.countDown();
+        return null;
+      }, null, 0, OAbstractSyncDatabaseTask.CHUNK_MAX_SIZE);
+
+      ODistributedServerLog
+          .info(this, iManager.getLocalNodeName(), oSyncDatabaseTask.getNodeSource(), ODistributedServerLog.DIRECTION.OUT,
+              "Streaming of database '%s' completed", database.getName());
+
+    } catch (Exception e) {
+      OLogManager.instance().error(this, "Cannot stream database '%s' for deploy database", e, database.getName());
+      discard(e.getMessage());
+    } finally {
+      started.countDown();
+      buffer.close();
+    }
+  }
+
+  /**
+   * Returns the chunk of the stream at the requested offset. The stream is unregistered once its last chunk has been read.
+   */
+  public ODistributedDatabaseChunk readChunk(final long offset, final ODistributedMomentum momentum) throws IOException {
+    lastRead = System.currentTimeMillis();
+    final ODistributedStreamBuffer.Chunk chunk = buffer.readChunk(offset, OAbstractSyncDatabaseTask.CHUNK_MAX_SIZE);
+    lastRead = System.currentTimeMillis();
+    if (chunk.last) {
+      streams.remove(streamId, this);
+      idleCheck.cancel();
+    }
+    return new ODistributedDatabaseChunk(streamId, chunk, momentum);
+  }
+
+  /**
+   * Unregisters the stream and releases its buffer, the backup still running gets an error.
+   */
+  public void discard(final String reason) {
+    idleCheck.cancel();
+    if (streams.remove(streamId, this)) {
+      ODistributedServerLog
+          .warn(this, iManager.getLocalNodeName(), oSyncDatabaseTask.getNodeSource(), ODistributedServerLog.DIRECTION.OUT,
+              "Streaming of database '%s' discarded: %s", database.getName(), reason);
+      buffer.abort();
+    }
+  }
+
+  public String getStreamId() {
+    return streamId;
+  }
+
+  public CountDownLatch getStarted() {
+    return started;
+  }
+}
@@ -85,6 +85,9 @@ public class OSyncDatabaseTask extends OAbstractSyncDatabaseTask {
 
         final AtomicReference<ODistributedMomentum> momentum = new AtomicReference<ODistributedMomentum>();
 
+        if (OGlobalConfiguration.DISTRIBUTED_DEPLOYDB_STREAMING.getValueAsBoolean() && canInstallStream(iManager))
+          return streamDatabase(iManager, database, dDatabase, momentum);
+
         OBackgroundBackup backup = ((ODistributedStorage) database.getStorage()).getLastValidBackup();
 
         if (backup == null || !backup.getResultedBackupFile().exists()) {
@@ -130,7 +133,8 @@ public class OSyncDatabaseTask extends OAbstractSyncDatabaseTask {
         for (int retry = 0; momentum.get() == null && retry < 10; ++retry)
           Thread.sleep(300);
 
-        backup.getStarted().await(1, TimeUnit.MINUTES);
+        if (!backup.getStarted().await(1, TimeUnit.MINUTES))
+          throw new ODistributedException("Timeout on waiting for the backup of database '" + databaseName + "' to start");
 
         File backupFile = new File(backup.getFinalBackupPath());
         if (backup.getIncremental().get()) {
@@ -172,6 +176,49 @@ public class OSyncDatabaseTask extends OAbstractSyncDatabaseTask {
     return Boolean.FALSE;
   }
 
+  /**
+   * Returns true if the requesting node knows the streamed chunks, the nodes of the previous versions get a backup file.
+   */
+  private boolean canInstallStream(final ODistributedServerManager iManager) {
+    try {
+      return iManager.getRemoteServer(getNodeSource()).getProtocolVersion() >= OStreamingBackup.PROTOCOL_VERSION;
+    } catch (IOException | ODistributedException e) {
+      ODistributedServerLog.debug(this, iManager.getLocalNodeName(), getNodeSource(), DIRECTION.OUT,
+          "Cannot determine the protocol version of the node, the database is not streamed: %s", e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Streams the database without writing a backup file: the first chunk is returned as result of this task, the following ones are
+   * requested with {@link OCopyDatabaseChunkTask} using the stream id as file name.
+   */
+  private Object streamDatabase(final ODistributedServerManager iManager, final ODatabaseDocumentInternal database,
+      final ODistributedDatabase dDatabase, final AtomicReference<ODistributedMomentum> momentum)
+      throws InterruptedException, IOException {
+    final OStreamingBackup stream = new OStreamingBackup(this, iManager, database, momentum, dDatabase);
+    final Thread t = new Thread(stream);
+    t.setUncaughtExceptionHandler(new OUncaughtExceptionHandler());
+    t.start();
+
+    if (!stream.getStarted().await(1, TimeUnit.MINUTES)) {
+      stream.discard("the backup did not start in 1 minute");
+      throw new ODistributedException("Timeout on waiting for the streaming of database '" + database.getName() + "' to start");
+    }
+
+    final ODistributedDatabaseChunk chunk = stream.readChunk(0, momentum.get());
+
+    ODistributedServerLog.info(this, iManager.getLocalNodeName(), getNodeSource(), ODistributedServerLog.DIRECTION.OUT,
+        "- streaming chunk #%d offset=%d size=%s (compressed=%s) lsn=%s...", 1, 0,
+        OFileUtils.getSizeAsNumber(chunk.getContentLength()), OFileUtils.getSizeAsNumber(chunk.buffer.length), momentum.get());
+
+    if (chunk.last)
+      // NO MORE CHUNKS: SET THE NODE ONLINE (SYNCHRONIZING ENDED)
+      iManager.setDatabaseStatus(iManager.getLocalNodeName(), database.getName(), ODistributedServerManager.DB_STATUS.ONLINE);
+
+    return chunk;
+  }
+
   protected ODistributedDatabase checkIfCurrentDatabaseIsNotOlder(final ODistributedServerManager iManager,
       final String databaseName, ODatabaseDocumentInternal database) {
     final ODistributedDatabase dDatabase = iManager.getMessageService().getDatabase(databaseName);
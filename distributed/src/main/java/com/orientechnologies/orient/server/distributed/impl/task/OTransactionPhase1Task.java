@@ -11,6 +11,7 @@ import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ORecordOperation;
 import com.orientechnologies.orient.core.exception.OConcurrentModificationException;
 import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
@@ -32,9 +33,7 @@ import com.orientechnologies.orient.server.distributed.task.ODistributedLockExce
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * @author Luigi Dell'Aquila (l.dellaquila - at - orientdb.com)
@@ -212,6 +211,10 @@ public class OTransactionPhase1Task extends OAbstractReplicatedTask {
     genOps(this.ops);
   }
 
+  public int getRetryCount() {
+    return retryCount;
+  }
+
   public void setLastLSN(OLogSequenceNumber lastLSN) {
     this.lastLSN = lastLSN;
   }
@@ -234,6 +237,28 @@ public class OTransactionPhase1Task extends OAbstractReplicatedTask {
       return ops.stream().mapToInt((x) -> x.getRID().getClusterId()).toArray();
   }
 
+  /**
+   * Returns the keys used to schedule the transaction against the other transactions received: the records it touches. Records not
+   * persistent yet are represented by their cluster.
+   */
+  public Set<Object> getSchedulingKeys() {
+    final Set<Object> keys = new HashSet<>();
+    if (operations.size() > 0)
+      for (ORecordOperationRequest op : operations)
+        addSchedulingKey(keys, op.getId());
+    else
+      for (ORecordOperation op : ops)
+        addSchedulingKey(keys, op.getRID());
+    return keys;
+  }
+
+  private static void addSchedulingKey(final Set<Object> keys, final ORID rid) {
+    if (rid.isPersistent())
+      keys.add(rid.copy());
+    else
+      keys.add(rid.getClusterId());
+  }
+
   @Override
   public long getDistributedTimeout() {
     return super.getDistributedTimeout() + (operations.size() / 10);
@@ -10,6 +10,7 @@ import com.orientechnologies.orient.server.distributed.ODistributedRequestId;
 import com.orientechnologies.orient.server.distributed.ODistributedServerManager;
 import com.orientechnologies.orient.server.distributed.ORemoteTaskFactory;
 import com.orientechnologies.orient.server.distributed.impl.ODatabaseDocumentDistributed;
+import com.orientechnologies.orient.server.distributed.impl.ODistributedDatabaseImpl;
 import com.orientechnologies.orient.server.distributed.task.OAbstractReplicatedTask;
 
 import java.io.DataInput;
@@ -105,10 +106,12 @@ public class OTransactionPhase2Task extends OAbstractReplicatedTask {
             iManager.installDatabase(false, database.getName(), true, true);
           });
           hasResponse = true;
+          notifyCompleted(database, null);
           return "KO";
         }
       } else {
         hasResponse = true;
+        notifyCompleted(database, getLastLSN());
       }
     } else {
       if (!((ODatabaseDocumentDistributed) database).rollback2pc(transactionId)) {
@@ -122,15 +125,22 @@ public class OTransactionPhase2Task extends OAbstractReplicatedTask {
         } else {
           //ABORT THE OPERATION IF THERE IS A NOT VALID TRANSACTION ACTIVE WILL BE ROLLBACK ON RE-INSTALL
           hasResponse = true;
+          notifyCompleted(database, null);
           return "KO";
         }
       } else {
         hasResponse = true;
+        notifyCompleted(database, null);
       }
     }
     return "OK";
   }
 
+  private void notifyCompleted(final ODatabaseDocumentInternal database, final OLogSequenceNumber lsn) {
+    ((ODistributedDatabaseImpl) ((ODatabaseDocumentDistributed) database).getStorageDistributed().getLocalDistributedDatabase())
+        .onTransactionCompleted(getNodeSource(), transactionId, lsn);
+  }
+
   @Override
   public OLogSequenceNumber getLastLSN() {
     return super.getLastLSN();
@@ -0,0 +1,60 @@
+package com.orientechnologies.orient.server.distributed.impl;
+
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import com.orientechnologies.orient.server.distributed.ODistributedRequestId;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ODistributedAppliedLSNTest {
+
+  @Test
+  public void testOutOfOrderCompletionIsNotPublished() throws InterruptedException {
+    final ODistributedAppliedLSN applied = new ODistributedAppliedLSN();
+    final ODistributedRequestId tx1 = new ODistributedRequestId(1, 1);
+    final ODistributedRequestId tx2 = new ODistributedRequestId(1, 2);
+
+    applied.received("node1", tx1, lsn(10));
+    applied.received("node1", tx2, lsn(20));
+
+    // THE SECOND TRANSACTION IS COMMITTED FIRST: THE FIRST ONE IS STILL PENDING
+    applied.applied("node1", tx2, lsn(30));
+    Assert.assertNull(applied.get("node1"));
+    Assert.assertFalse(applied.waitFor("node1", lsn(15), null, 10));
+
+    applied.applied("node1", tx1, lsn(15));
+    Assert.assertEquals(lsn(30), applied.get("node1"));
+    Assert.assertTrue(applied.waitFor("node1", lsn(15), null, 10));
+    Assert.assertTrue(applied.waitFor("node1", lsn(30), null, 10));
+  }
+
+  @Test
+  public void testDiscardedTransactionUnblocks() throws InterruptedException {
+    final ODistributedAppliedLSN applied = new ODistributedAppliedLSN();
+    final ODistributedRequestId tx1 = new ODistributedRequestId(1, 1);
+    final ODistributedRequestId tx2 = new ODistributedRequestId(1, 2);
+    final ODistributedRequestId tx3 = new ODistributedRequestId(1, 3);
+
+    applied.received("node1", tx1, lsn(10));
+    applied.received("node1", tx2, lsn(20));
+    applied.received("node1", tx3, lsn(30));
+
+    applied.applied("node1", tx3, lsn(35));
+    applied.applied("node1", tx1, lsn(12));
+    // TX2 IS STILL PENDING: ONLY THE COMMITS BEFORE IT ARE PUBLISHED
+    Assert.assertEquals(lsn(12), applied.get("node1"));
+
+    applied.discarded(tx2);
+    Assert.assertEquals(lsn(35), applied.get("node1"));
+  }
+
+  @Test
+  public void testLastSynchronizedLSNUsedBeforeReceiving() throws InterruptedException {
+    final ODistributedAppliedLSN applied = new ODistributedAppliedLSN();
+    Assert.assertTrue(applied.waitFor("node1", lsn(10), lsn(10), 10));
+    Assert.assertFalse(applied.waitFor("node1", lsn(11), lsn(10), 10));
+  }
+
+  private static OLogSequenceNumber lsn(final long position) {
+    return new OLogSequenceNumber(1, position);
+  }
+}
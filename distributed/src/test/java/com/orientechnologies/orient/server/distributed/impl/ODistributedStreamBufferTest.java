@@ -0,0 +1,106 @@
+package com.orientechnologies.orient.server.distributed.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Random;
+
+public class ODistributedStreamBufferTest {
+
+  @Test
+  public void testChunksThroughNetworkFormat() throws Exception {
+    final byte[] source = new byte[100000];
+    new Random(42).nextBytes(source);
+    // MAKE IT COMPRESSIBLE
+    for (int i = 0; i < source.length; i += 2)
+      source[i] = 0;
+
+    final ODistributedStreamBuffer buffer = new ODistributedStreamBuffer(4096);
+    final Thread producer = new Thread(() -> {
+      try (OutputStream out = buffer.getOutputStream()) {
+        for (int i = 0; i < source.length; i += 1000)
+          out.write(source, i, Math.min(1000, source.length - i));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    producer.start();
+
+    final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    long offset = 0;
+    ODistributedDatabaseChunk chunk;
+    do {
+      chunk = new ODistributedDatabaseChunk("stream:test", buffer.readChunk(offset, 3000), null);
+
+      // RETRY OF THE SAME CHUNK RETURNS THE SAME CONTENT
+      Assert.assertArrayEquals(chunk.getContent(),
+          new ODistributedDatabaseChunk("stream:test", buffer.readChunk(offset, 3000), null).getContent());
+
+      final ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+      chunk.toStream(new DataOutputStream(serialized));
+      final ODistributedDatabaseChunk copy = new ODistributedDatabaseChunk();
+      copy.fromStream(new DataInputStream(new ByteArrayInputStream(serialized.toByteArray())));
+
+      Assert.assertTrue(copy.streamed);
+      received.write(copy.getContent());
+      offset = copy.offset + copy.getContentLength();
+      chunk = copy;
+    } while (!chunk.last);
+
+    producer.join();
+    Assert.assertArrayEquals(source, received.toByteArray());
+  }
+
+  @Test
+  public void testInputStream() throws Exception {
+    final ODistributedStreamBuffer buffer = new ODistributedStreamBuffer(16);
+    final Thread producer = new Thread(() -> {
+      try (DataOutputStream out = new DataOutputStream(buffer.getOutputStream())) {
+        for (int i = 0; i < 1000; i++)
+          out.writeInt(i);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    producer.start();
+
+    final DataInputStream in = new DataInputStream(buffer.getInputStream());
+    for (int i = 0; i < 1000; i++)
+      Assert.assertEquals(i, in.readInt());
+    Assert.assertEquals(-1, in.read());
+
+    producer.join();
+  }
+
+  @Test
+  public void testWriterWaitsForTheReader() throws Exception {
+    final ODistributedStreamBuffer buffer = new ODistributedStreamBuffer(16, 5000);
+    final Thread producer = new Thread(() -> {
+      try (OutputStream out = buffer.getOutputStream()) {
+        out.write(new byte[64]);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    producer.start();
+
+    // THE BUFFER DOES NOT GROW OVER ITS CAPACITY
+    producer.join(300);
+    Assert.assertTrue(producer.isAlive());
+    Assert.assertEquals(16, buffer.readChunk(0, 64).content.length);
+
+    final InputStream in = buffer.getInputStream();
+    int read = 0;
+    while (in.read() >= 0)
+      read++;
+    Assert.assertEquals(48, read);
+    producer.join();
+  }
+
+  @Test(expected = IOException.class)
+  public void testWriteTimeout() throws Exception {
+    final ODistributedStreamBuffer buffer = new ODistributedStreamBuffer(16, 200);
+    buffer.getOutputStream().write(new byte[32]);
+  }
+}
@@ -0,0 +1,121 @@
+package com.orientechnologies.orient.server.distributed.impl;
+
+import com.orientechnologies.orient.server.distributed.ODistributedRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+public class ODistributedTxApplySchedulerTest {
+
+  @Test
+  public void testOverlappingRequestsWaitInOrder() {
+    final List<ODistributedRequest> dispatched = new ArrayList<ODistributedRequest>();
+    final ODistributedTxApplyScheduler scheduler = new ODistributedTxApplyScheduler(dispatched::add);
+
+    final ODistributedRequest a = newRequest(1);
+    final ODistributedRequest b = newRequest(2);
+    final ODistributedRequest c = newRequest(3);
+    final ODistributedRequest d = newRequest(4);
+
+    scheduler.submit(a, new HashSet<Object>(Arrays.asList("r1", "r2")));
+    scheduler.submit(b, new HashSet<Object>(Arrays.asList("r2", "r3")));
+    scheduler.submit(c, new HashSet<Object>(Arrays.asList("r4")));
+    scheduler.submit(d, new HashSet<Object>(Arrays.asList("r1", "r3")));
+
+    // ONLY THE REQUESTS WITHOUT OVERLAPS ARE DISPATCHED
+    Assert.assertEquals(Arrays.asList(a, c), dispatched);
+    Assert.assertEquals(4, scheduler.getPending());
+
+    scheduler.completed(c);
+    Assert.assertEquals(Arrays.asList(a, c), dispatched);
+
+    scheduler.completed(a);
+    Assert.assertEquals(Arrays.asList(a, c, b), dispatched);
+
+    // D DEPENDS ON BOTH A AND B
+    scheduler.completed(b);
+    Assert.assertEquals(Arrays.asList(a, c, b, d), dispatched);
+
+    scheduler.completed(d);
+    Assert.assertEquals(0, scheduler.getPending());
+    Assert.assertEquals(0, scheduler.getApplyLag());
+  }
+
+  @Test
+  public void testFailedDispatchReleasesDependents() {
+    final List<ODistributedRequest> dispatched = new ArrayList<ODistributedRequest>();
+    final ODistributedRequest a = newRequest(1);
+    final ODistributedTxApplyScheduler scheduler = new ODistributedTxApplyScheduler(r -> {
+      if (r == a)
+        throw new IllegalStateException("no workers");
+      dispatched.add(r);
+    });
+
+    try {
+      scheduler.submit(a, new HashSet<Object>(Arrays.asList("r1")));
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      // EXPECTED
+    }
+
+    final ODistributedRequest b = newRequest(2);
+    scheduler.submit(b, new HashSet<Object>(Arrays.asList("r1")));
+    Assert.assertEquals(Arrays.asList(b), dispatched);
+    Assert.assertEquals(1, scheduler.getPending());
+  }
+
+  @Test
+  public void testDispatchAllDoesNotWait() {
+    final List<ODistributedRequest> dispatched = new ArrayList<ODistributedRequest>();
+    final ODistributedTxApplyScheduler scheduler = new ODistributedTxApplyScheduler(dispatched::add);
+
+    final ODistributedRequest a = newRequest(1);
+    final ODistributedRequest b = newRequest(2);
+    final ODistributedRequest c = newRequest(3);
+    scheduler.submit(a, new HashSet<Object>(Arrays.asList("r1")));
+    scheduler.submit(b, new HashSet<Object>(Arrays.asList("r1")));
+    scheduler.submit(c, new HashSet<Object>(Arrays.asList("r1")));
+    Assert.assertEquals(Arrays.asList(a), dispatched);
+
+    // THE WAITING REQUESTS ARE DISPATCHED ONCE
+    scheduler.dispatchAll();
+    Assert.assertEquals(Arrays.asList(a, b, c), dispatched);
+    scheduler.completed(a);
+    scheduler.completed(b);
+    Assert.assertEquals(Arrays.asList(a, b, c), dispatched);
+    scheduler.completed(c);
+    Assert.assertEquals(0, scheduler.getPending());
+  }
+
+  @Test
+  public void testReEnqueuedRequest() {
+    final List<ODistributedRequest> dispatched = new ArrayList<ODistributedRequest>();
+    final ODistributedTxApplyScheduler scheduler = new ODistributedTxApplyScheduler(dispatched::add);
+
+    final ODistributedRequest a = newRequest(1);
+    final ODistributedRequest b = newRequest(2);
+    scheduler.submit(a, new HashSet<Object>(Arrays.asList("r1")));
+    scheduler.submit(b, new HashSet<Object>(Arrays.asList("r1")));
+
+    // A RE-ENQUEUED BEFORE THE END OF ITS EXECUTION IS NOTIFIED: B IS RELEASED, THE RETRY WAITS FOR IT
+    final ODistributedRequest retry = new ODistributedRequest(null, 0, 1, "test", a.getTask());
+    scheduler.submit(retry, new HashSet<Object>(Arrays.asList("r1")));
+    Assert.assertEquals(Arrays.asList(a, b), dispatched);
+
+    // THE END OF THE FIRST EXECUTION DOES NOT COMPLETE THE RETRY
+    scheduler.completed(a);
+    Assert.assertEquals(2, scheduler.getPending());
+    scheduler.completed(b);
+    Assert.assertEquals(Arrays.asList(a, b, retry), dispatched);
+    scheduler.completed(retry);
+    Assert.assertEquals(0, scheduler.getPending());
+  }
+
+  private static ODistributedRequest newRequest(final long id) {
+    return new ODistributedRequest(null, 0, id, "test", new OSynchronizedTaskWrapper(null));
+  }
+}
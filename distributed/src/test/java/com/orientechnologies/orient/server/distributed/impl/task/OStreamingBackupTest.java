@@ -0,0 +1,78 @@
+package com.orientechnologies.orient.server.distributed.impl.task;
+
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.server.distributed.ODistributedServerManager;
+import com.orientechnologies.orient.server.distributed.impl.ODistributedDatabaseChunk;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+public class OStreamingBackupTest {
+  private Object timeout;
+
+  @Before
+  public void before() {
+    timeout = OGlobalConfiguration.DISTRIBUTED_DEPLOYCHUNK_TASK_SYNCH_TIMEOUT.getValue();
+    OGlobalConfiguration.DISTRIBUTED_DEPLOYCHUNK_TASK_SYNCH_TIMEOUT.setValue(300);
+  }
+
+  @After
+  public void after() {
+    OGlobalConfiguration.DISTRIBUTED_DEPLOYCHUNK_TASK_SYNCH_TIMEOUT.setValue(timeout);
+  }
+
+  @Test
+  public void testStreamDiscardedWhenReceiverStopsReading() throws Exception {
+    final ODistributedServerManager manager = Mockito.mock(ODistributedServerManager.class);
+    Mockito.when(manager.getLocalNodeName()).thenReturn("node1");
+
+    final ODatabaseDocumentInternal database = Mockito.mock(ODatabaseDocumentInternal.class);
+    Mockito.when(database.getName()).thenReturn("test");
+    Mockito.when(database.getClusterNames()).thenReturn(Collections.<String>emptyList());
+    // A BACKUP LARGER THAN THE BUFFER IN MEMORY
+    Mockito.when(database.backup(Matchers.any(OutputStream.class), Matchers.<Map<String, Object>>any(),
+        Matchers.<Callable<Object>>any(), Matchers.any(OCommandOutputListener.class), Matchers.anyInt(), Matchers.anyInt()))
+        .thenAnswer(invocation -> {
+          final OutputStream out = (OutputStream) invocation.getArguments()[0];
+          final byte[] page = new byte[64 * 1024];
+          for (int i = 0; i < 3 * OAbstractSyncDatabaseTask.CHUNK_MAX_SIZE / page.length; i++)
+            out.write(page);
+          return null;
+        });
+
+    final OStreamingBackup stream = new OStreamingBackup(new OSyncDatabaseTask(), manager, database, null, null);
+    final Thread backup = new Thread(stream);
+    backup.start();
+
+    final ODistributedDatabaseChunk first = stream.readChunk(0, null);
+    Assert.assertFalse(first.last);
+    Assert.assertSame(stream, OStreamingBackup.getStream(stream.getStreamId()));
+
+    // THE BACKUP WAITING FOR THE RECEIVER THAT STOPPED READING FAILS
+    backup.join(10000);
+    Assert.assertFalse(backup.isAlive());
+
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (OStreamingBackup.getStream(stream.getStreamId()) != null && System.currentTimeMillis() < deadline)
+      Thread.sleep(50);
+    Assert.assertNull(OStreamingBackup.getStream(stream.getStreamId()));
+
+    try {
+      stream.readChunk(first.offset + first.getContentLength(), null);
+      Assert.fail();
+    } catch (IOException e) {
+      // EXPECTED: THE STREAM HAS BEEN DISCARDED
+    }
+  }
+}
@@ -30,11 +30,14 @@ class OETLExtractorWorker implements Runnable {
   private final BlockingQueue<OETLExtractedItem> queue;
   private final boolean                          haltOnError;
   private final OETLExtractor                    extractor;
+  private final OETLProcessor.OETLProcessorStats stats;
 
-  public OETLExtractorWorker(OETLExtractor extractor, BlockingQueue<OETLExtractedItem> queue, boolean haltOnError) {
+  public OETLExtractorWorker(OETLExtractor extractor, BlockingQueue<OETLExtractedItem> queue, boolean haltOnError,
+      OETLProcessor.OETLProcessorStats stats) {
     this.queue = queue;
     this.haltOnError = haltOnError;
     this.extractor = extractor;
+    this.stats = stats;
   }
 
   @Override
@@ -44,15 +47,17 @@ class OETLExtractorWorker implements Runnable {
     while (fetch == true) {
 
       try {
+        final long start = System.nanoTime();
         if (extractor.hasNext()) {
           // EXTRACTOR
           final OETLExtractedItem current = extractor.next();
+          stats.extractNanos.addAndGet(System.nanoTime() - start);
 
           // enqueue for transform and load
-          queue.put(current);
+          enqueue(current);
         } else {
 
-          queue.put(new OETLExtractedItem(true));
+          enqueueEnd();
           fetch = false;
         }
       } catch (InterruptedException e) {
@@ -60,7 +65,7 @@ class OETLExtractorWorker implements Runnable {
       } catch (Exception e) {
         if (haltOnError) {
           try {
-            queue.put(new OETLExtractedItem(true));
+            enqueueEnd();
           } catch (InterruptedException e1) {
 
           }
@@ -70,4 +75,12 @@ class OETLExtractorWorker implements Runnable {
       }
     }
   }
+
+  protected void enqueue(final OETLExtractedItem item) throws InterruptedException {
+    queue.put(item);
+  }
+
+  protected void enqueueEnd() throws InterruptedException {
+    queue.put(new OETLExtractedItem(true));
+  }
 }
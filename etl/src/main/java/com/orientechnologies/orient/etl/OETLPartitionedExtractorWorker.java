@@ -0,0 +1,69 @@
+/*
+ *
+ *  * Copyright 2010-2016 OrientDB LTD (info(-at-)orientdb.com)
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package com.orientechnologies.orient.etl;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.etl.extractor.OETLExtractor;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Extractor worker that routes every extracted item to the queue of one worker, by hashing the value of the partition key. Items
+ * sharing the same key are always loaded by the same worker in extraction order, so workers do not contend on the same records.
+ */
+class OETLPartitionedExtractorWorker extends OETLExtractorWorker {
+  private final List<BlockingQueue<OETLExtractedItem>> queues;
+  private final String                                 partitionKey;
+
+  public OETLPartitionedExtractorWorker(OETLExtractor extractor, List<BlockingQueue<OETLExtractedItem>> queues,
+      String partitionKey, boolean haltOnError, OETLProcessor.OETLProcessorStats stats) {
+    super(extractor, queues.get(0), haltOnError, stats);
+    this.queues = queues;
+    this.partitionKey = partitionKey;
+  }
+
+  @Override
+  protected void enqueue(final OETLExtractedItem item) throws InterruptedException {
+    queues.get(partition(item.payload, queues.size())).put(item);
+  }
+
+  @Override
+  protected void enqueueEnd() throws InterruptedException {
+    for (BlockingQueue<OETLExtractedItem> queue : queues)
+      queue.put(new OETLExtractedItem(true));
+  }
+
+  protected int partition(final Object payload, final int partitions) {
+    final Object key;
+    if (payload instanceof OIdentifiable && ((OIdentifiable) payload).getRecord() instanceof ODocument)
+      key = ((ODocument) ((OIdentifiable) payload).getRecord()).field(partitionKey);
+    else
+      key = payload;
+
+    if (key == null)
+      return 0;
+
+    int h = key.hashCode();
+    // MIX THE HIGH BITS IN, SOME HASH CODES DIFFER ONLY THERE
+    h ^= (h >>> 16);
+    return (h & 0x7fffffff) % partitions;
+  }
+}
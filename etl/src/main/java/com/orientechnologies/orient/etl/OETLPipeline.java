@@ -60,6 +60,15 @@ public class OETLPipeline {
 
   }
 
+  /**
+   * Creates the pipeline of a partitioned worker. The worker id is available to the components as the 'workerId' context variable.
+   */
+  public OETLPipeline(final OETLProcessor processor, final List<OETLTransformer> transformers, final OETLLoader loader,
+      final Level logLevel, final int maxRetries, final boolean haltOnError, final int workerId) {
+    this(processor, transformers, loader, logLevel, maxRetries, haltOnError);
+    context.setVariable("workerId", workerId);
+  }
+
   public synchronized void begin() {
     loader.beginLoader(this);
     for (OETLTransformer transformer : transformers) {
@@ -78,33 +87,25 @@ public class OETLPipeline {
     return context;
   }
 
+  public OETLProcessor getProcessor() {
+    return processor;
+  }
+
   protected Object execute(final OETLExtractedItem source) {
     int retry = 0;
     do {
       ODatabaseDocument db = pool.acquire();
       db.activateOnCurrentThread();
       try {
-        Object current = source.payload;
-
-        context.setVariable("extractedNum", source.num);
-        context.setVariable("extractedPayload", source.payload);
-
-        for (OETLTransformer t : transformers) {
-          current = t.transform(db, current);
-          if (current == null) {
-            OETLContextWrapper.getInstance().getMessageHandler()
-                .warn(this, "Transformer [%s] returned null, skip rest of pipeline execution", t);
-          }
-        }
-        if (current != null) {
-          // LOAD
-          loader.load(db, current, context);
-        }
+        final Object current = transformAndLoad(db, source);
 
+        final long start = System.nanoTime();
         db.commit();
+        processor.getStats().commitNanos.addAndGet(System.nanoTime() - start);
         return current;
       } catch (ONeedRetryException e) {
         loader.rollback(db);
+        processor.getStats().incrementRetries();
         retry++;
         OETLContextWrapper.getInstance().getMessageHandler()
             .info(this, "Error in pipeline execution, retry = %d/%d (exception=)", retry, maxRetries, e);
@@ -136,6 +137,83 @@ public class OETLPipeline {
     return this;
   }
 
+  /**
+   * Executes a batch of items in one transaction. If the commit fails because of a conflict, the whole batch is rolled back and
+   * executed again up to 'maxRetries' times. On any other error the batch is rolled back and its items are executed one by one, so
+   * the error is handled per item as in {@link #execute(OETLExtractedItem)}.
+   */
+  protected void execute(final List<OETLExtractedItem> batch) {
+    int retry = 0;
+    do {
+      ODatabaseDocument db = pool.acquire();
+      db.activateOnCurrentThread();
+      try {
+        db.begin();
+        for (OETLExtractedItem source : batch)
+          transformAndLoad(db, source);
+
+        final long start = System.nanoTime();
+        db.commit();
+        processor.getStats().commitNanos.addAndGet(System.nanoTime() - start);
+        processor.getStats().batches.incrementAndGet();
+        return;
+      } catch (ONeedRetryException e) {
+        loader.rollback(db);
+        if (db.getTransaction().isActive())
+          db.rollback();
+        processor.getStats().incrementRetries();
+        retry++;
+        OETLContextWrapper.getInstance().getMessageHandler()
+            .info(this, "Conflict in batch execution, retry = %d/%d (exception=)", retry, maxRetries, e);
+      } catch (OETLProcessHaltedException e) {
+        OETLContextWrapper.getInstance().getMessageHandler().error(this, "Pipeline execution halted");
+
+        processor.getStats().incrementErrors();
+
+        loader.rollback(db);
+        throw e;
+
+      } catch (Exception e) {
+        loader.rollback(db);
+        if (db.getTransaction().isActive())
+          db.rollback();
+        break;
+
+      } finally {
+        db.close();
+      }
+    } while (retry < maxRetries);
+
+    // FALLBACK TO ITEM BY ITEM EXECUTION
+    for (OETLExtractedItem source : batch)
+      execute(source);
+  }
+
+  private Object transformAndLoad(final ODatabaseDocument db, final OETLExtractedItem source) {
+    Object current = source.payload;
+
+    context.setVariable("extractedNum", source.num);
+    context.setVariable("extractedPayload", source.payload);
+
+    long start = System.nanoTime();
+    for (OETLTransformer t : transformers) {
+      current = t.transform(db, current);
+      if (current == null) {
+        OETLContextWrapper.getInstance().getMessageHandler()
+            .warn(this, "Transformer [%s] returned null, skip rest of pipeline execution", t);
+      }
+    }
+    final long transformed = System.nanoTime();
+    processor.getStats().transformNanos.addAndGet(transformed - start);
+
+    if (current != null) {
+      // LOAD
+      loader.load(db, current, context);
+      processor.getStats().loadNanos.addAndGet(System.nanoTime() - transformed);
+    }
+    return current;
+  }
+
   public void end() {
 //    pool.close();
   }
@@ -18,6 +18,8 @@
 
 package com.orientechnologies.orient.etl;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 
 /**
@@ -27,19 +29,44 @@ final class OETLPipelineWorker implements Runnable {
 
   private final BlockingQueue<OETLExtractedItem> queue;
   private final OETLPipeline                     pipeline;
+  private final int                              batchSize;
 
   public OETLPipelineWorker(BlockingQueue<OETLExtractedItem> queue, OETLPipeline pipeline) {
+    this(queue, pipeline, 1);
+  }
+
+  public OETLPipelineWorker(BlockingQueue<OETLExtractedItem> queue, OETLPipeline pipeline, int batchSize) {
     this.queue = queue;
     this.pipeline = pipeline;
+    this.batchSize = batchSize;
     pipeline.begin();
   }
 
   @Override
   public void run() {
     try {
-      OETLExtractedItem content;
-      while (!(content = queue.take()).finished) {
-        pipeline.execute(content);
+      OETLExtractedItem content = null;
+      if (batchSize > 1) {
+        final List<OETLExtractedItem> batch = new ArrayList<OETLExtractedItem>(batchSize);
+        boolean finished = false;
+        while (!finished && !(content = queue.take()).finished) {
+          batch.add(content);
+          // DO NOT WAIT FOR A FULL BATCH: TAKE WHAT IS ALREADY AVAILABLE
+          while (batch.size() < batchSize && (content = queue.poll()) != null) {
+            if (content.finished) {
+              finished = true;
+              break;
+            }
+            batch.add(content);
+          }
+
+          pipeline.execute(batch);
+          batch.clear();
+        }
+      } else {
+        while (!(content = queue.take()).finished) {
+          pipeline.execute(content);
+        }
       }
       pipeline.end();
       //RE-ADD END FLAG FOR OTHER THREADS
@@ -66,6 +66,8 @@ public class OETLProcessor {
   protected boolean haltOnError = true;
   protected int     maxRetries  = 10;
   protected int     workers     = 1;
+  protected int     batchSize   = 1;
+  protected String  partitionKey;
   private   boolean parallel    = false;
 
   /**
@@ -133,8 +135,34 @@ public class OETLProcessor {
 
       if (cores >= 2)
         workers = cores - 1;
+
+      final Object workersSetting = context.getVariable("workers");
+      if (workersSetting != null)
+        workers = Math.max(1, ((Number) workersSetting).intValue());
+
+      partitionKey = (String) context.getVariable("partitionKey");
     }
 
+    final Object batchSizeSetting = context.getVariable("batchSize");
+    if (batchSizeSetting != null)
+      batchSize = Math.max(1, ((Number) batchSizeSetting).intValue());
+  }
+
+  public int getWorkers() {
+    return workers;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Returns true if extracted items are routed to the workers by hashing the configured 'partitionKey', so each worker owns its own
+   * partition of the data (and of the target clusters). Only the records saved by the loader are partitioned by cluster: edges
+   * created by the edge transformer go to the clusters picked by the cluster selection of their class.
+   */
+  public boolean isPartitioned() {
+    return partitionKey != null && workers > 1;
   }
 
   public OETLProcessorStats getStats() {
@@ -188,13 +216,27 @@ public class OETLProcessor {
       OETLContextWrapper.getInstance().getMessageHandler().info(this, "Started execution with %d worker threads", workers);
       extractor.extract(source.read());
 
-      BlockingQueue<OETLExtractedItem> queue = new LinkedBlockingQueue<OETLExtractedItem>(workers * 500);
+      final List<CompletableFuture<Void>> futures;
+      if (isPartitioned()) {
+        // ONE QUEUE PER WORKER: ITEMS WITH THE SAME PARTITION KEY ARE ALWAYS LOADED BY THE SAME WORKER, IN EXTRACTION ORDER
+        final List<BlockingQueue<OETLExtractedItem>> queues = IntStream.range(0, workers).boxed()
+            .map(i -> new LinkedBlockingQueue<OETLExtractedItem>(500)).collect(Collectors.toList());
 
-      List<CompletableFuture<Void>> futures = IntStream.range(0, workers).boxed().map(i -> CompletableFuture
-          .runAsync(new OETLPipelineWorker(queue, new OETLPipeline(this, transformers, loader, logLevel, maxRetries, haltOnError)),
-              executor)).collect(Collectors.toList());
+        futures = IntStream.range(0, workers).boxed().map(i -> CompletableFuture.runAsync(
+            new OETLPipelineWorker(queues.get(i), new OETLPipeline(this, transformers, loader, logLevel, maxRetries, haltOnError, i),
+                batchSize), executor)).collect(Collectors.toList());
 
-      futures.add(CompletableFuture.runAsync(new OETLExtractorWorker(extractor, queue, haltOnError), executor));
+        futures.add(CompletableFuture
+            .runAsync(new OETLPartitionedExtractorWorker(extractor, queues, partitionKey, haltOnError, stats), executor));
+      } else {
+        BlockingQueue<OETLExtractedItem> queue = new LinkedBlockingQueue<OETLExtractedItem>(workers * 500);
+
+        futures = IntStream.range(0, workers).boxed().map(i -> CompletableFuture.runAsync(
+            new OETLPipelineWorker(queue, new OETLPipeline(this, transformers, loader, logLevel, maxRetries, haltOnError),
+                batchSize), executor)).collect(Collectors.toList());
+
+        futures.add(CompletableFuture.runAsync(new OETLExtractorWorker(extractor, queue, haltOnError, stats), executor));
+      }
 
       futures.forEach(cf -> cf.join());
 
@@ -300,6 +342,8 @@ public class OETLProcessor {
           OIOUtils.getTimeAsString(now - startTime), stats.warnings.get(), stats.errors.get());
     }
 
+    stats.dumpStages(this, now - startTime);
+
     stats.lastExtractorProgress = extractorProgress;
     stats.lastLoaderProgress = loaderProgress;
     stats.lastLap = now;
@@ -406,6 +450,12 @@ public class OETLProcessor {
     public long       lastLap               = 0;
     public AtomicLong warnings              = new AtomicLong();
     public AtomicLong errors                = new AtomicLong();
+    public AtomicLong retries               = new AtomicLong();
+    public AtomicLong batches               = new AtomicLong();
+    public AtomicLong extractNanos          = new AtomicLong();
+    public AtomicLong transformNanos        = new AtomicLong();
+    public AtomicLong loadNanos             = new AtomicLong();
+    public AtomicLong commitNanos           = new AtomicLong();
 
     public long incrementWarnings() {
       return warnings.incrementAndGet();
@@ -414,5 +464,23 @@ public class OETLProcessor {
     public long incrementErrors() {
       return errors.incrementAndGet();
     }
+
+    public long incrementRetries() {
+      return retries.incrementAndGet();
+    }
+
+    /**
+     * Dumps the time spent in every stage of the pipeline. Extraction runs on a single thread, while transformation, load and commit
+     * times are summed across all the workers.
+     */
+    protected void dumpStages(final Object requester, final long elapsedMs) {
+      if (elapsedMs <= 0)
+        return;
+
+      OETLContextWrapper.getInstance().getMessageHandler().info(requester,
+          "+ stages: extract %,d ms - transform %,d ms - load %,d ms - commit %,d ms (%d workers, %,d batches, %,d retries)",
+          extractNanos.get() / 1000000, transformNanos.get() / 1000000, loadNanos.get() / 1000000, commitNanos.get() / 1000000,
+          workers, batches.get(), retries.get());
+    }
   }
 }
@@ -34,11 +34,11 @@ import com.orientechnologies.orient.core.storage.ORecordDuplicatedException;
 import com.orientechnologies.orient.etl.OETLPipeline;
 import com.orientechnologies.orient.etl.context.OETLContextWrapper;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 import static com.orientechnologies.orient.etl.loader.OETLOrientDBLoader.DB_TYPE.DOCUMENT;
@@ -69,7 +69,6 @@ public class OETLOrientDBLoader extends OETLAbstractLoader implements OETLLoader
   private boolean    standardElementConstraints = true;
   private boolean    tx                         = false;
   private int        batchCommitSize            = 0;
-  private AtomicLong batchCounter               = new AtomicLong(0);
   private DB_TYPE    dbType                     = DOCUMENT;
   private boolean    wal                        = true;
   private boolean    txUseLog                   = false;
@@ -103,7 +102,11 @@ public class OETLOrientDBLoader extends OETLAbstractLoader implements OETLLoader
       final OVertex v = (OVertex) input;
 
       try {
-        v.save(clusterName);
+        final String cluster = getClusterName(db, v.getSchemaType().orElse(null), context);
+        if (cluster != null)
+          v.save(cluster);
+        else
+          v.save();
       } catch (ORecordDuplicatedException e) {
         if (skipDuplicates) {
         } else {
@@ -120,8 +123,9 @@ public class OETLOrientDBLoader extends OETLAbstractLoader implements OETLLoader
         doc.setClassName(className);
       }
 
-      if (clusterName != null) {
-        db.save(doc, clusterName);
+      final String cluster = getClusterName(db, doc.getSchemaClass(), context);
+      if (cluster != null) {
+        db.save(doc, cluster);
       } else {
         db.save(doc);
       }
@@ -134,21 +138,44 @@ public class OETLOrientDBLoader extends OETLAbstractLoader implements OETLLoader
 
     // DO BATCH COMMIT if on TX
 
-    if (tx && batchCommitSize > 0 && batchCounter.get() > batchCommitSize) {
-      synchronized (this) {
-        if (batchCommitSize > 0 && batchCounter.get() > batchCommitSize) {
-          log(Level.FINE, "committing document batch %d", progress.get());
-          db.commit();
-          db.begin();
-          db.getTransaction().setUsingLog(txUseLog);
-          batchCounter.set(0);
-        }
-      }
-    } else {
-      batchCounter.incrementAndGet();
+    // THE COUNTER IS KEPT IN THE PIPELINE CONTEXT, SO EVERY WORKER COMMITS ITS OWN SESSION. WHEN THE PIPELINE EXECUTES ITEMS IN
+    // BATCHES, THE COMMIT IS DONE BY THE PIPELINE ITSELF
+    if (tx && batchCommitSize > 0 && (processor == null || processor.getBatchSize() <= 1)) {
+      final long batchCounter = ((Number) context.getVariable("batchCounter", 0L)).longValue() + 1;
+      if (batchCounter > batchCommitSize) {
+        log(Level.FINE, "committing document batch %d", progress.get());
+        db.commit();
+        db.begin();
+        db.getTransaction().setUsingLog(txUseLog);
+        context.setVariable("batchCounter", 0L);
+      } else
+        context.setVariable("batchCounter", batchCounter);
     }
   }
 
+  /**
+   * Returns the cluster where to save the record. If no cluster is configured and the processor is partitioned, every worker writes
+   * to its own cluster of the class, so concurrent workers never append to the same cluster. Records saved outside of the loader,
+   * such as the edges created by the edge transformer, are not placed this way.
+   */
+  private String getClusterName(final ODatabaseDocument db, final OClass cls, final OCommandContext context) {
+    if (clusterName != null)
+      return clusterName;
+
+    if (cls == null || processor == null || !processor.isPartitioned())
+      return null;
+
+    final Object workerId = context.getVariable("workerId");
+    if (workerId == null)
+      return null;
+
+    final int[] clusterIds = cls.getClusterIds();
+    if (clusterIds.length < 2)
+      return null;
+
+    return db.getClusterNameById(clusterIds[((Integer) workerId) % clusterIds.length]);
+  }
+
   private void autoCreateProperties(ODatabaseDocument db, Object input) {
     if (dbType == DOCUMENT && input instanceof ODocument) {
       autoCreatePropertiesOnDocument(db, (ODocument) input);
@@ -412,10 +439,45 @@ public class OETLOrientDBLoader extends OETLAbstractLoader implements OETLLoader
     ODatabaseDocument db = pool.acquire();
     db.activateOnCurrentThread();
     createSchema(db);
+    if (pipeline.getProcessor().isPartitioned())
+      preallocateClusters(db, pipeline.getProcessor().getWorkers());
     db.close();
     pipeline.setPool(pool);
   }
 
+  /**
+   * Makes sure the loaded classes have at least one cluster per worker.
+   */
+  private void preallocateClusters(final ODatabaseDocument db, final int workers) {
+    if (clusterName != null)
+      return;
+
+    final List<OClass> loaded = new ArrayList<OClass>();
+    if (className != null)
+      loaded.add(db.getMetadata().getSchema().getClass(className));
+    if (classes != null)
+      for (ODocument cls : classes)
+        loaded.add(db.getMetadata().getSchema().getClass((String) cls.field("name")));
+
+    for (OClass cls : loaded) {
+      if (cls == null || cls.isAbstract())
+        continue;
+
+      final int missing = workers - cls.getClusterIds().length;
+      if (missing <= 0)
+        continue;
+
+      final String clusterBase = cls.getName().toLowerCase(Locale.ENGLISH) + "_";
+      int suffix = cls.getClusterIds().length;
+      for (int i = 0; i < missing; ++i) {
+        while (db.getClusterIdByName(clusterBase + suffix) != -1)
+          suffix++;
+        cls.addCluster(clusterBase + suffix);
+      }
+      log(Level.FINE, "%s: added %d clusters to class '%s' to have one cluster per worker", getName(), missing, cls.getName());
+    }
+  }
+
   private void createDatabasePool() {
     if (pool != null)
       return;
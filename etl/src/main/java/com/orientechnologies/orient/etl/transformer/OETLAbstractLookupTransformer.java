@@ -18,21 +18,42 @@
 
 package com.orientechnologies.orient.etl.transformer;
 
+import com.orientechnologies.common.collection.OLRUCache;
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.hook.ORecordHook;
+import com.orientechnologies.orient.core.hook.ORecordHookAbstract;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexCursor;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.ODocumentInternal;
+import com.orientechnologies.orient.core.sql.OCommandSQLParsingException;
+import com.orientechnologies.orient.core.sql.OSQLEngine;
+import com.orientechnologies.orient.core.sql.parser.OFromClause;
+import com.orientechnologies.orient.core.sql.parser.OSelectStatement;
+import com.orientechnologies.orient.core.sql.parser.OStatement;
 import com.orientechnologies.orient.core.sql.query.OSQLQuery;
 import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
 import com.orientechnologies.orient.etl.context.OETLContextWrapper;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
 
 /**
  * Merges two records. Useful when a record needs to be updated rather than created.
@@ -42,8 +63,16 @@ public abstract class OETLAbstractLookupTransformer extends OETLAbstractTransfor
   protected Object joinValue;
   protected String lookup;
   protected ACTION unresolvedLinkAction = ACTION.NOTHING;
-  private OSQLQuery<ODocument> sqlQuery;
-  private OIndex<?>            index;
+  protected int     lookupCacheSize    = 0;
+  protected boolean lookupCachePreload = false;
+  private OSQLQuery<ODocument>      sqlQuery;
+  private OIndex<?>                 index;
+  private String                    lookupClassName;
+  private OLRUCache<Object, Object> lookupCache;
+  private volatile boolean          lookupCachePreloaded;
+  private LookupCacheInvalidator    lookupCacheInvalidator;
+  private final Set<ODatabaseDocument> hookedDatabases = Collections
+      .synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<ODatabaseDocument, Boolean>()));
 
   @Override
   public void configure(final ODocument iConfiguration, OCommandContext iContext) {
@@ -59,30 +88,56 @@ public abstract class OETLAbstractLookupTransformer extends OETLAbstractTransfor
 
     if (iConfiguration.containsField("unresolvedLinkAction"))
       unresolvedLinkAction = ACTION.valueOf(iConfiguration.field("unresolvedLinkAction").toString().toUpperCase(Locale.ENGLISH));
+
+    if (iConfiguration.containsField("lookupCacheSize"))
+      lookupCacheSize = ((Number) resolve(iConfiguration.field("lookupCacheSize"))).intValue();
+
+    if (iConfiguration.containsField("lookupCachePreload"))
+      lookupCachePreload = (Boolean) resolve(iConfiguration.field("lookupCachePreload"));
+
+    if (lookupCacheSize > 0)
+      lookupCache = new OLRUCache<Object, Object>(lookupCacheSize);
+  }
+
+  @Override
+  public void end() {
+    // THE DATABASES COME FROM A POOL AND WOULD KEEP THE HOOK AFTER THE IMPORT
+    if (lookupCacheInvalidator != null) {
+      final ODatabaseDocumentInternal current = ODatabaseRecordThreadLocal.instance().getIfDefined();
+      synchronized (hookedDatabases) {
+        for (ODatabaseDocument db : hookedDatabases) {
+          db.activateOnCurrentThread();
+          db.unregisterHook(lookupCacheInvalidator);
+        }
+        hookedDatabases.clear();
+      }
+      if (current != null)
+        current.activateOnCurrentThread();
+      else
+        ODatabaseRecordThreadLocal.instance().remove();
+    }
+    super.end();
+  }
+
+  protected String getLookupConfigurationParameters() {
+    return "{lookupCacheSize:{optional:true,description:'Maximum number of join values whose lookup result is cached (LRU). Default is 0, no cache'}},"
+        + "{lookupCachePreload:{optional:true,description:'Fills the lookup cache by streaming the lookup index before the first lookup', default:false}}";
   }
 
   protected Object lookup(ODatabaseDocument db, Object joinValue, final boolean iReturnRIDS) {
     Object result = null;
 
     if (joinValue != null) {
-      if (sqlQuery == null && index == null) {
-        // ONLY THE FIRST TIME
-        if (lookup.toUpperCase(Locale.ENGLISH).startsWith("SELECT"))
-          sqlQuery = new OSQLSynchQuery<ODocument>(lookup);
-        else {
-          index = db.getMetadata().getIndexManager().getIndex(lookup);
-          if (index == null) {
-            OETLContextWrapper
-                .getInstance().getMessageHandler().warn(this, "WARNING: index %s not found. Lookups could be really slow", lookup);
-            final String[] parts = lookup.split("\\.");
-            sqlQuery = new OSQLSynchQuery<ODocument>("SELECT FROM " + parts[0] + " WHERE " + parts[1] + " = ?");
-          }
-        }
-      }
+      init(db);
+
+      if (index != null)
+        joinValue = toIndexKey(joinValue);
+
+      final Object cached = getCached(joinValue);
+      if (cached != null)
+        return toLookupResult(db, cached, iReturnRIDS);
 
       if (index != null) {
-        final OType idxFieldType = index.getDefinition().getTypes()[0];
-        joinValue = OType.convert(joinValue, idxFieldType.getDefaultJavaType());
         result = index.get(joinValue);
       } else {
         if (sqlQuery instanceof OSQLSynchQuery)
@@ -91,29 +146,333 @@ public abstract class OETLAbstractLookupTransformer extends OETLAbstractTransfor
         result = db.query(sqlQuery, joinValue);
       }
 
-      if (result != null && result instanceof Collection) {
-        final Collection coll = (Collection) result;
-
-        if (!coll.isEmpty()) {
-          if (iReturnRIDS) {
-            // CONVERT COLLECTION OF RECORDS IN RIDS
-            final List<ORID> resultRIDs = new ArrayList<ORID>(coll.size());
-            for (Object o : coll) {
-              if (o instanceof OIdentifiable)
-                resultRIDs.add(((OIdentifiable) o).getIdentity());
-            }
-            result = resultRIDs;
-          }
+      result = toLookupResult(db, result, iReturnRIDS);
+      cache(joinValue, result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Resolves a set of join values at once. When the lookup is bound to an index, all the values missing from the lookup cache are
+   * fetched with a single index call instead of one call per value.
+   *
+   * @return map of join value to lookup result, in the same order of the passed values. Unresolved values are mapped to null
+   */
+  protected Map<Object, Object> lookupAll(ODatabaseDocument db, final Collection<?> joinValues, final boolean iReturnRIDS) {
+    final Map<Object, Object> results = new LinkedHashMap<Object, Object>(joinValues.size());
+    if (joinValues.isEmpty())
+      return results;
+
+    init(db);
+
+    if (index == null) {
+      for (Object joinValue : joinValues)
+        results.put(joinValue, lookup(db, joinValue, iReturnRIDS));
+      return results;
+    }
+
+    // THE KEYS ARE NORMALIZED AS THE INDEX DOES (TYPE AND COLLATE), MORE JOIN VALUES CAN SHARE THE SAME KEY
+    final Map<Object, List<Object>> keys = new LinkedHashMap<Object, List<Object>>(joinValues.size());
+    for (Object joinValue : joinValues) {
+      if (joinValue == null) {
+        results.put(null, null);
+        continue;
+      }
+
+      final Object key = toIndexKey(joinValue);
+      final Object cached = getCached(key);
+      if (cached != null)
+        results.put(joinValue, toLookupResult(db, cached, iReturnRIDS));
+      else {
+        results.put(joinValue, null);
+        keys.computeIfAbsent(key, k -> new ArrayList<Object>(1)).add(joinValue);
+      }
+    }
+
+    if (keys.isEmpty())
+      return results;
+
+    final Map<Object, List<ORID>> found = new LinkedHashMap<Object, List<ORID>>(keys.size());
+    final OIndexCursor cursor = index.iterateEntries(keys.keySet(), true);
+    Map.Entry<Object, OIdentifiable> entry;
+    while ((entry = cursor.nextEntry()) != null)
+      found.computeIfAbsent(entry.getKey(), k -> new ArrayList<ORID>()).add(entry.getValue().getIdentity());
+
+    final boolean unique = index.isUnique();
+    for (Map.Entry<Object, List<ORID>> e : found.entrySet()) {
+      final List<Object> keyJoinValues = keys.remove(e.getKey());
+      if (keyJoinValues == null)
+        continue;
+
+      final Object result = unique && e.getValue().size() == 1 ? e.getValue().get(0) : e.getValue();
+      cache(e.getKey(), result);
+      for (Object joinValue : keyJoinValues)
+        results.put(joinValue, toLookupResult(db, result, iReturnRIDS));
+    }
+
+    // THE KEYS NOT MATCHED ARE LOOKED UP ONE BY ONE, IN CASE THE INDEX RETURNED THEM IN A DIFFERENT FORM
+    for (List<Object> keyJoinValues : keys.values())
+      for (Object joinValue : keyJoinValues)
+        results.put(joinValue, lookup(db, joinValue, iReturnRIDS));
+
+    return results;
+  }
+
+  private void init(final ODatabaseDocument db) {
+    if (sqlQuery == null && index == null) {
+      // ONLY THE FIRST TIME
+      if (lookup.toUpperCase(Locale.ENGLISH).startsWith("SELECT")) {
+        sqlQuery = new OSQLSynchQuery<ODocument>(lookup);
+        lookupClassName = getTargetClass(db, lookup);
+      } else {
+        index = db.getMetadata().getIndexManager().getIndex(lookup);
+        if (index == null) {
+          OETLContextWrapper
+              .getInstance().getMessageHandler().warn(this, "WARNING: index %s not found. Lookups could be really slow", lookup);
+          final String[] parts = lookup.split("\\.");
+          sqlQuery = new OSQLSynchQuery<ODocument>("SELECT FROM " + parts[0] + " WHERE " + parts[1] + " = ?");
+          lookupClassName = parts[0];
         } else
-          result = null;
-      } else if (result instanceof OIdentifiable) {
-        if (iReturnRIDS)
-          result = ((OIdentifiable) result).getIdentity();
-        else
-          result = ((OIdentifiable) result).getRecord();
+          lookupClassName = index.getDefinition().getClassName();
+      }
+    }
+
+    if (lookupCache != null) {
+      if (lookupCacheInvalidator == null)
+        lookupCacheInvalidator = new LookupCacheInvalidator();
+      if (!db.getHooks().containsKey(lookupCacheInvalidator)) {
+        db.registerHook(lookupCacheInvalidator);
+        hookedDatabases.add(db);
+      }
+
+      if (lookupCachePreload && !lookupCachePreloaded && index != null)
+        preloadCache();
+    }
+  }
+
+  /**
+   * @return the class read by a lookup query, null if the query does not read a single class
+   */
+  private static String getTargetClass(final ODatabaseDocument db, final String query) {
+    try {
+      final OStatement statement = OSQLEngine.parse(query, (ODatabaseDocumentInternal) db);
+      if (statement instanceof OSelectStatement) {
+        final OFromClause target = ((OSelectStatement) statement).getTarget();
+        if (target != null && target.getItem().getIdentifier() != null)
+          return target.getItem().getIdentifier().getStringValue();
+      }
+    } catch (OCommandSQLParsingException ignore) {
+      // THE LEGACY PARSER RUNS THE LOOKUP
+    }
+    return null;
+  }
+
+  /**
+   * @return the join value as stored in the index: converted to the type of the key and transformed by the collate
+   */
+  private Object toIndexKey(final Object joinValue) {
+    final OType idxFieldType = index.getDefinition().getTypes()[0];
+    return index.getDefinition().getCollate().transform(OType.convert(joinValue, idxFieldType.getDefaultJavaType()));
+  }
+
+  /**
+   * Streams the lookup index into the cache up to its maximum size, so the following lookups do not hit the index at all.
+   */
+  private synchronized void preloadCache() {
+    if (lookupCachePreloaded)
+      return;
+
+    final boolean unique = index.isUnique();
+    long loaded = 0;
+
+    final OIndexCursor cursor = index.cursor();
+    Map.Entry<Object, OIdentifiable> entry;
+    while ((entry = cursor.nextEntry()) != null) {
+      final Object key = entry.getKey();
+      final ORID rid = entry.getValue().getIdentity();
+
+      synchronized (lookupCache) {
+        final Object prev = lookupCache.get(key);
+        if (prev == null) {
+          if (lookupCache.size() >= lookupCacheSize)
+            // CACHE FULL: STOP HERE INSTEAD OF EVICTING WHAT HAS JUST BEEN LOADED
+            break;
+
+          if (unique)
+            lookupCache.put(key, rid);
+          else {
+            final List<ORID> rids = new ArrayList<ORID>(2);
+            rids.add(rid);
+            lookupCache.put(key, rids);
+          }
+          loaded++;
+        } else if (prev instanceof List)
+          ((List<ORID>) prev).add(rid);
+      }
+    }
+
+    lookupCachePreloaded = true;
+    log(Level.INFO, "Preloaded lookup cache with %d entries from index %s", loaded, lookup);
+  }
+
+  private Object getCached(final Object key) {
+    if (lookupCache == null)
+      return null;
+
+    synchronized (lookupCache) {
+      return lookupCache.get(key);
+    }
+  }
+
+  /**
+   * Caches a lookup result as RIDs. Unresolved values and records created in the current transaction (not persistent yet) are not
+   * cached.
+   */
+  private void cache(final Object key, final Object result) {
+    if (lookupCache == null || result == null)
+      return;
+
+    final Object value;
+    if (result instanceof OIdentifiable) {
+      final ORID rid = ((OIdentifiable) result).getIdentity();
+      if (!rid.isPersistent())
+        return;
+      value = rid;
+    } else if (result instanceof Collection) {
+      final Collection<?> coll = (Collection<?>) result;
+      final List<ORID> rids = new ArrayList<ORID>(coll.size());
+      for (Object o : coll) {
+        final ORID rid = ((OIdentifiable) o).getIdentity();
+        if (!rid.isPersistent())
+          return;
+        rids.add(rid);
       }
+      value = rids;
+    } else
+      return;
+
+    synchronized (lookupCache) {
+      lookupCache.put(key, value);
     }
+  }
 
+  private void evict(final Object key) {
+    if (key == null)
+      return;
+
+    synchronized (lookupCache) {
+      if (key instanceof Collection) {
+        for (Object k : (Collection<?>) key)
+          lookupCache.remove(k);
+      } else
+        lookupCache.remove(key);
+    }
+  }
+
+  private void clearCache() {
+    synchronized (lookupCache) {
+      lookupCache.clear();
+    }
+  }
+
+  /**
+   * Evicts from the lookup cache the keys of the records of the looked up class created, updated or deleted during the import.
+   * The keys of a query lookup are not known, so its cache is cleared instead.
+   */
+  private class LookupCacheInvalidator extends ORecordHookAbstract {
+    @Override
+    public RESULT onRecordBeforeCreate(final ORecord iRecord) {
+      evictKeyOf(iRecord);
+      return RESULT.RECORD_NOT_CHANGED;
+    }
+
+    @Override
+    public void onRecordAfterCreate(final ORecord iRecord) {
+      evictKeyOf(iRecord);
+    }
+
+    @Override
+    public void onRecordAfterUpdate(final ORecord iRecord) {
+      if (index == null && isLookedUp(iRecord))
+        clearCache();
+    }
+
+    @Override
+    public RESULT onRecordBeforeUpdate(final ORecord iRecord) {
+      if (index != null && isLookedUp(iRecord)) {
+        final ODocument doc = (ODocument) iRecord;
+        for (String field : index.getDefinition().getFields())
+          if (Arrays.asList(doc.getDirtyFields()).contains(field)) {
+            // THE PREVIOUS KEY IS NOT KNOWN ANY MORE
+            clearCache();
+            break;
+          }
+      }
+      return RESULT.RECORD_NOT_CHANGED;
+    }
+
+    @Override
+    public void onRecordAfterDelete(final ORecord iRecord) {
+      evictKeyOf(iRecord);
+    }
+
+    @Override
+    public ORecordHook.DISTRIBUTED_EXECUTION_MODE getDistributedExecutionMode() {
+      return DISTRIBUTED_EXECUTION_MODE.SOURCE_NODE;
+    }
+
+    private void evictKeyOf(final ORecord iRecord) {
+      if (!isLookedUp(iRecord))
+        return;
+      if (index != null)
+        evict(index.getDefinition().getCollate().transform(index.getDefinition().getDocumentValueToIndex((ODocument) iRecord)));
+      else
+        clearCache();
+    }
+
+    private boolean isLookedUp(final ORecord iRecord) {
+      if (!(iRecord instanceof ODocument))
+        return false;
+      if (lookupClassName == null)
+        // THE QUERY CAN READ ANY CLASS
+        return true;
+      final OClass cls = ODocumentInternal.getImmutableSchemaClass((ODocument) iRecord);
+      return cls != null && cls.isSubClassOf(lookupClassName);
+    }
+  }
+
+  private Object toLookupResult(final ODatabaseDocument db, Object result, final boolean iReturnRIDS) {
+    if (result != null && result instanceof Collection) {
+      final Collection coll = (Collection) result;
+
+      if (!coll.isEmpty()) {
+        if (iReturnRIDS) {
+          // CONVERT COLLECTION OF RECORDS IN RIDS
+          final List<ORID> resultRIDs = new ArrayList<ORID>(coll.size());
+          for (Object o : coll) {
+            if (o instanceof OIdentifiable)
+              resultRIDs.add(((OIdentifiable) o).getIdentity());
+          }
+          result = resultRIDs;
+        } else {
+          final List<Object> records = new ArrayList<Object>(coll.size());
+          for (Object o : coll) {
+            if (o instanceof ORID)
+              records.add(db.load((ORID) o));
+            else
+              records.add(o);
+          }
+          result = records;
+        }
+      } else
+        result = null;
+    } else if (result instanceof OIdentifiable) {
+      if (iReturnRIDS)
+        result = ((OIdentifiable) result).getIdentity();
+      else
+        result = ((OIdentifiable) result).getRecord();
+    }
     return result;
   }
 
@@ -33,6 +33,7 @@ import com.orientechnologies.orient.etl.OETLProcessHaltedException;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 
 public class OETLEdgeTransformer extends OETLAbstractLookupTransformer {
@@ -53,6 +54,7 @@ public class OETLEdgeTransformer extends OETLAbstractLookupTransformer {
         + "{targetVertexFields:{optional:true,description:'Map of fields to set in target vertex. Use ${$input.<field>} to get input field values'}},"
         + "{edgeFields:{optional:true,description:'Map of fields to set in edge. Use ${$input.<field>} to get input field values'}},"
         + "{skipDuplicates:{optional:true,description:'Duplicated edges (with a composite index built on both out and in properties) are skipped', default:false}},"
+        + getLookupConfigurationParameters() + ","
         + "{unresolvedLinkAction:{optional:true,description:'action when the target vertex is not found',values:"
         + stringArray2Json(ACTION.values()) + "}}]," + "input:['ODocument','OVertex'],output:'OVertex'}");
   }
@@ -114,9 +116,18 @@ public class OETLEdgeTransformer extends OETLAbstractLookupTransformer {
       }
 
       if (OMultiValue.isMultiValue(joinCurrentValue)) {
-        // RESOLVE SINGLE JOINS
-        for (Object ob : OMultiValue.getMultiValueIterable(joinCurrentValue)) {
-          final Object r = lookup(db, ob, true);
+        // RESOLVE ALL THE JOINS WITH A SINGLE LOOKUP
+        final List<Object> joinValues = new ArrayList<Object>(OMultiValue.getSize(joinCurrentValue));
+        for (Object ob : OMultiValue.getMultiValueIterable(joinCurrentValue))
+          joinValues.add(ob);
+
+        final Map<Object, Object> results = lookupAll(db, joinValues, true);
+        for (Object ob : joinValues) {
+          Object r = results.get(ob);
+          if (r == null && unresolvedLinkAction == ACTION.CREATE)
+            // THE TARGET COULD HAVE BEEN CREATED BY A PREVIOUS JOIN VALUE
+            r = lookup(db, ob, true);
+
           if (createEdge(db, vertex, ob, r) == null) {
             if (unresolvedLinkAction == ACTION.SKIP)
               // RETURN NULL ONLY IN CASE SKIP ACTION IS REQUESTED
@@ -20,15 +20,22 @@ package com.orientechnologies.orient.etl.loader;
 
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexManager;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.executor.OResult;
 import com.orientechnologies.orient.core.sql.executor.OResultSet;
 import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
 import com.orientechnologies.orient.etl.OETLBaseTest;
+import com.orientechnologies.orient.etl.context.OETLContext;
 import org.junit.Test;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -190,4 +197,44 @@ public class OETLOrientDBLoaderTest extends OETLBaseTest {
     res.close();
     db.close();
   }
+
+  @Test
+  public void shouldLoadPartitionedInParallel() {
+
+    final StringBuilder content = new StringBuilder("id,name");
+    for (int i = 0; i < 200; i++)
+      content.append("\n").append(i).append(",").append(names[i % names.length]);
+
+    configure("{source: { content: { value: '" + content + "' } }, extractor : { csv: {} }, "
+            + "transformers: [{vertex: {class:'Person'}}], loader: { orientdb: {\n" + "      dbURL: 'memory:" + name.getMethodName()
+            + "', dbType: \"graph\", tx: true, classes: [{name:\"Person\", extends: \"V\" }] } } }",
+        new OETLContext().setVariable("parallel", Boolean.TRUE).setVariable("workers", 4).setVariable("partitionKey", "name")
+            .setVariable("batchSize", 10));
+
+    proc.execute();
+
+    ODatabaseDocument db = proc.getLoader().getPool().acquire();
+
+    assertThat(db.countClass("Person")).isEqualTo(200);
+    assertThat(db.getMetadata().getSchema().getClass("Person").getClusterIds().length).isGreaterThanOrEqualTo(4);
+    assertThat(proc.getStats().batches.get()).isGreaterThan(0);
+
+    // THE VERTICES OF A PARTITION ARE SAVED BY ONE WORKER IN ITS OWN CLUSTER. EDGES ARE NOT PARTITIONED BY CLUSTER
+    final Map<String, Set<Integer>> clustersByName = new HashMap<String, Set<Integer>>();
+    final Set<Integer> clusters = new HashSet<Integer>();
+    try (OResultSet rs = db.query("select name, @rid as rid from Person")) {
+      while (rs.hasNext()) {
+        final OResult row = rs.next();
+        final int clusterId = ((ORID) row.getProperty("rid")).getClusterId();
+        clustersByName.computeIfAbsent(row.getProperty("name"), k -> new HashSet<Integer>()).add(clusterId);
+        clusters.add(clusterId);
+      }
+    }
+    assertThat(clustersByName).hasSize(names.length);
+    for (Set<Integer> nameClusters : clustersByName.values())
+      assertThat(nameClusters).hasSize(1);
+    assertThat(clusters.size()).isGreaterThan(1);
+
+    db.close();
+  }
 }
\ No newline at end of file
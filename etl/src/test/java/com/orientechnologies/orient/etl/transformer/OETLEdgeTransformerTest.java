@@ -21,6 +21,7 @@ package com.orientechnologies.orient.etl.transformer;
 import com.orientechnologies.common.io.OFileUtils;
 import com.orientechnologies.orient.core.db.ODatabasePool;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.hook.ORecordHook;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.ODirection;
@@ -222,6 +223,123 @@ public class OETLEdgeTransformerTest extends OETLBaseTest {
     assertEquals(1, db.countClass("Friend"));
   }
 
+  @Test
+  public void testLookupCacheWithMultipleJoinValues() {
+    configure("{source: { content: { value: [{name:'Jay',friends:['Luca','Enrico']},{name:'Mark',friends:['Luca','Unknown']}] } },"
+        + " extractor : { json: {} }, transformers: [{vertex: {class:'V1'}}, "
+        + "{edge:{class:'Friend',joinFieldName:'friends',lookup:'V2.name',lookupCacheSize:100,lookupCachePreload:true}},"
+        + "], loader: { orientdb: { dbURL: 'memory:" + name.getMethodName() + "', dbType:'graph', useLightweightEdges:false } } }");
+
+    OETLLoader loader = proc.getLoader();
+    ODatabasePool pool = loader.getPool();
+    ODatabaseDocument db = pool.acquire();
+    createClasses(db);
+    db.getClass("V2").createProperty("name", OType.STRING).createIndex(OClass.INDEX_TYPE.UNIQUE);
+
+    OVertex vertex = db.newVertex("V2");
+    vertex.setProperty("name", "Enrico");
+    db.save(vertex);
+    db.commit();
+    db.close();
+
+    proc.execute();
+    db = pool.acquire();
+
+    assertEquals(2, db.countClass("V1"));
+    assertEquals(2, db.countClass("V2"));
+    assertEquals(3, db.countClass("Friend"));
+    db.close();
+    pool.close();
+  }
+
+  @Test
+  public void testLookupCacheWithCaseInsensitiveIndex() {
+    configure("{source: { content: { value: [{name:'Jay',friends:['LUCA','enrico']}] } },"
+        + " extractor : { json: {} }, transformers: [{vertex: {class:'V1'}}, "
+        + "{edge:{class:'Friend',joinFieldName:'friends',lookup:'V2.name',lookupCacheSize:100}},"
+        + "], loader: { orientdb: { dbURL: 'memory:" + name.getMethodName() + "', dbType:'graph', useLightweightEdges:false } } }");
+
+    OETLLoader loader = proc.getLoader();
+    ODatabasePool pool = loader.getPool();
+    ODatabaseDocument db = pool.acquire();
+    createClasses(db);
+    db.getClass("V2").createProperty("name", OType.STRING).setCollate("ci").createIndex(OClass.INDEX_TYPE.UNIQUE);
+
+    OVertex vertex = db.newVertex("V2");
+    vertex.setProperty("name", "Enrico");
+    db.save(vertex);
+    db.commit();
+    db.close();
+
+    proc.execute();
+    db = pool.acquire();
+
+    assertEquals(2, db.countClass("V2"));
+    assertEquals(2, db.countClass("Friend"));
+    db.close();
+    pool.close();
+  }
+
+  @Test
+  public void testLookupCacheEvictedOnImportedRecords() {
+    configure("{source: { content: { value: [{name:'Mark',friends:['Luca']},{name:'Luca',friends:[]},{name:'Jay',friends:['Luca']}] } },"
+        + " extractor : { json: {} }, transformers: [{vertex: {class:'Person'}}, "
+        + "{edge:{class:'Knows',joinFieldName:'friends',lookup:'Person.name',lookupCacheSize:100,lookupCachePreload:true}},"
+        + "], loader: { orientdb: { dbURL: 'memory:" + name.getMethodName() + "', dbType:'graph', useLightweightEdges:false } } }");
+
+    OETLLoader loader = proc.getLoader();
+    ODatabasePool pool = loader.getPool();
+    ODatabaseDocument db = pool.acquire();
+    db.createVertexClass("Person").createProperty("name", OType.STRING).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    db.createEdgeClass("Knows");
+
+    OVertex vertex = db.newVertex("Person");
+    vertex.setProperty("name", "Luca");
+    db.save(vertex);
+    db.commit();
+    db.close();
+
+    proc.execute();
+    db = pool.acquire();
+
+    assertEquals(4, db.countClass("Person"));
+    // THE SECOND LUCA IMPORTED IS FOUND BY THE LAST LOOKUP, THOUGH THE FIRST LUCA WAS CACHED
+    assertEquals(3, db.countClass("Knows"));
+    db.close();
+    pool.close();
+  }
+
+  @Test
+  public void testQueryLookupCacheEvictedOnImportedRecords() {
+    configure("{source: { content: { value: [{name:'Mark',friends:['Luca']},{name:'Luca',friends:[]},{name:'Jay',friends:['Luca']}] } },"
+        + " extractor : { json: {} }, transformers: [{vertex: {class:'Person'}}, "
+        + "{edge:{class:'Knows',joinFieldName:'friends',lookup:'select from Person where name = ?',lookupCacheSize:100}},"
+        + "], loader: { orientdb: { dbURL: 'memory:" + name.getMethodName() + "', dbType:'graph', useLightweightEdges:false } } }");
+
+    OETLLoader loader = proc.getLoader();
+    ODatabasePool pool = loader.getPool();
+    ODatabaseDocument db = pool.acquire();
+    db.createVertexClass("Person").createProperty("name", OType.STRING);
+    db.createEdgeClass("Knows");
+
+    OVertex vertex = db.newVertex("Person");
+    vertex.setProperty("name", "Luca");
+    db.save(vertex);
+    db.commit();
+    db.close();
+
+    proc.execute();
+    db = pool.acquire();
+
+    assertEquals(4, db.countClass("Person"));
+    assertEquals(3, db.countClass("Knows"));
+    // THE POOLED DATABASES DO NOT KEEP THE CACHE HOOK AFTER THE IMPORT
+    for (ORecordHook hook : db.getHooks().keySet())
+      assertNotEquals(OETLAbstractLookupTransformer.class, hook.getClass().getEnclosingClass());
+    db.close();
+    pool.close();
+  }
+
   @Test
   public void testVertexAndEdgesOnSeparatedFiles() {
     // IMPORT PERSON (VERTICES)
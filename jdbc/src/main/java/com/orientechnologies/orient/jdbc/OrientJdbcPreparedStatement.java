@@ -63,6 +63,7 @@ public class OrientJdbcPreparedStatement extends OrientJdbcStatement implements
 
     //    return super.executeQuery(sql);
     sql = mayCleanForSpark(sql);
+    closeResultSet();
 
     if (sql.equalsIgnoreCase("select 1")) {
       // OPTIMIZATION
@@ -74,7 +75,7 @@ public class OrientJdbcPreparedStatement extends OrientJdbcStatement implements
     } else {
       try {
 //        sql = new OSQLSynchQuery<ODocument>(mayCleanForSpark(sql));
-        oResultSet = database.query(sql, params.values().toArray());
+        oResultSet = withFetchSize(() -> database.query(sql, params.values().toArray()));
 
       } catch (OQueryParsingException e) {
         throw new SQLSyntaxErrorException("Error while parsing query", e);
@@ -98,7 +99,7 @@ public class OrientJdbcPreparedStatement extends OrientJdbcStatement implements
 
     try {
       database.activateOnCurrentThread();
-      return database.command(query, params.values().toArray());
+      return withFetchSize(() -> database.command(query, params.values().toArray()));
     } catch (OException e) {
       throw new SQLException("Error while executing command", e);
     }
@@ -190,9 +191,13 @@ public class OrientJdbcPreparedStatement extends OrientJdbcStatement implements
   }
 
   public void addBatch() throws SQLException {
+    batches.add(sql);
+    batchArguments.add(params.values().toArray());
+  }
 
-    //    batches.add(sql);
-    throw new UnsupportedOperationException();
+  @Override
+  public void addBatch(final String sql) throws SQLException {
+    throw new SQLException("Method 'addBatch(String)' cannot be called on a PreparedStatement");
   }
 
   public void setCharacterStream(int parameterIndex, Reader reader, int length) throws SQLException {
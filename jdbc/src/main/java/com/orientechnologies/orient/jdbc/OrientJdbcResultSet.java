@@ -48,15 +48,19 @@ import java.util.stream.Collectors;
 public class OrientJdbcResultSet implements ResultSet {
   private final OrientJdbcResultSetMetaData resultSetMetaData;
   private final List<String>                fieldNames;
+  private final OResultSet                  oResultSet;
   private       List<OResult>               records;
   private       OrientJdbcStatement         statement;
   private       OResult                     result;
 
-  private int cursor   = -1;
-  private int rowCount = 0;
-  private int type;
-  private int concurrency;
-  private int holdability;
+  private int     cursor   = -1;
+  private int     rowCount = 0;
+  private int     type;
+  private int     concurrency;
+  private int     holdability;
+  private int     fetchSize;
+  private boolean firstRowPending;
+  private boolean closed;
 
   protected OrientJdbcResultSet(final OrientJdbcStatement statement,
       final OResultSet oResultSet,
@@ -65,21 +69,8 @@ public class OrientJdbcResultSet implements ResultSet {
       int holdability) throws SQLException {
 
     this.statement = statement;
-    try {
-      records = oResultSet.stream().collect(Collectors.toList());
-    } catch (Exception e) {
-      throw new SQLException("Error occourred while mapping results ", e);
-    }
-    oResultSet.close();
-    rowCount = records.size();
-
-    if (records.size() >= 1) {
-      result = records.get(0);
-    } else {
-      result = new OResultInternal();
-    }
-
-    fieldNames = extractFieldNames(statement);
+    this.oResultSet = oResultSet;
+    this.fetchSize = statement.fetchSize;
 
     activateDatabaseOnCurrentThread();
     if (type == TYPE_FORWARD_ONLY || type == TYPE_SCROLL_INSENSITIVE || type == TYPE_SCROLL_SENSITIVE)
@@ -102,6 +93,23 @@ public class OrientJdbcResultSet implements ResultSet {
           "Bad ResultSet Holdability type: " + holdability + " instead of one of the following values: " + HOLD_CURSORS_OVER_COMMIT
               + " or" + CLOSE_CURSORS_AT_COMMIT);
 
+    try {
+      if (type == TYPE_FORWARD_ONLY) {
+        // THE ROWS ARE READ ON DEMAND, THE FIRST ONE IS READ IN ADVANCE TO KNOW THE COLUMNS
+        firstRowPending = oResultSet.hasNext();
+        result = firstRowPending ? oResultSet.next() : new OResultInternal();
+      } else {
+        records = oResultSet.stream().collect(Collectors.toList());
+        oResultSet.close();
+        rowCount = records.size();
+        result = records.isEmpty() ? new OResultInternal() : records.get(0);
+      }
+    } catch (Exception e) {
+      oResultSet.close();
+      throw new SQLException("Error occourred while mapping results ", e);
+    }
+
+    fieldNames = extractFieldNames(statement);
     resultSetMetaData = new OrientJdbcResultSetMetaData(this, fieldNames);
   }
 
@@ -155,6 +163,10 @@ public class OrientJdbcResultSet implements ResultSet {
   }
 
   public void close() throws SQLException {
+    if (!closed && isStreaming()) {
+      oResultSet.close();
+    }
+    closed = true;
     cursor = 0;
     rowCount = 0;
     records = null;
@@ -165,23 +177,37 @@ public class OrientJdbcResultSet implements ResultSet {
   }
 
   public boolean last() throws SQLException {
+    if (isStreaming()) {
+      while (fetchNextRow())
+        ;
+      cursor = rowCount - 1;
+      return rowCount > 0;
+    }
     return absolute(rowCount - 1);
   }
 
   public boolean next() throws SQLException {
-    return absolute(++cursor);
+    return absolute(cursor + 1);
   }
 
   public boolean previous() throws SQLException {
+    if (isStreaming())
+      throw new SQLException("The result set is forward only, it cannot go back to row " + (cursor - 1));
     return absolute(++cursor);
   }
 
   public void afterLast() throws SQLException {
+    if (isStreaming()) {
+      while (fetchNextRow())
+        ;
+    }
     // OUT OF LAST ITEM
     cursor = rowCount;
   }
 
   public void beforeFirst() throws SQLException {
+    if (isStreaming() && cursor >= 0)
+      throw new SQLException("The result set is forward only, it cannot go back before the first row");
     // OUT OF FIRST ITEM
     cursor = -1;
   }
@@ -191,6 +217,9 @@ public class OrientJdbcResultSet implements ResultSet {
   }
 
   public boolean absolute(int iRowNumber) throws SQLException {
+    if (isStreaming()) {
+      return moveForward(iRowNumber);
+    }
     if (iRowNumber > rowCount - 1) {
       // OUT OF LAST ITEM
       cursor = rowCount;
@@ -207,6 +236,8 @@ public class OrientJdbcResultSet implements ResultSet {
   }
 
   public boolean isAfterLast() throws SQLException {
+    if (isStreaming())
+      return cursor >= rowCount && !firstRowPending && !oResultSet.hasNext();
     return cursor >= rowCount - 1;
   }
 
@@ -215,7 +246,7 @@ public class OrientJdbcResultSet implements ResultSet {
   }
 
   public boolean isClosed() throws SQLException {
-    return records == null;
+    return closed;
   }
 
   public boolean isFirst() throws SQLException {
@@ -223,9 +254,52 @@ public class OrientJdbcResultSet implements ResultSet {
   }
 
   public boolean isLast() throws SQLException {
+    if (isStreaming())
+      return cursor >= 0 && cursor == rowCount - 1 && !firstRowPending && !oResultSet.hasNext();
     return cursor == rowCount - 1;
   }
 
+  private boolean isStreaming() {
+    return type == TYPE_FORWARD_ONLY;
+  }
+
+  /**
+   * Reads the rows of a forward only result set up to the requested one, the rows already read are not kept.
+   */
+  private boolean moveForward(int iRowNumber) throws SQLException {
+    if (closed)
+      throw new SQLException("The result set is closed");
+    if (iRowNumber < cursor)
+      throw new SQLException("The result set is forward only, it cannot go back to row " + iRowNumber);
+    if (iRowNumber < 0)
+      return false;
+    while (cursor < iRowNumber) {
+      if (!fetchNextRow()) {
+        // OUT OF LAST ITEM
+        cursor = rowCount;
+        return false;
+      }
+      cursor = rowCount - 1;
+    }
+    return cursor < rowCount;
+  }
+
+  private boolean fetchNextRow() throws SQLException {
+    if (firstRowPending) {
+      firstRowPending = false;
+    } else {
+      try {
+        if (!oResultSet.hasNext())
+          return false;
+        result = oResultSet.next();
+      } catch (Exception e) {
+        throw new SQLException("Error occourred while fetching results ", e);
+      }
+    }
+    rowCount++;
+    return true;
+  }
+
   public Statement getStatement() throws SQLException {
     return statement;
   }
@@ -499,11 +573,14 @@ public class OrientJdbcResultSet implements ResultSet {
   }
 
   public int getFetchSize() throws SQLException {
-    return rowCount;
+    return fetchSize;
   }
 
   public void setFetchSize(int rows) throws SQLException {
-
+    if (rows < 0)
+      throw new SQLException("The fetch size cannot be negative: " + rows);
+    // THE PAGES OF A RUNNING QUERY HAVE THE SIZE OF THE STATEMENT THAT EXECUTED IT
+    fetchSize = rows;
   }
 
   public float getFloat(int columnIndex) throws SQLException {
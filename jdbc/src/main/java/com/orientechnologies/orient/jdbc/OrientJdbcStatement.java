@@ -15,19 +15,34 @@
 package com.orientechnologies.orient.jdbc;
 
 import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentRemote;
 import com.orientechnologies.orient.core.exception.OQueryParsingException;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.OSQLEngine;
 import com.orientechnologies.orient.core.sql.executor.OInternalResultSet;
 import com.orientechnologies.orient.core.sql.executor.OResult;
 import com.orientechnologies.orient.core.sql.executor.OResultInternal;
 import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import com.orientechnologies.orient.core.sql.parser.OCreateEdgeStatement;
+import com.orientechnologies.orient.core.sql.parser.OCreateVertexStatement;
+import com.orientechnologies.orient.core.sql.parser.ODDLStatement;
+import com.orientechnologies.orient.core.sql.parser.ODeleteEdgeStatement;
+import com.orientechnologies.orient.core.sql.parser.ODeleteStatement;
+import com.orientechnologies.orient.core.sql.parser.ODeleteVertexStatement;
+import com.orientechnologies.orient.core.sql.parser.OInsertStatement;
+import com.orientechnologies.orient.core.sql.parser.OMoveVertexStatement;
+import com.orientechnologies.orient.core.sql.parser.OStatement;
+import com.orientechnologies.orient.core.sql.parser.OUpdateStatement;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.function.Supplier;
 
 import static java.lang.Boolean.parseBoolean;
 
@@ -40,6 +55,7 @@ public class OrientJdbcStatement implements Statement {
   protected final OrientJdbcConnection connection;
   protected final ODatabaseDocument    database;
   protected final List<String>         batches;
+  protected final List<Object[]>       batchArguments;
   protected final int                  resultSetType;
   protected final int                  resultSetConcurrency;
   protected final int                  resultSetHoldability;
@@ -50,6 +66,7 @@ public class OrientJdbcStatement implements Statement {
   protected       boolean              closed;
   protected       OResultSet           oResultSet;
   protected       OrientJdbcResultSet  resultSet;
+  protected       int                  fetchSize;
 
   public OrientJdbcStatement(final OrientJdbcConnection iConnection) {
     this(iConnection, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, ResultSet.HOLD_CURSORS_OVER_COMMIT);
@@ -63,7 +80,7 @@ public class OrientJdbcStatement implements Statement {
    * @throws SQLException
    */
   public OrientJdbcStatement(OrientJdbcConnection iConnection, int resultSetType, int resultSetConcurrency) {
-    this(iConnection, resultSetType, resultSetConcurrency, resultSetType);
+    this(iConnection, resultSetType, resultSetConcurrency, ResultSet.HOLD_CURSORS_OVER_COMMIT);
   }
 
   /**
@@ -79,6 +96,7 @@ public class OrientJdbcStatement implements Statement {
     database.activateOnCurrentThread();
 //    documents = emptyList();
     batches = new ArrayList<>();
+    batchArguments = new ArrayList<>();
     this.resultSetType = resultSetType;
     this.resultSetConcurrency = resultSetConcurrency;
     this.resultSetHoldability = resultSetHoldability;
@@ -92,6 +110,7 @@ public class OrientJdbcStatement implements Statement {
       return false;
 
     sql = mayCleanForSpark(sqlCommand);
+    closeResultSet();
 
     if (sql.equalsIgnoreCase("select 1")) {
       OResultInternal element = new OResultInternal();
@@ -148,7 +167,7 @@ public class OrientJdbcStatement implements Statement {
   protected OResultSet executeCommand(String query) throws SQLException {
 
     try {
-      return database.command(query);
+      return withFetchSize(() -> database.command(query));
     } catch (OQueryParsingException e) {
       throw new SQLSyntaxErrorException("Error while parsing command", e);
     } catch (OException e) {
@@ -174,9 +193,34 @@ public class OrientJdbcStatement implements Statement {
   }
 
   public void close() throws SQLException {
+    closeResultSet();
     closed = true;
   }
 
+  protected void closeResultSet() throws SQLException {
+    if (resultSet != null) {
+      resultSet.close();
+      resultSet = null;
+    }
+  }
+
+  /**
+   * Executes the query requesting the results from a remote server in pages of the fetch size of the statement.
+   */
+  protected OResultSet withFetchSize(Supplier<OResultSet> query) {
+    if (fetchSize <= 0 || !(database instanceof ODatabaseDocumentRemote))
+      return query.get();
+
+    final ODatabaseDocumentRemote remote = (ODatabaseDocumentRemote) database;
+    final int pageSize = remote.getQueryPageSize();
+    remote.setQueryPageSize(fetchSize);
+    try {
+      return query.get();
+    } finally {
+      remote.setQueryPageSize(pageSize);
+    }
+  }
+
   public boolean execute(final String sql, int autoGeneratedKeys) throws SQLException {
     return false;
   }
@@ -191,6 +235,7 @@ public class OrientJdbcStatement implements Statement {
 
   public void addBatch(final String sql) throws SQLException {
     batches.add(sql);
+    batchArguments.add(new Object[0]);
   }
 
   public void cancel() throws SQLException {
@@ -198,18 +243,109 @@ public class OrientJdbcStatement implements Statement {
 
   public void clearBatch() throws SQLException {
     batches.clear();
+    batchArguments.clear();
   }
 
   public void clearWarnings() throws SQLException {
   }
 
+  /**
+   * Executes the batched statements as SQL scripts, each script carries up to "batchSize" statements (1000 by default) with their
+   * parameters, so it is sent to the server in one request and applied in one transaction. If a transaction is already active
+   * the statements are applied in it, scripts that change the schema are applied without transaction.
+   */
   public int[] executeBatch() throws SQLException {
-    int[] results = new int[batches.size()];
-    int i = 0;
-    for (String sql : batches) {
-      results[i++] = executeUpdate(sql);
+    final int[] results = new int[batches.size()];
+    final int batchSize = Math.max(1, Integer.parseInt(info.getProperty("batchSize", "1000")));
+    int executed = 0;
+    try {
+      database.activateOnCurrentThread();
+      while (executed < batches.size()) {
+        final int count = Math.min(batchSize, batches.size() - executed);
+        executeBatch(executed, count, results);
+        executed += count;
+      }
+      return results;
+    } catch (RuntimeException e) {
+      throw new BatchUpdateException("Error while executing batch", Arrays.copyOf(results, executed), e);
+    } finally {
+      clearBatch();
+    }
+  }
+
+  private void executeBatch(final int from, final int count, final int[] results) {
+    final StringBuilder statements = new StringBuilder();
+    final List<Object> arguments = new ArrayList<>();
+    final String[] updateCounts = new String[count];
+    boolean transaction = !database.getTransaction().isActive();
+    String previous = null;
+    OStatement parsed = null;
+    for (int i = 0; i < count; i++) {
+      String statement = batches.get(from + i).trim();
+      if (statement.endsWith(";"))
+        statement = statement.substring(0, statement.length() - 1);
+      // THE STATEMENTS OF A PREPARED STATEMENT ARE ALL THE SAME, SO THEY ARE PARSED ONCE
+      if (!statement.equals(previous)) {
+        parsed = OSQLEngine.parse(statement, null);
+        if (parsed instanceof ODDLStatement)
+          transaction = false;
+      }
+      previous = statement;
+      statements.append("LET $batch").append(i).append(" = ").append(statement).append(";\n");
+      arguments.addAll(Arrays.asList(batchArguments.get(from + i)));
+      updateCounts[i] = getUpdateCount(parsed, "$batch" + i);
+    }
+
+    final StringBuilder script = new StringBuilder();
+    if (transaction)
+      script.append("BEGIN;\n");
+    script.append(statements);
+    if (transaction)
+      script.append("COMMIT;\n");
+
+    script.append("RETURN [");
+    for (int i = 0; i < count; i++) {
+      if (i > 0)
+        script.append(", ");
+      script.append(updateCounts[i]);
+    }
+    script.append("];");
+
+    try (OResultSet rs = database.execute("sql", script.toString(), arguments.toArray())) {
+      final List<?> counts = rs.next().getProperty("value");
+      for (int i = 0; i < count; i++)
+        results[from + i] = ((Number) counts.get(i)).intValue();
+    } catch (RuntimeException e) {
+      if (transaction)
+        rollbackBatch();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the expression that computes the update count of a statement of the batch from its result: the number of records
+   * created or returned, the count of the records updated or deleted, 0 for the other statements.
+   */
+  private static String getUpdateCount(final OStatement statement, final String variable) {
+    if (statement instanceof OInsertStatement || statement instanceof OCreateVertexStatement
+        || statement instanceof OCreateEdgeStatement || (statement instanceof OUpdateStatement && (
+        ((OUpdateStatement) statement).isReturnBefore() || ((OUpdateStatement) statement).isReturnAfter())))
+      return variable + ".size()";
+    if (statement instanceof OUpdateStatement || statement instanceof ODeleteStatement || statement instanceof ODeleteVertexStatement
+        || statement instanceof ODeleteEdgeStatement || statement instanceof OMoveVertexStatement)
+      return "ifnull(" + variable + "[0].count, 0)";
+    return "0";
+  }
+
+  private void rollbackBatch() {
+    try {
+      if (database.getTransaction().isActive())
+        database.rollback();
+      else
+        database.command("ROLLBACK").close();
+    } catch (OException e) {
+      OLogManager.instance().warn(this, "Error on rollback of a failed batch", e);
     }
-    return results;
   }
 
   public int getFetchDirection() throws SQLException {
@@ -223,11 +359,13 @@ public class OrientJdbcStatement implements Statement {
 
   public int getFetchSize() throws SQLException {
 
-    return 0;
+    return fetchSize;
   }
 
   public void setFetchSize(final int rows) throws SQLException {
-
+    if (rows < 0)
+      throw new SQLException("The fetch size cannot be negative: " + rows);
+    fetchSize = rows;
   }
 
   public ResultSet getGeneratedKeys() throws SQLException {
@@ -19,6 +19,7 @@ package com.orientechnologies.orient.jdbc;
 
 import org.junit.Test;
 
+import java.sql.BatchUpdateException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -26,6 +27,7 @@ import java.sql.SQLException;
 import static java.sql.ResultSet.CONCUR_READ_ONLY;
 import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 
 public class OrientJdbcPreparedStatementTest extends OrientJdbcDbPerMethodTemplateTest {
 
@@ -195,4 +197,75 @@ public class OrientJdbcPreparedStatementTest extends OrientJdbcDbPerMethodTempla
     stmt.executeQuery();
 
   }
+
+  @Test
+  public void shouldExecuteBatch() throws SQLException {
+    conn.getInfo().setProperty("batchSize", "4");
+    conn.createStatement().execute("CREATE CLASS Customer");
+
+    PreparedStatement insert = conn.prepareStatement("INSERT INTO Customer SET id = ?, name = ?");
+    for (int i = 0; i < 10; i++) {
+      insert.setInt(1, i);
+      insert.setString(2, "name" + i);
+      insert.addBatch();
+    }
+    assertThat(insert.executeBatch()).containsExactly(1, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+    // THE BATCH IS CLEARED AFTER THE EXECUTION
+    assertThat(insert.executeBatch()).isEmpty();
+
+    PreparedStatement update = conn.prepareStatement("UPDATE Customer SET name = ? WHERE id < ?");
+    update.setString(1, "updated");
+    update.setInt(2, 3);
+    update.addBatch();
+    update.setString(1, "none");
+    update.setInt(2, -1);
+    update.addBatch();
+    assertThat(update.executeBatch()).containsExactly(3, 0);
+
+    ResultSet rs = conn.createStatement().executeQuery("SELECT count(*) AS c FROM Customer WHERE name = 'updated'");
+    assertThat(rs.next()).isTrue();
+    assertThat(rs.getLong("c")).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldCountInsertedRecordsWithCountField() throws SQLException {
+    conn.createStatement().execute("CREATE CLASS Stock");
+
+    PreparedStatement insert = conn.prepareStatement("INSERT INTO Stock SET item = ?, count = ?");
+    insert.setString(1, "apple");
+    insert.setInt(2, 10);
+    insert.addBatch();
+    insert.setString(1, "pear");
+    insert.setInt(2, 0);
+    insert.addBatch();
+    assertThat(insert.executeBatch()).containsExactly(1, 1);
+
+    PreparedStatement delete = conn.prepareStatement("DELETE FROM Stock WHERE count > ?");
+    delete.setInt(1, -1);
+    delete.addBatch();
+    assertThat(delete.executeBatch()).containsExactly(2);
+  }
+
+  @Test
+  public void shouldRollbackFailedBatch() throws SQLException {
+    conn.createStatement().execute("CREATE CLASS Unique");
+    conn.createStatement().execute("CREATE PROPERTY Unique.id INTEGER");
+    conn.createStatement().execute("CREATE INDEX Unique.id UNIQUE");
+
+    PreparedStatement insert = conn.prepareStatement("INSERT INTO Unique SET id = ?");
+    for (int id : new int[] { 1, 2, 1 }) {
+      insert.setInt(1, id);
+      insert.addBatch();
+    }
+    try {
+      insert.executeBatch();
+      fail("the batch violates the unique index");
+    } catch (BatchUpdateException e) {
+      assertThat(e.getUpdateCounts()).isEmpty();
+    }
+
+    ResultSet rs = conn.createStatement().executeQuery("SELECT count(*) AS c FROM Unique");
+    assertThat(rs.next()).isTrue();
+    assertThat(rs.getLong("c")).isEqualTo(0);
+  }
 }
@@ -19,6 +19,7 @@ import org.junit.Test;
 import java.sql.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class OrientJdbcResultSetTest extends OrientJdbcDbPerMethodTemplateTest {
 
@@ -27,8 +28,9 @@ public class OrientJdbcResultSetTest extends OrientJdbcDbPerMethodTemplateTest {
 
     assertThat(conn.isClosed()).isFalse();
     Statement stmt = conn.createStatement();
+    stmt.setFetchSize(5);
     ResultSet rs = stmt.executeQuery("SELECT * FROM Item");
-    assertThat(rs.getFetchSize()).isEqualTo(20);
+    assertThat(rs.getFetchSize()).isEqualTo(5);
 
     assertThat(rs.isBeforeFirst()).isTrue();
 
@@ -55,6 +57,44 @@ public class OrientJdbcResultSetTest extends OrientJdbcDbPerMethodTemplateTest {
     assertThat(stmt.isClosed()).isTrue();
   }
 
+  @Test
+  public void shouldStreamForwardOnlyResultSet() throws Exception {
+
+    Statement stmt = conn.createStatement();
+    stmt.setFetchSize(3);
+    ResultSet rs = stmt.executeQuery("SELECT stringKey, intKey FROM Item");
+
+    int rows = 0;
+    while (rs.next()) {
+      assertThat(rs.getRow()).isEqualTo(rows);
+      assertThat(rs.getString("stringKey")).isNotNull();
+      rows++;
+    }
+    assertThat(rows).isEqualTo(20);
+    assertThat(rs.isAfterLast()).isTrue();
+    assertThatThrownBy(() -> rs.absolute(0)).isInstanceOf(SQLException.class);
+    assertThatThrownBy(rs::previous).isInstanceOf(SQLException.class);
+
+    // EXECUTING ANOTHER QUERY CLOSES THE PREVIOUS RESULT SET
+    ResultSet other = stmt.executeQuery("SELECT stringKey FROM Item");
+    assertThat(rs.isClosed()).isTrue();
+    assertThat(other.next()).isTrue();
+    stmt.close();
+    assertThat(other.isClosed()).isTrue();
+  }
+
+  @Test
+  public void shouldScrollInsensitiveResultSet() throws Exception {
+
+    Statement stmt = conn.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+    ResultSet rs = stmt.executeQuery("SELECT stringKey FROM Item");
+
+    assertThat(rs.last()).isTrue();
+    assertThat(rs.getRow()).isEqualTo(19);
+    assertThat(rs.absolute(0)).isTrue();
+    assertThat(rs.isFirst()).isTrue();
+  }
+
   @Test
   public void shouldReturnEmptyResultSet() throws Exception {
 
@@ -73,7 +113,7 @@ public class OrientJdbcResultSetTest extends OrientJdbcDbPerMethodTemplateTest {
     assertThat(stmt.execute("SELECT stringKey, intKey, text, length, date FROM Item")).isTrue();
     ResultSet rs = stmt.getResultSet();
     assertThat(rs).isNotNull();
-    assertThat(rs.getFetchSize()).isEqualTo(20);
+    assertThat(rs.getFetchSize()).isEqualTo(0);
 
     final ResultSetMetaData metaData = rs.getMetaData();
 
@@ -111,7 +151,7 @@ public class OrientJdbcResultSetTest extends OrientJdbcDbPerMethodTemplateTest {
     ResultSet rs = stmt.getResultSet();
     assertThat(rs).isNotNull();
 
-    assertThat(rs.getFetchSize()).isEqualTo(1);
+    assertThat(rs.getFetchSize()).isEqualTo(0);
 
     rs.getLong("uuid");
     rs.getDate(2);
@@ -132,7 +172,7 @@ public class OrientJdbcResultSetTest extends OrientJdbcDbPerMethodTemplateTest {
     ResultSet rs = stmt.getResultSet();
     assertThat(rs).isNotNull();
 
-    assertThat(rs.getFetchSize()).isEqualTo(1);
+    assertThat(rs.getFetchSize()).isEqualTo(0);
 
     assertThat(rs.getLong(1)).isEqualTo(1234567);
     assertThat(rs.getLong("uuid")).isEqualTo(1234567);
@@ -149,7 +189,7 @@ public class OrientJdbcResultSetTest extends OrientJdbcDbPerMethodTemplateTest {
     ResultSet rs = stmt.getResultSet();
     assertThat(rs).isNotNull();
 
-    assertThat(rs.getFetchSize()).isEqualTo(2);
+    assertThat(rs.getFetchSize()).isEqualTo(0);
 
     assertThat(rs.getBoolean(1)).isEqualTo(true);
     assertThat(rs.getBoolean("pub")).isEqualTo(true);
@@ -166,7 +206,7 @@ public class OrientJdbcResultSetTest extends OrientJdbcDbPerMethodTemplateTest {
     ResultSet rs = stmt.getResultSet();
     assertThat(rs).isNotNull();
 
-    assertThat(rs.getFetchSize()).isEqualTo(1);
+    assertThat(rs.getFetchSize()).isEqualTo(0);
 
     assertThat(rs.getBigDecimal(1).intValue()).isEqualTo(3438);
     assertThat(rs.getBigDecimal("totalScore").intValue()).isEqualTo(3438);
@@ -180,7 +220,7 @@ public class OrientJdbcResultSetTest extends OrientJdbcDbPerMethodTemplateTest {
     rs = stmt.getResultSet();
     assertThat(rs).isNotNull();
 
-    assertThat(rs.getFetchSize()).isEqualTo(1);
+    assertThat(rs.getFetchSize()).isEqualTo(0);
 
     assertThat(rs.getBigDecimal(1).intValue()).isEqualTo(3438);
     assertThat(rs.getBigDecimal("totalScore").intValue()).isEqualTo(3438);
@@ -197,7 +237,7 @@ public class OrientJdbcResultSetTest extends OrientJdbcDbPerMethodTemplateTest {
     ResultSet rs = stmt.getResultSet();
     assertThat(rs).isNotNull();
 
-    assertThat(rs.getFetchSize()).isEqualTo(1);
+    assertThat(rs.getFetchSize()).isEqualTo(0);
 
     assertThat(rs.getLong(1)).isEqualTo(20);
     assertThat(rs.getLong("count(*)")).isEqualTo(20);
@@ -212,7 +252,7 @@ public class OrientJdbcResultSetTest extends OrientJdbcDbPerMethodTemplateTest {
     rs = stmt.getResultSet();
     assertThat(rs).isNotNull();
 
-    assertThat(rs.getFetchSize()).isEqualTo(1);
+    assertThat(rs.getFetchSize()).isEqualTo(0);
 
     assertThat(rs.getLong(1)).isEqualTo(20);
     assertThat(rs.getLong("COUNT(*)")).isEqualTo(20);
@@ -969,18 +969,12 @@ public class OObjectEntitySerializer {
   }
 
   public static Object getFieldValue(Field iField, Object iInstance) throws IllegalArgumentException, IllegalAccessException {
-    if (!iField.isAccessible()) {
-      iField.setAccessible(true);
-    }
-    return iField.get(iInstance);
+    return OObjectFieldAccessor.getAccessor(iField.getDeclaringClass()).get(iInstance, iField);
   }
 
   public static void setFieldValue(Field iField, Object iInstance, Object iValue)
       throws IllegalArgumentException, IllegalAccessException {
-    if (!iField.isAccessible()) {
-      iField.setAccessible(true);
-    }
-    iField.set(iInstance, iValue);
+    OObjectFieldAccessor.getAccessor(iField.getDeclaringClass()).set(iInstance, iField, iValue);
   }
 
   public static void invokeBeforeSerializationCallbacks(Class<?> iClass, Object iInstance, ODocument iDocument) {
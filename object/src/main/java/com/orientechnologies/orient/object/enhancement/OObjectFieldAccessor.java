@@ -0,0 +1,363 @@
+/*
+ *
+ * Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.object.enhancement;
+
+import com.orientechnologies.common.log.OLogManager;
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads and writes the fields declared by an entity class. The implementation for a class is generated with javassist the first
+ * time the class is used and is defined in the package of the class, so the generated bytecode reads and writes the fields
+ * directly. The JVM does not allow another class to access private and final fields, those are accessed through method handles
+ * created once per field. The accessor is kept by the class itself, so it does not prevent the class from being unloaded.
+ */
+public abstract class OObjectFieldAccessor {
+
+  private static final ClassValue<OObjectFieldAccessor> accessors = new ClassValue<OObjectFieldAccessor>() {
+    @Override
+    protected OObjectFieldAccessor computeValue(final Class<?> type) {
+      return createAccessor(type);
+    }
+  };
+
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+  private final Field[]              fields;
+  // NULL FOR THE STATIC FIELDS, THOSE ARE ACCESSED THROUGH REFLECTION
+  private final MethodHandle[]       getters;
+  private final MethodHandle[]       setters;
+  private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+  protected OObjectFieldAccessor(final Field[] fields) {
+    this.fields = fields;
+    this.getters = new MethodHandle[fields.length];
+    this.setters = new MethodHandle[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      indexes.put(fields[i].getName(), i);
+      if (!Modifier.isStatic(fields[i].getModifiers()))
+        createHandles(i);
+    }
+  }
+
+  /**
+   * @return the accessor of the fields declared by the class
+   */
+  public static OObjectFieldAccessor getAccessor(final Class<?> iClass) {
+    return accessors.get(iClass);
+  }
+
+  public Object get(final Object iInstance, final Field iField) throws IllegalAccessException {
+    final Integer index = indexes.get(iField.getName());
+    if (index == null)
+      return getReflective(iField, iInstance);
+    try {
+      return get(iInstance, index);
+    } catch (ClassCastException e) {
+      throw new IllegalArgumentException("Cannot read the field '" + iField + "' of " + iInstance, e);
+    }
+  }
+
+  public void set(final Object iInstance, final Field iField, final Object iValue) throws IllegalAccessException {
+    final Integer index = indexes.get(iField.getName());
+    if (index == null) {
+      setReflective(iField, iInstance, iValue);
+      return;
+    }
+    try {
+      set(iInstance, index, iValue);
+    } catch (ClassCastException e) {
+      throw new IllegalArgumentException("Cannot set the value '" + iValue + "' to the field '" + iField + "'", e);
+    }
+  }
+
+  /**
+   * Generated: reads the field with the given index, or delegates to {@link #get(int, Object)} if the field cannot be accessed
+   * directly.
+   */
+  protected abstract Object get(Object iInstance, int iIndex) throws IllegalAccessException;
+
+  /**
+   * Generated: writes the field with the given index, or delegates to {@link #set(int, Object, Object)} if the field cannot be
+   * accessed directly.
+   */
+  protected abstract void set(Object iInstance, int iIndex, Object iValue) throws IllegalAccessException;
+
+  protected Object get(final int iIndex, final Object iInstance) throws IllegalAccessException {
+    final MethodHandle getter = getters[iIndex];
+    if (getter == null)
+      return getReflective(fields[iIndex], iInstance);
+    try {
+      return (Object) getter.invokeExact(iInstance);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new IllegalStateException("Cannot read the field '" + fields[iIndex] + "'", t);
+    }
+  }
+
+  protected void set(final int iIndex, final Object iInstance, final Object iValue) throws IllegalAccessException {
+    final MethodHandle setter = setters[iIndex];
+    if (setter == null) {
+      setReflective(fields[iIndex], iInstance, iValue);
+      return;
+    }
+    try {
+      setter.invokeExact(iInstance, iValue);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new IllegalStateException("Cannot write the field '" + fields[iIndex] + "'", t);
+    }
+  }
+
+  private void createHandles(final int iIndex) {
+    final Field field = fields[iIndex];
+    try {
+      field.setAccessible(true);
+      final MethodHandles.Lookup lookup = MethodHandles.lookup();
+      getters[iIndex] = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+      MethodHandle setter = lookup.unreflectSetter(field);
+      if (field.getType().isPrimitive()) {
+        // SAME CONVERSIONS OF THE GENERATED SETTERS
+        final String type = field.getType().getName();
+        setter = MethodHandles.filterArguments(setter, 1, lookup
+            .findStatic(OObjectFieldAccessor.class, "to" + Character.toUpperCase(type.charAt(0)) + type.substring(1),
+                MethodType.methodType(field.getType(), Object.class)));
+      }
+      setters[iIndex] = setter.asType(SETTER_TYPE);
+    } catch (SecurityException | IllegalAccessException | NoSuchMethodException e) {
+      OLogManager.instance()
+          .debug(OObjectFieldAccessor.class, "Cannot create the method handles of field %s, reflection is used", e, field);
+      getters[iIndex] = null;
+      setters[iIndex] = null;
+    }
+  }
+
+  private static Object getReflective(final Field iField, final Object iInstance) throws IllegalAccessException {
+    if (!iField.isAccessible()) {
+      iField.setAccessible(true);
+    }
+    return iField.get(iInstance);
+  }
+
+  private static void setReflective(final Field iField, final Object iInstance, final Object iValue)
+      throws IllegalAccessException {
+    if (!iField.isAccessible()) {
+      iField.setAccessible(true);
+    }
+    iField.set(iInstance, iValue);
+  }
+
+  // CONVERSIONS OF THE GENERATED SETTERS OF PRIMITIVE FIELDS, THEY ALLOW THE SAME WIDENINGS OF Field.set()
+
+  protected static boolean toBoolean(final Object iValue) {
+    if (iValue instanceof Boolean)
+      return (Boolean) iValue;
+    throw illegalValue(iValue, boolean.class);
+  }
+
+  protected static char toChar(final Object iValue) {
+    if (iValue instanceof Character)
+      return (Character) iValue;
+    throw illegalValue(iValue, char.class);
+  }
+
+  protected static byte toByte(final Object iValue) {
+    if (iValue instanceof Byte)
+      return (Byte) iValue;
+    throw illegalValue(iValue, byte.class);
+  }
+
+  protected static short toShort(final Object iValue) {
+    if (iValue instanceof Short || iValue instanceof Byte)
+      return ((Number) iValue).shortValue();
+    throw illegalValue(iValue, short.class);
+  }
+
+  protected static int toInt(final Object iValue) {
+    if (iValue instanceof Integer || iValue instanceof Short || iValue instanceof Byte)
+      return ((Number) iValue).intValue();
+    if (iValue instanceof Character)
+      return (Character) iValue;
+    throw illegalValue(iValue, int.class);
+  }
+
+  protected static long toLong(final Object iValue) {
+    if (iValue instanceof Long || iValue instanceof Integer || iValue instanceof Short || iValue instanceof Byte)
+      return ((Number) iValue).longValue();
+    if (iValue instanceof Character)
+      return (Character) iValue;
+    throw illegalValue(iValue, long.class);
+  }
+
+  protected static float toFloat(final Object iValue) {
+    if (iValue instanceof Float || iValue instanceof Long || iValue instanceof Integer || iValue instanceof Short
+        || iValue instanceof Byte)
+      return ((Number) iValue).floatValue();
+    if (iValue instanceof Character)
+      return (Character) iValue;
+    throw illegalValue(iValue, float.class);
+  }
+
+  protected static double toDouble(final Object iValue) {
+    if (iValue instanceof Double || iValue instanceof Float || iValue instanceof Long || iValue instanceof Integer
+        || iValue instanceof Short || iValue instanceof Byte)
+      return ((Number) iValue).doubleValue();
+    if (iValue instanceof Character)
+      return (Character) iValue;
+    throw illegalValue(iValue, double.class);
+  }
+
+  private static IllegalArgumentException illegalValue(final Object iValue, final Class<?> iType) {
+    return new IllegalArgumentException("Cannot set the value '" + iValue + "' to a field of type " + iType);
+  }
+
+  private static OObjectFieldAccessor createAccessor(final Class<?> iClass) {
+    final Field[] fields = iClass.getDeclaredFields();
+    if (iClass.getClassLoader() != null && !Modifier.isPrivate(iClass.getModifiers()) && !iClass.isAnonymousClass() && !iClass
+        .isLocalClass()) {
+      try {
+        return generateAccessor(iClass, fields);
+      } catch (Exception | LinkageError e) {
+        OLogManager.instance()
+            .debug(OObjectFieldAccessor.class, "Cannot generate the field accessor of class %s, reflection is used", e,
+                iClass.getName());
+      }
+    }
+    return new OObjectFieldAccessor(fields) {
+      @Override
+      protected Object get(final Object iInstance, final int iIndex) throws IllegalAccessException {
+        return get(iIndex, iInstance);
+      }
+
+      @Override
+      protected void set(final Object iInstance, final int iIndex, final Object iValue) throws IllegalAccessException {
+        set(iIndex, iInstance, iValue);
+      }
+    };
+  }
+
+  private static OObjectFieldAccessor generateAccessor(final Class<?> iClass, final Field[] fields) throws Exception {
+    final String name = iClass.getName() + "$OObjectFieldAccessor";
+    Class<?> accessorClass;
+    try {
+      // ALREADY GENERATED BY A CONCURRENT COMPUTATION
+      accessorClass = Class.forName(name, false, iClass.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      accessorClass = defineAccessor(iClass, fields, name);
+    }
+    return (OObjectFieldAccessor) accessorClass.getConstructor(Field[].class).newInstance(new Object[] { fields });
+  }
+
+  private static synchronized Class<?> defineAccessor(final Class<?> iClass, final Field[] fields, final String name)
+      throws Exception {
+    try {
+      return Class.forName(name, false, iClass.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      // NOT GENERATED YET
+    }
+
+    final ClassPool pool = new ClassPool(true);
+    pool.appendClassPath(new LoaderClassPath(iClass.getClassLoader()));
+    pool.appendClassPath(new ClassClassPath(OObjectFieldAccessor.class));
+
+    final String base = OObjectFieldAccessor.class.getName();
+    final CtClass generated = pool.makeClass(name, pool.get(base));
+    generated.addConstructor(CtNewConstructor.make("public " + generated.getSimpleName() + "(java.lang.reflect.Field[] fields) "
+        + "{ super($1); }", generated));
+
+    final String target = "((" + iClass.getName() + ") $1)";
+    final StringBuilder getter = new StringBuilder("protected Object get(Object iInstance, int iIndex) { switch ($2) {");
+    final StringBuilder setter = new StringBuilder("protected void set(Object iInstance, int iIndex, Object iValue) { switch ($2) {");
+    for (int i = 0; i < fields.length; i++) {
+      final Field f = fields[i];
+      if (!isDirectlyAccessible(f, iClass))
+        continue;
+      getter.append("case ").append(i).append(": return ($w) ").append(target).append('.').append(f.getName()).append(';');
+      setter.append("case ").append(i).append(": ").append(target).append('.').append(f.getName()).append(" = ")
+          .append(convert(f.getType())).append("; return;");
+    }
+    getter.append("default: return get($2, $1); } }");
+    setter.append("default: set($2, $1, $3); } }");
+    generated.addMethod(CtNewMethod.make(getter.toString(), generated));
+    generated.addMethod(CtNewMethod.make(setter.toString(), generated));
+
+    final Class<?> accessorClass = generated.toClass(iClass.getClassLoader(), iClass.getProtectionDomain());
+    generated.detach();
+    return accessorClass;
+  }
+
+  private static boolean isDirectlyAccessible(final Field iField, final Class<?> iClass) {
+    final int modifiers = iField.getModifiers();
+    if (Modifier.isPrivate(modifiers) || Modifier.isFinal(modifiers) || Modifier.isStatic(modifiers) || iField.isSynthetic())
+      return false;
+    Class<?> type = iField.getType();
+    while (type.isArray())
+      type = type.getComponentType();
+    if (type.isPrimitive())
+      return true;
+    // THE TYPE IS USED IN A CAST, SO IT HAS TO BE VISIBLE FROM THE PACKAGE OF THE ENTITY
+    for (Class<?> c = type; c != null; c = c.getDeclaringClass()) {
+      if (Modifier.isPrivate(c.getModifiers()))
+        return false;
+      if (!Modifier.isPublic(c.getModifiers()) && (c.getClassLoader() != iClass.getClassLoader() || !getPackageName(c)
+          .equals(getPackageName(iClass))))
+        return false;
+    }
+    return true;
+  }
+
+  private static String getPackageName(final Class<?> iClass) {
+    final String name = iClass.getName();
+    final int dot = name.lastIndexOf('.');
+    return dot < 0 ? "" : name.substring(0, dot);
+  }
+
+  private static String convert(final Class<?> iType) {
+    if (iType == boolean.class)
+      return "toBoolean($3)";
+    if (iType == char.class)
+      return "toChar($3)";
+    if (iType == byte.class)
+      return "toByte($3)";
+    if (iType == short.class)
+      return "toShort($3)";
+    if (iType == int.class)
+      return "toInt($3)";
+    if (iType == long.class)
+      return "toLong($3)";
+    if (iType == float.class)
+      return "toFloat($3)";
+    if (iType == double.class)
+      return "toDouble($3)";
+    return "(" + iType.getCanonicalName() + ") $3";
+  }
+}
@@ -45,6 +45,7 @@ import com.orientechnologies.orient.core.tx.OTransactionOptimistic;
 import com.orientechnologies.orient.object.db.OObjectLazyList;
 import com.orientechnologies.orient.object.db.OObjectLazyMap;
 import com.orientechnologies.orient.object.db.OObjectNotDetachedException;
+import com.orientechnologies.orient.object.enhancement.OObjectEntitySerializer;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.*;
@@ -165,7 +166,7 @@ public class OObjectSerializerHelper {
       if (o instanceof Method)
         return ((Method) o).invoke(iPojo);
       else if (o instanceof Field)
-        return ((Field) o).get(iPojo);
+        return OObjectEntitySerializer.getFieldValue((Field) o, iPojo);
       return null;
     } catch (Exception e) {
       throw OException.wrapException(new OSchemaException("Cannot get the value of the property: " + iProperty), e);
@@ -185,7 +186,7 @@ public class OObjectSerializerHelper {
         ((Method) o).invoke(iPojo,
             OObjectSerializerHelper.convertInObject(iPojo, iProperty, iValue, ((Method) o).getParameterTypes()[0]));
       } else if (o instanceof Field) {
-        ((Field) o).set(iPojo, OType.convert(iValue, ((Field) o).getType()));
+        OObjectEntitySerializer.setFieldValue((Field) o, iPojo, OType.convert(iValue, ((Field) o).getType()));
       }
 
     } catch (Exception e) {
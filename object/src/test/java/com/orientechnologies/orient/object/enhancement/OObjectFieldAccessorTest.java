@@ -0,0 +1,102 @@
+package com.orientechnologies.orient.object.enhancement;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+
+public class OObjectFieldAccessorTest {
+
+  public static class Entity {
+    String             name;
+    protected long     counter;
+    public    int[]    values;
+    List<String>       tags;
+    private   double   score;
+    final     String   constant = "constant";
+    Entity             parent;
+  }
+
+  private static class PrivateEntity {
+    String name;
+  }
+
+  @Test
+  public void testGeneratedAccessor() throws Exception {
+    OObjectFieldAccessor accessor = OObjectFieldAccessor.getAccessor(Entity.class);
+    Assert.assertEquals(Entity.class.getName() + "$OObjectFieldAccessor", accessor.getClass().getName());
+    Assert.assertSame(accessor, OObjectFieldAccessor.getAccessor(Entity.class));
+
+    Entity entity = new Entity();
+    Entity parent = new Entity();
+    accessor.set(entity, field("name"), "test");
+    accessor.set(entity, field("counter"), 10);
+    accessor.set(entity, field("values"), new int[] { 1, 2 });
+    accessor.set(entity, field("tags"), Arrays.asList("a", "b"));
+    accessor.set(entity, field("score"), 1.5);
+    accessor.set(entity, field("parent"), parent);
+
+    Assert.assertEquals("test", entity.name);
+    Assert.assertEquals(10L, entity.counter);
+    Assert.assertArrayEquals(new int[] { 1, 2 }, entity.values);
+    Assert.assertEquals(Arrays.asList("a", "b"), entity.tags);
+    Assert.assertEquals(1.5, entity.score, 0);
+    Assert.assertSame(parent, entity.parent);
+
+    Assert.assertEquals("test", accessor.get(entity, field("name")));
+    Assert.assertEquals(10L, accessor.get(entity, field("counter")));
+    Assert.assertEquals(1.5, accessor.get(entity, field("score")));
+    Assert.assertEquals("constant", accessor.get(entity, field("constant")));
+    Assert.assertSame(parent, accessor.get(entity, field("parent")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullToPrimitiveField() throws Exception {
+    OObjectFieldAccessor.getAccessor(Entity.class).set(new Entity(), field("counter"), null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongType() throws Exception {
+    OObjectFieldAccessor.getAccessor(Entity.class).set(new Entity(), field("parent"), "not an entity");
+  }
+
+  @Test
+  public void testPrivateAndFinalFields() throws Exception {
+    OObjectFieldAccessor accessor = OObjectFieldAccessor.getAccessor(Entity.class);
+
+    Entity entity = new Entity();
+    accessor.set(entity, field("score"), 2);
+    accessor.set(entity, field("constant"), "changed");
+
+    Assert.assertEquals(2.0, entity.score, 0);
+    Assert.assertEquals(2.0, accessor.get(entity, field("score")));
+    Assert.assertEquals("changed", accessor.get(entity, field("constant")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullToPrivatePrimitiveField() throws Exception {
+    OObjectFieldAccessor.getAccessor(Entity.class).set(new Entity(), field("score"), null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongTypeToFinalField() throws Exception {
+    OObjectFieldAccessor.getAccessor(Entity.class).set(new Entity(), field("constant"), 1);
+  }
+
+  @Test
+  public void testReflectiveAccessor() throws Exception {
+    OObjectFieldAccessor accessor = OObjectFieldAccessor.getAccessor(PrivateEntity.class);
+    Assert.assertNotEquals(PrivateEntity.class.getName() + "$OObjectFieldAccessor", accessor.getClass().getName());
+
+    PrivateEntity entity = new PrivateEntity();
+    Field name = PrivateEntity.class.getDeclaredField("name");
+    accessor.set(entity, name, "test");
+    Assert.assertEquals("test", accessor.get(entity, name));
+  }
+
+  private static Field field(String name) throws NoSuchFieldException {
+    return Entity.class.getDeclaredField(name);
+  }
+}
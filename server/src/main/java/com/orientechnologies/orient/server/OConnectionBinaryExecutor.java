@@ -204,6 +204,8 @@ import com.orientechnologies.orient.core.tx.OTransactionNoTx;
 import com.orientechnologies.orient.core.tx.OTransactionOptimistic;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
 import com.orientechnologies.orient.server.config.OServerUserConfiguration;
+import com.orientechnologies.orient.server.distributed.OConsistencyToken;
+import com.orientechnologies.orient.server.distributed.OConsistencyTokenSession;
 import com.orientechnologies.orient.server.distributed.ODistributedConfiguration;
 import com.orientechnologies.orient.server.distributed.ODistributedServerManager;
 import com.orientechnologies.orient.server.distributed.ORemoteServerController;
@@ -1286,6 +1288,8 @@ public final class OConnectionBinaryExecutor implements OBinaryRequestExecutor {
   @Override
   public OBinaryResponse executeQuery(OQueryRequest request) {
     ODatabaseDocumentInternal database = connection.getDatabase();
+    if (database instanceof OConsistencyTokenSession)
+      setReadConsistencyToken((OConsistencyTokenSession) database, request.getConsistencyToken());
     OQueryMetadataUpdateListener metadataListener = new OQueryMetadataUpdateListener();
     database.getSharedContext().registerListener(metadataListener);
     if (database.getTransaction().isActive()) {
@@ -1424,7 +1428,23 @@ public final class OConnectionBinaryExecutor implements OBinaryRequestExecutor {
       collectionManager.clearChangedIds();
     }
 
-    return new OCommit37Response(createdRecords, updatedRecords, deletedRecords, changedIds);
+    String consistencyToken = null;
+    if (database instanceof OConsistencyTokenSession) {
+      final OConsistencyToken token = ((OConsistencyTokenSession) database).getLastCommitToken();
+      if (token != null)
+        consistencyToken = token.toString();
+    }
+
+    return new OCommit37Response(createdRecords, updatedRecords, deletedRecords, changedIds, consistencyToken);
+  }
+
+  /**
+   * Sets the consistency token sent by the client on the session, the token is parsed only when it changes.
+   */
+  private static void setReadConsistencyToken(final OConsistencyTokenSession session, final String token) {
+    final OConsistencyToken current = session.getReadConsistencyToken();
+    if (token == null ? current != null : current == null || !token.equals(current.toString()))
+      session.setReadConsistencyToken(token != null ? OConsistencyToken.parse(token) : null);
   }
 
   @Override
@@ -0,0 +1,81 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.server.distributed;
+
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+
+import java.util.Objects;
+
+/**
+ * Session consistency token: the LSN of a committed transaction on the node that coordinated it. A node that has applied the
+ * operations of that node up to the LSN can serve the reads of the session locally, still seeing its own writes. The token can be
+ * passed around in its string form, see {@link #toString()} and {@link #parse(String)}.
+ */
+public class OConsistencyToken {
+  private final String             nodeName;
+  private final OLogSequenceNumber lsn;
+
+  public OConsistencyToken(final String nodeName, final OLogSequenceNumber lsn) {
+    this.nodeName = nodeName;
+    this.lsn = lsn;
+  }
+
+  public static OConsistencyToken parse(final String token) {
+    final int nodeSeparator = token.lastIndexOf('@');
+    final int lsnSeparator = token.lastIndexOf(':');
+    if (nodeSeparator < 1 || lsnSeparator < nodeSeparator)
+      throw new IllegalArgumentException("Invalid consistency token '" + token + "'");
+
+    return new OConsistencyToken(token.substring(0, nodeSeparator),
+        new OLogSequenceNumber(Long.parseLong(token.substring(nodeSeparator + 1, lsnSeparator)),
+            Long.parseLong(token.substring(lsnSeparator + 1))));
+  }
+
+  public String getNodeName() {
+    return nodeName;
+  }
+
+  public OLogSequenceNumber getLsn() {
+    return lsn;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o)
+      return true;
+    if (o == null || getClass() != o.getClass())
+      return false;
+    final OConsistencyToken that = (OConsistencyToken) o;
+    return nodeName.equals(that.nodeName) && lsn.equals(that.lsn);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(nodeName, lsn);
+  }
+
+  /**
+   * Returns the token in the form <code>node@segment:position</code>.
+   */
+  @Override
+  public String toString() {
+    return nodeName + "@" + lsn.getSegment() + ":" + lsn.getPosition();
+  }
+}
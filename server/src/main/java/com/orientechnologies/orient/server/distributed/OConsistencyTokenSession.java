@@ -0,0 +1,41 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.server.distributed;
+
+/**
+ * Database session of a distributed server that gives read-your-writes guarantees with {@link OConsistencyToken}s. The binary
+ * protocol returns the token of a commit to the remote client and applies the token the client sends with its queries and commands.
+ */
+public interface OConsistencyTokenSession {
+
+  /**
+   * Returns the consistency token of the last transaction committed by this session, null if none.
+   */
+  OConsistencyToken getLastCommitToken();
+
+  OConsistencyToken getReadConsistencyToken();
+
+  /**
+   * Sets the consistency token the reads of this session must observe.
+   *
+   * @param token the token, null to remove it
+   */
+  void setReadConsistencyToken(OConsistencyToken token);
+}
@@ -107,6 +107,15 @@ public interface ODistributedDatabase {
 
   ODistributedSyncConfiguration getSyncConfiguration();
 
+  /**
+   * Waits until the operations received from a node have been applied locally up to an LSN of that node.
+   *
+   * @param timeout maximum time to wait in ms
+   *
+   * @return true if the LSN has been applied, false if the timeout expired
+   */
+  boolean waitForLSN(String sourceNodeName, OLogSequenceNumber lsn, long timeout) throws InterruptedException;
+
   void waitForOnline();
 
   void reEnqueue(final int senderNodeId, final long msgSequence, final String databaseName, final ORemoteTask payload,
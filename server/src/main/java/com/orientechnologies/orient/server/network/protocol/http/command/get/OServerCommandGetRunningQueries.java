@@ -0,0 +1,67 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.server.network.protocol.http.command.get;
+
+import com.orientechnologies.orient.core.sql.executor.OQueryResourceUsage;
+import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
+import com.orientechnologies.orient.server.network.protocol.http.OHttpResponse;
+import com.orientechnologies.orient.server.network.protocol.http.OHttpUtils;
+import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommandAuthenticatedServerAbstract;
+
+/**
+ * Lists the queries and the commands running in the server with the resources they used so far, optionally only the ones of a
+ * database.
+ */
+public class OServerCommandGetRunningQueries extends OServerCommandAuthenticatedServerAbstract {
+  private static final String[] NAMES = { "GET|queries", "GET|queries/*" };
+
+  public OServerCommandGetRunningQueries() {
+    super("server.queries");
+  }
+
+  @Override
+  public boolean execute(final OHttpRequest iRequest, final OHttpResponse iResponse) throws Exception {
+    final String[] args = checkSyntax(iRequest.url, 1, "Syntax error: queries[/<database>]");
+
+    iRequest.data.commandInfo = "Running queries";
+
+    final String databaseName = args.length > 1 && args[1].length() > 0 ? args[1] : null;
+
+    final StringBuilder json = new StringBuilder("{\"queries\":[");
+    boolean first = true;
+    for (OQueryResourceUsage query : OQueryResourceUsage.getRunningQueries()) {
+      if (databaseName != null && !databaseName.equals(query.getDatabase()))
+        continue;
+      if (!first)
+        json.append(',');
+      json.append(query.toResult().toJSON());
+      first = false;
+    }
+    json.append("]}");
+
+    iResponse.send(OHttpUtils.STATUS_OK_CODE, OHttpUtils.STATUS_OK_DESCRIPTION, OHttpUtils.CONTENT_JSON, json.toString(), null);
+    return false;
+  }
+
+  @Override
+  public String[] getNames() {
+    return NAMES;
+  }
+}
@@ -0,0 +1,26 @@
+package com.orientechnologies.orient.server.distributed;
+
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OConsistencyTokenTest {
+
+  @Test
+  public void testStringForm() {
+    final OConsistencyToken token = new OConsistencyToken("europe-0", new OLogSequenceNumber(3, 1024));
+    Assert.assertEquals("europe-0@3:1024", token.toString());
+    Assert.assertEquals(token, OConsistencyToken.parse(token.toString()));
+  }
+
+  @Test
+  public void testNodeNameWithSeparators() {
+    final OConsistencyToken token = new OConsistencyToken("node@dc:1", new OLogSequenceNumber(0, 7));
+    Assert.assertEquals(token, OConsistencyToken.parse(token.toString()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalid() {
+    OConsistencyToken.parse("node-3:1024");
+  }
+}
@@ -3,6 +3,7 @@ package com.orientechnologies.orient.server.query;
 import com.orientechnologies.common.io.OFileUtils;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.ODatabaseType;
 import com.orientechnologies.orient.core.db.OrientDB;
 import com.orientechnologies.orient.core.db.OrientDBConfig;
@@ -81,6 +82,50 @@ public class RemoteQuerySupportTest {
     }
   }
 
+  @Test
+  public void testQueryPrefetchWithOtherRequests() {
+    for (int i = 0; i < 150; i++) {
+      ODocument doc = new ODocument("Some");
+      doc.setProperty("counter", i);
+      session.save(doc);
+    }
+    try (OResultSet res = session.query("select from Some order by counter")) {
+      for (int i = 0; i < 150; i++) {
+        assertTrue(res.hasNext());
+        OResult item = res.next();
+        assertEquals(i, (int) item.getProperty("counter"));
+        if (i % 7 == 0) {
+          // OTHER REQUESTS OF THE SESSION WAIT FOR THE PAGE REQUESTED IN BACKGROUND
+          ODocument loaded = session.load(item.getIdentity().get());
+          assertEquals(i, (int) loaded.getProperty("counter"));
+          try (OResultSet count = session.query("select count(*) as count from Some")) {
+            assertEquals(150L, (long) count.next().getProperty("count"));
+          }
+        }
+      }
+      assertFalse(res.hasNext());
+    }
+  }
+
+  @Test
+  public void testQueryClosedWithPrefetchedPage() {
+    for (int i = 0; i < 150; i++) {
+      ODocument doc = new ODocument("Some");
+      doc.setProperty("prop", "value");
+      session.save(doc);
+    }
+    OResultSet res = session.query("select from Some");
+    for (int i = 0; i < 15; i++) {
+      assertEquals(res.next().getProperty("prop"), "value");
+    }
+    res.close();
+    assertTrue(((ODatabaseDocumentInternal) session).getActiveQueries().isEmpty());
+
+    try (OResultSet count = session.query("select count(*) as count from Some")) {
+      assertEquals(150L, (long) count.next().getProperty("count"));
+    }
+  }
+
   @Test(expected = ODatabaseException.class)
   public void testQueryKilledSession() {
     for (int i = 0; i < 150; i++) {
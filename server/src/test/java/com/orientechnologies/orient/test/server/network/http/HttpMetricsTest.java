@@ -0,0 +1,39 @@
+package com.orientechnologies.orient.test.server.network.http;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests HTTP "metrics" command.
+ */
+public class HttpMetricsTest extends BaseHttpTest {
+  @Test
+  public void testMetrics() throws Exception {
+    final HttpResponse response = setUserName("root").setUserPassword("root").get("metrics").getResponse();
+    Assert.assertEquals(200, response.getStatusLine().getStatusCode());
+
+    final String metrics = EntityUtils.toString(response.getEntity());
+    Assert.assertTrue(metrics.contains("# TYPE orientdb_storage_commit_seconds histogram"));
+    Assert.assertTrue(metrics.contains("orientdb_disk_cache_page_load_seconds_bucket{le=\"+Inf\"}"));
+    Assert.assertTrue(metrics.contains("orientdb_query_execution_seconds_count"));
+  }
+
+  @Override
+  public String getDatabaseName() {
+    return "-";
+  }
+
+  @Before
+  public void startServer() throws Exception {
+    super.startServer();
+  }
+
+  @After
+  public void stopServer() throws Exception {
+    super.stopServer();
+  }
+}
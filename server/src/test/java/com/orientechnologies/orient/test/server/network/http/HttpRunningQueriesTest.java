@@ -0,0 +1,37 @@
+package com.orientechnologies.orient.test.server.network.http;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests HTTP "queries" command.
+ */
+public class HttpRunningQueriesTest extends BaseHttpTest {
+  @Test
+  public void testRunningQueries() throws Exception {
+    final HttpResponse response = setUserName("root").setUserPassword("root").get("queries").getResponse();
+    Assert.assertEquals(200, response.getStatusLine().getStatusCode());
+
+    final String queries = EntityUtils.toString(response.getEntity());
+    Assert.assertTrue(queries.startsWith("{\"queries\":["));
+  }
+
+  @Override
+  public String getDatabaseName() {
+    return "-";
+  }
+
+  @Before
+  public void startServer() throws Exception {
+    super.startServer();
+  }
+
+  @After
+  public void stopServer() throws Exception {
+    super.stopServer();
+  }
+}